@@ -12,12 +12,10 @@ import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
-import javafx.scene.SnapshotParameters;
 import javafx.scene.chart.AreaChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
@@ -25,7 +23,6 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
-import javafx.scene.image.WritableImage;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
@@ -33,9 +30,6 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.stage.FileChooser;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -279,43 +273,16 @@ public class ComparisonController {
                 AlertFactory.showWarning("Экспорт невозможен", "Нет товаров для сравнения.");
                 return;
             }
-            try {
-                Map<String, byte[]> images = new HashMap<>();
-                images.put("comparisonChart.png", snapshotNode(areaChartContainer));
-                images.put("comparisonTable.png", snapshotNode(comparisonTableContainer));
-
-                new Thread(() -> {
-                    try {
-                        byte[] pdfData = analyticsService.getComparisonPdf(productIds, images);
-                        Files.write(file.toPath(), pdfData);
-                        Platform.runLater(() -> AlertFactory.showInfo("Отчет успешно сохранен", "Файл сохранен по пути: " + file.getAbsolutePath()));
-                    } catch (IOException e) {
-                        Platform.runLater(() -> AlertFactory.showError("Не удалось сохранить отчет", e.getMessage()));
-                        e.printStackTrace();
-                    }
-                }).start();
-            } catch (IOException e) {
-                AlertFactory.showError("Не удалось сделать снимок", e.getMessage());
-                e.printStackTrace();
-            }
-        }
-    }
-
-    /**
-     * Создает снимок любого JavaFX узла и преобразует его в byte[].
-     */
-    private byte[] snapshotNode(Node node) throws IOException {
-        WritableImage image = node.snapshot(new SnapshotParameters(), null);
-
-        BufferedImage bufferedImage = SwingFXUtils.fromFXImage(image, null);
-        BufferedImage imageWithBackground = new BufferedImage(bufferedImage.getWidth(), bufferedImage.getHeight(), BufferedImage.TYPE_INT_RGB);
-        imageWithBackground.getGraphics().setColor(java.awt.Color.WHITE);
-        imageWithBackground.getGraphics().fillRect(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight());
-        imageWithBackground.getGraphics().drawImage(bufferedImage, 0, 0, null);
-
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            ImageIO.write(imageWithBackground, "png", outputStream);
-            return outputStream.toByteArray();
+            new Thread(() -> {
+                try {
+                    byte[] pdfData = analyticsService.getComparisonPdf(productIds);
+                    Files.write(file.toPath(), pdfData);
+                    Platform.runLater(() -> AlertFactory.showInfo("Отчет успешно сохранен", "Файл сохранен по пути: " + file.getAbsolutePath()));
+                } catch (IOException e) {
+                    Platform.runLater(() -> AlertFactory.showError("Не удалось сохранить отчет", e.getMessage()));
+                    e.printStackTrace();
+                }
+            }).start();
         }
     }
 
@@ -2,47 +2,53 @@ package com.github.stasangelov.reviewanalytics.client.controller;
 
 import com.github.stasangelov.reviewanalytics.client.ClientApplication;
 import com.github.stasangelov.reviewanalytics.client.model.analytics.dashboard.*;
+import com.github.stasangelov.reviewanalytics.client.model.analytics.live.DashboardDeltaDto;
+import com.github.stasangelov.reviewanalytics.client.model.analytics.live.DistributionDeltaDto;
+import com.github.stasangelov.reviewanalytics.client.model.analytics.live.DynamicsDeltaDto;
+import com.github.stasangelov.reviewanalytics.client.model.analytics.live.ProductDeltaDto;
 import com.github.stasangelov.reviewanalytics.client.model.analytics.product.ProductSummaryDto;
 import com.github.stasangelov.reviewanalytics.client.model.dictionary.CategoryDto;
 import com.github.stasangelov.reviewanalytics.client.service.AnalyticsService;
 import com.github.stasangelov.reviewanalytics.client.service.ComparisonService;
 import com.github.stasangelov.reviewanalytics.client.service.DictionaryService;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.event.ActionEvent;
 import com.github.stasangelov.reviewanalytics.client.util.AlertFactory;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Pos;
-import javafx.scene.Node;
 import javafx.scene.Scene;
-import javafx.scene.SnapshotParameters;
 import javafx.scene.chart.*;
 import javafx.scene.control.*;
-import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseButton;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import javafx.util.StringConverter;
+import okhttp3.Call;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Контроллер для главной информационной панели (дашборда).
@@ -78,6 +84,16 @@ public class DashboardController {
     private final AnalyticsService analyticsService = new AnalyticsService();
     private final DictionaryService dictionaryService = new DictionaryService();
 
+    // --- Обновления в реальном времени ---
+    private static final int TOP_PRODUCTS_LIMIT = 5;
+    private static final Duration LIVE_RECONNECT_DELAY = Duration.seconds(5);
+    /** Данные, загруженные для текущих фильтров; к ним применяются изменения с сервера. */
+    private DashboardDto dashboardData;
+    /** Количество и сумма интегральных рейтингов для пересчета среднего в KPI. */
+    private long kpiRatingCount;
+    private double kpiRatingSum;
+    private Call liveSubscription;
+
     //================================================================================
     // Инициализация
     //================================================================================
@@ -120,7 +136,7 @@ public class DashboardController {
 
     /**
      * Обрабатывает экспорт текущего вида в PDF-отчет.
-     * Собирает фильтры, делает снимки графиков и отправляет на сервер.
+     * Собирает фильтры и отправляет их на сервер, который сам строит графики отчета.
      */
     @FXML
     void exportDashboardToPdf(ActionEvent event) {
@@ -137,33 +153,21 @@ public class DashboardController {
             CategoryDto selectedCategory = categoryComboBox.getSelectionModel().getSelectedItem();
             Long categoryId = (selectedCategory != null) ? selectedCategory.getId() : null;
 
-            // Делаем снимки графиков
-            try {
-                Map<String, byte[]> chartImages = new HashMap<>();
-                chartImages.put("categoryChart.png", snapshotNode(categoryChart));
-                chartImages.put("dynamicsChart.png", snapshotNode(dynamicsChart));
-                chartImages.put("distributionChart.png", snapshotNode(distributionChart));
-
-                new Thread(() -> {
-                    try {
-                        byte[] pdfData = analyticsService.getDashboardPdf(startDate, endDate, categoryId, chartImages);
-                        Files.write(file.toPath(), pdfData);
-
-                        Platform.runLater(() -> {
-                            AlertFactory.showInfo("Отчет успешно сохранен", "Файл сохранен по пути: " + file.getAbsolutePath());
-                        });
-                    } catch (IOException e) {
-                        Platform.runLater(() -> {
-                            AlertFactory.showError("Не удалось сохранить отчет", e.getMessage());
-                        });
-                        e.printStackTrace();
-                    }
-                }).start();
-
-            } catch (IOException e) {
-                AlertFactory.showError("Не удалось сделать снимок графика", e.getMessage());
-                e.printStackTrace();
-            }
+            new Thread(() -> {
+                try {
+                    byte[] pdfData = analyticsService.getDashboardPdf(startDate, endDate, categoryId);
+                    Files.write(file.toPath(), pdfData);
+
+                    Platform.runLater(() -> {
+                        AlertFactory.showInfo("Отчет успешно сохранен", "Файл сохранен по пути: " + file.getAbsolutePath());
+                    });
+                } catch (IOException e) {
+                    Platform.runLater(() -> {
+                        AlertFactory.showError("Не удалось сохранить отчет", e.getMessage());
+                    });
+                    e.printStackTrace();
+                }
+            }).start();
         }
     }
 
@@ -200,6 +204,9 @@ public class DashboardController {
                     updateDynamicsChart(dashboardData.getRatingDynamics());
                     updateDistributionChart(dashboardData.getRatingDistribution());
                     allProductsSummary.setAll(productsSummary);
+                    this.dashboardData = dashboardData;
+                    resetKpiTotals(dashboardData.getKpis());
+                    subscribeToLiveUpdates(startDate, endDate, categoryId);
                 });
             } catch (IOException e) {
                 Platform.runLater(() -> {
@@ -210,6 +217,196 @@ public class DashboardController {
         }).start();
     }
 
+    //================================================================================
+    // Обновления в реальном времени
+    //================================================================================
+
+    /**
+     * Подписывается на изменения дашборда с теми же фильтрами, с которыми загружены данные,
+     * заменяя предыдущую подписку. Изменения, зафиксированные между загрузкой и подпиской, не приходят;
+     * при обрыве потока данные через несколько секунд загружаются заново, и подписка возобновляется.
+     */
+    private void subscribeToLiveUpdates(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        if (liveSubscription != null) {
+            liveSubscription.cancel();
+        }
+        Call[] subscription = new Call[1];
+        subscription[0] = analyticsService.subscribeToDashboard(startDate, endDate, categoryId,
+                delta -> Platform.runLater(() -> {
+                    if (subscription[0] == liveSubscription) {
+                        applyDelta(delta);
+                    }
+                }),
+                error -> Platform.runLater(() -> {
+                    if (subscription[0] != liveSubscription) {
+                        return;
+                    }
+                    liveSubscription = null;
+                    PauseTransition reconnect = new PauseTransition(LIVE_RECONNECT_DELAY);
+                    reconnect.setOnFinished(event -> {
+                        // Окно дашборда закрыто — переподключаться не нужно
+                        if (liveSubscription == null && totalReviewsLabel.getScene() != null) {
+                            loadDashboardData();
+                        }
+                    });
+                    reconnect.play();
+                }));
+        liveSubscription = subscription[0];
+    }
+
+    /**
+     * Применяет изменение к загруженным данным и перерисовывает затронутые элементы.
+     * Графики по категориям и брендам не обновляются: количество оценок по ним клиенту не передается,
+     * и они уточняются при следующей загрузке.
+     */
+    private void applyDelta(DashboardDeltaDto delta) {
+        if (dashboardData == null) {
+            return;
+        }
+        if (totalReviewsLabel.getScene() == null) {
+            liveSubscription.cancel();
+            return;
+        }
+
+        KpiDto kpis = dashboardData.getKpis() != null ? dashboardData.getKpis() : new KpiDto();
+        kpis.setTotalReviews(kpis.getTotalReviews() + delta.getReviewCountDelta());
+        kpiRatingCount += delta.getRatingCountDelta();
+        kpiRatingSum += delta.getRatingSumDelta();
+        kpis.setAverageIntegralRating(kpiRatingCount > 0 ? kpiRatingSum / kpiRatingCount : 0.0);
+        dashboardData.setKpis(kpis);
+        updateKpis(kpis);
+
+        if (!delta.getProducts().isEmpty()) {
+            applyProductDeltas(delta.getProducts());
+        }
+        if (!delta.getDynamics().isEmpty()) {
+            applyDynamicsDeltas(delta.getDynamics());
+        }
+        if (!delta.getDistribution().isEmpty()) {
+            applyDistributionDeltas(delta.getDistribution());
+        }
+    }
+
+    /**
+     * Сервер не передает количество отзывов с рейтингом, поэтому при загрузке
+     * оно приравнивается к общему количеству отзывов.
+     */
+    private void resetKpiTotals(KpiDto kpis) {
+        kpiRatingCount = kpis != null ? kpis.getTotalReviews() : 0;
+        kpiRatingSum = kpis != null ? kpis.getAverageIntegralRating() * kpiRatingCount : 0.0;
+    }
+
+    /**
+     * Обновляет строки сводной таблицы и пересчитывает топы лучших и худших товаров по ней.
+     * Товары, которых еще нет в таблице, появятся после следующей загрузки.
+     */
+    private void applyProductDeltas(List<ProductDeltaDto> deltas) {
+        Map<Long, ProductDeltaDto> byProduct = new HashMap<>();
+        deltas.forEach(delta -> byProduct.put(delta.getProductId(), delta));
+
+        for (int i = 0; i < allProductsSummary.size(); i++) {
+            ProductSummaryDto summary = allProductsSummary.get(i);
+            ProductDeltaDto delta = byProduct.get(summary.getProductId());
+            if (delta == null) {
+                continue;
+            }
+            long reviewCount = summary.getReviewCount() != null ? summary.getReviewCount() : 0;
+            double average = summary.getAverageRating() != null ? summary.getAverageRating() : 0.0;
+            long ratingCount = reviewCount + delta.getRatingCountDelta();
+            double ratingSum = average * reviewCount + delta.getRatingSumDelta();
+            ProductSummaryDto updated = new ProductSummaryDto(summary.getProductId(), summary.getProductName(),
+                    summary.getCategoryName(), summary.getBrand(), reviewCount + delta.getReviewCountDelta(),
+                    ratingCount > 0 ? ratingSum / ratingCount : null);
+            // Замена элемента уведомляет таблицу, и строка перерисовывается с учетом сортировки
+            allProductsSummary.set(i, updated);
+        }
+
+        List<TopProductDto> rated = allProductsSummary.stream()
+                .filter(summary -> summary.getAverageRating() != null && summary.getReviewCount() != null
+                        && summary.getReviewCount() > 0)
+                .map(summary -> {
+                    TopProductDto top = new TopProductDto();
+                    top.setProductId(summary.getProductId());
+                    top.setProductName(summary.getProductName());
+                    top.setAverageRating(summary.getAverageRating());
+                    return top;
+                })
+                .sorted(Comparator.comparingDouble(TopProductDto::getAverageRating))
+                .collect(Collectors.toList());
+        List<TopProductDto> worst = new ArrayList<>(rated.subList(0, Math.min(TOP_PRODUCTS_LIMIT, rated.size())));
+        Collections.reverse(rated);
+        List<TopProductDto> best = new ArrayList<>(rated.subList(0, Math.min(TOP_PRODUCTS_LIMIT, rated.size())));
+        dashboardData.setTopRatedProducts(best);
+        dashboardData.setWorstRatedProducts(worst);
+        updateTopProductsChart(topProductsChart, new ArrayList<>(best), "Лучшие");
+        updateTopProductsChart(worstProductsChart, new ArrayList<>(worst), "Худшие");
+    }
+
+    /**
+     * Пересчитывает средний рейтинг затронутых периодов графика динамики; новый период вставляется по дате.
+     */
+    private void applyDynamicsDeltas(List<DynamicsDeltaDto> deltas) {
+        List<RatingDynamicDto> dynamics = dashboardData.getRatingDynamics() != null
+                ? dashboardData.getRatingDynamics() : new ArrayList<>();
+        for (DynamicsDeltaDto delta : deltas) {
+            RatingDynamicDto point = dynamics.stream()
+                    .filter(p -> delta.getDate().equals(p.getDate()))
+                    .findFirst()
+                    .orElse(null);
+            if (point == null) {
+                point = new RatingDynamicDto();
+                point.setDate(delta.getDate());
+                point.setReviewCount(0L);
+                int position = 0;
+                while (position < dynamics.size() && dynamics.get(position).getDate().isBefore(delta.getDate())) {
+                    position++;
+                }
+                dynamics.add(position, point);
+            }
+            long count = point.getReviewCount() != null ? point.getReviewCount() : 0;
+            double sum = point.getAverageRating() != null ? point.getAverageRating() * count : 0.0;
+            count += delta.getRatingCountDelta();
+            sum += delta.getRatingSumDelta();
+            point.setReviewCount(Math.max(count, 0));
+            point.setAverageRating(count > 0 ? sum / count : null);
+        }
+        dashboardData.setRatingDynamics(dynamics);
+        updateDynamicsChart(dynamics);
+    }
+
+    /**
+     * Изменяет счетчики распределения оценок; новый критерий добавляется в конец.
+     */
+    private void applyDistributionDeltas(List<DistributionDeltaDto> deltas) {
+        List<RatingDistributionDto> distribution = dashboardData.getRatingDistribution() != null
+                ? dashboardData.getRatingDistribution() : new ArrayList<>();
+        for (DistributionDeltaDto delta : deltas) {
+            RatingDistributionDto row = distribution.stream()
+                    .filter(r -> Objects.equals(r.getCriterionName(), delta.getCriterionName()))
+                    .findFirst()
+                    .orElse(null);
+            if (row == null) {
+                row = new RatingDistributionDto();
+                row.setCriterionName(delta.getCriterionName());
+                distribution.add(row);
+            }
+            switch (delta.getRating()) {
+                case 1 -> row.setRating1Count(row.getRating1Count() + delta.getCountDelta());
+                case 2 -> row.setRating2Count(row.getRating2Count() + delta.getCountDelta());
+                case 3 -> row.setRating3Count(row.getRating3Count() + delta.getCountDelta());
+                case 4 -> row.setRating4Count(row.getRating4Count() + delta.getCountDelta());
+                case 5 -> row.setRating5Count(row.getRating5Count() + delta.getCountDelta());
+                default -> { }
+            }
+        }
+        dashboardData.setRatingDistribution(distribution);
+        updateDistributionChart(distribution);
+    }
+
+    //================================================================================
+    // Отрисовка элементов дашборда
+    //================================================================================
+
     /**
      * Обновляет карточки с ключевыми показателями (KPI).
      */
@@ -311,8 +508,11 @@ public class DashboardController {
         if (data == null || data.isEmpty()) return;
 
         NumberAxis yAxis = (NumberAxis) dynamicsChart.getYAxis();
-        double min = data.stream().mapToDouble(RatingDynamicDto::getAverageRating).min().orElse(0.0);
-        double max = data.stream().mapToDouble(RatingDynamicDto::getAverageRating).max().orElse(5.0);
+        // Периоды без оценок приходят с пустым рейтингом: они остаются на оси, но без точки
+        double min = data.stream().map(RatingDynamicDto::getAverageRating).filter(Objects::nonNull)
+                .mapToDouble(Double::doubleValue).min().orElse(0.0);
+        double max = data.stream().map(RatingDynamicDto::getAverageRating).filter(Objects::nonNull)
+                .mapToDouble(Double::doubleValue).max().orElse(5.0);
 
         yAxis.setAutoRanging(false);
         yAxis.setLowerBound(Math.floor(min - 0.5));
@@ -328,9 +528,16 @@ public class DashboardController {
             formatter = DateTimeFormatter.ofPattern("dd.MM.yy");
         }
 
+        // Подписи коротких форматов могут повторяться в разные годы, а ось не допускает дубликатов
+        Set<String> periods = new LinkedHashSet<>();
         for (RatingDynamicDto dynamic : data) {
-            series.getData().add(new XYChart.Data<>(dynamic.getDate().format(formatter), dynamic.getAverageRating()));
+            String period = dynamic.getDate().format(formatter);
+            periods.add(period);
+            if (dynamic.getAverageRating() != null) {
+                series.getData().add(new XYChart.Data<>(period, dynamic.getAverageRating()));
+            }
         }
+        ((CategoryAxis) dynamicsChart.getXAxis()).setCategories(FXCollections.observableArrayList(periods));
         dynamicsChart.getData().add(series);
     }
 
@@ -542,23 +749,4 @@ public class DashboardController {
             e.printStackTrace();
         }
     }
-
-    /**
-     * Создает снимок любого JavaFX узла (Node) и преобразует его в массив байт.
-     */
-    private byte[] snapshotNode(Node node) throws IOException {
-        WritableImage image = node.snapshot(new SnapshotParameters(), null);
-
-        // Устанавливаем белый фон вместо прозрачного для лучшего вида в PDF
-        BufferedImage bufferedImage = SwingFXUtils.fromFXImage(image, null);
-        BufferedImage imageWithBackground = new BufferedImage(bufferedImage.getWidth(), bufferedImage.getHeight(), BufferedImage.TYPE_INT_RGB);
-        imageWithBackground.getGraphics().setColor(java.awt.Color.WHITE);
-        imageWithBackground.getGraphics().fillRect(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight());
-        imageWithBackground.getGraphics().drawImage(bufferedImage, 0, 0, null);
-
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            ImageIO.write(imageWithBackground, "png", outputStream);
-            return outputStream.toByteArray();
-        }
-    }
 }
\ No newline at end of file
@@ -31,12 +31,6 @@ import javafx.event.ActionEvent;
 import javafx.stage.FileChooser;
 import java.io.File;
 import java.nio.file.Files;
-import javafx.embed.swing.SwingFXUtils;
-import javafx.scene.SnapshotParameters;
-import javafx.scene.image.WritableImage;
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 
 /**
  * Контроллер для модального окна "Детализация по товару".
@@ -112,7 +106,7 @@ public class ProductDetailsController {
 
     /**
      * Обрабатывает нажатие на кнопку "Экспорт в PDF".
-     * Создает снимок графика и делегирует генерацию отчета серверу.
+     * Делегирует генерацию отчета серверу; график профиля сервер рисует сам.
      */
     @FXML
     void exportDetailsToPdf(ActionEvent event) {
@@ -125,30 +119,21 @@ public class ProductDetailsController {
         File file = fileChooser.showSaveDialog(productNameLabel.getScene().getWindow());
 
         if (file != null) {
-            try {
-                // Делаем снимок PieChart
-                byte[] chartSnapshot = snapshotNode(pieChartContainer);
-
-                new Thread(() -> {
-                    try {
-                        byte[] pdfData = analyticsService.getProductDetailsPdf(this.productId, chartSnapshot);
-                        Files.write(file.toPath(), pdfData);
-
-                        Platform.runLater(() -> {
-                            AlertFactory.showInfo("Отчет успешно сохранен", "Файл сохранен по пути: " + file.getAbsolutePath());
-                        });
-                    } catch (IOException e) {
-                        Platform.runLater(() -> {
-                            AlertFactory.showError("Не удалось сформировать или сохранить отчет", e.getMessage());
-                        });
-                        e.printStackTrace();
-                    }
-                }).start();
-
-            } catch (IOException e) {
-                AlertFactory.showError("Не удалось сделать снимок графика", e.getMessage());
-                e.printStackTrace();
-            }
+            new Thread(() -> {
+                try {
+                    byte[] pdfData = analyticsService.getProductDetailsPdf(this.productId);
+                    Files.write(file.toPath(), pdfData);
+
+                    Platform.runLater(() -> {
+                        AlertFactory.showInfo("Отчет успешно сохранен", "Файл сохранен по пути: " + file.getAbsolutePath());
+                    });
+                } catch (IOException e) {
+                    Platform.runLater(() -> {
+                        AlertFactory.showError("Не удалось сформировать или сохранить отчет", e.getMessage());
+                    });
+                    e.printStackTrace();
+                }
+            }).start();
         }
     }
 
@@ -365,22 +350,4 @@ public class ProductDetailsController {
             }
         }
     }
-
-    /**
-     * Создает снимок любого JavaFX узла (Node) и преобразует его в массив байт.
-     */
-    private byte[] snapshotNode(Node node) throws IOException {
-        WritableImage image = node.snapshot(new SnapshotParameters(), null);
-
-        BufferedImage bufferedImage = SwingFXUtils.fromFXImage(image, null);
-        BufferedImage imageWithBackground = new BufferedImage(bufferedImage.getWidth(), bufferedImage.getHeight(), BufferedImage.TYPE_INT_RGB);
-        imageWithBackground.getGraphics().setColor(java.awt.Color.WHITE);
-        imageWithBackground.getGraphics().fillRect(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight());
-        imageWithBackground.getGraphics().drawImage(bufferedImage, 0, 0, null);
-
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            ImageIO.write(imageWithBackground, "png", outputStream);
-            return outputStream.toByteArray();
-        }
-    }
 }
\ No newline at end of file
@@ -6,42 +6,58 @@ import com.github.stasangelov.reviewanalytics.client.model.review.ReviewDto;
 import com.github.stasangelov.reviewanalytics.client.service.ApiException;
 import com.github.stasangelov.reviewanalytics.client.service.ReviewService;
 import com.github.stasangelov.reviewanalytics.client.util.AlertFactory;
+import com.github.stasangelov.reviewanalytics.client.model.review.ReviewPageDto;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
-import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.List;
 
 /**
  * Контроллер для вкладки "Управление отзывами".
  * Отвечает за отображение, фильтрацию и управление списком всех отзывов в системе.
+ * Отзывы загружаются постранично: следующая страница запрашивается у сервера,
+ * когда пользователь прокручивает таблицу к концу.
  */
 public class ReviewManagementTabController {
 
     // --- FXML Поля ---
     @FXML private TableView<ReviewDto> reviewTable;
     @FXML private TextField searchField;
+    @FXML private ComboBox<String> statusFilter;
     @FXML private TableColumn<ReviewDto, String> productCol;
     @FXML private TableColumn<ReviewDto, Double> ratingCol;
     @FXML private TableColumn<ReviewDto, LocalDateTime> dateCol;
     @FXML private TableColumn<ReviewDto, String> statusCol;
 
     // --- Зависимости и состояние ---
+    private static final int PAGE_SIZE = 100;
+    private static final double LOAD_MORE_THRESHOLD = 0.9;
+    private static final String ALL_STATUSES = "Все";
+
     private final ReviewService reviewService = new ReviewService();
-    private final ObservableList<ReviewDto> allReviews = FXCollections.observableArrayList();
+    private final ObservableList<ReviewDto> reviews = FXCollections.observableArrayList();
+    private final PauseTransition searchDebounce = new PauseTransition(Duration.millis(300));
+
+    private String nextCursor;
+    private boolean hasMore;
+    private boolean loading;
+    /** Номер текущей выборки; ответы, пришедшие для предыдущих фильтров, отбрасываются. */
+    private int generation;
 
     //================================================================================
     // Инициализация
@@ -54,6 +70,7 @@ public class ReviewManagementTabController {
     @FXML
     public void initialize() {
         setupTable();
+        setupFilters();
         loadReviews();
     }
 
@@ -113,17 +130,59 @@ public class ReviewManagementTabController {
     //================================================================================
 
     /**
-     * Асинхронно загружает все отзывы с сервера и обновляет таблицу.
+     * Сбрасывает загруженные данные и асинхронно загружает первую страницу
+     * с текущими фильтрами.
      */
     private void loadReviews() {
+        generation++;
+        nextCursor = null;
+        hasMore = true;
+        loading = false;
+        reviews.clear();
+        loadNextPage();
+    }
+
+    /**
+     * Асинхронно догружает следующую страницу отзывов и добавляет ее в конец таблицы.
+     * Повторный вызов во время загрузки игнорируется.
+     */
+    private void loadNextPage() {
+        if (loading || !hasMore) {
+            return;
+        }
+        loading = true;
+
+        final int requestGeneration = generation;
+        final String cursor = nextCursor;
+        final String status = ALL_STATUSES.equals(statusFilter.getValue()) ? null : statusFilter.getValue();
+        final String search = searchField.getText();
+
         new Thread(() -> {
             try {
-                final List<ReviewDto> reviews = reviewService.getAllReviews();
-                Platform.runLater(() -> allReviews.setAll(reviews));
+                final ReviewPageDto page = reviewService.getReviewPage(status, search, cursor, PAGE_SIZE);
+                Platform.runLater(() -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    reviews.addAll(page.getItems());
+                    nextCursor = page.getNextCursor();
+                    hasMore = page.isHasMore();
+                    loading = false;
+                });
+            } catch (ApiException e) {
+                Platform.runLater(() -> {
+                    if (requestGeneration == generation) {
+                        loading = false;
+                    }
+                    AlertFactory.showError("Не удалось загрузить отзывы", "Ошибка API (" + e.getStatusCode() + "): " + e.getMessage());
+                });
             } catch (IOException e) {
-                Platform.runLater(() ->
-                        AlertFactory.showError("Не удалось загрузить отзывы", "Ошибка сети: " + e.getMessage())
-                );
+                Platform.runLater(() -> {
+                    if (requestGeneration == generation) {
+                        loading = false;
+                    }
+                    AlertFactory.showError("Не удалось загрузить отзывы", "Ошибка сети: " + e.getMessage());
+                });
                 e.printStackTrace();
             }
         }).start();
@@ -170,11 +229,11 @@ public class ReviewManagementTabController {
         dateCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getDateCreated()));
         statusCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getStatus()));
 
-        // 2. Включаем сортировку для колонок
-        productCol.setSortable(true);
-        ratingCol.setSortable(true);
-        dateCol.setSortable(true);
-        statusCol.setSortable(true);
+        // 2. Порядок строк задает сервер (от новых к старым), поэтому сортировка колонок отключена
+        productCol.setSortable(false);
+        ratingCol.setSortable(false);
+        dateCol.setSortable(false);
+        statusCol.setSortable(false);
 
         // 3. Форматируем ячейки
         ratingCol.setCellFactory(column -> new TableCell<>() {
@@ -189,26 +248,45 @@ public class ReviewManagementTabController {
             }
         });
 
-        // 4. Настраиваем фильтрацию и сортировку
-        FilteredList<ReviewDto> filteredData = new FilteredList<>(allReviews, p -> true);
+        reviewTable.setItems(reviews);
 
-        searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-            filteredData.setPredicate(review -> {
-                if (newValue == null || newValue.isEmpty()) {
-                    return true;
-                }
-                String lowerCaseFilter = newValue.toLowerCase();
-                if (review.getProductName() != null && review.getProductName().toLowerCase().contains(lowerCaseFilter)) {
-                    return true;
-                }
-                return false;
-            });
+        // 4. Догружаем следующую страницу при прокрутке к концу таблицы.
+        // Полоса прокрутки создается вместе со скином, поэтому ищем ее после его появления.
+        reviewTable.skinProperty().addListener((observable, oldSkin, newSkin) -> {
+            ScrollBar scrollBar = findVerticalScrollBar();
+            if (scrollBar != null) {
+                scrollBar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= scrollBar.getMax() * LOAD_MORE_THRESHOLD) {
+                        loadNextPage();
+                    }
+                });
+            }
         });
+    }
+
+    /**
+     * Настраивает фильтры по статусу и по названию товара.
+     * Фильтрация выполняется на сервере; ввод в строку поиска применяется с небольшой задержкой.
+     */
+    private void setupFilters() {
+        statusFilter.setItems(FXCollections.observableArrayList(ALL_STATUSES, "ACTIVE", "REJECTED"));
+        statusFilter.setValue(ALL_STATUSES);
+        statusFilter.valueProperty().addListener((observable, oldValue, newValue) -> loadReviews());
 
-        SortedList<ReviewDto> sortedData = new SortedList<>(filteredData);
-        sortedData.comparatorProperty().bind(reviewTable.comparatorProperty());
+        searchDebounce.setOnFinished(event -> loadReviews());
+        searchField.textProperty().addListener((observable, oldValue, newValue) -> searchDebounce.playFromStart());
+    }
 
-        reviewTable.setItems(sortedData);
+    /**
+     * Ищет вертикальную полосу прокрутки таблицы.
+     */
+    private ScrollBar findVerticalScrollBar() {
+        for (Node node : reviewTable.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar scrollBar && scrollBar.getOrientation() == Orientation.VERTICAL) {
+                return scrollBar;
+            }
+        }
+        return null;
     }
 
     /**
@@ -8,6 +8,7 @@ import java.time.LocalDate;
 
 /**
  * DTO для одной точки на графике динамики рейтинга.
+ * Для периода без оценок {@code averageRating} равен {@code null}.
  */
 @Data
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -15,4 +16,6 @@ public class RatingDynamicDto {
     @JsonDeserialize(using = LocalDateDeserializer.class)
     private LocalDate date;
     private Double averageRating;
+    private Long reviewCount;
+    private Double movingAverage;
 }
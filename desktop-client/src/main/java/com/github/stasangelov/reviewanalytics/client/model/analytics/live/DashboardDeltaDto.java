@@ -0,0 +1,22 @@
+package com.github.stasangelov.reviewanalytics.client.model.analytics.live;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO изменения дашборда, полученного по подписке {@code /api/analytics/dashboard/live}.
+ * Все значения — приращения к уже загруженным данным.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DashboardDeltaDto {
+    private Long reviewId;
+    private long reviewCountDelta;
+    private long ratingCountDelta;
+    private double ratingSumDelta;
+    private List<ProductDeltaDto> products = new ArrayList<>();
+    private List<DynamicsDeltaDto> dynamics = new ArrayList<>();
+    private List<DistributionDeltaDto> distribution = new ArrayList<>();
+}
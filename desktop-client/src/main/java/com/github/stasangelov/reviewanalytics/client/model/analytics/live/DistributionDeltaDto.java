@@ -0,0 +1,15 @@
+package com.github.stasangelov.reviewanalytics.client.model.analytics.live;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * DTO приращения счетчика оценки (1-5) по одному критерию.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DistributionDeltaDto {
+    private String criterionName;
+    private int rating;
+    private long countDelta;
+}
@@ -0,0 +1,19 @@
+package com.github.stasangelov.reviewanalytics.client.model.analytics.live;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
+import lombok.Data;
+import java.time.LocalDate;
+
+/**
+ * DTO приращения одной точки графика динамики; {@code date} — начало периода.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DynamicsDeltaDto {
+    @JsonDeserialize(using = LocalDateDeserializer.class)
+    private LocalDate date;
+    private long ratingCountDelta;
+    private double ratingSumDelta;
+}
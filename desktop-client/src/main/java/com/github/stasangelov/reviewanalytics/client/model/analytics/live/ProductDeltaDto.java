@@ -0,0 +1,16 @@
+package com.github.stasangelov.reviewanalytics.client.model.analytics.live;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * DTO приращения количества отзывов и рейтингов одного товара.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProductDeltaDto {
+    private Long productId;
+    private long reviewCountDelta;
+    private long ratingCountDelta;
+    private double ratingSumDelta;
+}
@@ -0,0 +1,21 @@
+package com.github.stasangelov.reviewanalytics.client.model.analytics.report;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO состояния фоновой задачи формирования PDF-отчета на сервере.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReportJobDto {
+    private String id;
+    private String type;
+    private String status;
+    private int progress;
+    private String fileName;
+    private LocalDateTime expiresAt;
+    private String errorMessage;
+}
@@ -0,0 +1,18 @@
+package com.github.stasangelov.reviewanalytics.client.model.review;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * DTO одной страницы списка отзывов, получаемой с сервера.
+ * {@code nextCursor} передается в следующий запрос для догрузки.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReviewPageDto {
+    private List<ReviewDto> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -5,18 +5,18 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.github.stasangelov.reviewanalytics.client.model.analytics.comparison.ComparisonDataDto;
 import com.github.stasangelov.reviewanalytics.client.model.analytics.dashboard.DashboardDto;
+import com.github.stasangelov.reviewanalytics.client.model.analytics.live.DashboardDeltaDto;
 import com.github.stasangelov.reviewanalytics.client.model.analytics.product.ProductDetailsDto;
 import com.github.stasangelov.reviewanalytics.client.model.analytics.product.ProductSummaryDto;
-import com.github.stasangelov.reviewanalytics.client.model.common.ErrorResponseDto;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import com.github.stasangelov.reviewanalytics.client.model.analytics.report.ReportJobDto;
 import okhttp3.*;
-import com.fasterxml.jackson.annotation.JsonInclude;
-import java.util.Map;
+import okio.BufferedSource;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Сервис для взаимодействия с эндпоинтами аналитики на сервере (`/api/analytics`).
@@ -27,9 +27,15 @@ public class AnalyticsService {
 
     // --- Константы и зависимости ---
     private static final String BASE_URL = "http://localhost:8080/api/analytics";
+    private static final String REPORTS_URL = BASE_URL + "/reports";
+    private static final long REPORT_POLL_INTERVAL_MS = 1000;
+    private static final long REPORT_TIMEOUT_MS = 10 * 60 * 1000;
     private final OkHttpClient client = HttpClientService.getClient();
+    /** Клиент для потока обновлений дашборда: соединение держится открытым, поэтому таймаут чтения отключен. */
+    private final OkHttpClient streamingClient = client.newBuilder()
+            .readTimeout(0, TimeUnit.MILLISECONDS)
+            .build();
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private static final MediaType PNG = MediaType.parse("image/png");
 
     /**
      * Конструктор. Регистрирует модуль для корректной работы с типами Java 8 Date/Time.
@@ -39,7 +45,7 @@ public class AnalyticsService {
     }
 
     //================================================================================
-    // Запросы на получение аналитических данных (JSON)
+    // Запросы на получение аналитических данных (Smile или JSON)
     //================================================================================
 
     /**
@@ -60,12 +66,13 @@ public class AnalyticsService {
 
         Request request = new Request.Builder()
                 .url(urlBuilder.build())
+                .header("Accept", ApiResponseReader.ACCEPT)
                 .get()
                 .build();
 
         try (Response response = client.newCall(request).execute()) {
             if (response.isSuccessful()) {
-                return objectMapper.readValue(response.body().string(), DashboardDto.class);
+                return ApiResponseReader.read(response, DashboardDto.class);
             } else {
                 handleError(response);
                 return null;
@@ -91,12 +98,13 @@ public class AnalyticsService {
 
         Request request = new Request.Builder()
                 .url(urlBuilder.build())
+                .header("Accept", ApiResponseReader.ACCEPT)
                 .get()
                 .build();
 
         try (Response response = client.newCall(request).execute()) {
             if (response.isSuccessful()) {
-                return objectMapper.readValue(response.body().string(), new TypeReference<>() {
+                return ApiResponseReader.read(response, new TypeReference<>() {
                 });
             } else {
                 handleError(response);
@@ -111,12 +119,13 @@ public class AnalyticsService {
     public ProductDetailsDto getProductDetails(Long productId) throws IOException {
         Request request = new Request.Builder()
                 .url(BASE_URL + "/product/" + productId)
+                .header("Accept", ApiResponseReader.ACCEPT)
                 .get()
                 .build();
 
         try (Response response = client.newCall(request).execute()) {
             if (response.isSuccessful()) {
-                return objectMapper.readValue(response.body().string(), ProductDetailsDto.class);
+                return ApiResponseReader.read(response, ProductDetailsDto.class);
             } else {
                 handleError(response);
                 return null;
@@ -132,12 +141,13 @@ public class AnalyticsService {
         RequestBody body = RequestBody.create(json, MediaType.get("application/json"));
         Request request = new Request.Builder()
                 .url(BASE_URL + "/compare")
+                .header("Accept", ApiResponseReader.ACCEPT)
                 .post(body)
                 .build();
 
         try (Response response = client.newCall(request).execute()) {
             if (response.isSuccessful()) {
-                return objectMapper.readValue(response.body().string(), new TypeReference<>() {
+                return ApiResponseReader.read(response, new TypeReference<>() {
                 });
             } else {
                 handleError(response);
@@ -147,67 +157,145 @@ public class AnalyticsService {
     }
 
     //================================================================================
-    // Запросы на экспорт в PDF (возвращают byte[])
+    // Подписка на обновления дашборда (Server-Sent Events)
     //================================================================================
 
     /**
-     * Формирует и отправляет multipart-запрос для генерации PDF-отчета по дашборду.
+     * Подписывается на изменения дашборда с указанными фильтрами. Поток читается в фоновом потоке OkHttp:
+     * каждое событие {@code delta} передается в {@code onDelta}, а закрытие потока сервером или ошибка —
+     * в {@code onClosed} (при отмене подписки через возвращенный {@link Call} он не вызывается).
+     * Обработчики вызываются не в потоке JavaFX.
+     *
+     * @return Вызов, отмена которого ({@link Call#cancel()}) закрывает подписку.
      */
-    public byte[] getDashboardPdf(LocalDate startDate, LocalDate endDate, Long categoryId, Map<String, byte[]> chartImages) throws IOException {
-        // 1. Создаем объект с фильтрами и сериализуем его в JSON
-        DashboardFilters filters = new DashboardFilters(startDate, endDate, categoryId);
-        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL); // Чтобы не отправлять null поля
-        String filtersJson = objectMapper.writeValueAsString(filters);
-
-        // 2. Строим multipart-тело запроса
-        MultipartBody.Builder requestBodyBuilder = new MultipartBody.Builder()
-                .setType(MultipartBody.FORM)
-                .addFormDataPart("filters", filtersJson);
-
-        // 3. Добавляем каждый снимок графика как отдельную часть
-        for (Map.Entry<String, byte[]> entry : chartImages.entrySet()) {
-            requestBodyBuilder.addFormDataPart(
-                    "charts", // Имя параметра должно совпадать с @RequestParam на сервере
-                    entry.getKey(), // Имя файла (например, "categoryChart.png")
-                    RequestBody.create(entry.getValue(), PNG)
-            );
+    public Call subscribeToDashboard(LocalDate startDate, LocalDate endDate, Long categoryId,
+                                     Consumer<DashboardDeltaDto> onDelta, Consumer<Exception> onClosed) {
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(BASE_URL + "/dashboard/live").newBuilder();
+
+        if (startDate != null) {
+            urlBuilder.addQueryParameter("startDate", startDate.format(DateTimeFormatter.ISO_LOCAL_DATE));
+        }
+        if (endDate != null) {
+            urlBuilder.addQueryParameter("endDate", endDate.format(DateTimeFormatter.ISO_LOCAL_DATE));
+        }
+        if (categoryId != null) {
+            urlBuilder.addQueryParameter("categoryId", String.valueOf(categoryId));
         }
 
-        // 4. Создаем и выполняем запрос
         Request request = new Request.Builder()
-                .url(BASE_URL + "/dashboard/export-pdf")
-                .post(requestBodyBuilder.build())
+                .url(urlBuilder.build())
+                .header("Accept", "text/event-stream")
+                .get()
                 .build();
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful()) {
-                return response.body().bytes();
-            } else {
-                handleError(response);
-                return null;
+        Call call = streamingClient.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (!response.isSuccessful()) {
+                        handleError(response);
+                    }
+                    readEvents(response.body().source(), onDelta);
+                    onClosed.accept(null);
+                } catch (Exception e) {
+                    if (!call.isCanceled()) {
+                        onClosed.accept(e);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (!call.isCanceled()) {
+                    onClosed.accept(e);
+                }
+            }
+        });
+        return call;
+    }
+
+    /**
+     * Разбирает поток событий: строки {@code event:} и {@code data:} накапливаются до пустой строки,
+     * комментарии (пульс сервера) пропускаются.
+     */
+    private void readEvents(BufferedSource source, Consumer<DashboardDeltaDto> onDelta) throws IOException {
+        String eventName = null;
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                if ("delta".equals(eventName) && data.length() > 0) {
+                    onDelta.accept(objectMapper.readValue(data.toString(), DashboardDeltaDto.class));
+                }
+                eventName = null;
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                eventName = line.substring("event:".length()).trim();
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line.substring("data:".length()).trim());
             }
         }
     }
 
+    //================================================================================
+    // Запросы на экспорт в PDF (возвращают byte[])
+    //================================================================================
+
     /**
-     * Формирует и отправляет multipart-запрос для генерации PDF-отчета по странице детализации товара.
+     * Заказывает на сервере PDF-отчет по дашборду и ждет его готовности.
+     * Графики сервер рисует сам по данным, поэтому снимки с экрана не передаются.
      */
-    public byte[] getProductDetailsPdf(Long productId, byte[] chartImage) throws IOException {
-        String url = BASE_URL + "/product/" + productId + "/export-pdf";
+    public byte[] getDashboardPdf(LocalDate startDate, LocalDate endDate, Long categoryId) throws IOException {
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(REPORTS_URL + "/dashboard").newBuilder();
 
-        RequestBody requestBody = new MultipartBody.Builder()
-                .setType(MultipartBody.FORM)
-                .addFormDataPart("chart", "criteriaProfileChart.png", RequestBody.create(chartImage, PNG))
-                .build();
+        if (startDate != null) {
+            urlBuilder.addQueryParameter("startDate", startDate.format(DateTimeFormatter.ISO_LOCAL_DATE));
+        }
+        if (endDate != null) {
+            urlBuilder.addQueryParameter("endDate", endDate.format(DateTimeFormatter.ISO_LOCAL_DATE));
+        }
+        if (categoryId != null) {
+            urlBuilder.addQueryParameter("categoryId", String.valueOf(categoryId));
+        }
 
+        return awaitReport(submitReport(urlBuilder.build(), RequestBody.create(new byte[0])));
+    }
+
+    /**
+     * Заказывает на сервере PDF-отчет по странице детализации товара и ждет его готовности.
+     */
+    public byte[] getProductDetailsPdf(Long productId) throws IOException {
+        HttpUrl url = HttpUrl.parse(REPORTS_URL + "/product/" + productId);
+        return awaitReport(submitReport(url, RequestBody.create(new byte[0])));
+    }
+
+    /**
+     * Заказывает на сервере PDF-отчет по странице сравнения и ждет его готовности.
+     * График и таблицу сравнения сервер рисует сам по данным товаров.
+     */
+    public byte[] getComparisonPdf(List<Long> productIds) throws IOException {
+        String json = objectMapper.writeValueAsString(productIds);
+        RequestBody body = RequestBody.create(json, MediaType.get("application/json"));
+        return awaitReport(submitReport(HttpUrl.parse(REPORTS_URL + "/compare"), body));
+    }
+
+    /**
+     * Ставит отчет в очередь на сервере и возвращает созданную задачу.
+     */
+    private ReportJobDto submitReport(HttpUrl url, RequestBody body) throws IOException {
         Request request = new Request.Builder()
                 .url(url)
-                .post(requestBody)
+                .header("Accept", ApiResponseReader.ACCEPT)
+                .post(body)
                 .build();
 
         try (Response response = client.newCall(request).execute()) {
             if (response.isSuccessful()) {
-                return response.body().bytes();
+                return ApiResponseReader.read(response, ReportJobDto.class);
             } else {
                 handleError(response);
                 return null;
@@ -216,28 +304,50 @@ public class AnalyticsService {
     }
 
     /**
-     * Формирует и отправляет multipart-запрос для генерации PDF-отчета по странице сравнения.
+     * Периодически опрашивает состояние задачи и скачивает готовый файл.
+     * Каждый запрос короткий, поэтому долгое формирование отчета не упирается в таймауты HTTP-клиента.
      */
-    public byte[] getComparisonPdf(List<Long> productIds, Map<String, byte[]> images) throws IOException {
-        String url = BASE_URL + "/compare/export-pdf";
-        String productIdsJson = objectMapper.writeValueAsString(productIds);
-
-        MultipartBody.Builder requestBodyBuilder = new MultipartBody.Builder()
-                .setType(MultipartBody.FORM)
-                .addFormDataPart("productIds", productIdsJson);
-
-        // Добавляем все изображения из Map в запрос
-        for (Map.Entry<String, byte[]> entry : images.entrySet()) {
-            requestBodyBuilder.addFormDataPart(
-                    "charts", // Имя параметра должно быть одинаковым для всех файлов
-                    entry.getKey(), // Имя файла, например "comparisonTable.png"
-                    RequestBody.create(entry.getValue(), PNG)
-            );
+    private byte[] awaitReport(ReportJobDto job) throws IOException {
+        long deadline = System.currentTimeMillis() + REPORT_TIMEOUT_MS;
+        while (!"COMPLETED".equals(job.getStatus())) {
+            if ("FAILED".equals(job.getStatus())) {
+                throw new IOException("Сервер не смог сформировать отчет: " + job.getErrorMessage());
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Отчет не был сформирован за отведенное время.");
+            }
+            try {
+                Thread.sleep(REPORT_POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Ожидание отчета прервано.", e);
+            }
+            job = getReportJob(job.getId());
         }
+        return downloadReport(job.getId());
+    }
 
+    private ReportJobDto getReportJob(String jobId) throws IOException {
         Request request = new Request.Builder()
-                .url(url)
-                .post(requestBodyBuilder.build())
+                .url(REPORTS_URL + "/" + jobId)
+                .header("Accept", ApiResponseReader.ACCEPT)
+                .get()
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (response.isSuccessful()) {
+                return ApiResponseReader.read(response, ReportJobDto.class);
+            } else {
+                handleError(response);
+                return null;
+            }
+        }
+    }
+
+    private byte[] downloadReport(String jobId) throws IOException {
+        Request request = new Request.Builder()
+                .url(REPORTS_URL + "/" + jobId + "/file")
+                .get()
                 .build();
 
         try (Response response = client.newCall(request).execute()) {
@@ -255,26 +365,9 @@ public class AnalyticsService {
     //================================================================================
 
     /**
-     * Обрабатывает ошибочные HTTP-ответы, парсит тело ошибки и выбрасывает кастомное исключение.
+     * Обрабатывает ошибочные HTTP-ответы, парсит тело ошибки (JSON или Smile) и выбрасывает кастомное исключение.
      */
     private void handleError(Response response) throws IOException {
-        String errorBody = response.body().string();
-        try {
-            ErrorResponseDto errorDto = objectMapper.readValue(errorBody, ErrorResponseDto.class);
-            throw new ApiException(response.code(), errorDto.getMessage());
-        } catch (Exception e) {
-            throw new ApiException(response.code(), "Не удалось распознать ошибку: " + errorBody);
-        }
-    }
-
-    /**
-     * Внутренний вспомогательный класс для удобной сериализации фильтров дашборда в JSON.
-     */
-    @Data
-    @AllArgsConstructor
-    private static class DashboardFilters {
-        private LocalDate startDate;
-        private LocalDate endDate;
-        private Long categoryId;
+        throw ApiResponseReader.error(response);
     }
 }
\ No newline at end of file
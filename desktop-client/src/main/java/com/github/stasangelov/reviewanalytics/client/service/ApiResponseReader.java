@@ -0,0 +1,69 @@
+package com.github.stasangelov.reviewanalytics.client.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.stasangelov.reviewanalytics.client.model.common.ErrorResponseDto;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Чтение ответов сервера в компактном двоичном формате.
+ * Запросы с заголовком {@link #ACCEPT} получают тело в формате Smile (сервер без его поддержки ответит JSON),
+ * и оно разбирается прямо из потока ответа, без промежуточной строки.
+ * Сжатие gzip OkHttp запрашивает и снимает сам.
+ */
+final class ApiResponseReader {
+
+    /** Значение заголовка Accept: Smile, а при его отсутствии на сервере — JSON. */
+    static final String ACCEPT = "application/x-jackson-smile, application/json;q=0.9";
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory()).registerModule(new JavaTimeModule());
+
+    private ApiResponseReader() {
+    }
+
+    /**
+     * Разбирает тело успешного ответа в объект указанного класса.
+     */
+    static <T> T read(Response response, Class<T> type) throws IOException {
+        ResponseBody body = response.body();
+        try (InputStream stream = body.byteStream()) {
+            return mapperFor(body.contentType()).readValue(stream, type);
+        }
+    }
+
+    /**
+     * Разбирает тело успешного ответа в обобщенный тип (например, список DTO).
+     */
+    static <T> T read(Response response, TypeReference<T> type) throws IOException {
+        ResponseBody body = response.body();
+        try (InputStream stream = body.byteStream()) {
+            return mapperFor(body.contentType()).readValue(stream, type);
+        }
+    }
+
+    /**
+     * Создает исключение по ответу с ошибкой, извлекая сообщение из тела в любом из форматов.
+     */
+    static ApiException error(Response response) throws IOException {
+        ResponseBody body = response.body();
+        byte[] bytes = body.bytes();
+        try {
+            ErrorResponseDto errorDto = mapperFor(body.contentType()).readValue(bytes, ErrorResponseDto.class);
+            return new ApiException(response.code(), errorDto.getMessage());
+        } catch (IOException e) {
+            return new ApiException(response.code(), "Не удалось распознать ошибку: " + new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static ObjectMapper mapperFor(MediaType contentType) {
+        return contentType != null && "x-jackson-smile".equals(contentType.subtype()) ? SMILE_MAPPER : JSON_MAPPER;
+    }
+}
@@ -1,7 +1,6 @@
 package com.github.stasangelov.reviewanalytics.client.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.stasangelov.reviewanalytics.client.model.dictionary.CategoryDto;
 import com.github.stasangelov.reviewanalytics.client.model.dictionary.CriterionDto;
 import com.github.stasangelov.reviewanalytics.client.model.dictionary.ProductDto;
@@ -22,7 +21,6 @@ public class DictionaryService {
     // --- Константы и поля ---
     private static final String BASE_URL = "http://localhost:8080/api";
     private final OkHttpClient client = HttpClientService.getClient();
-    private final ObjectMapper objectMapper = new ObjectMapper();
 
     //================================================================================
     // Публичные методы API
@@ -62,17 +60,17 @@ public class DictionaryService {
     //================================================================================
 
     /**
-     * Универсальный приватный метод для выполнения GET-запроса и парсинга ответа в список объектов.
+     * Универсальный приватный метод для выполнения GET-запроса и парсинга ответа (Smile или JSON) в список объектов.
      * Используется всеми публичными методами этого класса для избежания дублирования кода.
      */
     private <T> List<T> fetchList(String url, TypeReference<List<T>> typeReference) throws IOException {
-        Request request = new Request.Builder().url(url).get().build();
+        Request request = new Request.Builder().url(url).header("Accept", ApiResponseReader.ACCEPT).get().build();
         try (Response response = client.newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 // В будущем можно будет улучшить обработку ошибок
                 throw new IOException("Unexpected code " + response);
             }
-            return objectMapper.readValue(response.body().string(), typeReference);
+            return ApiResponseReader.read(response, typeReference);
         }
     }
 }
\ No newline at end of file
@@ -3,8 +3,8 @@ package com.github.stasangelov.reviewanalytics.client.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.github.stasangelov.reviewanalytics.client.model.common.ErrorResponseDto;
 import com.github.stasangelov.reviewanalytics.client.model.review.ReviewDto;
+import com.github.stasangelov.reviewanalytics.client.model.review.ReviewPageDto;
 import okhttp3.*;
 import java.io.IOException;
 import java.util.List;
@@ -36,10 +36,33 @@ public class ReviewService {
      * Загружает с сервера полный список всех отзывов.
      */
     public List<ReviewDto> getAllReviews() throws IOException {
-        Request request = new Request.Builder().url(BASE_URL).get().build();
+        Request request = new Request.Builder().url(BASE_URL).header("Accept", ApiResponseReader.ACCEPT).get().build();
         try (Response response = client.newCall(request).execute()) {
             if (!response.isSuccessful()) handleError(response);
-            return objectMapper.readValue(response.body().string(), new TypeReference<>() {});
+            return ApiResponseReader.read(response, new TypeReference<>() {});
+        }
+    }
+
+    /**
+     * Загружает одну страницу отзывов (от новых к старым) с фильтрацией на стороне сервера.
+     * Для первой страницы {@code cursor} равен {@code null}.
+     */
+    public ReviewPageDto getReviewPage(String status, String search, String cursor, int size) throws IOException {
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(BASE_URL + "/page").newBuilder();
+        if (status != null) {
+            urlBuilder.addQueryParameter("status", status);
+        }
+        if (search != null && !search.isBlank()) {
+            urlBuilder.addQueryParameter("search", search.trim());
+        }
+        if (cursor != null) {
+            urlBuilder.addQueryParameter("cursor", cursor);
+        }
+        urlBuilder.addQueryParameter("size", String.valueOf(size));
+
+        Request request = new Request.Builder().url(urlBuilder.build()).header("Accept", ApiResponseReader.ACCEPT).get().build();
+        try (Response response = client.newCall(request).execute()) {
+            return processResponse(response, ReviewPageDto.class);
         }
     }
 
@@ -49,7 +72,7 @@ public class ReviewService {
     public ReviewDto createReview(ReviewDto review) throws IOException {
         String json = objectMapper.writeValueAsString(review);
         RequestBody body = RequestBody.create(json, MediaType.get("application/json"));
-        Request request = new Request.Builder().url(BASE_URL).post(body).build();
+        Request request = new Request.Builder().url(BASE_URL).header("Accept", ApiResponseReader.ACCEPT).post(body).build();
         try (Response response = client.newCall(request).execute()) {
             return processResponse(response, ReviewDto.class);
         }
@@ -61,7 +84,7 @@ public class ReviewService {
     public ReviewDto updateReview(Long id, ReviewDto review) throws IOException {
         String json = objectMapper.writeValueAsString(review);
         RequestBody body = RequestBody.create(json, MediaType.get("application/json"));
-        Request request = new Request.Builder().url(BASE_URL + "/" + id).put(body).build();
+        Request request = new Request.Builder().url(BASE_URL + "/" + id).header("Accept", ApiResponseReader.ACCEPT).put(body).build();
         try (Response response = client.newCall(request).execute()) {
             return processResponse(response, ReviewDto.class);
         }
@@ -73,7 +96,7 @@ public class ReviewService {
     public void changeStatus(Long id, String status) throws IOException {
         String json = "{\"status\":\"" + status + "\"}";
         RequestBody body = RequestBody.create(json, MediaType.get("application/json"));
-        Request request = new Request.Builder().url(BASE_URL + "/" + id + "/status").patch(body).build();
+        Request request = new Request.Builder().url(BASE_URL + "/" + id + "/status").header("Accept", ApiResponseReader.ACCEPT).patch(body).build();
         try (Response response = client.newCall(request).execute()) {
             if (!response.isSuccessful()) handleError(response);
         }
@@ -85,11 +108,11 @@ public class ReviewService {
 
     /**
      * Универсальный обработчик успешных ответов.
-     * Парсит тело ответа в указанный класс DTO.
+     * Разбирает тело ответа (Smile или JSON) в указанный класс DTO прямо из потока.
      */
     private <T> T processResponse(Response response, Class<T> clazz) throws IOException {
         if (response.isSuccessful()) {
-            return objectMapper.readValue(response.body().string(), clazz);
+            return ApiResponseReader.read(response, clazz);
         }
         handleError(response);
         return null;
@@ -99,12 +122,6 @@ public class ReviewService {
      * Обрабатывает ошибки ответа сервера.
      */
     private void handleError(Response response) throws IOException {
-        String errorBody = response.body().string();
-        try {
-            ErrorResponseDto errorDto = objectMapper.readValue(errorBody, ErrorResponseDto.class);
-            throw new ApiException(response.code(), errorDto.getMessage());
-        } catch (Exception e) {
-            throw new ApiException(response.code(), "Не удалось распознать ошибку: " + errorBody);
-        }
+        throw ApiResponseReader.error(response);
     }
 }
\ No newline at end of file
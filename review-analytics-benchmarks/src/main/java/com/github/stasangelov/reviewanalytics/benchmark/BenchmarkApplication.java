@@ -0,0 +1,33 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.github.stasangelov.reviewanalytics.ReviewAnalyticsApplication;
+import com.github.stasangelov.reviewanalytics.config.DataInitializer;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * Конфигурация приложения для бенчмарков: те же компоненты и автоконфигурация, что у сервера,
+ * но без {@link DataInitializer}, который при каждом запуске перестраивает витрину
+ * и на больших наборах данных занимал бы минуты в каждом форке JMH.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@AutoConfigurationPackage(basePackageClasses = ReviewAnalyticsApplication.class)
+@ComponentScan(
+        basePackageClasses = ReviewAnalyticsApplication.class,
+        excludeFilters = {
+                @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+                @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class),
+                @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                        classes = {ReviewAnalyticsApplication.class, DataInitializer.class}),
+                @ComponentScan.Filter(type = FilterType.REGEX,
+                        pattern = "com\\.github\\.stasangelov\\.reviewanalytics\\.benchmark\\..*")
+        }
+)
+public class BenchmarkApplication {
+}
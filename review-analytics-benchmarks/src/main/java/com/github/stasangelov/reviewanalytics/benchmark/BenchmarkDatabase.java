@@ -0,0 +1,100 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.github.stasangelov.reviewanalytics.service.SyntheticDataGenerator;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Встроенная БД для бенчмарков: файловая H2 с заданным числом отзывов и контекст приложения над ней.
+ * <p>
+ * Каждый объем данных хранится в отдельном файле в {@code benchmark.db.dir} (по умолчанию
+ * {@code target/benchmark-db}) и заполняется один раз: последующие форки и прогоны переиспользуют его.
+ * Данные строит {@link SyntheticDataGenerator} с фиксированным зерном, поэтому прогоны на разных машинах сравнимы.
+ * Категория и товар с id 1 существуют в любом наборе.
+ */
+final class BenchmarkDatabase {
+
+    /**
+     * Двухнедельное окно фильтров дашборда. Группировка динамики по неделям и месяцам
+     * использует функции MySQL, которых нет в H2, поэтому окно не длиннее 15 дней.
+     */
+    static final LocalDate WINDOW_START = LocalDate.of(2024, 12, 1);
+    static final LocalDate WINDOW_END = LocalDate.of(2024, 12, 14);
+
+    /**
+     * Зерно генератора данных: набор каждого объема одинаков во всех прогонах.
+     */
+    static final long SEED = 42;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Количество товаров для набора данных: в среднем 500 отзывов на товар, от 50 до 20 000 товаров.
+     */
+    static int productCount(int reviews) {
+        return Math.max(50, Math.min(20_000, reviews / 500));
+    }
+
+    /**
+     * Поднимает контекст приложения над БД с указанным числом отзывов, при необходимости заполняя ее.
+     * Дополнительные свойства передаются в формате {@code name=value}.
+     */
+    static ConfigurableApplicationContext open(int reviews, String... properties) {
+        Path dir = Path.of(System.getProperty("benchmark.db.dir", "target/benchmark-db")).toAbsolutePath();
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:file:" + dir.resolve("reviews-" + reviews),
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--spring.sql.init.mode=never",
+                "--server.port=0",
+                "--logging.level.root=WARN"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+        try {
+            seedIfNeeded(context, reviews);
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
+        }
+        return context;
+    }
+
+    private static void seedIfNeeded(ConfigurableApplicationContext context, int reviews) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS benchmark_dataset (reviews BIGINT NOT NULL)");
+        Long seeded = jdbc.queryForObject("SELECT MAX(reviews) FROM benchmark_dataset", Long.class);
+        if (seeded != null && seeded == reviews) {
+            return;
+        }
+
+        // Прерванное заполнение не оставляет отметки: начинаем с пустых таблиц, нумерация id — с единицы
+        jdbc.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        for (String table : List.of("review_daily_rollup", "review_ratings", "reviews", "products",
+                "categories", "criteria")) {
+            jdbc.execute("TRUNCATE TABLE " + table + " RESTART IDENTITY");
+        }
+        jdbc.execute("TRUNCATE TABLE category_criteria");
+        jdbc.execute("TRUNCATE TABLE benchmark_dataset");
+        jdbc.execute("SET REFERENTIAL_INTEGRITY TRUE");
+
+        SyntheticDataGenerator.Settings settings = new SyntheticDataGenerator.Settings();
+        settings.setSeed(SEED);
+        settings.setReviews(reviews);
+        settings.setProducts(productCount(reviews));
+        settings.setBatchSize(5_000);
+        context.getBean(SyntheticDataGenerator.class).generate(settings);
+        jdbc.update("INSERT INTO benchmark_dataset (reviews) VALUES (?)", reviews);
+    }
+}
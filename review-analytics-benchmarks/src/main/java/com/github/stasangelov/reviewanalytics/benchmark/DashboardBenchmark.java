@@ -0,0 +1,64 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.DashboardDto;
+import com.github.stasangelov.reviewanalytics.service.AnalyticsService;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarReviewStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка дашборда ({@link AnalyticsService#getDashboardData}) по витрине и по исходным таблицам
+ * на разных объемах данных: за двухнедельное окно по всем категориям и по одной категории.
+ * <p>
+ * Вариант {@code SINGLE_PASS} не измеряется: он читает результат потоково с размером выборки
+ * MySQL Connector/J, который H2 не поддерживает.
+ * <p>
+ * С {@code -p columnar=true} дашборд считается по колоночному хранилищу в памяти; источник
+ * при этом не используется, хранилище загружается до начала измерений.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DashboardBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int reviews;
+
+    @Param({"ROLLUP", "RAW"})
+    private AnalyticsService.DashboardSource source;
+
+    @Param({"false"})
+    private boolean columnar;
+
+    private ConfigurableApplicationContext context;
+    private AnalyticsService analyticsService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.open(reviews, "analytics.dashboard.source=" + source,
+                "analytics.columnar.enabled=" + columnar);
+        // Фоновая загрузка после старта не гарантирована к первой итерации: загружаем явно
+        context.getBean(ColumnarReviewStore.class).reload();
+        analyticsService = context.getBean(AnalyticsService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public DashboardDto allCategories() {
+        return analyticsService.getDashboardData(BenchmarkDatabase.WINDOW_START, BenchmarkDatabase.WINDOW_END, null);
+    }
+
+    @Benchmark
+    public DashboardDto singleCategory() {
+        return analyticsService.getDashboardData(BenchmarkDatabase.WINDOW_START, BenchmarkDatabase.WINDOW_END, 1L);
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.github.stasangelov.reviewanalytics.service.ReviewService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчет интегрального рейтинга отзыва ({@link ReviewService#calculateIntegralRating}):
+ * выполняется при каждом создании и изменении отзыва и при массовом пересчете.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IntegralRatingBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ReviewService reviewService;
+    private Map<Long, Integer> ratings;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.open(10_000);
+        reviewService = context.getBean(ReviewService.class);
+        // Оценки по всем критериям первой категории, как в полностью заполненном отзыве
+        List<Long> criteria = context.getBean(JdbcTemplate.class).queryForList(
+                "SELECT criterion_id FROM category_criteria WHERE category_id = 1 ORDER BY criterion_id", Long.class);
+        ratings = new HashMap<>();
+        for (int i = 0; i < criteria.size(); i++) {
+            ratings.put(criteria.get(i), 1 + i % 5);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Double calculateIntegralRating() {
+        return reviewService.calculateIntegralRating(ratings);
+    }
+}
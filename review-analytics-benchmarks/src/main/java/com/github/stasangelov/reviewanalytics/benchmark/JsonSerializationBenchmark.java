@@ -0,0 +1,53 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.DashboardDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
+import com.github.stasangelov.reviewanalytics.service.AnalyticsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация ответов аналитики в JSON тем же {@link ObjectMapper}, что и у REST-контроллеров:
+ * дашборд и карточка товара со всеми отзывами (около 100 отзывов на 1 млн).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonSerializationBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private DashboardDto dashboard;
+    private ProductDetailsDto productDetails;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.open(1_000_000);
+        objectMapper = context.getBean(ObjectMapper.class);
+        AnalyticsService analyticsService = context.getBean(AnalyticsService.class);
+        dashboard = analyticsService.getDashboardData(BenchmarkDatabase.WINDOW_START, BenchmarkDatabase.WINDOW_END, null);
+        productDetails = analyticsService.getProductDetails(1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] dashboard() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dashboard);
+    }
+
+    @Benchmark
+    public byte[] productDetails() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(productDetails);
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.github.stasangelov.reviewanalytics.entity.Role;
+import com.github.stasangelov.reviewanalytics.entity.User;
+import com.github.stasangelov.reviewanalytics.repository.RoleRepository;
+import com.github.stasangelov.reviewanalytics.repository.UserRepository;
+import com.github.stasangelov.reviewanalytics.security.AuthenticatedPrincipalCache;
+import com.github.stasangelov.reviewanalytics.security.JwtAuthenticationFilter;
+import com.github.stasangelov.reviewanalytics.security.JwtTokenProvider;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы фильтра JWT на один запрос: с пустым {@link AuthenticatedPrincipalCache}
+ * (разбор и проверка подписи токена, чтение пользователя с ролями из БД) и с заполненным.
+ * Фильтр, кэш и провайдер токенов берутся из контекста сервера, пользователь читается из встроенной БД.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtFilterBenchmark {
+
+    private static final String EMAIL = "benchmark@example.com";
+
+    private ConfigurableApplicationContext context;
+    private AuthenticatedPrincipalCache principalCache;
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Объем отзывов на фильтр не влияет: достаточно минимального набора.
+        // USER — ключевое слово H2, без кавычек таблица пользователей не создается
+        context = BenchmarkDatabase.open(10_000, "spring.jpa.properties.hibernate.auto_quote_keyword=true");
+        createUserIfNotFound();
+        principalCache = context.getBean(AuthenticatedPrincipalCache.class);
+        filter = context.getBean(JwtAuthenticationFilter.class);
+        authorization = "Bearer " + context.getBean(JwtTokenProvider.class).createToken(EMAIL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int uncached() throws ServletException, IOException {
+        principalCache.invalidateAll();
+        return filterRequest();
+    }
+
+    @Benchmark
+    public int cached() throws ServletException, IOException {
+        return filterRequest();
+    }
+
+    private int filterRequest() throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/analytics/dashboard");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private void createUserIfNotFound() {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        if (userRepository.findByEmail(EMAIL).isPresent()) {
+            return;
+        }
+        RoleRepository roleRepository = context.getBean(RoleRepository.class);
+        Role role = roleRepository.findByName(Role.RoleName.ANALYST).orElseGet(() -> {
+            Role analyst = new Role();
+            analyst.setName(Role.RoleName.ANALYST);
+            return roleRepository.save(analyst);
+        });
+        User user = new User();
+        user.setName("benchmark");
+        user.setEmail(EMAIL);
+        user.setPasswordHash("-");
+        user.setActive(true);
+        user.setRoles(Set.of(role));
+        userRepository.save(user);
+    }
+}
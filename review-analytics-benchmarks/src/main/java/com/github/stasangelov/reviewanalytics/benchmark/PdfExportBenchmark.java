@@ -0,0 +1,64 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.DashboardDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
+import com.github.stasangelov.reviewanalytics.service.AnalyticsService;
+import com.github.stasangelov.reviewanalytics.service.PdfGenerationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Формирование PDF-отчетов ({@link PdfGenerationService}) по заранее собранным данным:
+ * измеряется только верстка документа и отрисовка графиков, без запросов к БД.
+ * Данные берутся из набора в 1 млн отзывов, как в {@link JsonSerializationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class PdfExportBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private PdfGenerationService pdfGenerationService;
+    private DashboardDto dashboard;
+    private ProductDetailsDto productDetails;
+    private List<ComparisonDataDto> comparison;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.open(1_000_000);
+        pdfGenerationService = context.getBean(PdfGenerationService.class);
+        AnalyticsService analyticsService = context.getBean(AnalyticsService.class);
+        dashboard = analyticsService.getDashboardData(BenchmarkDatabase.WINDOW_START, BenchmarkDatabase.WINDOW_END, null);
+        productDetails = analyticsService.getProductDetails(1L);
+        comparison = analyticsService.getComparisonData(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] dashboard() throws IOException {
+        return pdfGenerationService.generateDashboardPdf(dashboard, Map.of());
+    }
+
+    @Benchmark
+    public byte[] productDetails() throws IOException {
+        return pdfGenerationService.generateProductDetailsPdf(productDetails, null);
+    }
+
+    @Benchmark
+    public byte[] comparison() throws IOException {
+        return pdfGenerationService.generateComparisonPdf(comparison, Map.of());
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.DashboardDto;
+import com.github.stasangelov.reviewanalytics.service.AnalyticsService;
+import com.github.stasangelov.reviewanalytics.service.PdfGenerationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность выгрузки дашборда в PDF: один клиент против {@value #CLIENTS} одновременных.
+ * Шрифты общие для всех документов, а верстка выполняется в ограниченном пуле
+ * {@code analytics.pdf.render-threads}, поэтому рост числа клиентов должен давать рост выгрузок в секунду
+ * до числа потоков пула, а не конкуренцию за шрифты. Данные те же, что в {@link PdfExportBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class PdfExportThroughputBenchmark {
+
+    static final int CLIENTS = 12;
+
+    private ConfigurableApplicationContext context;
+    private PdfGenerationService pdfGenerationService;
+    private DashboardDto dashboard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.open(1_000_000);
+        pdfGenerationService = context.getBean(PdfGenerationService.class);
+        dashboard = context.getBean(AnalyticsService.class)
+                .getDashboardData(BenchmarkDatabase.WINDOW_START, BenchmarkDatabase.WINDOW_END, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public byte[] sequential() throws IOException {
+        return pdfGenerationService.generateDashboardPdf(dashboard, Map.of());
+    }
+
+    @Benchmark
+    @Threads(CLIENTS)
+    public byte[] parallel() throws IOException {
+        return pdfGenerationService.generateDashboardPdf(dashboard, Map.of());
+    }
+}
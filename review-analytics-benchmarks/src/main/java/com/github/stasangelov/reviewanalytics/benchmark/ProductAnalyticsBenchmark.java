@@ -0,0 +1,58 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductSummaryDto;
+import com.github.stasangelov.reviewanalytics.service.AnalyticsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Аналитика по товарам ({@link AnalyticsService}): сводная таблица товаров за окно,
+ * карточка одного товара со всеми отзывами и сравнение десяти товаров.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProductAnalyticsBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int reviews;
+
+    private ConfigurableApplicationContext context;
+    private AnalyticsService analyticsService;
+    private List<Long> comparedProducts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.open(reviews);
+        analyticsService = context.getBean(AnalyticsService.class);
+        comparedProducts = List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductSummaryDto> productsSummary() {
+        return analyticsService.getProductsSummary(BenchmarkDatabase.WINDOW_START, BenchmarkDatabase.WINDOW_END, null);
+    }
+
+    @Benchmark
+    public ProductDetailsDto productDetails() {
+        return analyticsService.getProductDetails(1L);
+    }
+
+    @Benchmark
+    public List<ComparisonDataDto> comparison() {
+        return analyticsService.getComparisonData(comparedProducts);
+    }
+}
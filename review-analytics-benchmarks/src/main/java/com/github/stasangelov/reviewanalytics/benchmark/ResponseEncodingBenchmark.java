@@ -0,0 +1,104 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductSummaryDto;
+import com.github.stasangelov.reviewanalytics.service.AnalyticsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кодирование ответа {@code /api/analytics/products-summary} за весь период: сериализация на сервере
+ * и разбор на клиенте в JSON и Smile, со сжатием gzip и без него. Размер тела ответа печатается
+ * при подготовке каждого варианта.
+ * <p>
+ * {@link #decodeViaString} повторяет прежний путь клиента: тело читается целиком (JSON — в строку)
+ * и только потом разбирается; {@link #decode} разбирает тело прямо из потока.
+ * Мапперы берутся из контекста сервера, поэтому настройки Jackson совпадают с настройками ответов API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResponseEncodingBenchmark {
+
+    private static final TypeReference<List<ProductSummaryDto>> SUMMARY_TYPE = new TypeReference<>() {
+    };
+
+    public enum Encoding {
+        JSON,
+        SMILE
+    }
+
+    @Param({"1000000", "10000000"})
+    private int reviews;
+
+    @Param({"JSON", "SMILE"})
+    private Encoding encoding;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectMapper mapper;
+    private List<ProductSummaryDto> summary;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Контекст нужен только для подготовки данных и мапперов: измеряется одно кодирование
+        try (ConfigurableApplicationContext context = BenchmarkDatabase.open(reviews)) {
+            summary = context.getBean(AnalyticsService.class).getProductsSummary(null, null, null);
+            mapper = encoding == Encoding.SMILE
+                    ? context.getBean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper()
+                    : context.getBean(ObjectMapper.class);
+        }
+        payload = encode();
+        System.out.printf("%n%s, gzip=%s: %d товаров, тело ответа %d байт%n",
+                encoding, gzip, summary.size(), payload.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            mapper.writeValue(out, summary);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<ProductSummaryDto> decode() throws IOException {
+        try (InputStream in = open()) {
+            return mapper.readValue(in, SUMMARY_TYPE);
+        }
+    }
+
+    @Benchmark
+    public List<ProductSummaryDto> decodeViaString() throws IOException {
+        try (InputStream in = open()) {
+            byte[] body = in.readAllBytes();
+            return encoding == Encoding.JSON
+                    ? mapper.readValue(new String(body, StandardCharsets.UTF_8), SUMMARY_TYPE)
+                    : mapper.readValue(body, SUMMARY_TYPE);
+        }
+    }
+
+    private InputStream open() throws IOException {
+        InputStream in = new ByteArrayInputStream(payload);
+        return gzip ? new GZIPInputStream(in) : in;
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.stasangelov.reviewanalytics.benchmark;
+
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewDto;
+import com.github.stasangelov.reviewanalytics.entity.Review;
+import com.github.stasangelov.reviewanalytics.repository.ReviewRepository;
+import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Преобразование отзыва с оценками в DTO ({@link ReviewMapper#toDto}) — выполняется для каждого
+ * отзыва в списках, на страницах и в выгрузках. Результат приводится в пересчете на один отзыв.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReviewMapperBenchmark {
+
+    private static final int REVIEWS = 100;
+
+    private ConfigurableApplicationContext context;
+    private ReviewMapper reviewMapper;
+    private List<Review> reviews;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.open(10_000);
+        reviewMapper = context.getBean(ReviewMapper.class);
+        reviews = context.getBean(ReviewRepository.class).findAllWithRatingsByIdIn(
+                LongStream.rangeClosed(1, REVIEWS).boxed().collect(Collectors.toList()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REVIEWS)
+    public void toDto(Blackhole blackhole) {
+        for (Review review : reviews) {
+            ReviewDto dto = reviewMapper.toDto(review);
+            blackhole.consume(dto);
+        }
+    }
+}
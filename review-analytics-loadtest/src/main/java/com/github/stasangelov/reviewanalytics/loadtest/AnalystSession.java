@@ -0,0 +1,149 @@
+package com.github.stasangelov.reviewanalytics.loadtest;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Один аналитик: выполняет операции по расписанию с постоянным интервалом и ждет ответа
+ * на каждый запрос перед следующим (замкнутый цикл). Если ответ пришел позже начала следующего
+ * интервала, следующий запрос уходит сразу, а его задержка "по плану" включает опоздание.
+ */
+public class AnalystSession implements Runnable {
+
+    /** Длины периода фильтров в днях; 0 — без ограничения по датам. */
+    private static final int[] PERIOD_DAYS = {0, 7, 30, 90, 365};
+
+    private final LoadTestConfig config;
+    private final ReviewAnalyticsApi api;
+    private final Map<Operation, LatencyStats> stats;
+    private final List<Long> productIds;
+    private final List<Long> categoryIds;
+    private final SplittableRandom random;
+    private final long startAt;
+    private final long intervalNanos;
+    private final long measureFrom;
+    private final long stopAt;
+
+    /**
+     * @param startAt      момент первого запроса этого аналитика ({@link System#nanoTime()}).
+     * @param measureFrom  запросы, запланированные раньше, относятся к прогреву и не записываются.
+     * @param stopAt       момент, после которого новые запросы не начинаются.
+     */
+    public AnalystSession(LoadTestConfig config, ReviewAnalyticsApi api, Map<Operation, LatencyStats> stats,
+                          List<Long> productIds, List<Long> categoryIds, long seed,
+                          long startAt, long intervalNanos, long measureFrom, long stopAt) {
+        this.config = config;
+        this.api = api;
+        this.stats = stats;
+        this.productIds = productIds;
+        this.categoryIds = categoryIds;
+        this.random = new SplittableRandom(seed);
+        this.startAt = startAt;
+        this.intervalNanos = intervalNanos;
+        this.measureFrom = measureFrom;
+        this.stopAt = stopAt;
+    }
+
+    @Override
+    public void run() {
+        for (long iteration = 0; ; iteration++) {
+            long intendedStart = startAt + iteration * intervalNanos;
+            if (intendedStart >= stopAt || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Operation operation = nextOperation();
+            long actualStart = System.nanoTime();
+            boolean success = execute(operation);
+            long end = System.nanoTime();
+
+            if (intendedStart >= measureFrom) {
+                LatencyStats operationStats = stats.get(operation);
+                if (success) {
+                    operationStats.recordSuccess(intendedStart, actualStart, end);
+                } else {
+                    operationStats.recordError(intendedStart, end);
+                }
+            }
+        }
+    }
+
+    private boolean execute(Operation operation) {
+        try {
+            switch (operation) {
+                case DASHBOARD -> {
+                    LocalDate[] period = randomPeriod();
+                    api.getDashboard(period[0], period[1], randomCategory());
+                }
+                case PRODUCTS_SUMMARY -> {
+                    LocalDate[] period = randomPeriod();
+                    api.getProductsSummary(period[0], period[1], randomCategory());
+                }
+                case PRODUCT_DETAILS -> api.getProductDetails(randomProduct());
+                case COMPARE -> {
+                    List<Long> compared = new ArrayList<>(config.getCompareSize());
+                    for (int i = 0; i < config.getCompareSize(); i++) {
+                        compared.add(randomProduct());
+                    }
+                    api.compare(compared);
+                }
+                case PDF_EXPORT -> {
+                    LocalDate[] period = randomPeriod();
+                    api.exportDashboardPdf(period[0], period[1], randomCategory());
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    //================================================================================
+    // Случайный выбор операции и фильтров
+    //================================================================================
+
+    private Operation nextOperation() {
+        int total = config.getMix().values().stream().mapToInt(Integer::intValue).sum();
+        int point = random.nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : config.getMix().entrySet()) {
+            point -= entry.getValue();
+            if (point < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Смесь операций пуста");
+    }
+
+    /**
+     * Случайный период в пределах последнего года данных: {@code [начало, конец]} или пара {@code null}.
+     */
+    private LocalDate[] randomPeriod() {
+        int days = PERIOD_DAYS[random.nextInt(PERIOD_DAYS.length)];
+        if (days == 0) {
+            return new LocalDate[]{null, null};
+        }
+        LocalDate end = config.getDataEndDate().minusDays(random.nextInt(365));
+        return new LocalDate[]{end.minusDays(days - 1), end};
+    }
+
+    /** Категория в половине запросов, иначе все категории. */
+    private Long randomCategory() {
+        return categoryIds.isEmpty() || random.nextBoolean() ? null : categoryIds.get(random.nextInt(categoryIds.size()));
+    }
+
+    private long randomProduct() {
+        return productIds.get(random.nextInt(productIds.size()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.stasangelov.reviewanalytics.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Результаты одной операции: гистограммы задержек успешных и неуспешных запросов.
+ * <p>
+ * Задержка "по отправке" отсчитывается от фактической отправки запроса. Задержка "по плану"
+ * отсчитывается от момента, когда запрос должен был уйти по расписанию: если сервер замедлился и аналитик
+ * отстал от графика, время ожидания в очереди на отправку тоже учитывается. Так исправляется
+ * coordinated omission — без этого замедление сервера сокращает число замеров и прячет хвост распределения.
+ * Задержки неуспешных запросов (тайм-ауты, медленные ответы 5xx) тоже отсчитываются от плана, но пишутся
+ * в отдельную гистограмму, чтобы быстрые отказы не улучшали процентили успешных ответов, а медленные не пропадали.
+ */
+public class LatencyStats {
+
+    /** Верхняя граница гистограмм — один час в микросекундах; точность — три значащие цифры. */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram responseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram errorResponseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    /**
+     * Записывает успешный запрос; моменты — в наносекундах {@link System#nanoTime()}.
+     */
+    public void recordSuccess(long intendedStart, long actualStart, long end) {
+        serviceTime.recordValue(toMicros(end - actualStart));
+        responseTime.recordValue(toMicros(end - intendedStart));
+    }
+
+    /**
+     * Записывает неуспешный запрос; моменты — в наносекундах {@link System#nanoTime()}.
+     */
+    public void recordError(long intendedStart, long end) {
+        errorResponseTime.recordValue(toMicros(end - intendedStart));
+    }
+
+    /** Задержки от фактической отправки запроса (без поправки). */
+    public Histogram getServiceTime() {
+        return serviceTime;
+    }
+
+    /** Задержки от запланированного момента отправки (с поправкой на coordinated omission). */
+    public Histogram getResponseTime() {
+        return responseTime;
+    }
+
+    /** Задержки неуспешных запросов от запланированного момента отправки. */
+    public Histogram getErrorResponseTime() {
+        return errorResponseTime;
+    }
+
+    public long getSuccessCount() {
+        return responseTime.getTotalCount();
+    }
+
+    public long getErrorCount() {
+        return errorResponseTime.getTotalCount();
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.stasangelov.reviewanalytics.loadtest;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузочный прогон против локально запущенного сервера.
+ * <p>
+ * Входит в систему через {@code /api/auth}, загружает списки товаров и категорий и запускает
+ * {@code users} аналитиков ({@link AnalystSession}), которые вместе выдают {@code rate} запросов в секунду
+ * в заданной смеси операций. После прогрева и замера печатает {@link LoadTestReport}.
+ * Пример: {@code users=50 rate=100 duration=PT5M mix=dashboard=50,product-details=50 data-end-date=2025-01-01}.
+ */
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromArgs(args);
+        ReviewAnalyticsApi api = new ReviewAnalyticsApi(config);
+        try {
+            api.login();
+            List<Long> productIds = api.getIds("/api/products");
+            List<Long> categoryIds = api.getIds("/api/categories");
+            if (productIds.isEmpty()) {
+                throw new IllegalStateException("На сервере нет товаров: заполните БД перед прогоном");
+            }
+
+            Map<Operation, LatencyStats> stats = new EnumMap<>(Operation.class);
+            config.getMix().keySet().forEach(operation -> stats.put(operation, new LatencyStats()));
+
+            // Каждый аналитик выдает rate / users запросов в секунду; старты равномерно разнесены внутри интервала
+            long intervalNanos = (long) (config.getUsers() * 1e9 / config.getRate());
+            long startAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            long measureFrom = startAt + config.getWarmup().toNanos();
+            long stopAt = measureFrom + config.getDuration().toNanos();
+
+            AtomicInteger threadNumber = new AtomicInteger();
+            ExecutorService analysts = Executors.newFixedThreadPool(config.getUsers(),
+                    task -> new Thread(task, "analyst-" + threadNumber.incrementAndGet()));
+            SplittableRandom seeds = new SplittableRandom(config.getSeed());
+            for (int i = 0; i < config.getUsers(); i++) {
+                analysts.execute(new AnalystSession(config, api, stats, productIds, categoryIds, seeds.nextLong(),
+                        startAt + i * intervalNanos / config.getUsers(), intervalNanos, measureFrom, stopAt));
+            }
+            System.out.printf("Прогон начат: %d аналитиков, %.1f запр./с, прогрев %s, замер %s%n",
+                    config.getUsers(), config.getRate(), config.getWarmup(), config.getDuration());
+
+            analysts.shutdown();
+            // Запросы, начатые до конца замера, дожидаются ответа не дольше таймаута запроса
+            long awaitNanos = stopAt - System.nanoTime() + config.getRequestTimeout().toNanos();
+            if (!analysts.awaitTermination(awaitNanos, TimeUnit.NANOSECONDS)) {
+                analysts.shutdownNow();
+            }
+
+            LoadTestReport report = new LoadTestReport(config, stats);
+            report.print(System.out);
+            if (!config.getReportFile().isBlank()) {
+                Path reportFile = Path.of(config.getReportFile());
+                report.writeJson(reportFile);
+                System.out.printf("%nОтчет сохранен: %s%n", reportFile.toAbsolutePath());
+            }
+        } finally {
+            api.shutdown();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.stasangelov.reviewanalytics.loadtest;
+
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного прогона. Задаются аргументами командной строки вида {@code key=value}
+ * (или {@code --key=value}); незаданные параметры берутся по умолчанию.
+ */
+@Data
+public class LoadTestConfig {
+
+    /** Адрес локально запущенного сервера. */
+    private String baseUrl = "http://localhost:8080";
+    private String email = "user@user";
+    private String password = "user";
+
+    /** Число одновременно работающих аналитиков (потоков); каждый ждет ответа перед следующим запросом. */
+    private int users = 20;
+    /** Целевая суммарная интенсивность запросов в секунду, делится поровну между аналитиками. */
+    private double rate = 20;
+    /** Длительность замера (без прогрева), ISO-8601: PT2M. */
+    private Duration duration = Duration.ofMinutes(2);
+    /** Прогрев: запросы выполняются, но в результаты не попадают. */
+    private Duration warmup = Duration.ofSeconds(30);
+    private Duration requestTimeout = Duration.ofSeconds(60);
+
+    /** Доли операций в потоке запросов: {@code dashboard=35,products-summary=25,...}. */
+    private Map<Operation, Integer> mix = parseMix("dashboard=35,products-summary=25,product-details=20,compare=15,pdf-export=5");
+    /** Зерно случайного выбора операций и фильтров; у каждого аналитика — свое, производное от него. */
+    private long seed = 1;
+    /** Количество товаров в одном запросе сравнения. */
+    private int compareSize = 5;
+    /** Последний день, за который в БД есть отзывы: случайные периоды фильтров заканчиваются не позже него. */
+    private LocalDate dataEndDate = LocalDate.now();
+    /** Интервал опроса состояния задачи PDF-отчета. */
+    private Duration pdfPollInterval = Duration.ofMillis(250);
+
+    /** Файл для отчета в JSON; пустое значение — только вывод в консоль. */
+    private String reportFile = "target/loadtest-report.json";
+
+    /**
+     * Разбирает аргументы командной строки.
+     * @throws IllegalArgumentException если аргумент не в формате {@code key=value} или параметр неизвестен.
+     */
+    public static LoadTestConfig fromArgs(String... args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Аргумент должен иметь вид key=value: " + arg);
+            }
+            config.set(option.substring(0, separator), option.substring(separator + 1));
+        }
+        if (config.users <= 0 || config.rate <= 0) {
+            throw new IllegalArgumentException("users и rate должны быть положительными");
+        }
+        return config;
+    }
+
+    private void set(String key, String value) {
+        switch (key) {
+            case "base-url" -> baseUrl = value;
+            case "email" -> email = value;
+            case "password" -> password = value;
+            case "users" -> users = Integer.parseInt(value);
+            case "rate" -> rate = Double.parseDouble(value);
+            case "duration" -> duration = Duration.parse(value);
+            case "warmup" -> warmup = Duration.parse(value);
+            case "request-timeout" -> requestTimeout = Duration.parse(value);
+            case "mix" -> mix = parseMix(value);
+            case "seed" -> seed = Long.parseLong(value);
+            case "compare-size" -> compareSize = Integer.parseInt(value);
+            case "data-end-date" -> dataEndDate = LocalDate.parse(value);
+            case "pdf-poll-interval" -> pdfPollInterval = Duration.parse(value);
+            case "report-file" -> reportFile = value;
+            default -> throw new IllegalArgumentException("Неизвестный параметр: " + key);
+        }
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Доля операции должна иметь вид name=weight: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.fromName(parts[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("В смеси операций нет ни одной операции с положительной долей");
+        }
+        return weights;
+    }
+}
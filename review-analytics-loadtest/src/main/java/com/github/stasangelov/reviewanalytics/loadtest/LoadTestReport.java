@@ -0,0 +1,127 @@
+package com.github.stasangelov.reviewanalytics.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Итоги прогона: пропускная способность, доля ошибок и процентили задержек по каждой операции и в целом.
+ * Печатается в консоль и при необходимости сохраняется в JSON для сравнения прогонов.
+ */
+public class LoadTestReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadTestConfig config;
+    private final Map<Operation, LatencyStats> stats;
+    private final double measuredSeconds;
+
+    public LoadTestReport(LoadTestConfig config, Map<Operation, LatencyStats> stats) {
+        this.config = config;
+        this.stats = stats;
+        this.measuredSeconds = config.getDuration().toMillis() / 1000.0;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%nАналитиков: %d, целевая интенсивность: %.1f запр./с, замер: %s (прогрев %s)%n",
+                config.getUsers(), config.getRate(), config.getDuration(), config.getWarmup());
+        printTable(out, "Задержка по плану, мс (с поправкой на coordinated omission)", LatencyStats::getResponseTime);
+        printTable(out, "Задержка по отправке, мс (без поправки)", LatencyStats::getServiceTime);
+        printTable(out, "Задержка неуспешных запросов по плану, мс", LatencyStats::getErrorResponseTime);
+    }
+
+    public void writeJson(Path file) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", config.getUsers());
+        report.put("targetRate", config.getRate());
+        report.put("durationSeconds", measuredSeconds);
+        report.put("warmupSeconds", config.getWarmup().toMillis() / 1000.0);
+        Map<String, Object> operations = new LinkedHashMap<>();
+        stats.forEach((operation, operationStats) ->
+                operations.put(operation.getName(), toJson(operationStats.getSuccessCount(), operationStats.getErrorCount(),
+                        operationStats.getResponseTime(), operationStats.getServiceTime(), operationStats.getErrorResponseTime())));
+        report.put("operations", operations);
+        report.put("total", toJson(totalSuccess(), totalErrors(), total(LatencyStats::getResponseTime),
+                total(LatencyStats::getServiceTime), total(LatencyStats::getErrorResponseTime)));
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+    }
+
+    //================================================================================
+    // Вспомогательные методы
+    //================================================================================
+
+    private void printTable(PrintStream out, String title, Function<LatencyStats, Histogram> latency) {
+        out.printf("%n%s%n", title);
+        out.printf("%-18s %9s %8s %9s %9s %9s %9s %9s %9s %9s%n",
+                "Операция", "Запросов", "Ошибок", "Ошибки,%", "Запр./с", "p50", "p90", "p99", "p99.9", "max");
+        stats.forEach((operation, operationStats) -> printRow(out, operation.getName(), operationStats.getSuccessCount(),
+                operationStats.getErrorCount(), latency.apply(operationStats)));
+        printRow(out, "всего", totalSuccess(), totalErrors(), total(latency));
+    }
+
+    private void printRow(PrintStream out, String name, long success, long errors, Histogram histogram) {
+        out.printf("%-18s %9d %8d %9.2f %9.2f", name, success, errors, errorRate(success, errors),
+                (success + errors) / measuredSeconds);
+        for (double percentile : PERCENTILES) {
+            out.printf(" %9.1f", millis(histogram.getValueAtPercentile(percentile)));
+        }
+        out.printf(" %9.1f%n", millis(histogram.getMaxValue()));
+    }
+
+    private Map<String, Object> toJson(long success, long errors, Histogram responseTime, Histogram serviceTime,
+                                       Histogram errorResponseTime) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("requests", success + errors);
+        json.put("errors", errors);
+        json.put("errorRatePercent", errorRate(success, errors));
+        json.put("throughputPerSecond", (success + errors) / measuredSeconds);
+        json.put("responseTimeMillis", percentiles(responseTime));
+        json.put("serviceTimeMillis", percentiles(serviceTime));
+        json.put("errorResponseTimeMillis", percentiles(errorResponseTime));
+        return json;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("mean", histogram.getTotalCount() == 0 ? 0 : histogram.getMean() / 1000.0);
+        for (double percentile : PERCENTILES) {
+            values.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile)),
+                    millis(histogram.getValueAtPercentile(percentile)));
+        }
+        values.put("max", millis(histogram.getMaxValue()));
+        return values;
+    }
+
+    private Histogram total(Function<LatencyStats, Histogram> latency) {
+        Histogram total = new Histogram(3);
+        stats.values().forEach(operationStats -> total.add(latency.apply(operationStats)));
+        return total;
+    }
+
+    private long totalSuccess() {
+        return stats.values().stream().mapToLong(LatencyStats::getSuccessCount).sum();
+    }
+
+    private long totalErrors() {
+        return stats.values().stream().mapToLong(LatencyStats::getErrorCount).sum();
+    }
+
+    private static double errorRate(long success, long errors) {
+        return success + errors == 0 ? 0 : 100.0 * errors / (success + errors);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.stasangelov.reviewanalytics.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Операции аналитика, из которых состоит поток запросов.
+ */
+public enum Operation {
+    /** {@code GET /api/analytics/dashboard} со случайным периодом и категорией. */
+    DASHBOARD("dashboard"),
+    /** {@code GET /api/analytics/products-summary} со случайным периодом и категорией. */
+    PRODUCTS_SUMMARY("products-summary"),
+    /** {@code GET /api/analytics/product/{id}} для случайного товара. */
+    PRODUCT_DETAILS("product-details"),
+    /** {@code POST /api/analytics/compare} для нескольких случайных товаров. */
+    COMPARE("compare"),
+    /** Фоновый PDF-отчет по дашборду: постановка в очередь, ожидание и скачивание файла. */
+    PDF_EXPORT("pdf-export");
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static Operation fromName(String name) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестная операция: " + name));
+    }
+}
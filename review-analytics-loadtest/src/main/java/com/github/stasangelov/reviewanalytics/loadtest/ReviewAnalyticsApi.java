@@ -0,0 +1,163 @@
+package com.github.stasangelov.reviewanalytics.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Синхронный HTTP-клиент REST API сервера для нагрузочного прогона.
+ * Тела ответов читаются полностью (как это делает настольный клиент), но не разбираются,
+ * кроме тех, что нужны для продолжения сценария.
+ */
+public class ReviewAnalyticsApi {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final LoadTestConfig config;
+    private final OkHttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile String token;
+
+    public ReviewAnalyticsApi(LoadTestConfig config) {
+        this.config = config;
+        // Простаивающих соединений хранится столько же, сколько аналитиков: каждый переиспользует свое
+        this.client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(config.getUsers(), 5, TimeUnit.MINUTES))
+                .callTimeout(config.getRequestTimeout())
+                .readTimeout(config.getRequestTimeout())
+                .build();
+    }
+
+    //================================================================================
+    // Подготовка прогона
+    //================================================================================
+
+    /**
+     * Выполняет вход через {@code /api/auth/login} и запоминает токен для всех последующих запросов.
+     */
+    public void login() throws IOException {
+        String body = objectMapper.writeValueAsString(Map.of("email", config.getEmail(), "password", config.getPassword()));
+        Request request = new Request.Builder()
+                .url(config.getBaseUrl() + "/api/auth/login")
+                .post(RequestBody.create(body, JSON))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Вход не выполнен: HTTP " + response.code());
+            }
+            token = objectMapper.readTree(response.body().string()).path("token").asText();
+        }
+    }
+
+    /**
+     * Возвращает id всех объектов справочника, например {@code /api/products}.
+     */
+    public List<Long> getIds(String path) throws IOException {
+        JsonNode items = objectMapper.readTree(execute(get(HttpUrl.get(config.getBaseUrl() + path))));
+        List<Long> ids = new ArrayList<>();
+        items.forEach(item -> ids.add(item.path("id").asLong()));
+        return ids;
+    }
+
+    //================================================================================
+    // Операции аналитика
+    //================================================================================
+
+    public void getDashboard(LocalDate startDate, LocalDate endDate, Long categoryId) throws IOException {
+        execute(get(withFilters("/api/analytics/dashboard", startDate, endDate, categoryId)));
+    }
+
+    public void getProductsSummary(LocalDate startDate, LocalDate endDate, Long categoryId) throws IOException {
+        execute(get(withFilters("/api/analytics/products-summary", startDate, endDate, categoryId)));
+    }
+
+    public void getProductDetails(long productId) throws IOException {
+        execute(get(HttpUrl.get(config.getBaseUrl() + "/api/analytics/product/" + productId)));
+    }
+
+    public void compare(List<Long> productIds) throws IOException {
+        execute(authorized(new Request.Builder()
+                .url(config.getBaseUrl() + "/api/analytics/compare")
+                .post(RequestBody.create(objectMapper.writeValueAsString(productIds), JSON))));
+    }
+
+    /**
+     * Ставит в очередь PDF-отчет по дашборду, опрашивает состояние задачи до завершения и скачивает файл.
+     * @throws IOException если задача завершилась ошибкой или не завершилась за время ожидания запроса.
+     */
+    public void exportDashboardPdf(LocalDate startDate, LocalDate endDate, Long categoryId)
+            throws IOException, InterruptedException {
+        HttpUrl submitUrl = withFilters("/api/analytics/reports/dashboard", startDate, endDate, categoryId);
+        JsonNode job = objectMapper.readTree(execute(authorized(new Request.Builder()
+                .url(submitUrl)
+                .post(RequestBody.create(new byte[0])))));
+        String jobUrl = config.getBaseUrl() + "/api/analytics/reports/" + job.path("id").asText();
+
+        long deadline = System.nanoTime() + config.getRequestTimeout().toNanos();
+        String status = job.path("status").asText();
+        while (!"COMPLETED".equals(status)) {
+            if ("FAILED".equals(status)) {
+                throw new IOException("Отчет не сформирован: " + job.path("errorMessage").asText());
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IOException("Отчет не сформирован за " + config.getRequestTimeout());
+            }
+            Thread.sleep(config.getPdfPollInterval().toMillis());
+            job = objectMapper.readTree(execute(get(HttpUrl.get(jobUrl))));
+            status = job.path("status").asText();
+        }
+        execute(get(HttpUrl.get(jobUrl + "/file")));
+    }
+
+    public void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    //================================================================================
+    // Вспомогательные методы
+    //================================================================================
+
+    private HttpUrl withFilters(String path, LocalDate startDate, LocalDate endDate, Long categoryId) {
+        HttpUrl.Builder url = HttpUrl.get(config.getBaseUrl() + path).newBuilder();
+        if (startDate != null) {
+            url.addQueryParameter("startDate", startDate.toString());
+        }
+        if (endDate != null) {
+            url.addQueryParameter("endDate", endDate.toString());
+        }
+        if (categoryId != null) {
+            url.addQueryParameter("categoryId", categoryId.toString());
+        }
+        return url.build();
+    }
+
+    private Request.Builder get(HttpUrl url) {
+        return authorized(new Request.Builder().url(url).get());
+    }
+
+    private Request.Builder authorized(Request.Builder request) {
+        return request.header("Authorization", "Bearer " + token);
+    }
+
+    /**
+     * Выполняет запрос и возвращает тело ответа целиком.
+     * @throws IOException при сетевой ошибке или ответе с кодом не 2xx.
+     */
+    private byte[] execute(Request.Builder request) throws IOException {
+        try (Response response = client.newCall(request.build()).execute()) {
+            byte[] body = response.body().bytes();
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP " + response.code());
+            }
+            return body;
+        }
+    }
+}
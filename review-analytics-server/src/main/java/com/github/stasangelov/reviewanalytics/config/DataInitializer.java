@@ -1,21 +1,19 @@
 package com.github.stasangelov.reviewanalytics.config;
 
-import com.github.stasangelov.reviewanalytics.entity.Review;
-import com.github.stasangelov.reviewanalytics.entity.ReviewRating;
 import com.github.stasangelov.reviewanalytics.entity.Role;
 import com.github.stasangelov.reviewanalytics.entity.User;
-import com.github.stasangelov.reviewanalytics.repository.ReviewRepository;
 import com.github.stasangelov.reviewanalytics.repository.RoleRepository;
 import com.github.stasangelov.reviewanalytics.repository.UserRepository;
+import com.github.stasangelov.reviewanalytics.service.ReviewRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -24,6 +22,7 @@ import java.util.Set;
  * после того, как контекст Spring Boot будет полностью загружен.
  */
 @Component
+@Order(0)
 @Slf4j
 @RequiredArgsConstructor
 public class DataInitializer implements CommandLineRunner {
@@ -32,12 +31,11 @@ public class DataInitializer implements CommandLineRunner {
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final ReviewRepository reviewRepository;
+    private final ReviewRollupService reviewRollupService;
 
     /**
      * Точка входа для инициализатора. Выполняется один раз при запуске приложения.
-     * Метод создает роли и пользователей по умолчанию, а также выполняет
-     * необходимые миграции данных, такие как пересчет рейтингов.
+     * Метод создает роли и пользователей по умолчанию и перестраивает дневную витрину отзывов.
      */
     @Override
     @Transactional
@@ -54,7 +52,10 @@ public class DataInitializer implements CommandLineRunner {
         // 3. Создаем обычного пользователя-аналитика, если его нет.
         createUserIfNotFound("user", "user@user", "user", new HashSet<>(Set.of(analystRole)));
 
-        recalculateAllIntegralRatings();
+        // 4. Перестраиваем дневную витрину: data.sql перезаливает отзывы при каждом запуске.
+        // Незаполненные интегральные рейтинги досчитываются в фоне (RatingRecalculationService),
+        // который по завершении перестроит витрину еще раз.
+        reviewRollupService.rebuild();
 
         log.info("Инициализация системных данных завершена.");
     }
@@ -93,49 +94,4 @@ public class DataInitializer implements CommandLineRunner {
             log.info("Пользователь с email='{}' уже существует. Пропускаем создание.", email);
         }
     }
-
-    /**
-     * Находит все отзывы с нерассчитанным интегральным рейтингом (NULL)
-     * и вычисляет его значение. Полезно для миграции старых данных.
-     */
-    private void recalculateAllIntegralRatings() {
-        log.info("Проверка и пересчет интегральных рейтингов...");
-        // Находим все отзывы, где integral_rating IS NULL
-        List<Review> reviewsToUpdate = reviewRepository.findByIntegralRatingIsNull();
-
-        if (reviewsToUpdate.isEmpty()) {
-            log.info("Все интегральные рейтинги уже рассчитаны.");
-            return;
-        }
-
-        log.info("Найдено {} отзывов для пересчета рейтинга.", reviewsToUpdate.size());
-        for (Review review : reviewsToUpdate) {
-            // Для каждого отзыва вызываем наш уже существующий метод расчета
-            review.setIntegralRating(calculateIntegralRating(review));
-        }
-
-        // Сохраняем все обновленные отзывы одним пакетом
-        reviewRepository.saveAll(reviewsToUpdate);
-        log.info("Пересчет рейтингов завершен.");
-    }
-
-    /**
-     * Локальная копия метода расчета взвешенного интегрального рейтинга для отзыва.
-     * Дублируется здесь, чтобы избежать циклической зависимости между сервисами и
-     * компонентами конфигурации.
-     */
-    private Double calculateIntegralRating(Review review) {
-        if (review.getReviewRatings() == null || review.getReviewRatings().isEmpty()) {
-            return 0.0;
-        }
-        double weightedSum = 0.0;
-        double totalWeight = 0.0;
-        for (ReviewRating rating : review.getReviewRatings()) {
-            double weight = rating.getCriterion().getWeight();
-            weightedSum += rating.getRating() * weight;
-            totalWeight += weight;
-        }
-        if (totalWeight == 0) return 0.0;
-        return weightedSum / totalWeight;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.github.stasangelov.reviewanalytics.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Двоичное представление ответов API.
+ * <p>
+ * Клиент, передавший {@code Accept: application/x-jackson-smile}, получает те же DTO в формате Smile:
+ * он компактнее JSON (имена полей повторяющихся объектов передаются ссылками) и быстрее разбирается.
+ * Без этого заголовка ответы остаются в JSON. Сжатие gzip настраивается свойствами {@code server.compression.*}.
+ */
+@Configuration
+public class ResponseEncodingConfig {
+
+    /**
+     * Конвертер Smile с теми же настройками Jackson, что у JSON (формат дат, модули),
+     * вместо конвертера по умолчанию, который Spring MVC создает без них.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
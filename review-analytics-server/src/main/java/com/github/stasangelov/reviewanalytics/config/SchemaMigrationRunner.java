@@ -0,0 +1,46 @@
+package com.github.stasangelov.reviewanalytics.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Применяет версионные миграции схемы из {@code classpath:db/migration}.
+ * <p>
+ * Таблицы создает и дополняет Hibernate ({@code ddl-auto=update}), поэтому миграции выполняются
+ * сразу после создания {@link EntityManagerFactory}, а не перед ним, как при автозапуске Flyway.
+ * В существующей БД без истории миграций история начинается с версии 0, поэтому применяются все скрипты.
+ */
+@Slf4j
+@Component
+public class SchemaMigrationRunner {
+
+    private static final String LOCATION = "classpath:db/migration";
+
+    private final DataSource dataSource;
+
+    /**
+     * {@link EntityManagerFactory} принимается только для порядка инициализации:
+     * к моменту миграции схема Hibernate уже должна существовать.
+     */
+    public SchemaMigrationRunner(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    void migrate() {
+        MigrateResult result = Flyway.configure()
+                .dataSource(dataSource)
+                .locations(LOCATION)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+        log.info("Миграции схемы: применено {}, текущая версия {}", result.migrationsExecuted, result.targetSchemaVersion);
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.stasangelov.reviewanalytics.config;
 
 import com.github.stasangelov.reviewanalytics.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -48,7 +49,14 @@ public class SecurityConfig {
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 // Настраиваем правила авторизации для эндпоинтов.
                 .authorizeHttpRequests(auth -> auth
+                        // Асинхронная диспетчеризация (завершение SSE-потока /api/analytics/dashboard/live) продолжает
+                        // запрос, уже прошедший авторизацию; JWT-фильтр на ней не выполняется
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
+                        // Без токена доступна только проверка состояния. Метрики (в том числе /actuator/prometheus)
+                        // раскрывают URI запросов и формы фильтров аналитики, поэтому читает их только администратор
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated()
                 )
                 // Добавляем наш кастомный JWT-фильтр в цепочку перед стандартным фильтром аутентификации.
@@ -0,0 +1,80 @@
+package com.github.stasangelov.reviewanalytics.config;
+
+import com.github.stasangelov.reviewanalytics.service.SyntheticDataGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Заполняет БД синтетическим набором данных при старте с профилем {@code synthetic-data}.
+ * Объем и параметры набора задаются свойствами {@code datagen.*}, например:
+ * {@code java -jar server.jar --spring.profiles.active=synthetic-data --datagen.reviews=10000000}.
+ * Выполняется после {@link DataInitializer}, чтобы его перестроение витрины не выполнялось по уже сгенерированным данным повторно.
+ */
+@Component
+@Profile("synthetic-data")
+@Order(1)
+@RequiredArgsConstructor
+public class SyntheticDataRunner implements CommandLineRunner {
+
+    private final SyntheticDataGenerator syntheticDataGenerator;
+
+    @Value("${datagen.seed:42}")
+    private long seed;
+
+    @Value("${datagen.categories:12}")
+    private int categories;
+
+    @Value("${datagen.common-criteria:3}")
+    private int commonCriteria;
+
+    @Value("${datagen.criteria-per-category:5}")
+    private int criteriaPerCategory;
+
+    @Value("${datagen.brands-per-category:15}")
+    private int brandsPerCategory;
+
+    @Value("${datagen.products:5000}")
+    private int products;
+
+    @Value("${datagen.reviews:1000000}")
+    private long reviews;
+
+    @Value("${datagen.popularity-skew:1.0}")
+    private double popularitySkew;
+
+    @Value("${datagen.rejection-rate:0.08}")
+    private double rejectionRate;
+
+    @Value("${datagen.end-date:2025-01-01}")
+    private LocalDate endDate;
+
+    @Value("${datagen.days:730}")
+    private int days;
+
+    @Value("${datagen.batch-size:1000}")
+    private int batchSize;
+
+    @Override
+    public void run(String... args) {
+        SyntheticDataGenerator.Settings settings = new SyntheticDataGenerator.Settings();
+        settings.setSeed(seed);
+        settings.setCategories(categories);
+        settings.setCommonCriteria(commonCriteria);
+        settings.setCriteriaPerCategory(criteriaPerCategory);
+        settings.setBrandsPerCategory(brandsPerCategory);
+        settings.setProducts(products);
+        settings.setReviews(reviews);
+        settings.setPopularitySkew(popularitySkew);
+        settings.setRejectionRate(rejectionRate);
+        settings.setEndDate(endDate);
+        settings.setDays(days);
+        settings.setBatchSize(batchSize);
+        syntheticDataGenerator.generate(settings);
+    }
+}
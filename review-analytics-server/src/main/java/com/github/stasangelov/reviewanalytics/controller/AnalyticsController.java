@@ -2,14 +2,26 @@ package com.github.stasangelov.reviewanalytics.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.stasangelov.reviewanalytics.dto.analytics.cache.AnalyticsCacheStatsDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.columnar.ColumnarStoreStatsDto;
 import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.DashboardDto;
+import com.github.stasangelov.reviewanalytics.service.AnalyticsResultCache;
 import com.github.stasangelov.reviewanalytics.service.AnalyticsService;
+import com.github.stasangelov.reviewanalytics.service.DashboardLiveUpdateService;
+import com.github.stasangelov.reviewanalytics.service.DynamicsGranularity;
+import com.github.stasangelov.reviewanalytics.service.DynamicsOptions;
 import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
 import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductSummaryDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.rollup.RollupConsistencyReportDto;
 import com.github.stasangelov.reviewanalytics.service.PdfGenerationService;
+import com.github.stasangelov.reviewanalytics.service.ReviewRollupService;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarReviewStore;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -18,6 +30,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.bind.annotation.RequestPart;
 
 import java.io.IOException;
@@ -40,20 +53,53 @@ public class AnalyticsController {
 
     // --- Поля и зависимости ---
     private final AnalyticsService analyticsService;
+    private final DashboardLiveUpdateService dashboardLiveUpdateService;
     private final PdfGenerationService pdfGenerationService;
+    private final ReviewRollupService reviewRollupService;
+    private final AnalyticsResultCache analyticsResultCache;
+    private final ColumnarReviewStore columnarReviewStore;
     private final ObjectMapper objectMapper;
 
+    /**
+     * Максимальное количество товаров в одном запросе на сравнение.
+     */
+    @Value("${analytics.compare.max-products:300}")
+    private int maxComparedProducts;
+
     /**
      * Возвращает все агрегированные данные для главной информационной панели.
-     * Принимает необязательные параметры для фильтрации.
+     * Принимает необязательные параметры для фильтрации, гранулярность графика динамики
+     * ({@code DAY}, {@code WEEK}, {@code MONTH}, {@code QUARTER}; по умолчанию — по длительности периода)
+     * и окно скользящего среднего в периодах.
      */
     @GetMapping("/dashboard")
     public ResponseEntity<DashboardDto> getDashboardData(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            @RequestParam(required = false) Long categoryId
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) DynamicsGranularity granularity,
+            @RequestParam(required = false) Integer movingAverage
+    ) {
+        if (movingAverage != null && (movingAverage < 0 || movingAverage > DynamicsOptions.MAX_MOVING_AVERAGE_WINDOW)) {
+            return ResponseEntity.badRequest().build();
+        }
+        DynamicsOptions dynamics = new DynamicsOptions(granularity, movingAverage != null ? movingAverage : 0);
+        return ResponseEntity.ok(getCachedDashboard(startDate, endDate, categoryId, dynamics));
+    }
+
+    /**
+     * Открывает поток Server-Sent Events с изменениями дашборда для указанных фильтров.
+     * После каждого изменения отзыва, попадающего под фильтры, приходит событие {@code delta}
+     * с приращениями KPI, товаров, динамики (в гранулярности {@code granularity}) и распределения оценок.
+     */
+    @GetMapping(value = "/dashboard/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToDashboard(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) DynamicsGranularity granularity
     ) {
-        return ResponseEntity.ok(analyticsService.getDashboardData(startDate, endDate, categoryId));
+        return dashboardLiveUpdateService.subscribe(startDate, endDate, categoryId, granularity);
     }
 
     /**
@@ -65,7 +111,11 @@ public class AnalyticsController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) Long categoryId
     ) {
-        return ResponseEntity.ok(analyticsService.getProductsSummary(startDate, endDate, categoryId));
+        AnalyticsResultCache.FilterKey key = AnalyticsResultCache.FilterKey.of(
+                AnalyticsResultCache.Kind.PRODUCTS_SUMMARY, startDate, endDate, categoryId);
+        List<ProductSummaryDto> summary = analyticsResultCache.getOrCompute(key,
+                () -> analyticsService.getProductsSummary(startDate, endDate, categoryId));
+        return ResponseEntity.ok(summary);
     }
 
     /**
@@ -77,36 +127,88 @@ public class AnalyticsController {
     }
 
     /**
-     * Принимает список ID товаров и возвращает данные для их сравнения.
+     * Принимает список ID товаров (не более {@code analytics.compare.max-products})
+     * и возвращает данные для их сравнения.
      */
     @PostMapping("/compare")
     public ResponseEntity<List<ComparisonDataDto>> getComparisonData(@RequestBody List<Long> productIds) {
-        if (productIds == null || productIds.isEmpty()) {
+        if (productIds == null || productIds.isEmpty() || productIds.size() > maxComparedProducts) {
             return ResponseEntity.badRequest().build();
         }
         return ResponseEntity.ok(analyticsService.getComparisonData(productIds));
     }
 
+    /**
+     * Полностью перестраивает дневную витрину отзывов по исходным таблицам.
+     * Возвращает количество строк в перестроенной витрине. Доступно только ADMIN.
+     */
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildRollup() {
+        int rows = reviewRollupService.rebuild();
+        analyticsResultCache.invalidateAll();
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
+
+    /**
+     * Сверяет данные дашборда из витрины с запросами к исходным таблицам для указанных фильтров.
+     * Доступно только ADMIN.
+     */
+    @GetMapping("/rollup/check")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<RollupConsistencyReportDto> checkRollupConsistency(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long categoryId
+    ) {
+        return ResponseEntity.ok(analyticsService.checkRollupConsistency(startDate, endDate, categoryId));
+    }
+
+    /**
+     * Возвращает счетчики кэша аналитических результатов (попадания, промахи, вытеснения).
+     * Доступно только ADMIN.
+     */
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<AnalyticsCacheStatsDto> getCacheStats() {
+        return ResponseEntity.ok(analyticsResultCache.getStats());
+    }
+
+    /**
+     * Возвращает состояние колоночного хранилища отзывов: число отзывов и память колонок и битовых индексов.
+     * Доступно только ADMIN.
+     */
+    @GetMapping("/columnar/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ColumnarStoreStatsDto> getColumnarStats() {
+        return ResponseEntity.ok(columnarReviewStore.getStats());
+    }
+
     /**
      * Генерирует и возвращает PDF-отчет для главной информационной панели.
-     * Принимает JSON с фильтрами и снимки графиков.
+     * Принимает JSON с фильтрами и, необязательно, снимки графиков.
      */
     @PostMapping("/dashboard/export-pdf")
     public ResponseEntity<byte[]> exportDashboardPdf(
             @RequestPart("filters") String filtersJson,
-            @RequestPart("charts") MultipartFile[] charts
+            @RequestPart(value = "charts", required = false) MultipartFile[] charts
     ) throws IOException {
 
         // 1. Десериализуем JSON с фильтрами обратно в объект
         DashboardFilters filters = objectMapper.readValue(filtersJson, DashboardFilters.class);
 
         // 2. Получаем данные для отчета на основе фильтров
-        DashboardDto dashboardData = analyticsService.getDashboardData(
-                filters.getStartDate(), filters.getEndDate(), filters.getCategoryId());
+        int movingAverage = filters.getMovingAverage() != null ? filters.getMovingAverage() : 0;
+        if (movingAverage < 0 || movingAverage > DynamicsOptions.MAX_MOVING_AVERAGE_WINDOW) {
+            return ResponseEntity.badRequest().build();
+        }
+        DashboardDto dashboardData = getCachedDashboard(filters.getStartDate(), filters.getEndDate(), filters.getCategoryId(),
+                new DynamicsOptions(filters.getGranularity(), movingAverage));
 
-        // 3. Преобразуем MultipartFile[] в удобную Map<String, byte[]>
+        // 3. Преобразуем MultipartFile[] в удобную Map<String, byte[]>.
+        // Снимки необязательны: без них графики рисуются по данным на сервере
         Map<String, byte[]> chartImages = new HashMap<>();
-        for (MultipartFile chart : charts) {
+        for (MultipartFile chart : charts != null ? charts : new MultipartFile[0]) {
             // Убираем расширение .png из имени файла, чтобы оно соответствовало ключам
             String originalFilename = chart.getOriginalFilename().replace(".png", "");
             chartImages.put(originalFilename, chart.getBytes());
@@ -130,14 +232,14 @@ public class AnalyticsController {
     @PostMapping("/product/{productId}/export-pdf")
     public ResponseEntity<byte[]> exportProductDetailsPdf(
             @PathVariable Long productId,
-            @RequestPart("chart") MultipartFile chart
+            @RequestPart(value = "chart", required = false) MultipartFile chart
     ) throws IOException {
 
         // 1. Получаем все данные по товару
         ProductDetailsDto detailsData = analyticsService.getProductDetails(productId);
 
-        // 2. Генерируем PDF, передавая данные и снимок графика
-        byte[] pdfContents = pdfGenerationService.generateProductDetailsPdf(detailsData, chart.getBytes());
+        // 2. Генерируем PDF; без снимка с клиента график профиля рисуется на сервере
+        byte[] pdfContents = pdfGenerationService.generateProductDetailsPdf(detailsData, chart != null ? chart.getBytes() : null);
 
         // 3. Формируем ответ
         HttpHeaders headers = new HttpHeaders();
@@ -149,26 +251,54 @@ public class AnalyticsController {
         return new ResponseEntity<>(pdfContents, headers, HttpStatus.OK);
     }
 
+    /**
+     * Генерирует PDF-отчет по товару потоково: отзывы читаются курсором и сразу выводятся
+     * в таблицу, а документ записывается прямо в ответ, без сборки в массив байт.
+     * Подходит для товаров с любым количеством отзывов.
+     */
+    @PostMapping("/product/{productId}/export-pdf/stream")
+    public void streamProductDetailsPdf(
+            @PathVariable Long productId,
+            @RequestPart(value = "chart", required = false) MultipartFile chart,
+            HttpServletResponse response
+    ) throws IOException {
+
+        // 1. Сводка по товару запрашивается до отправки заголовков, чтобы 404 вернулся обычным ответом
+        ProductDetailsDto summary = analyticsService.getProductDetailsSummary(productId);
+
+        // 2. Заголовки ответа; длина заранее неизвестна
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("product_report_" + productId + ".pdf").build().toString());
+
+        // 3. Отзывы передаются в документ по одному
+        try (PdfGenerationService.ProductDetailsPdfWriter writer =
+                     pdfGenerationService.openProductDetailsPdf(summary, chart != null ? chart.getBytes() : null, response.getOutputStream())) {
+            analyticsService.forEachProductReview(productId, writer::addReview);
+            writer.finish();
+        }
+    }
+
     /**
      * Генерирует и возвращает PDF-отчет для страницы сравнения.
      */
     @PostMapping("/compare/export-pdf")
     public ResponseEntity<byte[]> exportComparisonPdf(
             @RequestPart("productIds") String productIdsJson,
-            @RequestPart("charts") MultipartFile[] charts
+            @RequestPart(value = "charts", required = false) MultipartFile[] charts
     ) throws IOException {
 
         List<Long> productIds = objectMapper.readValue(productIdsJson, new TypeReference<List<Long>>() {
         });
-        if (productIds == null || productIds.isEmpty()) {
+        if (productIds == null || productIds.isEmpty() || productIds.size() > maxComparedProducts) {
             return ResponseEntity.badRequest().build();
         }
 
         List<ComparisonDataDto> comparisonData = analyticsService.getComparisonData(productIds);
 
-        // Преобразуем массив файлов в удобную Map
+        // Преобразуем массив файлов в удобную Map (снимки необязательны)
         Map<String, byte[]> chartImages = new HashMap<>();
-        for (MultipartFile chart : charts) {
+        for (MultipartFile chart : charts != null ? charts : new MultipartFile[0]) {
             chartImages.put(chart.getOriginalFilename(), chart.getBytes());
         }
 
@@ -183,6 +313,17 @@ public class AnalyticsController {
         return new ResponseEntity<>(pdfContents, headers, HttpStatus.OK);
     }
 
+    /**
+     * Возвращает данные дашборда из кэша, вычисляя их только при промахе.
+     * Транзакция открывается лишь при обращении к сервису, поэтому попадание в кэш не занимает соединение с БД.
+     */
+    private DashboardDto getCachedDashboard(LocalDate startDate, LocalDate endDate, Long categoryId, DynamicsOptions dynamics) {
+        AnalyticsResultCache.FilterKey key = AnalyticsResultCache.FilterKey.of(
+                AnalyticsResultCache.Kind.DASHBOARD, startDate, endDate, categoryId, dynamics);
+        return analyticsResultCache.getOrCompute(key,
+                () -> analyticsService.getDashboardData(startDate, endDate, categoryId, dynamics));
+    }
+
     /**
      * Внутренний класс для удобной десериализации фильтров из JSON.
      */
@@ -191,5 +332,7 @@ public class AnalyticsController {
         private LocalDate startDate;
         private LocalDate endDate;
         private Long categoryId;
+        private DynamicsGranularity granularity;
+        private Integer movingAverage;
     }
 }
\ No newline at end of file
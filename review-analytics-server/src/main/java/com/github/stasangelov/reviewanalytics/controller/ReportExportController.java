@@ -0,0 +1,101 @@
+package com.github.stasangelov.reviewanalytics.controller;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.report.ReportJobDto;
+import com.github.stasangelov.reviewanalytics.service.ReportExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST-контроллер фонового формирования PDF-отчетов.
+ * Запрос на отчет ставит задачу в очередь и сразу возвращает ее состояние (202 Accepted);
+ * клиент опрашивает состояние и скачивает файл, когда задача завершена.
+ * Задачи видны только пользователю, который их создал.
+ */
+@RestController
+@RequestMapping("/api/analytics/reports")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyAuthority('ADMIN', 'ANALYST')")
+public class ReportExportController {
+
+    private final ReportExportService reportExportService;
+
+    @Value("${analytics.compare.max-products:300}")
+    private int maxComparedProducts;
+
+    /**
+     * Ставит в очередь отчет по дашборду с указанными фильтрами.
+     */
+    @PostMapping("/dashboard")
+    public ResponseEntity<ReportJobDto> submitDashboardReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "NORMAL") ReportExportService.Priority priority) {
+        return ResponseEntity.accepted()
+                .body(reportExportService.submitDashboard(startDate, endDate, categoryId, priority, currentUser()));
+    }
+
+    /**
+     * Ставит в очередь отчет по товару со всеми его отзывами.
+     */
+    @PostMapping("/product/{productId}")
+    public ResponseEntity<ReportJobDto> submitProductReport(
+            @PathVariable Long productId,
+            @RequestParam(defaultValue = "NORMAL") ReportExportService.Priority priority) {
+        return ResponseEntity.accepted()
+                .body(reportExportService.submitProductDetails(productId, priority, currentUser()));
+    }
+
+    /**
+     * Ставит в очередь отчет сравнения товаров (не более {@code analytics.compare.max-products}).
+     */
+    @PostMapping("/compare")
+    public ResponseEntity<ReportJobDto> submitComparisonReport(
+            @RequestBody List<Long> productIds,
+            @RequestParam(defaultValue = "NORMAL") ReportExportService.Priority priority) {
+        if (productIds == null || productIds.isEmpty() || productIds.size() > maxComparedProducts) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.accepted()
+                .body(reportExportService.submitComparison(productIds, priority, currentUser()));
+    }
+
+    /**
+     * Возвращает состояние задачи: статус, прогресс в процентах и срок хранения результата.
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ReportJobDto> getReportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(reportExportService.getJob(jobId, currentUser()));
+    }
+
+    /**
+     * Отдает готовый PDF-файл. Если отчет еще не сформирован, возвращает 409.
+     */
+    @GetMapping("/{jobId}/file")
+    public ResponseEntity<Resource> downloadReport(@PathVariable String jobId) {
+        String owner = currentUser();
+        Path file = reportExportService.getResultFile(jobId, owner);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", reportExportService.getFileName(jobId, owner));
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(file));
+    }
+
+    private String currentUser() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+}
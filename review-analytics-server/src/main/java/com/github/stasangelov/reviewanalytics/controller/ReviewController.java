@@ -1,15 +1,25 @@
 package com.github.stasangelov.reviewanalytics.controller;
 
+import com.github.stasangelov.reviewanalytics.dto.review.BulkIngestResultDto;
+import com.github.stasangelov.reviewanalytics.dto.review.RatingRecalculationStatusDto;
 import com.github.stasangelov.reviewanalytics.dto.review.ReviewDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewFilterDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewPageDto;
+import com.github.stasangelov.reviewanalytics.entity.RatingRecalculationJob;
 import com.github.stasangelov.reviewanalytics.entity.Review;
+import com.github.stasangelov.reviewanalytics.service.RatingRecalculationService;
+import com.github.stasangelov.reviewanalytics.service.ReviewBulkIngestionService;
 import com.github.stasangelov.reviewanalytics.service.ReviewService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +36,8 @@ import java.util.Map;
 public class ReviewController {
 
     private final ReviewService reviewService;
+    private final ReviewBulkIngestionService reviewBulkIngestionService;
+    private final RatingRecalculationService ratingRecalculationService;
 
     /**
      * Возвращает полный список всех отзывов в системе.
@@ -35,6 +47,15 @@ public class ReviewController {
         return ResponseEntity.ok(reviewService.getAll());
     }
 
+    /**
+     * Возвращает одну страницу отзывов с фильтрацией по статусу, товару, категории,
+     * датам и названию товара. Для следующей страницы передается {@code cursor} из ответа.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<ReviewPageDto> getReviewPage(ReviewFilterDto filter) {
+        return ResponseEntity.ok(reviewService.getPage(filter));
+    }
+
     /**
      * Создает новый отзыв на основе переданных данных.
      */
@@ -43,6 +64,35 @@ public class ReviewController {
         return new ResponseEntity<>(reviewService.create(reviewDto), HttpStatus.CREATED);
     }
 
+    /**
+     * Пакетная загрузка отзывов из внешней выгрузки: JSON-массив или NDJSON из {@link ReviewDto}.
+     * Тело запроса читается потоком. Возвращает отчет с ошибками по отдельным записям.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkIngestResultDto> bulkIngest(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(reviewBulkIngestionService.ingest(request.getInputStream()));
+    }
+
+    /**
+     * Запускает фоновый пересчет интегральных рейтингов: всех отзывов (ALL, по умолчанию —
+     * например, после изменения весов критериев) или только незаполненных (MISSING).
+     */
+    @PostMapping("/ratings/recalculate")
+    public ResponseEntity<RatingRecalculationStatusDto> recalculateRatings(
+            @RequestParam(defaultValue = "ALL") RatingRecalculationJob.Mode mode) {
+        return new ResponseEntity<>(ratingRecalculationService.start(mode), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Возвращает состояние последней задачи пересчета рейтингов.
+     */
+    @GetMapping("/ratings/recalculate")
+    public ResponseEntity<RatingRecalculationStatusDto> getRecalculationStatus() {
+        return ratingRecalculationService.getLatestStatus()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+
     /**
      * Полностью обновляет существующий отзыв по его ID.
      */
@@ -0,0 +1,17 @@
+package com.github.stasangelov.reviewanalytics.dto.analytics.cache;
+
+import lombok.Data;
+
+/**
+ * DTO со счетчиками кэша аналитических результатов.
+ */
+@Data
+public class AnalyticsCacheStatsDto {
+    private long size;
+    private long maxSize;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    private long invalidationCount;
+}
@@ -0,0 +1,18 @@
+package com.github.stasangelov.reviewanalytics.dto.analytics.columnar;
+
+import lombok.Data;
+
+/**
+ * DTO с состоянием колоночного хранилища отзывов и занятой им памятью.
+ */
+@Data
+public class ColumnarStoreStatsDto {
+    private boolean enabled;
+    private boolean loaded;
+    private long reviewCount;
+    /** Строки колонок, включая замененные версии отзывов, ожидающие уплотнения. */
+    private long rowCount;
+    private long columnBytes;
+    private long indexBytes;
+    private int indexBitmaps;
+}
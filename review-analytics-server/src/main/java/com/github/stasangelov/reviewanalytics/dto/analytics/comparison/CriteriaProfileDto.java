@@ -1,17 +1,24 @@
 package com.github.stasangelov.reviewanalytics.dto.analytics.comparison;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 /**
  * DTO для представления среднего рейтинга по одному критерию.
  * Используется для построения профиля товара (например, для RadarChart).
+ * Медиана и перцентили оценок заполняются только в детализации товара.
  */
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class CriteriaProfileDto {
     private String criterionName;
     private Double averageRating;
-}
\ No newline at end of file
+    private Double medianRating;
+    private Double p10Rating;
+    private Double p90Rating;
+
+    public CriteriaProfileDto(String criterionName, Double averageRating) {
+        this.criterionName = criterionName;
+        this.averageRating = averageRating;
+    }
+}
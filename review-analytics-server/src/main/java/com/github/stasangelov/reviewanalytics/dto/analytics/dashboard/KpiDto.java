@@ -4,9 +4,13 @@ import lombok.Data;
 
 /**
  * DTO для ключевых показателей эффективности (KPI).
+ * Медиана и перцентили интегрального рейтинга {@code null}, если за период нет оценок.
  */
 @Data
 public class KpiDto {
     private long totalReviews;
     private double averageIntegralRating;
+    private Double medianIntegralRating;
+    private Double p10IntegralRating;
+    private Double p90IntegralRating;
 }
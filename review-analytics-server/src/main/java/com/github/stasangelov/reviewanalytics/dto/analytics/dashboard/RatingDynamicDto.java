@@ -1,6 +1,5 @@
 package com.github.stasangelov.reviewanalytics.dto.analytics.dashboard;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -8,11 +7,27 @@ import java.time.LocalDate;
 
 /**
  * DTO для одной точки на графике динамики среднего рейтинга.
+ * Для периода без оценок {@code averageRating} равен {@code null}, а {@code reviewCount} — 0.
  */
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class RatingDynamicDto {
+    /** Начало периода (дня, недели, месяца или квартала). */
     private LocalDate date;
     private Double averageRating;
-}
\ No newline at end of file
+    /** Количество отзывов с рейтингом, по которым посчитано среднее. */
+    private Long reviewCount;
+    /** Скользящее среднее за последние периоды, если его окно задано в запросе. */
+    private Double movingAverage;
+
+    public RatingDynamicDto(LocalDate date, Double averageRating) {
+        this.date = date;
+        this.averageRating = averageRating;
+    }
+
+    public RatingDynamicDto(LocalDate date, Double averageRating, Long reviewCount) {
+        this.date = date;
+        this.averageRating = averageRating;
+        this.reviewCount = reviewCount;
+    }
+}
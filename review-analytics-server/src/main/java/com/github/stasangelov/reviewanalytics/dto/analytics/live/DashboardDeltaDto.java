@@ -0,0 +1,28 @@
+package com.github.stasangelov.reviewanalytics.dto.analytics.live;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Изменение данных дашборда, вызванное созданием, редактированием или модерацией одного отзыва.
+ * Рассылается подписчикам {@code /api/analytics/dashboard/live}, чьи фильтры покрывают отзыв;
+ * значения — приращения, которые клиент прибавляет к уже загруженным данным.
+ */
+@Data
+public class DashboardDeltaDto {
+    private Long reviewId;
+    /** Приращение количества отзывов (KPI). */
+    private long reviewCountDelta;
+    /** Приращение количества отзывов с интегральным рейтингом. */
+    private long ratingCountDelta;
+    /** Приращение суммы интегральных рейтингов. */
+    private double ratingSumDelta;
+    /** Товары, у которых изменились количество отзывов или средний рейтинг. */
+    private List<ProductDeltaDto> products = new ArrayList<>();
+    /** Затронутые периоды графика динамики. */
+    private List<DynamicsDeltaDto> dynamics = new ArrayList<>();
+    /** Затронутые счетчики распределения оценок. */
+    private List<DistributionDeltaDto> distribution = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package com.github.stasangelov.reviewanalytics.dto.analytics.live;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Приращение счетчика оценки {@code rating} (1-5) по критерию.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistributionDeltaDto {
+    private String criterionName;
+    private int rating;
+    private long countDelta;
+}
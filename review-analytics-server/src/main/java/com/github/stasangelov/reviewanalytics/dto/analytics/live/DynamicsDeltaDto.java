@@ -0,0 +1,20 @@
+package com.github.stasangelov.reviewanalytics.dto.analytics.live;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Приращение одной точки графика динамики. {@code date} — начало периода
+ * в гранулярности, выбранной для фильтров подписки.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DynamicsDeltaDto {
+    private LocalDate date;
+    private long ratingCountDelta;
+    private double ratingSumDelta;
+}
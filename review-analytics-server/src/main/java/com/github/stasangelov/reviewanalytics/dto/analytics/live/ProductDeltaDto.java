@@ -0,0 +1,18 @@
+package com.github.stasangelov.reviewanalytics.dto.analytics.live;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Приращение агрегатов одного товара в сводке и топах дашборда.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDeltaDto {
+    private Long productId;
+    private long reviewCountDelta;
+    private long ratingCountDelta;
+    private double ratingSumDelta;
+}
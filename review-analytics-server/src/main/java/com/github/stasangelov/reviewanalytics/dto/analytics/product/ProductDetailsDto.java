@@ -15,6 +15,9 @@ public class ProductDetailsDto {
     private String categoryName;
     private String brand;
     private Double averageRating;
+    private Double medianRating;
+    private Double p10Rating;
+    private Double p90Rating;
     private Long reviewCount;
     private List<CriteriaProfileDto> criteriaProfile;
     private List<ReviewDto> reviews;
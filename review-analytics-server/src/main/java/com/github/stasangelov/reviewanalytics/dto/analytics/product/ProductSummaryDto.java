@@ -1,15 +1,14 @@
 package com.github.stasangelov.reviewanalytics.dto.analytics.product;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 /**
  * DTO со сводной информацией о товаре для отображения в таблицах.
+ * Медиана и перцентили рейтинга заполняются после запроса и {@code null} для товаров без оценок.
  */
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class ProductSummaryDto {
     private Long productId;
     private String productName;
@@ -17,4 +16,20 @@ public class ProductSummaryDto {
     private String brand;
     private Long reviewCount;
     private Double averageRating;
-}
\ No newline at end of file
+    private Double medianRating;
+    private Double p10Rating;
+    private Double p90Rating;
+
+    /**
+     * Конструктор для JPQL-проекции (без квантилей).
+     */
+    public ProductSummaryDto(Long productId, String productName, String categoryName, String brand,
+                             Long reviewCount, Double averageRating) {
+        this.productId = productId;
+        this.productName = productName;
+        this.categoryName = categoryName;
+        this.brand = brand;
+        this.reviewCount = reviewCount;
+        this.averageRating = averageRating;
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.stasangelov.reviewanalytics.dto.analytics.report;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO состояния фоновой задачи формирования PDF-отчета.
+ * {@code progress} — примерная доля выполненной работы в процентах.
+ */
+@Data
+public class ReportJobDto {
+    private String id;
+    private String type;
+    private String priority;
+    private String status;
+    private int progress;
+    private String fileName;
+    private Long sizeBytes;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime expiresAt;
+    private String errorMessage;
+}
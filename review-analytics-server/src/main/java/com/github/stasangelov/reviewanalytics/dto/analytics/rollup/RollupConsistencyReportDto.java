@@ -0,0 +1,17 @@
+package com.github.stasangelov.reviewanalytics.dto.analytics.rollup;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO с результатом сверки дневной витрины отзывов с запросами к исходным таблицам.
+ */
+@Data
+public class RollupConsistencyReportDto {
+    private boolean consistent;
+    private long rawReviewCount;
+    private long rollupReviewCount;
+    private List<String> mismatches = new ArrayList<>();
+}
@@ -0,0 +1,20 @@
+package com.github.stasangelov.reviewanalytics.dto.review;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO с итогом пакетной загрузки отзывов.
+ * Список ошибок ограничен по размеру; полное число отклоненных записей — в {@code failed}.
+ */
+@Data
+public class BulkIngestResultDto {
+    private long received;
+    private long inserted;
+    private long failed;
+    /** {@code true}, если разбор потока прерван из-за синтаксической ошибки JSON. */
+    private boolean aborted;
+    private List<BulkRecordErrorDto> errors = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package com.github.stasangelov.reviewanalytics.dto.review;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO ошибки одной записи пакетной загрузки отзывов.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRecordErrorDto {
+    /** Порядковый номер записи во входном потоке (с нуля). */
+    private long index;
+    private String message;
+}
@@ -0,0 +1,21 @@
+package com.github.stasangelov.reviewanalytics.dto.review;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO состояния задачи пересчета интегральных рейтингов.
+ */
+@Data
+public class RatingRecalculationStatusDto {
+    private Long id;
+    private String mode;
+    private String status;
+    private long maxReviewId;
+    private long completedUpToId;
+    private long processedReviews;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+}
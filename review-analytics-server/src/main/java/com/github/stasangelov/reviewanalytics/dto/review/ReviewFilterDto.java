@@ -0,0 +1,33 @@
+package com.github.stasangelov.reviewanalytics.dto.review;
+
+import com.github.stasangelov.reviewanalytics.entity.Review;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Параметры постраничного списка отзывов. Все фильтры необязательные.
+ * Заполняется из query-параметров запроса.
+ */
+@Data
+public class ReviewFilterDto {
+    private Review.ReviewStatus status;
+    private Long productId;
+    private Long categoryId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate startDate;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate endDate;
+
+    /** Подстрока названия товара (без учета регистра). */
+    private String search;
+
+    /** Курсор из предыдущей страницы; {@code null} — первая страница. */
+    private String cursor;
+
+    /** Размер страницы. */
+    private Integer size;
+}
@@ -0,0 +1,21 @@
+package com.github.stasangelov.reviewanalytics.dto.review;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO одной страницы списка отзывов (от новых к старым).
+ * Для получения следующей страницы клиент передает {@code nextCursor}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewPageDto {
+    private List<ReviewDto> items;
+    /** Курсор следующей страницы; {@code null}, если страница последняя. */
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -1,6 +1,7 @@
 package com.github.stasangelov.reviewanalytics.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.github.stasangelov.reviewanalytics.service.CriterionChangeListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -14,6 +15,7 @@ import java.util.Set;
 @Data
 @Entity
 @Table(name = "criteria")
+@EntityListeners(CriterionChangeListener.class)
 @ToString(exclude = "categories")
 @EqualsAndHashCode(exclude = "categories")
 public class Criterion {
@@ -0,0 +1,62 @@
+package com.github.stasangelov.reviewanalytics.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сущность задачи пересчета интегральных рейтингов.
+ * Хранит контрольную точку: все отзывы с id меньше {@link #completedUpToId} уже обработаны.
+ * Задача, оставшаяся в статусе RUNNING после аварийной остановки, продолжается с этой точки.
+ */
+@Data
+@Entity
+@Table(name = "rating_recalculation_jobs")
+public class RatingRecalculationJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private Mode mode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private Status status;
+
+    /** Максимальный id отзыва на момент запуска; более новые отзывы считаются при создании. */
+    @Column(name = "max_review_id", nullable = false)
+    private long maxReviewId;
+
+    /** Граница (не включительно), до которой все пачки отзывов уже пересчитаны. */
+    @Column(name = "completed_up_to_id", nullable = false)
+    private long completedUpToId;
+
+    @Column(name = "processed_reviews", nullable = false)
+    private long processedReviews;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    public enum Mode {
+        /** Только отзывы с незаполненным рейтингом. */
+        MISSING,
+        /** Все отзывы (например, после изменения весов критериев). */
+        ALL
+    }
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -13,8 +13,21 @@ import java.util.List;
 @Data
 @Entity
 @Table(name = "reviews")
+@NamedEntityGraph(
+        name = Review.WITH_PRODUCT_AND_RATINGS,
+        attributeNodes = {
+                @NamedAttributeNode("product"),
+                @NamedAttributeNode("reviewRatings")
+        }
+)
 public class Review {
 
+    /**
+     * План загрузки отзыва со всем, что нужно для {@code ReviewMapper}: товаром и оценками
+     * (названия критериев маппер берет из кэша). Позволяет загрузить список отзывов одним запросом.
+     */
+    public static final String WITH_PRODUCT_AND_RATINGS = "Review.withProductAndRatings";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
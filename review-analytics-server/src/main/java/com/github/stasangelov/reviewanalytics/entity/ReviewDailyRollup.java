@@ -0,0 +1,72 @@
+package com.github.stasangelov.reviewanalytics.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Сущность предагрегированной витрины отзывов за один день.
+ * Одна строка хранит агрегаты по ключу (день, товар, критерий); категория и бренд
+ * денормализованы из товара, чтобы фильтровать и группировать без JOIN'ов.
+ * Строка с {@code criterionId = 0} содержит агрегаты по интегральному рейтингу отзывов,
+ * остальные строки — по оценкам конкретного критерия.
+ */
+@Data
+@Entity
+@Table(
+        name = "review_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"rollup_date", "product_id", "criterion_id"})
+)
+public class ReviewDailyRollup {
+
+    /**
+     * Значение {@link #criterionId} для строк уровня отзыва (интегральный рейтинг).
+     */
+    public static final long REVIEW_LEVEL = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    private String brand;
+
+    @Column(name = "criterion_id", nullable = false)
+    private Long criterionId;
+
+    /** Количество активных отзывов, попавших в строку. */
+    @Column(name = "review_count", nullable = false)
+    private long reviewCount;
+
+    /** Количество учтенных оценок (для уровня отзыва — отзывов с заполненным рейтингом). */
+    @Column(name = "rating_count", nullable = false)
+    private long ratingCount;
+
+    /** Сумма оценок (для уровня отзыва — сумма интегральных рейтингов). */
+    @Column(name = "rating_sum", nullable = false)
+    private double ratingSum;
+
+    @Column(name = "rating1_count", nullable = false)
+    private long rating1Count;
+
+    @Column(name = "rating2_count", nullable = false)
+    private long rating2Count;
+
+    @Column(name = "rating3_count", nullable = false)
+    private long rating3Count;
+
+    @Column(name = "rating4_count", nullable = false)
+    private long rating4Count;
+
+    @Column(name = "rating5_count", nullable = false)
+    private long rating5Count;
+}
@@ -0,0 +1,47 @@
+package com.github.stasangelov.reviewanalytics.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Сущность дневной гистограммы рейтингов, из которой считаются медиана и перцентили.
+ * Одна строка хранит количество рейтингов в корзине по ключу (день, товар, критерий, корзина);
+ * корзины описаны в {@link com.github.stasangelov.reviewanalytics.service.RatingHistogram}.
+ * Как и в {@link ReviewDailyRollup}, {@code criterionId = 0} означает интегральный рейтинг отзыва,
+ * а категория и бренд денормализованы из товара.
+ */
+@Data
+@Entity
+@Table(
+        name = "review_rating_histogram",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"rollup_date", "product_id", "criterion_id", "bin"})
+)
+public class ReviewRatingHistogram {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    private String brand;
+
+    @Column(name = "criterion_id", nullable = false)
+    private Long criterionId;
+
+    @Column(nullable = false)
+    private int bin;
+
+    /** Количество рейтингов, попавших в корзину. */
+    @Column(name = "rating_count", nullable = false)
+    private long ratingCount;
+}
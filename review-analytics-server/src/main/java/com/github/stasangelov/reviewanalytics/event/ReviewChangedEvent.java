@@ -0,0 +1,18 @@
+package com.github.stasangelov.reviewanalytics.event;
+
+import com.github.stasangelov.reviewanalytics.service.ReviewRollupService;
+import lombok.Value;
+
+/**
+ * Событие изменения отзыва: создание, редактирование или модерация.
+ * Публикуется {@code ReviewService} и несет вклад отзыва в аналитику до и после изменения,
+ * чтобы слушатели могли точечно обновить свои производные данные.
+ */
+@Value
+public class ReviewChangedEvent {
+    Long reviewId;
+    /** Вклад до изменения; {@code null}, если отзыва не было или он не был активен. */
+    ReviewRollupService.Contribution previous;
+    /** Вклад после изменения; {@code null}, если отзыв больше не активен. */
+    ReviewRollupService.Contribution current;
+}
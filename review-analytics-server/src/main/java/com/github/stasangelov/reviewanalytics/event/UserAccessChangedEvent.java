@@ -0,0 +1,13 @@
+package com.github.stasangelov.reviewanalytics.event;
+
+import lombok.Value;
+
+/**
+ * Событие изменения прав доступа пользователя: блокировки, разблокировки или смены роли.
+ * Публикуется {@code UserServiceImpl}, чтобы закэшированные данные о пользователе
+ * перестали действовать сразу после фиксации изменения.
+ */
+@Value
+public class UserAccessChangedEvent {
+    String email;
+}
@@ -76,4 +76,44 @@ public class GlobalExceptionHandler {
         );
         return new ResponseEntity<>(errorResponse, HttpStatus.FORBIDDEN);
     }
+
+    /**
+     * Перехватывает исключение о некорректных параметрах запроса (например, неверный курсор страницы).
+     * Возвращает статус 400 Bad Request.
+     */
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ErrorResponseDto> handleInvalidRequest(InvalidRequestException ex) {
+        ErrorResponseDto errorResponse = new ErrorResponseDto(
+                HttpStatus.BAD_REQUEST.value(),
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Перехватывает исключение о конфликте операции с текущим состоянием
+     * (например, повторный запуск уже выполняющейся задачи).
+     * Возвращает статус 409 Conflict.
+     */
+    @ExceptionHandler(OperationConflictException.class)
+    public ResponseEntity<ErrorResponseDto> handleOperationConflict(OperationConflictException ex) {
+        ErrorResponseDto errorResponse = new ErrorResponseDto(
+                HttpStatus.CONFLICT.value(),
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Обрабатывает исключение, когда сервер временно не может принять задачу.
+     * Возвращает статус 503 Service Unavailable.
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ErrorResponseDto> handleServiceBusy(ServiceBusyException ex) {
+        ErrorResponseDto errorResponse = new ErrorResponseDto(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                ex.getMessage()
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
@@ -0,0 +1,15 @@
+package com.github.stasangelov.reviewanalytics.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Кастомное исключение, выбрасываемое при некорректных параметрах запроса,
+ * которые не удается проверить аннотациями валидации (например, поврежденный курсор страницы).
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.stasangelov.reviewanalytics.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Кастомное исключение, выбрасываемое, когда операция конфликтует с текущим состоянием системы.
+ * Например, при попытке запустить фоновую задачу, пока выполняется предыдущая.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class OperationConflictException extends RuntimeException {
+    public OperationConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.stasangelov.reviewanalytics.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Кастомное исключение, выбрасываемое, когда сервер временно перегружен и не может принять задачу.
+ * Например, когда очередь генерации PDF-отчетов заполнена.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.stasangelov.reviewanalytics.repository;
+
+import com.github.stasangelov.reviewanalytics.entity.RatingRecalculationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий для доступа к задачам пересчета интегральных рейтингов {@link RatingRecalculationJob}.
+ */
+@Repository
+public interface RatingRecalculationJobRepository extends JpaRepository<RatingRecalculationJob, Long> {
+
+    List<RatingRecalculationJob> findByStatusOrderByIdAsc(RatingRecalculationJob.Status status);
+
+    Optional<RatingRecalculationJob> findFirstByOrderByIdDesc();
+}
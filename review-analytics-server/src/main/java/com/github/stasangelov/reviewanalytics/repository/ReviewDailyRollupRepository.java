@@ -0,0 +1,94 @@
+package com.github.stasangelov.reviewanalytics.repository;
+
+import com.github.stasangelov.reviewanalytics.entity.ReviewDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * Репозиторий для доступа к дневной витрине отзывов {@link ReviewDailyRollup}.
+ * Содержит нативные запросы для инкрементального обновления и полной перестройки витрины.
+ */
+@Repository
+public interface ReviewDailyRollupRepository extends JpaRepository<ReviewDailyRollup, Long> {
+
+    /**
+     * Прибавляет переданную дельту к строке витрины с тем же ключом (день, товар, критерий)
+     * или создает такую строку. Отрицательные значения в дельте уменьшают агрегаты.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO review_daily_rollup (rollup_date, product_id, category_id, brand, criterion_id, " +
+            "   review_count, rating_count, rating_sum, " +
+            "   rating1_count, rating2_count, rating3_count, rating4_count, rating5_count) " +
+            "VALUES (:#{#delta.rollupDate}, :#{#delta.productId}, :#{#delta.categoryId}, :#{#delta.brand}, :#{#delta.criterionId}, " +
+            "   :#{#delta.reviewCount}, :#{#delta.ratingCount}, :#{#delta.ratingSum}, " +
+            "   :#{#delta.rating1Count}, :#{#delta.rating2Count}, :#{#delta.rating3Count}, :#{#delta.rating4Count}, :#{#delta.rating5Count}) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "   review_count = review_count + VALUES(review_count), " +
+            "   rating_count = rating_count + VALUES(rating_count), " +
+            "   rating_sum = rating_sum + VALUES(rating_sum), " +
+            "   rating1_count = rating1_count + VALUES(rating1_count), " +
+            "   rating2_count = rating2_count + VALUES(rating2_count), " +
+            "   rating3_count = rating3_count + VALUES(rating3_count), " +
+            "   rating4_count = rating4_count + VALUES(rating4_count), " +
+            "   rating5_count = rating5_count + VALUES(rating5_count)",
+            nativeQuery = true)
+    void upsert(@Param("delta") ReviewDailyRollup delta);
+
+    /**
+     * Удаляет строки товара за день, в которых не осталось ни одного отзыва.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM review_daily_rollup " +
+            "WHERE rollup_date = :rollupDate AND product_id = :productId AND review_count <= 0",
+            nativeQuery = true)
+    void deleteEmptyRows(@Param("rollupDate") LocalDate rollupDate, @Param("productId") Long productId);
+
+    /**
+     * Полностью очищает витрину перед перестройкой.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM review_daily_rollup", nativeQuery = true)
+    void deleteAllRows();
+
+    /**
+     * Заполняет строки уровня отзыва (интегральный рейтинг) по всем активным отзывам.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO review_daily_rollup (rollup_date, product_id, category_id, brand, criterion_id, " +
+            "   review_count, rating_count, rating_sum, " +
+            "   rating1_count, rating2_count, rating3_count, rating4_count, rating5_count) " +
+            "SELECT CAST(r.date_created AS DATE), p.id, p.category_id, p.brand, 0, " +
+            "   COUNT(*), COUNT(r.integral_rating), COALESCE(SUM(r.integral_rating), 0), 0, 0, 0, 0, 0 " +
+            "FROM reviews r JOIN products p ON r.product_id = p.id " +
+            "WHERE r.status = 'ACTIVE' " +
+            "GROUP BY CAST(r.date_created AS DATE), p.id, p.category_id, p.brand",
+            nativeQuery = true)
+    int insertReviewLevelRows();
+
+    /**
+     * Заполняет строки уровня критерия (суммы и гистограммы оценок) по всем активным отзывам.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO review_daily_rollup (rollup_date, product_id, category_id, brand, criterion_id, " +
+            "   review_count, rating_count, rating_sum, " +
+            "   rating1_count, rating2_count, rating3_count, rating4_count, rating5_count) " +
+            "SELECT CAST(r.date_created AS DATE), p.id, p.category_id, p.brand, rr.criterion_id, " +
+            "   COUNT(DISTINCT r.id), COUNT(rr.rating), COALESCE(SUM(rr.rating), 0), " +
+            "   SUM(CASE WHEN rr.rating = 1 THEN 1 ELSE 0 END), " +
+            "   SUM(CASE WHEN rr.rating = 2 THEN 1 ELSE 0 END), " +
+            "   SUM(CASE WHEN rr.rating = 3 THEN 1 ELSE 0 END), " +
+            "   SUM(CASE WHEN rr.rating = 4 THEN 1 ELSE 0 END), " +
+            "   SUM(CASE WHEN rr.rating = 5 THEN 1 ELSE 0 END) " +
+            "FROM review_ratings rr " +
+            "JOIN reviews r ON rr.review_id = r.id " +
+            "JOIN products p ON r.product_id = p.id " +
+            "WHERE r.status = 'ACTIVE' " +
+            "GROUP BY CAST(r.date_created AS DATE), p.id, p.category_id, p.brand, rr.criterion_id",
+            nativeQuery = true)
+    int insertCriterionLevelRows();
+}
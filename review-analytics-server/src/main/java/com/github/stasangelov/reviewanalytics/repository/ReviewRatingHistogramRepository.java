@@ -0,0 +1,75 @@
+package com.github.stasangelov.reviewanalytics.repository;
+
+import com.github.stasangelov.reviewanalytics.entity.ReviewRatingHistogram;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * Репозиторий дневных гистограмм рейтингов {@link ReviewRatingHistogram}.
+ * Содержит нативные запросы для инкрементального обновления и полной перестройки гистограмм.
+ */
+@Repository
+public interface ReviewRatingHistogramRepository extends JpaRepository<ReviewRatingHistogram, Long> {
+
+    /**
+     * Прибавляет переданную дельту к корзине с тем же ключом (день, товар, критерий, корзина)
+     * или создает такую строку.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO review_rating_histogram (rollup_date, product_id, category_id, brand, criterion_id, bin, rating_count) " +
+            "VALUES (:#{#delta.rollupDate}, :#{#delta.productId}, :#{#delta.categoryId}, :#{#delta.brand}, " +
+            "   :#{#delta.criterionId}, :#{#delta.bin}, :#{#delta.ratingCount}) " +
+            "ON DUPLICATE KEY UPDATE rating_count = rating_count + VALUES(rating_count)",
+            nativeQuery = true)
+    void upsert(@Param("delta") ReviewRatingHistogram delta);
+
+    /**
+     * Удаляет опустевшие корзины товара за день.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM review_rating_histogram " +
+            "WHERE rollup_date = :rollupDate AND product_id = :productId AND rating_count <= 0",
+            nativeQuery = true)
+    void deleteEmptyRows(@Param("rollupDate") LocalDate rollupDate, @Param("productId") Long productId);
+
+    /**
+     * Полностью очищает гистограммы перед перестройкой.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM review_rating_histogram", nativeQuery = true)
+    void deleteAllRows();
+
+    /**
+     * Заполняет гистограммы интегрального рейтинга по всем активным отзывам.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO review_rating_histogram (rollup_date, product_id, category_id, brand, criterion_id, bin, rating_count) " +
+            "SELECT h.rollup_date, h.product_id, h.category_id, h.brand, 0, h.bin, COUNT(*) " +
+            "FROM (SELECT CAST(r.date_created AS DATE) AS rollup_date, p.id AS product_id, p.category_id, p.brand, " +
+            "       LEAST(40, GREATEST(0, FLOOR((r.integral_rating - 1) * 10 + 0.5))) AS bin " +
+            "   FROM reviews r JOIN products p ON r.product_id = p.id " +
+            "   WHERE r.status = 'ACTIVE' AND r.integral_rating IS NOT NULL) h " +
+            "GROUP BY h.rollup_date, h.product_id, h.category_id, h.brand, h.bin",
+            nativeQuery = true)
+    int insertReviewLevelRows();
+
+    /**
+     * Заполняет гистограммы оценок критериев по всем активным отзывам.
+     * Оценки вне шкалы 1-5 не учитываются, как и в витрине.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO review_rating_histogram (rollup_date, product_id, category_id, brand, criterion_id, bin, rating_count) " +
+            "SELECT CAST(r.date_created AS DATE), p.id, p.category_id, p.brand, rr.criterion_id, (rr.rating - 1) * 10, COUNT(*) " +
+            "FROM review_ratings rr " +
+            "JOIN reviews r ON rr.review_id = r.id " +
+            "JOIN products p ON r.product_id = p.id " +
+            "WHERE r.status = 'ACTIVE' AND rr.rating BETWEEN 1 AND 5 " +
+            "GROUP BY CAST(r.date_created AS DATE), p.id, p.category_id, p.brand, rr.criterion_id, rr.rating",
+            nativeQuery = true)
+    int insertCriterionLevelRows();
+}
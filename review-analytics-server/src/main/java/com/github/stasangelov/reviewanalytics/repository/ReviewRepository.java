@@ -1,9 +1,13 @@
 package com.github.stasangelov.reviewanalytics.repository;
 
 import com.github.stasangelov.reviewanalytics.entity.Review;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -11,10 +15,19 @@ import java.util.List;
  * Позволяет управлять отзывами в базе данных.
  */
 @Repository
-public interface ReviewRepository extends JpaRepository<Review,Long> {
+public interface ReviewRepository extends JpaRepository<Review,Long>, ReviewRepositoryCustom {
     /**
-     * Находит все отзывы, у которых поле integralRating не заполнено (равно NULL).
-     * Spring Data JPA автоматически сгенерирует нужный SQL-запрос по имени метода.
+     * Загружает все отзывы вместе с товаром и оценками одним запросом.
      */
-    List<Review> findByIntegralRatingIsNull();
+    @EntityGraph(Review.WITH_PRODUCT_AND_RATINGS)
+    @Query("SELECT r FROM Review r")
+    List<Review> findAllWithRatings();
+
+    /**
+     * Загружает отзывы по списку id вместе с товаром и оценками одним запросом.
+     * Порядок результата не гарантируется.
+     */
+    @EntityGraph(Review.WITH_PRODUCT_AND_RATINGS)
+    @Query("SELECT r FROM Review r WHERE r.id IN :ids")
+    List<Review> findAllWithRatingsByIdIn(@Param("ids") Collection<Long> ids);
 }
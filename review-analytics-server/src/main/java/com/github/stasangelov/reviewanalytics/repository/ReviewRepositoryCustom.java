@@ -0,0 +1,18 @@
+package com.github.stasangelov.reviewanalytics.repository;
+
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewFilterDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Дополнительные методы {@link ReviewRepository} с динамически собираемыми запросами.
+ */
+public interface ReviewRepositoryCustom {
+
+    /**
+     * Возвращает id отзывов, подходящих под фильтры, в порядке (dateCreated DESC, id DESC),
+     * начиная строго после позиции (afterDate, afterId). Позиция {@code null} — с начала списка.
+     */
+    List<Long> findPageIds(ReviewFilterDto filter, LocalDateTime afterDate, Long afterId, int limit);
+}
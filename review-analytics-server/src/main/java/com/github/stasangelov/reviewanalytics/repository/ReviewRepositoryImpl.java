@@ -0,0 +1,64 @@
+package com.github.stasangelov.reviewanalytics.repository;
+
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewFilterDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Реализация {@link ReviewRepositoryCustom}. Spring Data подключает ее к {@link ReviewRepository}
+ * по суффиксу {@code Impl}.
+ */
+public class ReviewRepositoryImpl implements ReviewRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findPageIds(ReviewFilterDto filter, LocalDateTime afterDate, Long afterId, int limit) {
+        StringBuilder jpqlBuilder = new StringBuilder("SELECT r.id FROM Review r WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+
+        if (filter.getStatus() != null) {
+            jpqlBuilder.append(" AND r.status = :status");
+            parameters.put("status", filter.getStatus());
+        }
+        if (filter.getProductId() != null) {
+            jpqlBuilder.append(" AND r.product.id = :productId");
+            parameters.put("productId", filter.getProductId());
+        }
+        if (filter.getCategoryId() != null) {
+            jpqlBuilder.append(" AND r.product.category.id = :categoryId");
+            parameters.put("categoryId", filter.getCategoryId());
+        }
+        if (filter.getStartDate() != null) {
+            jpqlBuilder.append(" AND r.dateCreated >= :startDate");
+            parameters.put("startDate", filter.getStartDate().atStartOfDay());
+        }
+        if (filter.getEndDate() != null) {
+            jpqlBuilder.append(" AND r.dateCreated < :endDate");
+            parameters.put("endDate", filter.getEndDate().plusDays(1).atStartOfDay());
+        }
+        if (filter.getSearch() != null && !filter.getSearch().isBlank()) {
+            jpqlBuilder.append(" AND LOWER(r.product.name) LIKE :search");
+            parameters.put("search", "%" + filter.getSearch().trim().toLowerCase() + "%");
+        }
+        // Keyset-условие: строго "после" последней записи предыдущей страницы
+        if (afterDate != null && afterId != null) {
+            jpqlBuilder.append(" AND (r.dateCreated < :afterDate OR (r.dateCreated = :afterDate AND r.id < :afterId))");
+            parameters.put("afterDate", afterDate);
+            parameters.put("afterId", afterId);
+        }
+
+        jpqlBuilder.append(" ORDER BY r.dateCreated DESC, r.id DESC");
+
+        TypedQuery<Long> query = entityManager.createQuery(jpqlBuilder.toString(), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
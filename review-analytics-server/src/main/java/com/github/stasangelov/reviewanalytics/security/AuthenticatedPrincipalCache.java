@@ -0,0 +1,128 @@
+package com.github.stasangelov.reviewanalytics.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.stasangelov.reviewanalytics.event.UserAccessChangedEvent;
+import com.github.stasangelov.reviewanalytics.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Кэш проверенных JWT-токенов и данных аутентифицированных пользователей.
+ * <p>
+ * Без кэша каждый запрос проверяет подпись токена и читает пользователя с ролями из БД.
+ * Здесь подпись проверяется один раз на токен, а пользователь (признак активности и роли)
+ * читается одним запросом и переиспользуется до истечения {@code jwt.cache.ttl}.
+ * Блокировка и смена роли сбрасывают запись пользователя сразу после фиксации транзакции;
+ * TTL ограничивает устаревание только для изменений, сделанных в обход приложения.
+ * Отрицательные результаты (недействительный токен, неизвестный пользователь) не кэшируются.
+ */
+@Component
+public class AuthenticatedPrincipalCache {
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final UserRepository userRepository;
+    private final Cache<String, VerifiedToken> tokens;
+    private final Cache<String, CachedPrincipal> principals;
+
+    public AuthenticatedPrincipalCache(
+            JwtTokenProvider jwtTokenProvider,
+            UserRepository userRepository,
+            @org.springframework.beans.factory.annotation.Value("${jwt.cache.max-size:10000}") long maxSize,
+            @org.springframework.beans.factory.annotation.Value("${jwt.cache.ttl:5m}") Duration ttl) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.userRepository = userRepository;
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Возвращает имя пользователя (email) из действительного токена или {@code null},
+     * если токен недействителен или истек.
+     */
+    public String getVerifiedUsername(String token) {
+        VerifiedToken verified = tokens.get(token, this::verify);
+        if (verified == null) {
+            return null;
+        }
+        // Запись могла пережить сам токен: срок действия проверяется при каждом обращении
+        if (verified.getExpiresAt() != null && !verified.getExpiresAt().isAfter(Instant.now())) {
+            tokens.invalidate(token);
+            return null;
+        }
+        return verified.getUsername();
+    }
+
+    /**
+     * Возвращает данные пользователя по email или {@code null}, если пользователь не найден.
+     */
+    public CachedPrincipal getPrincipal(String email) {
+        return principals.get(email, this::load);
+    }
+
+    /**
+     * Сбрасывает запись пользователя, права которого изменились. Вызывается только после
+     * фиксации транзакции, чтобы параллельный запрос не закэшировал данные до коммита.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onUserAccessChanged(UserAccessChangedEvent event) {
+        principals.invalidate(event.getEmail());
+    }
+
+    /**
+     * Полностью очищает оба кэша.
+     */
+    public void invalidateAll() {
+        tokens.invalidateAll();
+        principals.invalidateAll();
+    }
+
+    private VerifiedToken verify(String token) {
+        try {
+            Claims claims = jwtTokenProvider.parseClaims(token);
+            if (claims.getSubject() == null) {
+                return null;
+            }
+            return new VerifiedToken(claims.getSubject(),
+                    claims.getExpiration() == null ? null : claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private CachedPrincipal load(String email) {
+        return userRepository.findByEmail(email)
+                .map(user -> new CachedPrincipal(CustomUserDetailsService.toUserDetails(user), user.isActive()))
+                .orElse(null);
+    }
+
+    @Value
+    private static class VerifiedToken {
+        String username;
+        /** Момент истечения токена; {@code null}, если срок в токене не указан. */
+        Instant expiresAt;
+    }
+
+    /**
+     * Данные пользователя, нужные фильтру аутентификации: права и признак активности.
+     */
+    @Value
+    public static class CachedPrincipal {
+        UserDetails userDetails;
+        boolean active;
+    }
+}
@@ -24,7 +24,13 @@ public class CustomUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Пользователь с email: " + email + " не найден"));
+        return toUserDetails(user);
+    }
 
+    /**
+     * Преобразует сущность пользователя в {@link UserDetails} с его ролями в качестве прав.
+     */
+    static UserDetails toUserDetails(User user) {
         return new org.springframework.security.core.userdetails.User(
                 user.getEmail(),
                 user.getPasswordHash(),
@@ -1,7 +1,5 @@
 package com.github.stasangelov.reviewanalytics.security;
 
-import com.github.stasangelov.reviewanalytics.entity.User;
-import com.github.stasangelov.reviewanalytics.repository.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,25 +10,23 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Optional;
 
 /**
  * Кастомный фильтр безопасности, который выполняется для каждого входящего HTTP-запроса.
  * Его основная задача - проверить наличие и валидность JWT-токена в заголовке Authorization.
  * Если токен валиден, фильтр аутентифицирует пользователя в контексте Spring Security.
+ * Проверенные токены и данные пользователей берутся из {@link AuthenticatedPrincipalCache},
+ * поэтому повторные запросы с тем же токеном не проверяют подпись и не обращаются к БД.
  */
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
-    private final JwtTokenProvider jwtTokenProvider;
-    private final UserRepository userRepository;
-    private final UserDetailsService userDetailsService;
+    private final AuthenticatedPrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -39,29 +35,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String token = resolveToken(request);
 
         try {
-            if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
-                // Получаем username (email)
-                String username = jwtTokenProvider.getUsername(token);
-
-                if (username == null) {
-                    filterChain.doFilter(request, response);
-                    return;
-                }
-
-                // Загружаем сущность User из БД, чтобы проверить active
-                User user = userRepository.findByEmail(username).orElse(null);
-                if (user == null) {
+            // Подпись и срок действия проверяются за один разбор токена
+            String username = StringUtils.hasText(token) ? principalCache.getVerifiedUsername(token) : null;
+            if (username != null) {
+                // Признак активности и роли пользователя читаются одним запросом
+                AuthenticatedPrincipalCache.CachedPrincipal principal = principalCache.getPrincipal(username);
+                if (principal == null) {
                     response.sendError(HttpStatus.FORBIDDEN.value(), "User not found");
                     return;
                 }
 
-                if (!user.isActive()) {
+                if (!principal.isActive()) {
                     response.sendError(HttpStatus.FORBIDDEN.value(), "User account is disabled");
                     return;
                 }
 
-                // Загружаем UserDetails и создаём Authentication (чтобы сохранить совместимость с остальной системой)
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = principal.getUserDetails();
                 Authentication authentication = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -1,6 +1,7 @@
 package com.github.stasangelov.reviewanalytics.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -33,10 +34,13 @@ public class JwtTokenProvider {
     private long validityInMilliseconds;
 
     private Key key;
+    /** Парсер неизменяем и потокобезопасен, поэтому создается один раз. */
+    private JwtParser parser;
 
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     public String createToken(String username) {
@@ -57,16 +61,23 @@ public class JwtTokenProvider {
     }
 
     public String getUsername(String token) {
-        Claims claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
-        return claims.getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
+
+    /**
+     * Проверяет подпись и срок действия токена и возвращает его claims за один разбор.
+     * @throws io.jsonwebtoken.JwtException если токен недействителен.
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
 }
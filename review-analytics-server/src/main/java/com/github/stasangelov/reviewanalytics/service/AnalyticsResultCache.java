@@ -0,0 +1,217 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.stasangelov.reviewanalytics.dto.analytics.cache.AnalyticsCacheStatsDto;
+import com.github.stasangelov.reviewanalytics.event.ReviewChangedEvent;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов аналитических запросов (дашборд и сводка по товарам), ключом которого
+ * является набор фильтров. Ограничен по размеру и времени жизни записей.
+ * После фиксации транзакции, изменившей отзыв, удаляются только те записи,
+ * чьи фильтры по категории и датам покрывают измененный отзыв.
+ * <p>
+ * Caffeine не видит при сбросе записи, которые еще вычисляются, поэтому каждый сброс получает
+ * порядковый номер и попадает в короткий журнал. Результат, вычисление которого началось
+ * до покрывающего его сброса, удаляется сразу после сохранения.
+ */
+@Slf4j
+@Component
+public class AnalyticsResultCache {
+
+    /**
+     * Сколько последних сбросов хранится в журнале. Если вычисление началось раньше самого
+     * старого сброса в журнале, его результат считается устаревшим.
+     */
+    private static final int INVALIDATION_LOG_SIZE = 1024;
+
+    private final Cache<FilterKey, Object> cache;
+    private final long maxSize;
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final Deque<Invalidation> invalidationLog = new ArrayDeque<>();
+    private long invalidationSequence;
+
+    public AnalyticsResultCache(
+            @org.springframework.beans.factory.annotation.Value("${analytics.cache.max-size:500}") long maxSize,
+            @org.springframework.beans.factory.annotation.Value("${analytics.cache.ttl:5m}") Duration ttl) {
+        this.maxSize = maxSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Возвращает закэшированный результат для фильтров или вычисляет и сохраняет его.
+     * Если за время вычисления прошел сброс, покрывающий фильтры, результат возвращается
+     * вызывающему, но из кэша удаляется.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(FilterKey key, Supplier<T> loader) {
+        long[] startedAt = {-1};
+        Object value = cache.get(key, k -> {
+            startedAt[0] = currentSequence();
+            return loader.get();
+        });
+        if (startedAt[0] >= 0 && invalidatedSince(key, startedAt[0])) {
+            cache.asMap().remove(key, value);
+        }
+        return (T) value;
+    }
+
+    /**
+     * Точечно сбрасывает записи, затронутые изменением отзыва. Вызывается после фиксации
+     * транзакции: запросы, начатые позже, уже видят изменение. Результаты запросов, которые
+     * вычислялись во время коммита, отбрасывает {@link #getOrCompute} по журналу сбросов.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        invalidate(event.getPrevious());
+        invalidate(event.getCurrent());
+    }
+
+    /**
+     * Полностью очищает кэш.
+     */
+    public void invalidateAll() {
+        record(null, null, true);
+        invalidationCount.addAndGet(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    public AnalyticsCacheStatsDto getStats() {
+        CacheStats stats = cache.stats();
+        AnalyticsCacheStatsDto dto = new AnalyticsCacheStatsDto();
+        dto.setSize(cache.estimatedSize());
+        dto.setMaxSize(maxSize);
+        dto.setHitCount(stats.hitCount());
+        dto.setMissCount(stats.missCount());
+        dto.setHitRate(stats.hitRate());
+        dto.setEvictionCount(stats.evictionCount());
+        dto.setInvalidationCount(invalidationCount.get());
+        return dto;
+    }
+
+    private void invalidate(ReviewRollupService.Contribution contribution) {
+        if (contribution == null) {
+            return;
+        }
+        // Сброс записывается в журнал до обхода кэша: вычисление, завершившееся после обхода, найдет его
+        record(contribution.getCategoryId(), contribution.getDay(), false);
+        cache.asMap().keySet().removeIf(key -> {
+            boolean affected = key.covers(contribution.getCategoryId(), contribution.getDay());
+            if (affected) {
+                invalidationCount.incrementAndGet();
+            }
+            return affected;
+        });
+        log.debug("Кэш аналитики сброшен для категории {} и дня {}", contribution.getCategoryId(), contribution.getDay());
+    }
+
+    private synchronized long currentSequence() {
+        return invalidationSequence;
+    }
+
+    private synchronized void record(Long categoryId, LocalDate day, boolean all) {
+        invalidationLog.addLast(new Invalidation(++invalidationSequence, categoryId, day, all));
+        if (invalidationLog.size() > INVALIDATION_LOG_SIZE) {
+            invalidationLog.removeFirst();
+        }
+    }
+
+    /**
+     * Проверяет, был ли после указанного номера сброс, покрывающий фильтры ключа.
+     */
+    private synchronized boolean invalidatedSince(FilterKey key, long sequence) {
+        if (sequence == invalidationSequence) {
+            return false;
+        }
+        if (invalidationLog.isEmpty() || invalidationLog.getFirst().getSequence() > sequence + 1) {
+            return true;
+        }
+        for (var it = invalidationLog.descendingIterator(); it.hasNext(); ) {
+            Invalidation invalidation = it.next();
+            if (invalidation.getSequence() <= sequence) {
+                return false;
+            }
+            if (invalidation.covers(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Запись журнала сбросов: отзыв категории и дня или полная очистка.
+     */
+    @Value
+    private static class Invalidation {
+        long sequence;
+        Long categoryId;
+        LocalDate day;
+        boolean all;
+
+        boolean covers(FilterKey key) {
+            return all || key.covers(categoryId, day);
+        }
+    }
+
+    /**
+     * Вид кэшируемого запроса.
+     */
+    public enum Kind {
+        DASHBOARD,
+        PRODUCTS_SUMMARY
+    }
+
+    /**
+     * Ключ кэша: вид запроса, нормализованные фильтры (даты включительные, {@code null} — без ограничения)
+     * и параметры графика динамики дашборда.
+     */
+    @Value
+    public static class FilterKey {
+        Kind kind;
+        LocalDate startDate;
+        LocalDate endDate;
+        Long categoryId;
+        DynamicsOptions dynamics;
+
+        public static FilterKey of(Kind kind, LocalDate startDate, LocalDate endDate, Long categoryId) {
+            return of(kind, startDate, endDate, categoryId, DynamicsOptions.DEFAULT);
+        }
+
+        /**
+         * Создает ключ, приводя пустой диапазон дат к единому виду, чтобы все такие запросы
+         * делили одну запись кэша.
+         */
+        public static FilterKey of(Kind kind, LocalDate startDate, LocalDate endDate, Long categoryId, DynamicsOptions dynamics) {
+            if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+                return new FilterKey(kind, LocalDate.MAX, LocalDate.MIN, categoryId, dynamics);
+            }
+            return new FilterKey(kind, startDate, endDate, categoryId, dynamics);
+        }
+
+        /**
+         * Проверяет, попадает ли отзыв указанной категории и дня под фильтры ключа.
+         */
+        boolean covers(Long reviewCategoryId, LocalDate day) {
+            return (categoryId == null || categoryId.equals(reviewCategoryId))
+                    && (startDate == null || !day.isBefore(startDate))
+                    && (endDate == null || !day.isAfter(endDate));
+        }
+    }
+}
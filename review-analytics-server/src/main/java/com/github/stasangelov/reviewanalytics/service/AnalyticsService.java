@@ -4,24 +4,34 @@ import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.CriteriaP
 import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.*;
 import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
 import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductSummaryDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.rollup.RollupConsistencyReportDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewRatingDto;
 import com.github.stasangelov.reviewanalytics.entity.Product;
 import com.github.stasangelov.reviewanalytics.entity.Review;
 import com.github.stasangelov.reviewanalytics.exception.ResourceNotFoundException;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarAnalyticsEngine;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
 
@@ -30,6 +40,7 @@ import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.Compariso
  * Этот класс является "мозгом" приложения, выполняя сложные JPQL и нативные SQL-запросы
  * для агрегации данных и подготовки их к отображению на клиенте.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
@@ -38,34 +49,224 @@ public class AnalyticsService {
     @PersistenceContext
     private final EntityManager entityManager;
     private final ReviewMapper reviewMapper;
+    private final ReviewRollupService reviewRollupService;
+    private final OperationMetrics operationMetrics;
+    private final ColumnarAnalyticsEngine columnarAnalyticsEngine;
+
+    private static final double CONSISTENCY_EPSILON = 1e-6;
+    /**
+     * Значение тега {@code source} для запросов к колоночному хранилищу отзывов.
+     */
+    private static final String COLUMNAR_SOURCE = "columnar";
+    private static final double MEDIAN = 0.5;
+    private static final double P10 = 0.1;
+    private static final double P90 = 0.9;
+
+    /**
+     * Источник данных для дашборда: дневная витрина, однопроходная агрегация или отдельные запросы по разделам.
+     */
+    @Value("${analytics.dashboard.source:ROLLUP}")
+    private DashboardSource dashboardSource;
+
+    /**
+     * Размер порции при чтении курсором. MySQL Connector/J с {@code useCursorFetch=true} в URL
+     * читает результат порциями этого размера, не буферизуя его целиком; H2 принимает значение как подсказку.
+     */
+    @Value("${analytics.streaming.fetch-size:1000}")
+    private int streamingFetchSize;
 
     /**
      * Собирает все данные для главной информационной панели (дашборда).
      * Является основной точкой входа, которая вызывает все необходимые методы-калькуляторы.
+     * Если включено колоночное хранилище отзывов и оно загружено, дашборд считается по нему.
+     * Медиана и перцентили рейтинга при любом источнике берутся из гистограмм витрины.
      */
 
     public DashboardDto getDashboardData(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        return getDashboardData(startDate, endDate, categoryId, DynamicsOptions.DEFAULT);
+    }
+
+    /**
+     * Собирает данные дашборда с заданными гранулярностью и скользящим средним динамики.
+     * Источники возвращают только периоды с оценками; ряд дополняется пустыми периодами
+     * до границ запроса в {@link RatingTimeBuckets#complete}.
+     */
+    public DashboardDto getDashboardData(LocalDate startDate, LocalDate endDate, Long categoryId, DynamicsOptions dynamicsOptions) {
+        long started = System.nanoTime();
+        OperationMetrics.FilterShape shape = OperationMetrics.FilterShape.of(startDate, endDate, categoryId);
+        DynamicsGranularity granularity = dynamicsOptions.resolveGranularity(startDate, endDate);
+        DashboardDto dashboard;
+        String source;
+        if (columnarAnalyticsEngine.isAvailable()) {
+            source = COLUMNAR_SOURCE;
+            dashboard = operationMetrics.dashboard(source, shape,
+                    () -> columnarAnalyticsEngine.getDashboardData(startDate, endDate, categoryId, granularity));
+        } else {
+            source = dashboardSource.getMetricName();
+            dashboard = operationMetrics.dashboard(source, shape, () -> switch (dashboardSource) {
+                case ROLLUP -> reviewRollupService.getDashboardData(startDate, endDate, categoryId, granularity);
+                case SINGLE_PASS -> getDashboardDataSinglePass(startDate, endDate, categoryId, granularity);
+                case RAW -> getDashboardDataFromReviews(startDate, endDate, categoryId, granularity);
+            });
+        }
+        dashboard.setRatingDynamics(RatingTimeBuckets.complete(dashboard.getRatingDynamics(), granularity,
+                startDate, endDate, dynamicsOptions.getMovingAverageWindow()));
+        RatingHistogram histogram = operationMetrics.section("rating-quantiles", DashboardSource.ROLLUP.getMetricName(), shape,
+                () -> reviewRollupService.getRatingHistogram(startDate, endDate, categoryId), RatingHistogram::getCount);
+        KpiDto kpis = dashboard.getKpis();
+        kpis.setMedianIntegralRating(histogram.quantile(MEDIAN));
+        kpis.setP10IntegralRating(histogram.quantile(P10));
+        kpis.setP90IntegralRating(histogram.quantile(P90));
+        log.debug("Дашборд ({}) собран за {} мс", source, (System.nanoTime() - started) / 1_000_000);
+        return dashboard;
+    }
+
+    /**
+     * Сверяет данные дашборда, посчитанные по витрине, с результатами запросов к исходным таблицам.
+     * Динамика сравнивается на уровне дней, остальные разделы - целиком.
+     */
+    public RollupConsistencyReportDto checkRollupConsistency(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        DashboardDto raw = getDashboardDataFromReviews(startDate, endDate, categoryId,
+                DynamicsGranularity.forPeriod(startDate, endDate));
+        DashboardDto rollup = reviewRollupService.getDashboardData(startDate, endDate, categoryId);
+
+        RollupConsistencyReportDto report = new RollupConsistencyReportDto();
+        report.setRawReviewCount(raw.getKpis().getTotalReviews());
+        report.setRollupReviewCount(rollup.getKpis().getTotalReviews());
+        List<String> mismatches = report.getMismatches();
+
+        if (raw.getKpis().getTotalReviews() != rollup.getKpis().getTotalReviews()) {
+            mismatches.add("Количество отзывов: " + raw.getKpis().getTotalReviews() + " != " + rollup.getKpis().getTotalReviews());
+        }
+        compareValues(mismatches, "Средний рейтинг", raw.getKpis().getAverageIntegralRating(), rollup.getKpis().getAverageIntegralRating());
+        compareRatings(mismatches, "Топ лучших",
+                raw.getTopRatedProducts().stream().map(TopProductDto::getAverageRating).collect(Collectors.toList()),
+                rollup.getTopRatedProducts().stream().map(TopProductDto::getAverageRating).collect(Collectors.toList()));
+        compareRatings(mismatches, "Топ худших",
+                raw.getWorstRatedProducts().stream().map(TopProductDto::getAverageRating).collect(Collectors.toList()),
+                rollup.getWorstRatedProducts().stream().map(TopProductDto::getAverageRating).collect(Collectors.toList()));
+        if (categoryId != null) {
+            compareGroups(mismatches, "Бренд", raw.getBrandRatings(), rollup.getBrandRatings(),
+                    BrandRatingDto::getBrandName, BrandRatingDto::getAverageRating);
+        } else {
+            compareGroups(mismatches, "Категория", raw.getCategoryRatings(), rollup.getCategoryRatings(),
+                    CategoryRatingDto::getCategoryName, CategoryRatingDto::getAverageRating);
+        }
+        compareGroups(mismatches, "День",
+                calculateDailyRatings(toStartDateTime(startDate), toEndDateTime(endDate), categoryId),
+                reviewRollupService.getDailyRatings(startDate, endDate, categoryId),
+                RatingDynamicDto::getDate, RatingDynamicDto::getAverageRating);
+        compareGroups(mismatches, "Распределение", raw.getRatingDistribution(), rollup.getRatingDistribution(),
+                RatingDistributionDto::getCriterionName,
+                d -> List.of(d.getRating1Count(), d.getRating2Count(), d.getRating3Count(), d.getRating4Count(), d.getRating5Count()));
+
+        report.setConsistent(mismatches.isEmpty());
+        return report;
+    }
+
+    /**
+     * Собирает данные дашборда за один проход по активным отзывам, подходящим под фильтры.
+     * Строки "отзыв x оценка" читаются однонаправленным курсором и сразу сворачиваются
+     * в {@link SinglePassDashboardAggregator}, поэтому память не зависит от объема выборки.
+     */
+    private DashboardDto getDashboardDataSinglePass(LocalDate startDate, LocalDate endDate, Long categoryId,
+                                                    DynamicsGranularity granularity) {
+        LocalDateTime startDateTime = toStartDateTime(startDate);
+        LocalDateTime endDateTime = toEndDateTime(endDate);
+
+        StringBuilder sqlBuilder = new StringBuilder(
+                "SELECT r.id, CAST(r.date_created AS DATE), r.integral_rating, " +
+                        "   p.id, p.name, p.brand, cat.name, c.name, rr.rating " +
+                        "FROM reviews r " +
+                        "JOIN products p ON r.product_id = p.id " +
+                        "JOIN categories cat ON p.category_id = cat.id " +
+                        "LEFT JOIN review_ratings rr ON rr.review_id = r.id " +
+                        "LEFT JOIN criteria c ON rr.criterion_id = c.id " +
+                        "WHERE r.status = 'ACTIVE'"
+        );
+        Map<String, Object> parameters = new HashMap<>();
+
+        if (startDateTime != null) {
+            sqlBuilder.append(" AND r.date_created >= :startDate");
+            parameters.put("startDate", startDateTime);
+        }
+        if (endDateTime != null) {
+            sqlBuilder.append(" AND r.date_created < :endDate");
+            parameters.put("endDate", endDateTime);
+        }
+        if (categoryId != null) {
+            sqlBuilder.append(" AND p.category_id = :categoryId");
+            parameters.put("categoryId", categoryId);
+        }
+        // Оценки одного отзыва должны идти подряд, чтобы учесть отзыв ровно один раз. Порядок совпадает
+        // с idx_reviews_status_date (status, date_created, product_id, integral_rating, id): при фильтре
+        // по датам и категории отзывы читаются по индексу без filesort, и первые строки приходят сразу
+        sqlBuilder.append(" ORDER BY r.date_created, r.product_id, r.integral_rating, r.id");
+
+        SinglePassDashboardAggregator aggregator = new SinglePassDashboardAggregator(granularity, categoryId != null);
+
+        org.hibernate.query.Query<?> query = entityManager.createNativeQuery(sqlBuilder.toString())
+                .unwrap(org.hibernate.query.Query.class)
+                .setProperties(parameters)
+                .setReadOnly(true)
+                .setFetchSize(streamingFetchSize);
+
+        try (ScrollableResults<?> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                Object[] row = (Object[]) rows.get();
+                aggregator.accept(
+                        ((Number) row[0]).longValue(),
+                        ((java.sql.Date) row[1]).toLocalDate(),
+                        row[2] != null ? ((Number) row[2]).doubleValue() : null,
+                        ((Number) row[3]).longValue(),
+                        (String) row[4],
+                        (String) row[5],
+                        (String) row[6],
+                        (String) row[7],
+                        row[8] != null ? ((Number) row[8]).intValue() : null
+                );
+            }
+        }
+
+        return aggregator.toDashboard(5);
+    }
+
+    /**
+     * Собирает данные дашборда запросами к исходным таблицам отзывов (по одному запросу на раздел).
+     * Время и число строк каждого раздела записываются в метрику {@code analytics.section}.
+     */
+    private DashboardDto getDashboardDataFromReviews(LocalDate startDate, LocalDate endDate, Long categoryId,
+                                                     DynamicsGranularity granularity) {
         DashboardDto dashboard = new DashboardDto();
+        OperationMetrics.FilterShape shape = OperationMetrics.FilterShape.of(startDate, endDate, categoryId);
+        String source = DashboardSource.RAW.getMetricName();
 
         // Преобразуем LocalDate в LocalDateTime для запросов к БД
         LocalDateTime startDateTime = (startDate != null) ? startDate.atStartOfDay() : null;
         LocalDateTime endDateTime = (endDate != null) ? endDate.plusDays(1).atStartOfDay() : null;
 
-        dashboard.setKpis(calculateKpis(startDateTime, endDateTime, categoryId));
-        dashboard.setTopRatedProducts(findTopRatedProducts(5, "DESC", startDateTime, endDateTime, categoryId));
-        dashboard.setWorstRatedProducts(findTopRatedProducts(5, "ASC", startDateTime, endDateTime, categoryId));
+        dashboard.setKpis(operationMetrics.section("kpis", source, shape,
+                () -> calculateKpis(startDateTime, endDateTime, categoryId), kpis -> 1));
+        dashboard.setTopRatedProducts(operationMetrics.section("top-rated", source, shape,
+                () -> findTopRatedProducts(5, "DESC", startDateTime, endDateTime, categoryId), List::size));
+        dashboard.setWorstRatedProducts(operationMetrics.section("worst-rated", source, shape,
+                () -> findTopRatedProducts(5, "ASC", startDateTime, endDateTime, categoryId), List::size));
 
         if (categoryId != null) {
             // Если категория выбрана, считаем рейтинг по брендам ВНУТРИ нее
-            dashboard.setBrandRatings(calculateBrandRatings(startDateTime, endDateTime, categoryId));
+            dashboard.setBrandRatings(operationMetrics.section("brand-ratings", source, shape,
+                    () -> calculateBrandRatings(startDateTime, endDateTime, categoryId), List::size));
             dashboard.setCategoryRatings(null); // Обнуляем данные для другого графика
         } else {
             // Если категория не выбрана, считаем рейтинг по категориям
-            dashboard.setCategoryRatings(calculateCategoryRatings(startDateTime, endDateTime, null));
+            dashboard.setCategoryRatings(operationMetrics.section("category-ratings", source, shape,
+                    () -> calculateCategoryRatings(startDateTime, endDateTime, null), List::size));
             dashboard.setBrandRatings(null);
         }
-        dashboard.setRatingDynamics(calculateRatingDynamics(startDateTime, endDateTime, categoryId));
-        dashboard.setRatingDistribution(calculateRatingDistribution(startDateTime, endDateTime, categoryId));
+        dashboard.setRatingDynamics(operationMetrics.section("rating-dynamics", source, shape,
+                () -> calculateRatingDynamics(startDateTime, endDateTime, categoryId, granularity), List::size));
+        dashboard.setRatingDistribution(operationMetrics.section("rating-distribution", source, shape,
+                () -> calculateRatingDistribution(startDateTime, endDateTime, categoryId), List::size));
 
         return dashboard;
     }
@@ -74,6 +275,30 @@ public class AnalyticsService {
      * Возвращает сводную аналитику по всем товарам для отображения в главной таблице.
      */
     public List<ProductSummaryDto> getProductsSummary(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        OperationMetrics.FilterShape shape = OperationMetrics.FilterShape.of(startDate, endDate, categoryId);
+        List<ProductSummaryDto> summary;
+        if (columnarAnalyticsEngine.isAvailable()) {
+            summary = operationMetrics.section("products-summary", COLUMNAR_SOURCE, shape,
+                    () -> columnarAnalyticsEngine.getProductsSummary(startDate, endDate, categoryId), List::size);
+        } else {
+            summary = operationMetrics.section("products-summary", DashboardSource.RAW.getMetricName(), shape,
+                    () -> queryProductsSummary(startDate, endDate, categoryId), List::size);
+        }
+
+        Map<Long, RatingHistogram> histograms = operationMetrics.section("products-quantiles", DashboardSource.ROLLUP.getMetricName(), shape,
+                () -> reviewRollupService.getProductRatingHistograms(startDate, endDate, categoryId), Map::size);
+        for (ProductSummaryDto product : summary) {
+            RatingHistogram histogram = histograms.get(product.getProductId());
+            if (histogram != null) {
+                product.setMedianRating(histogram.quantile(MEDIAN));
+                product.setP10Rating(histogram.quantile(P10));
+                product.setP90Rating(histogram.quantile(P90));
+            }
+        }
+        return summary;
+    }
+
+    private List<ProductSummaryDto> queryProductsSummary(LocalDate startDate, LocalDate endDate, Long categoryId) {
         LocalDateTime startDateTime = (startDate != null) ? startDate.atStartOfDay() : null;
         LocalDateTime endDateTime = (endDate != null) ? endDate.plusDays(1).atStartOfDay() : null;
 
@@ -115,59 +340,216 @@ public class AnalyticsService {
      * Возвращает полную детализацию по одному товару, включая его профиль и все отзывы.
      */
     public ProductDetailsDto getProductDetails(Long productId) {
+        return operationMetrics.productQuery("details", () -> addRatingQuantiles(queryProductDetails(productId)),
+                details -> details.getReviews().size());
+    }
+
+    private ProductDetailsDto queryProductDetails(Long productId) {
         // 1. Находим профиль по критериям (средние оценки)
+        List<CriteriaProfileDto> criteriaProfile = null;
+        if (columnarAnalyticsEngine.isAvailable()) {
+            criteriaProfile = columnarAnalyticsEngine.getCriteriaProfile(productId);
+        }
+        if (criteriaProfile == null) {
+            criteriaProfile = findCriteriaProfile(productId);
+        }
+
+        // 2. Находим товар вместе с категорией
+        Product product = findProductWithCategory(productId);
+
+        // 3. Находим все отзывы на этот товар сразу с оценками,
+        // чтобы маппер не выполнял отдельных запросов для каждого отзыва
+        String reviewsJpql = "SELECT r FROM Review r WHERE r.product.id = :productId ORDER BY r.dateCreated DESC, r.id DESC";
+        List<Review> reviews = entityManager.createQuery(reviewsJpql, Review.class)
+                .setParameter("productId", productId)
+                .setHint("jakarta.persistence.fetchgraph", entityManager.getEntityGraph(Review.WITH_PRODUCT_AND_RATINGS))
+                .getResultList();
+
+        // 4. Собираем все в один DTO
+        // Считаем общий средний рейтинг
+        double avgRating = reviews.stream()
+                .filter(r -> r.getStatus() == Review.ReviewStatus.ACTIVE && r.getIntegralRating() != null)
+                .mapToDouble(Review::getIntegralRating)
+                .average()
+                .orElse(0.0);
+
+        ProductDetailsDto details = newProductDetails(product, criteriaProfile, reviews.size(), avgRating);
+        details.setReviews(reviews.stream().map(reviewMapper::toDto).collect(Collectors.toList()));
+
+        return details;
+    }
+
+    /**
+     * Возвращает детализацию по товару без списка отзывов: количество отзывов и средний
+     * рейтинг считаются агрегатным запросом. Используется потоковой выгрузкой отчета,
+     * где сами отзывы читаются курсором через {@link #forEachProductReview}.
+     */
+    public ProductDetailsDto getProductDetailsSummary(Long productId) {
+        return operationMetrics.productQuery("details-summary", () -> addRatingQuantiles(queryProductDetailsSummary(productId)),
+                details -> details.getCriteriaProfile().size());
+    }
+
+    private ProductDetailsDto queryProductDetailsSummary(Long productId) {
+        if (columnarAnalyticsEngine.isAvailable()) {
+            ProductDetailsDto details = columnarAnalyticsEngine.getProductDetailsSummary(productId);
+            if (details != null) {
+                return details;
+            }
+        }
+        Product product = findProductWithCategory(productId);
+        List<CriteriaProfileDto> criteriaProfile = findCriteriaProfile(productId);
+
+        Object[] totals = entityManager.createQuery(
+                        "SELECT COUNT(r), AVG(CASE WHEN r.status = 'ACTIVE' THEN r.integralRating END) " +
+                                "FROM Review r WHERE r.product.id = :productId", Object[].class)
+                .setParameter("productId", productId)
+                .getSingleResult();
+        long reviewCount = ((Number) totals[0]).longValue();
+        double avgRating = totals[1] != null ? ((Number) totals[1]).doubleValue() : 0.0;
+
+        ProductDetailsDto details = newProductDetails(product, criteriaProfile, reviewCount, avgRating);
+        details.setReviews(null);
+        return details;
+    }
+
+    /**
+     * Передает обработчику отзывы товара (от новых к старым) по одному.
+     * Строки "отзыв x оценка" читаются однонаправленным курсором, поэтому память не зависит
+     * от количества отзывов. Обработчик вызывается внутри транзакции чтения и не должен
+     * обращаться к БД: соединение занято курсором.
+     */
+    public void forEachProductReview(Long productId, ReviewConsumer consumer) throws IOException {
+        String sql = "SELECT r.id, r.date_created, r.integral_rating, r.status, c.id, c.name, rr.rating " +
+                "FROM reviews r " +
+                "LEFT JOIN review_ratings rr ON rr.review_id = r.id " +
+                "LEFT JOIN criteria c ON rr.criterion_id = c.id " +
+                "WHERE r.product_id = :productId " +
+                // Оценки одного отзыва должны идти подряд, чтобы собрать отзыв целиком
+                "ORDER BY r.date_created DESC, r.id DESC";
+
+        org.hibernate.query.Query<?> query = entityManager.createNativeQuery(sql)
+                .unwrap(org.hibernate.query.Query.class)
+                .setParameter("productId", productId)
+                .setReadOnly(true)
+                .setFetchSize(streamingFetchSize);
+
+        try (ScrollableResults<?> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            ReviewDto current = null;
+            while (rows.next()) {
+                Object[] row = (Object[]) rows.get();
+                long reviewId = ((Number) row[0]).longValue();
+                if (current == null || current.getId() != reviewId) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                    current = new ReviewDto();
+                    current.setId(reviewId);
+                    current.setProductId(productId);
+                    current.setDateCreated(toLocalDateTime(row[1]));
+                    current.setIntegralRating(row[2] != null ? ((Number) row[2]).doubleValue() : null);
+                    current.setStatus(Review.ReviewStatus.valueOf((String) row[3]));
+                    current.setReviewRatings(new ArrayList<>());
+                }
+                if (row[4] != null) {
+                    ReviewRatingDto rating = new ReviewRatingDto();
+                    rating.setCriterionId(((Number) row[4]).longValue());
+                    rating.setCriterionName((String) row[5]);
+                    rating.setRating(((Number) row[6]).intValue());
+                    current.getReviewRatings().add(rating);
+                }
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+        }
+    }
+
+    private List<CriteriaProfileDto> findCriteriaProfile(Long productId) {
         String profileJpql = "SELECT NEW com.github.stasangelov.reviewanalytics.dto.analytics.comparison.CriteriaProfileDto(" +
                 "   rr.criterion.name, AVG(rr.rating)" +
                 ") " +
                 "FROM ReviewRating rr JOIN rr.review r " +
                 "WHERE r.product.id = :productId AND r.status = 'ACTIVE' " +
                 "GROUP BY rr.criterion.name";
-        List<CriteriaProfileDto> criteriaProfile = entityManager.createQuery(profileJpql, CriteriaProfileDto.class)
+        return entityManager.createQuery(profileJpql, CriteriaProfileDto.class)
                 .setParameter("productId", productId)
                 .getResultList();
+    }
 
-        // 2. Находим все отзывы на этот товар
-        String reviewsJpql = "SELECT r FROM Review r WHERE r.product.id = :productId ORDER BY r.dateCreated DESC";
-        List<Review> reviews = entityManager.createQuery(reviewsJpql, Review.class)
+    private Product findProductWithCategory(Long productId) {
+        return entityManager.createQuery(
+                        "SELECT p FROM Product p JOIN FETCH p.category WHERE p.id = :productId", Product.class)
                 .setParameter("productId", productId)
-                .getResultList();
-
-        // 3. Собираем все в один DTO
-        Product product = reviews.isEmpty() ?
-                entityManager.find(Product.class, productId) :
-                reviews.get(0).getProduct();
-
-        if (product == null) {
-            throw new ResourceNotFoundException("Товар с id " + productId + " не найден");
-        }
+                .getResultStream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Товар с id " + productId + " не найден"));
+    }
 
+    private ProductDetailsDto newProductDetails(Product product, List<CriteriaProfileDto> criteriaProfile,
+                                                long reviewCount, double avgRating) {
         ProductDetailsDto details = new ProductDetailsDto();
         details.setProductId(product.getId());
         details.setProductName(product.getName());
         details.setCategoryName(product.getCategory().getName());
         details.setBrand(product.getBrand());
-        details.setReviewCount((long) reviews.size());
-
-        // Считаем общий средний рейтинг
-        double avgRating = reviews.stream()
-                .filter(r -> r.getStatus() == Review.ReviewStatus.ACTIVE && r.getIntegralRating() != null)
-                .mapToDouble(Review::getIntegralRating)
-                .average()
-                .orElse(0.0);
+        details.setReviewCount(reviewCount);
         details.setAverageRating(avgRating);
-
         details.setCriteriaProfile(criteriaProfile);
-        details.setReviews(reviews.stream().map(reviewMapper::toDto).collect(Collectors.toList()));
-
         return details;
     }
 
     /**
      * Собирает данные для сравнения нескольких товаров по их профилям критериев.
+     * Независимо от количества товаров выполняет два запроса: поиск товаров и
+     * один сгруппированный по (товар, критерий) запрос средних оценок.
      */
     public List<ComparisonDataDto> getComparisonData(List<Long> productIds) {
+        return operationMetrics.productQuery("comparison", () -> queryComparisonData(productIds), List::size);
+    }
+
+    private List<ComparisonDataDto> queryComparisonData(List<Long> productIds) {
+        if (columnarAnalyticsEngine.isAvailable()) {
+            List<ComparisonDataDto> comparison = columnarAnalyticsEngine.getComparisonData(productIds);
+            if (comparison != null) {
+                return comparison;
+            }
+        }
+        List<Long> distinctIds = productIds.stream().distinct().collect(Collectors.toList());
+
+        // 1. Одним запросом находим названия всех товаров
+        Map<Long, String> productNames = new HashMap<>();
+        entityManager.createQuery("SELECT p.id, p.name FROM Product p WHERE p.id IN :productIds", Object[].class)
+                .setParameter("productIds", distinctIds)
+                .getResultList()
+                .forEach(row -> productNames.put((Long) row[0], (String) row[1]));
+
+        for (Long productId : distinctIds) {
+            if (!productNames.containsKey(productId)) {
+                throw new ResourceNotFoundException("Товар с id " + productId + " не найден");
+            }
+        }
+
+        // 2. Одним запросом считаем профили всех товаров
+        String jpql = "SELECT r.product.id, rr.criterion.name, AVG(rr.rating) " +
+                "FROM ReviewRating rr JOIN rr.review r " +
+                "WHERE r.product.id IN :productIds AND r.status = 'ACTIVE' " +
+                "GROUP BY r.product.id, rr.criterion.name";
+        Map<Long, List<CriteriaProfileDto>> profiles = new HashMap<>();
+        entityManager.createQuery(jpql, Object[].class)
+                .setParameter("productIds", distinctIds)
+                .getResultList()
+                .forEach(row -> profiles.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                        .add(new CriteriaProfileDto((String) row[1], ((Number) row[2]).doubleValue())));
+
+        // 3. Собираем результат в порядке запрошенных id
         return productIds.stream()
-                .map(this::getProductProfileForComparison)
+                .map(productId -> {
+                    ComparisonDataDto dto = new ComparisonDataDto();
+                    dto.setProductId(productId);
+                    dto.setProductName(productNames.get(productId));
+                    dto.setCriteriaProfile(profiles.getOrDefault(productId, new ArrayList<>()));
+                    return dto;
+                })
                 .collect(Collectors.toList());
     }
 
@@ -276,67 +658,16 @@ public class AnalyticsService {
     }
 
     /**
-     * Рассчитывает динамику среднего рейтинга с АДАПТИВНОЙ гранулярностью (день/неделя/месяц)
-     * в зависимости от выбранного периода.
+     * Рассчитывает динамику среднего рейтинга: БД группирует отзывы только по дням,
+     * а до недель, месяцев или кварталов дни укрупняются в {@link RatingTimeBuckets}.
      */
-    private List<RatingDynamicDto> calculateRatingDynamics(LocalDateTime startDateTime, LocalDateTime endDateTime, Long categoryId) {
-        // 1. Определяем длительность периода
-        long daysBetween = 90; // Значение по умолчанию, если даты не заданы
-        if (startDateTime != null && endDateTime != null) {
-            daysBetween = ChronoUnit.DAYS.between(startDateTime, endDateTime);
-        }
-
-        // 2. Выбираем, как будем группировать дату (гранулярность)
-        String dateGroupingSql;
-        if (daysBetween <= 15) {
-            // Группировка по ДНЯМ
-            dateGroupingSql = "CAST(r.date_created AS DATE)";
-        } else if (daysBetween <= 60) {
-            // Группировка по НЕДЕЛЯМ (ISO week format)
-            dateGroupingSql = "STR_TO_DATE(CONCAT(YEAR(r.date_created), '-', WEEK(r.date_created, 1), '-1'), '%Y-%U-%w')";
-        } else {
-            // Группировка по МЕСЯЦАМ
-            dateGroupingSql = "STR_TO_DATE(CONCAT(YEAR(r.date_created), '-', MONTH(r.date_created), '-01'), '%Y-%m-%d')";
-        }
-
-        // 3. Строим SQL-запрос с выбранной группировкой
-        StringBuilder sqlBuilder = new StringBuilder(
-                "SELECT " + dateGroupingSql + " as group_date, AVG(r.integral_rating) as avg_rating " +
-                        "FROM reviews r JOIN products p ON r.product_id = p.id " +
-                        "WHERE r.status = 'ACTIVE'"
-        );
-        Map<String, Object> parameters = new HashMap<>();
-
-        // Добавляем фильтры
-        if (startDateTime != null) {
-            sqlBuilder.append(" AND r.date_created >= :startDate");
-            parameters.put("startDate", startDateTime);
-        }
-        if (endDateTime != null) {
-            sqlBuilder.append(" AND r.date_created < :endDate");
-            parameters.put("endDate", endDateTime);
-        }
-        if (categoryId != null) {
-            sqlBuilder.append(" AND p.category_id = :categoryId");
-            parameters.put("categoryId", categoryId);
+    private List<RatingDynamicDto> calculateRatingDynamics(LocalDateTime startDateTime, LocalDateTime endDateTime, Long categoryId,
+                                                           DynamicsGranularity granularity) {
+        RatingTimeBuckets buckets = new RatingTimeBuckets(granularity);
+        for (Object[] row : queryDailyRatingSums(startDateTime, endDateTime, categoryId)) {
+            buckets.add(((java.sql.Date) row[0]).toLocalDate(), ((Number) row[1]).doubleValue(), ((Number) row[2]).longValue());
         }
-
-        // Группируем и сортируем по вычисленной дате
-        sqlBuilder.append(" GROUP BY group_date ORDER BY group_date ASC");
-
-        // 4. Выполняем запрос и преобразуем результат
-        List<Object[]> results = entityManager.createNativeQuery(sqlBuilder.toString())
-                .unwrap(org.hibernate.query.Query.class)
-                .setProperties(parameters)
-                .getResultList();
-
-        return results.stream()
-                .map(row -> new RatingDynamicDto(
-                        ((java.sql.Date) row[0]).toLocalDate(),
-                        ((Number) row[1]).doubleValue()
-                ))
-                .collect(Collectors.toList());
-
+        return buckets.toDynamics();
     }
 
     /**
@@ -388,30 +719,129 @@ public class AnalyticsService {
     }
 
     /**
-     * Вспомогательный метод для получения профиля одного товара.
+     * Рассчитывает средний интегральный рейтинг по дням. Используется для сверки с витриной.
      */
-    private ComparisonDataDto getProductProfileForComparison(Long productId) {
-        Product product = entityManager.find(Product.class, productId);
-        if (product == null) {
-            throw new ResourceNotFoundException("Товар с id " + productId + " не найден");
-        }
+    private List<RatingDynamicDto> calculateDailyRatings(LocalDateTime startDateTime, LocalDateTime endDateTime, Long categoryId) {
+        return queryDailyRatingSums(startDateTime, endDateTime, categoryId).stream()
+                .map(row -> new RatingDynamicDto(
+                        ((java.sql.Date) row[0]).toLocalDate(),
+                        ((Number) row[1]).doubleValue() / ((Number) row[2]).longValue()
+                ))
+                .collect(Collectors.toList());
+    }
 
-        String jpql = "SELECT NEW com.github.stasangelov.reviewanalytics.dto.analytics.comparison.CriteriaProfileDto(" +
-                "   rr.criterion.name, AVG(rr.rating)" +
-                ") " +
-                "FROM ReviewRating rr JOIN rr.review r " +
-                "WHERE r.product.id = :productId AND r.status = 'ACTIVE' " +
-                "GROUP BY rr.criterion.name";
+    /**
+     * Возвращает строки {день, сумма рейтингов, количество рейтингов} по возрастанию дня.
+     * Группировка по {@code CAST(... AS DATE)} одинаково выполняется в MySQL и H2.
+     */
+    private List<Object[]> queryDailyRatingSums(LocalDateTime startDateTime, LocalDateTime endDateTime, Long categoryId) {
+        StringBuilder sqlBuilder = new StringBuilder(
+                "SELECT CAST(r.date_created AS DATE) as group_date, SUM(r.integral_rating), COUNT(r.integral_rating) " +
+                        "FROM reviews r JOIN products p ON r.product_id = p.id " +
+                        "WHERE r.status = 'ACTIVE' AND r.integral_rating IS NOT NULL"
+        );
+        Map<String, Object> parameters = new HashMap<>();
 
-        List<CriteriaProfileDto> profile = entityManager.createQuery(jpql, CriteriaProfileDto.class)
-                .setParameter("productId", productId)
+        if (startDateTime != null) {
+            sqlBuilder.append(" AND r.date_created >= :startDate");
+            parameters.put("startDate", startDateTime);
+        }
+        if (endDateTime != null) {
+            sqlBuilder.append(" AND r.date_created < :endDate");
+            parameters.put("endDate", endDateTime);
+        }
+        if (categoryId != null) {
+            sqlBuilder.append(" AND p.category_id = :categoryId");
+            parameters.put("categoryId", categoryId);
+        }
+        sqlBuilder.append(" GROUP BY group_date ORDER BY group_date ASC");
+
+        return entityManager.createNativeQuery(sqlBuilder.toString())
+                .unwrap(org.hibernate.query.Query.class)
+                .setProperties(parameters)
                 .getResultList();
+    }
+
+    private static LocalDateTime toStartDateTime(LocalDate startDate) {
+        return (startDate != null) ? startDate.atStartOfDay() : null;
+    }
 
-        ComparisonDataDto dto = new ComparisonDataDto();
-        dto.setProductId(productId);
-        dto.setProductName(product.getName());
-        dto.setCriteriaProfile(profile);
-        return dto;
+    private static LocalDateTime toEndDateTime(LocalDate endDate) {
+        return (endDate != null) ? endDate.plusDays(1).atStartOfDay() : null;
+    }
+
+    /**
+     * Драйвер может вернуть DATETIME как {@link java.sql.Timestamp} или сразу как {@link LocalDateTime}.
+     */
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private static void compareValues(List<String> mismatches, String label, double expected, double actual) {
+        if (Math.abs(expected - actual) > CONSISTENCY_EPSILON) {
+            mismatches.add(label + ": " + expected + " != " + actual);
+        }
+    }
+
+    private static void compareRatings(List<String> mismatches, String label, List<Double> expected, List<Double> actual) {
+        if (expected.size() != actual.size()) {
+            mismatches.add(label + ": " + expected.size() + " позиций != " + actual.size());
+            return;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            compareValues(mismatches, label + " #" + (i + 1), expected.get(i), actual.get(i));
+        }
+    }
+
+    /**
+     * Сравнивает два списка групп по ключу. Значения-числа сравниваются с допуском.
+     */
+    private static <T, K> void compareGroups(List<String> mismatches, String label, List<T> expected, List<T> actual,
+                                             Function<T, K> key, Function<T, Object> value) {
+        Map<K, Object> expectedMap = (expected == null ? List.<T>of() : expected).stream()
+                .collect(Collectors.toMap(key, value, (a, b) -> a));
+        Map<K, Object> actualMap = (actual == null ? List.<T>of() : actual).stream()
+                .collect(Collectors.toMap(key, value, (a, b) -> a));
+
+        for (Map.Entry<K, Object> entry : expectedMap.entrySet()) {
+            Object actualValue = actualMap.get(entry.getKey());
+            Object expectedValue = entry.getValue();
+            if (actualValue == null) {
+                mismatches.add(label + " '" + entry.getKey() + "': отсутствует в витрине");
+            } else if (expectedValue instanceof Number e && actualValue instanceof Number a) {
+                compareValues(mismatches, label + " '" + entry.getKey() + "'", e.doubleValue(), a.doubleValue());
+            } else if (!Objects.equals(expectedValue, actualValue)) {
+                mismatches.add(label + " '" + entry.getKey() + "': " + expectedValue + " != " + actualValue);
+            }
+        }
+        for (K extraKey : actualMap.keySet()) {
+            if (!expectedMap.containsKey(extraKey)) {
+                mismatches.add(label + " '" + extraKey + "': лишняя запись в витрине");
+            }
+        }
+    }
+
+    /**
+     * Дополняет детализацию товара медианой и перцентилями интегрального рейтинга и оценок по критериям
+     * за все время по гистограммам витрины.
+     */
+    private ProductDetailsDto addRatingQuantiles(ProductDetailsDto details) {
+        ReviewRollupService.ProductHistograms histograms = reviewRollupService.getProductHistograms(details.getProductId());
+        details.setMedianRating(histograms.getIntegral().quantile(MEDIAN));
+        details.setP10Rating(histograms.getIntegral().quantile(P10));
+        details.setP90Rating(histograms.getIntegral().quantile(P90));
+        for (CriteriaProfileDto criterion : details.getCriteriaProfile()) {
+            RatingHistogram histogram = histograms.getCriteria().get(criterion.getCriterionName());
+            if (histogram != null) {
+                criterion.setMedianRating(histogram.quantile(MEDIAN));
+                criterion.setP10Rating(histogram.quantile(P10));
+                criterion.setP90Rating(histogram.quantile(P90));
+            }
+        }
+        return details;
     }
 
     /**
@@ -432,4 +862,35 @@ public class AnalyticsService {
             parameters.put("categoryId", categoryId);
         }
     }
+
+    /**
+     * Обработчик отзывов, получаемых по одному из {@link #forEachProductReview}.
+     */
+    @FunctionalInterface
+    public interface ReviewConsumer {
+        void accept(ReviewDto review) throws IOException;
+    }
+
+    /**
+     * Источник данных для дашборда, выбирается свойством {@code analytics.dashboard.source}.
+     */
+    public enum DashboardSource {
+        /** Предагрегированная дневная витрина {@code review_daily_rollup}. */
+        ROLLUP("rollup"),
+        /** Один потоковый проход по таблицам отзывов для всех разделов сразу. */
+        SINGLE_PASS("single-pass"),
+        /** Отдельный запрос к таблицам отзывов на каждый раздел дашборда. */
+        RAW("raw");
+
+        private final String metricName;
+
+        DashboardSource(String metricName) {
+            this.metricName = metricName;
+        }
+
+        /** Значение тега {@code source} в метриках. */
+        public String getMetricName() {
+            return metricName;
+        }
+    }
 }
@@ -0,0 +1,46 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.entity.Criterion;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA-слушатель сущности {@link Criterion}: сбрасывает {@link CriterionWeightCache}
+ * при любом изменении критерия. Сброс повторяется после коммита, чтобы кэш,
+ * перечитанный до фиксации транзакции, не остался со старыми данными.
+ * Кэш получается через {@link ObjectProvider}, так как слушатель создается
+ * вместе с EntityManagerFactory, от которой зависит сам кэш.
+ */
+@Component
+public class CriterionChangeListener {
+
+    private final ObjectProvider<CriterionWeightCache> criterionWeightCache;
+
+    public CriterionChangeListener(ObjectProvider<CriterionWeightCache> criterionWeightCache) {
+        this.criterionWeightCache = criterionWeightCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onCriterionChanged(Criterion criterion) {
+        CriterionWeightCache cache = criterionWeightCache.getIfAvailable();
+        if (cache == null) {
+            return;
+        }
+        cache.invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate();
+                }
+            });
+        }
+    }
+}
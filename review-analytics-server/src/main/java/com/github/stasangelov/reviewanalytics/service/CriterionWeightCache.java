@@ -0,0 +1,147 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.exception.ResourceNotFoundException;
+import com.github.stasangelov.reviewanalytics.repository.CriterionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш справочника критериев в памяти: id → (название, вес).
+ * Используется при расчете интегрального рейтинга и при формировании DTO отзывов,
+ * чтобы не обращаться к БД за каждым критерием.
+ * <p>
+ * Кэш версионирован: {@link #invalidate()} повышает версию, и при следующем чтении
+ * справочник целиком перечитывается из БД. Запрос неизвестного id приводит к одному
+ * перечитыванию без смены версии (критерий мог быть добавлен в обход приложения);
+ * если id не найден и после него, он запоминается как отсутствующий до следующей инвалидации,
+ * поэтому повторные запросы с несуществующими id не перечитывают справочник.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CriterionWeightCache {
+
+    /**
+     * Сколько отсутствующих id запоминается в рамках одной версии. Дальше неизвестные id
+     * сразу считаются отсутствующими, чтобы перебор id не перечитывал справочник без конца.
+     */
+    private static final int MAX_MISSING_IDS = 10_000;
+
+    private final CriterionRepository criterionRepository;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(-1, Map.of(), ConcurrentHashMap.newKeySet());
+
+    /**
+     * Возвращает данные критерия по id.
+     * @throws ResourceNotFoundException если критерий не найден и после перечитывания справочника.
+     */
+    public CriterionInfo get(Long criterionId) {
+        Snapshot current = current();
+        CriterionInfo info = current.getCriteria().get(criterionId);
+        if (info == null && !current.getMissing().contains(criterionId)
+                && current.getMissing().size() < MAX_MISSING_IDS) {
+            current = reloadMissing(current);
+            info = current.getCriteria().get(criterionId);
+            if (info == null) {
+                current.getMissing().add(criterionId);
+            }
+        }
+        if (info == null) {
+            throw new ResourceNotFoundException("Критерий с id " + criterionId + " не найден");
+        }
+        return info;
+    }
+
+    public double getWeight(Long criterionId) {
+        return get(criterionId).getWeight();
+    }
+
+    public String getName(Long criterionId) {
+        return get(criterionId).getName();
+    }
+
+    /**
+     * Помечает кэш устаревшим. Справочник будет перечитан при следующем обращении.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return current.getVersion() == version.get() ? current : reload();
+    }
+
+    /**
+     * Перечитывает справочник. Снимок помечается версией, прочитанной до запроса,
+     * поэтому инвалидация во время загрузки приведет к повторному перечитыванию.
+     */
+    private synchronized Snapshot reload() {
+        long targetVersion = version.get();
+        if (snapshot.getVersion() == targetVersion) {
+            return snapshot;
+        }
+        Map<Long, CriterionInfo> criteria = loadCriteria();
+        snapshot = new Snapshot(targetVersion, criteria, ConcurrentHashMap.newKeySet());
+        log.debug("Справочник критериев загружен в кэш: {} записей, версия {}", criteria.size(), targetVersion);
+        return snapshot;
+    }
+
+    /**
+     * Перечитывает справочник после промаха по снимку {@code seen}, не меняя версию: читатели
+     * известных критериев продолжают работать со старым снимком и не ждут загрузки.
+     * Если снимок уже заменен другим потоком, повторная загрузка не выполняется.
+     * Запомненные отсутствующие id переносятся в новый снимок.
+     */
+    private synchronized Snapshot reloadMissing(Snapshot seen) {
+        if (snapshot != seen) {
+            return current();
+        }
+        Map<Long, CriterionInfo> criteria = loadCriteria();
+        Set<Long> missing = ConcurrentHashMap.newKeySet();
+        seen.getMissing().stream().filter(id -> !criteria.containsKey(id)).forEach(missing::add);
+        snapshot = new Snapshot(seen.getVersion(), criteria, missing);
+        log.debug("Справочник критериев перечитан после промаха: {} записей, версия {}", criteria.size(), seen.getVersion());
+        return snapshot;
+    }
+
+    private Map<Long, CriterionInfo> loadCriteria() {
+        return criterionRepository.findAll().stream()
+                .map(c -> new CriterionInfo(c.getId(), c.getName(), c.getWeight()))
+                .collect(Collectors.toUnmodifiableMap(CriterionInfo::getId, Function.identity()));
+    }
+
+    /**
+     * Неизменяемые данные одного критерия.
+     */
+    @Value
+    public static class CriterionInfo {
+        Long id;
+        String name;
+        double weight;
+    }
+
+    /**
+     * Справочник одной версии и id, которых в нем нет (проверено перечитыванием).
+     */
+    @Value
+    private static class Snapshot {
+        long version;
+        Map<Long, CriterionInfo> criteria;
+        Set<Long> missing;
+    }
+}
@@ -0,0 +1,269 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.live.DashboardDeltaDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.live.DistributionDeltaDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.live.DynamicsDeltaDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.live.ProductDeltaDto;
+import com.github.stasangelov.reviewanalytics.event.ReviewChangedEvent;
+import com.github.stasangelov.reviewanalytics.exception.ServiceBusyException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Рассылка изменений дашборда подписчикам по Server-Sent Events.
+ * <p>
+ * Клиент подписывается с теми же фильтрами, с которыми загрузил дашборд, и вместо периодической
+ * перезагрузки получает после каждого зафиксированного изменения отзыва компактную дельту:
+ * приращения KPI, агрегатов затронутых товаров, точки динамики и счетчиков распределения.
+ * Дельта строится из вклада отзыва до и после изменения ({@link ReviewChangedEvent}) один раз
+ * на набор фильтров, без запросов к БД; отправка выполняется в отдельном потоке,
+ * чтобы медленные клиенты не задерживали запросы на запись.
+ * Подписки хранятся в памяти и не переживают перезапуск — клиент переподключается и перезагружает данные.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DashboardLiveUpdateService {
+
+    private final CriterionWeightCache criterionWeightCache;
+
+    @Value("${analytics.live.max-subscribers:200}")
+    private int maxSubscribers;
+
+    @Value("${analytics.live.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${analytics.live.heartbeat:15s}")
+    private Duration heartbeat;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService sender =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("dashboard-live-"));
+
+    @PostConstruct
+    void init() {
+        // Комментарий-пульс не дает прокси закрыть простаивающее соединение и выявляет отключившихся клиентов
+        sender.scheduleWithFixedDelay(this::sendHeartbeat,
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sender.shutdownNow();
+        subscriptions.forEach(subscription -> subscription.getEmitter().complete());
+        subscriptions.clear();
+    }
+
+    //================================================================================
+    // Подписка
+    //================================================================================
+
+    /**
+     * Регистрирует подписчика на изменения дашборда с указанными фильтрами.
+     *
+     * @param granularity Гранулярность графика динамики; {@code null} — по длительности периода, как в дашборде.
+     * @throws ServiceBusyException если достигнут предел {@code analytics.live.max-subscribers}.
+     */
+    public SseEmitter subscribe(LocalDate startDate, LocalDate endDate, Long categoryId, DynamicsGranularity granularity) {
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new ServiceBusyException("Достигнуто максимальное количество подписок на обновления дашборда");
+        }
+        AnalyticsResultCache.FilterKey key = AnalyticsResultCache.FilterKey.of(AnalyticsResultCache.Kind.DASHBOARD,
+                startDate, endDate, categoryId, new DynamicsOptions(granularity, 0));
+        Subscription subscription = new Subscription(key,
+                key.getDynamics().resolveGranularity(startDate, endDate), new SseEmitter(timeout.toMillis()));
+
+        SseEmitter emitter = subscription.getEmitter();
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+        try {
+            emitter.send(SseEmitter.event().comment("connected"));
+        } catch (IOException e) {
+            subscriptions.remove(subscription);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    //================================================================================
+    // Рассылка изменений
+    //================================================================================
+
+    /**
+     * Передает изменение отзыва подписчикам после фиксации транзакции.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        if (subscriptions.isEmpty() || (event.getPrevious() == null && event.getCurrent() == null)) {
+            return;
+        }
+        try {
+            sender.execute(() -> publish(event));
+        } catch (RejectedExecutionException e) {
+            log.debug("Рассылка изменений дашборда остановлена, отзыв {} пропущен", event.getReviewId());
+        }
+    }
+
+    private void publish(ReviewChangedEvent event) {
+        Map<AnalyticsResultCache.FilterKey, DashboardDeltaDto> deltas = new HashMap<>();
+        for (Subscription subscription : subscriptions) {
+            AnalyticsResultCache.FilterKey key = subscription.getKey();
+            if (!deltas.containsKey(key)) {
+                deltas.put(key, buildDeltaSafely(event, subscription));
+            }
+            DashboardDeltaDto delta = deltas.get(key);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                subscription.getEmitter().send(SseEmitter.event().name("delta").data(delta));
+            } catch (IOException | IllegalStateException e) {
+                // Клиент отключился: соединение закрывается, подписка удаляется
+                subscriptions.remove(subscription);
+                subscription.getEmitter().completeWithError(e);
+            }
+        }
+    }
+
+    private DashboardDeltaDto buildDeltaSafely(ReviewChangedEvent event, Subscription subscription) {
+        try {
+            return buildDelta(event, subscription.getKey(), subscription.getGranularity(), criterionWeightCache::getName);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось построить изменение дашборда для отзыва {}", event.getReviewId(), e);
+            return null;
+        }
+    }
+
+    private void sendHeartbeat() {
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.getEmitter().send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                subscriptions.remove(subscription);
+                subscription.getEmitter().completeWithError(e);
+            }
+        }
+    }
+
+    /**
+     * Строит дельту дашборда для фильтров подписки: вклад до изменения вычитается, после — прибавляется.
+     *
+     * @return Дельта или {@code null}, если изменение не затрагивает данные, видимые с этими фильтрами.
+     */
+    static DashboardDeltaDto buildDelta(ReviewChangedEvent event, AnalyticsResultCache.FilterKey key,
+                                        DynamicsGranularity granularity, Function<Long, String> criterionNames) {
+        DeltaAccumulator accumulator = new DeltaAccumulator(granularity, criterionNames);
+        accumulator.add(event.getPrevious(), key, -1);
+        accumulator.add(event.getCurrent(), key, 1);
+        return accumulator.toDto(event.getReviewId());
+    }
+
+    /**
+     * Сумма вкладов отзыва; нулевые приращения (например, при правке текста) отбрасываются.
+     */
+    private static class DeltaAccumulator {
+        private final DynamicsGranularity granularity;
+        private final Function<Long, String> criterionNames;
+
+        private long reviewCount;
+        private long ratingCount;
+        private double ratingSum;
+        /** Ключ — товар, значение — {отзывы, рейтинги, сумма рейтингов}. */
+        private final Map<Long, double[]> products = new LinkedHashMap<>();
+        /** Ключ — начало периода, значение — {рейтинги, сумма рейтингов}. */
+        private final Map<LocalDate, double[]> dynamics = new TreeMap<>();
+        /** Ключ — {критерий, оценка}. */
+        private final Map<Map.Entry<Long, Integer>, Long> distribution = new LinkedHashMap<>();
+
+        DeltaAccumulator(DynamicsGranularity granularity, Function<Long, String> criterionNames) {
+            this.granularity = granularity;
+            this.criterionNames = criterionNames;
+        }
+
+        void add(ReviewRollupService.Contribution contribution, AnalyticsResultCache.FilterKey key, int sign) {
+            if (contribution == null || !key.covers(contribution.getCategoryId(), contribution.getDay())) {
+                return;
+            }
+            reviewCount += sign;
+            double[] product = products.computeIfAbsent(contribution.getProductId(), id -> new double[3]);
+            product[0] += sign;
+            if (contribution.getIntegralRating() != null) {
+                double rating = contribution.getIntegralRating();
+                ratingCount += sign;
+                ratingSum += sign * rating;
+                product[1] += sign;
+                product[2] += sign * rating;
+                double[] bucket = dynamics.computeIfAbsent(granularity.bucketStart(contribution.getDay()), d -> new double[2]);
+                bucket[0] += sign;
+                bucket[1] += sign * rating;
+            }
+            if (contribution.getRatings() != null) {
+                contribution.getRatings().forEach((criterionId, rating) ->
+                        distribution.merge(Map.entry(criterionId, rating), (long) sign, Long::sum));
+            }
+        }
+
+        DashboardDeltaDto toDto(Long reviewId) {
+            DashboardDeltaDto dto = new DashboardDeltaDto();
+            dto.setReviewId(reviewId);
+            dto.setReviewCountDelta(reviewCount);
+            dto.setRatingCountDelta(ratingCount);
+            dto.setRatingSumDelta(ratingSum);
+            products.forEach((productId, acc) -> {
+                if (acc[0] != 0 || acc[1] != 0 || acc[2] != 0) {
+                    dto.getProducts().add(new ProductDeltaDto(productId, (long) acc[0], (long) acc[1], acc[2]));
+                }
+            });
+            dynamics.forEach((date, acc) -> {
+                if (acc[0] != 0 || acc[1] != 0) {
+                    dto.getDynamics().add(new DynamicsDeltaDto(date, (long) acc[0], acc[1]));
+                }
+            });
+            distribution.forEach((entry, count) -> {
+                if (count != 0) {
+                    dto.getDistribution().add(new DistributionDeltaDto(
+                            criterionNames.apply(entry.getKey()), entry.getValue(), count));
+                }
+            });
+            boolean empty = reviewCount == 0 && ratingCount == 0 && ratingSum == 0
+                    && dto.getProducts().isEmpty() && dto.getDynamics().isEmpty() && dto.getDistribution().isEmpty();
+            return empty ? null : dto;
+        }
+    }
+
+    /**
+     * Подписчик и его фильтры. Гранулярность динамики определяется ключом,
+     * поэтому подписки с одинаковым ключом получают одну и ту же дельту.
+     */
+    @lombok.Value
+    private static class Subscription {
+        AnalyticsResultCache.FilterKey key;
+        DynamicsGranularity granularity;
+        SseEmitter emitter;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Гранулярность графика динамики рейтинга. Задается в запросе явно или выбирается адаптивно
+ * по длительности периода; дневные агрегаты укрупняются до недель, месяцев и кварталов на стороне Java.
+ */
+public enum DynamicsGranularity {
+    DAY,
+    WEEK,
+    MONTH,
+    QUARTER;
+
+    /**
+     * Длительность периода по умолчанию, если границы дат не заданы.
+     */
+    private static final long DEFAULT_PERIOD_DAYS = 90;
+
+    /**
+     * Выбирает гранулярность по границам периода (начало включительно, конец исключительно).
+     */
+    public static DynamicsGranularity forPeriod(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        long daysBetween = DEFAULT_PERIOD_DAYS;
+        if (startDateTime != null && endDateTime != null) {
+            daysBetween = ChronoUnit.DAYS.between(startDateTime, endDateTime);
+        }
+        if (daysBetween <= 15) {
+            return DAY;
+        } else if (daysBetween <= 60) {
+            return WEEK;
+        }
+        return MONTH;
+    }
+
+    /**
+     * Выбирает гранулярность по включительным границам дат.
+     */
+    public static DynamicsGranularity forPeriod(LocalDate startDate, LocalDate endDate) {
+        return forPeriod(startDate != null ? startDate.atStartOfDay() : null,
+                endDate != null ? endDate.plusDays(1).atStartOfDay() : null);
+    }
+
+    /**
+     * Возвращает дату начала периода, в который попадает день: сам день,
+     * понедельник его недели, первое число месяца или квартала.
+     */
+    public LocalDate bucketStart(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(DayOfWeek.MONDAY);
+            case MONTH -> day.withDayOfMonth(1);
+            case QUARTER -> LocalDate.of(day.getYear(), (day.getMonthValue() - 1) / 3 * 3 + 1, 1);
+        };
+    }
+
+    /**
+     * Возвращает начало следующего периода по началу текущего.
+     */
+    public LocalDate nextBucketStart(LocalDate bucketStart) {
+        return switch (this) {
+            case DAY -> bucketStart.plusDays(1);
+            case WEEK -> bucketStart.plusWeeks(1);
+            case MONTH -> bucketStart.plusMonths(1);
+            case QUARTER -> bucketStart.plusMonths(3);
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Параметры графика динамики рейтинга, задаваемые в запросе дашборда.
+ */
+@Value
+public class DynamicsOptions {
+
+    /**
+     * Адаптивная гранулярность без скользящего среднего.
+     */
+    public static final DynamicsOptions DEFAULT = new DynamicsOptions(null, 0);
+
+    /**
+     * Наибольшее окно скользящего среднего в периодах.
+     */
+    public static final int MAX_MOVING_AVERAGE_WINDOW = 366;
+
+    /** Гранулярность; {@code null} — выбирается по длительности периода. */
+    DynamicsGranularity granularity;
+    /** Окно скользящего среднего в периодах; 0 или 1 — не считается. */
+    int movingAverageWindow;
+
+    /**
+     * Гранулярность, с которой строится график для указанного периода.
+     */
+    public DynamicsGranularity resolveGranularity(LocalDate startDate, LocalDate endDate) {
+        return granularity != null ? granularity : DynamicsGranularity.forPeriod(startDate, endDate);
+    }
+}
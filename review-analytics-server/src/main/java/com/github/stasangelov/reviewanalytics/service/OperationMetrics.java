@@ -0,0 +1,162 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Метрики Micrometer для аналитики, записи отзывов и PDF-отчетов.
+ * <p>
+ * Каждая операция записывается таймером с тегом {@code outcome} (success/error), а число возвращенных
+ * строк — отдельной метрикой {@code *.rows}. Запросы с фильтрами дополнительно размечаются формой фильтра
+ * ({@link FilterShape}): корзиной длины периода и наличием категории, — чтобы медленные случаи
+ * группировались по форме запроса, а не по конкретным датам. Запросы репозиториев Spring Data
+ * учитываются автоматически метрикой {@code spring.data.repository.invocations}.
+ */
+@Component
+@RequiredArgsConstructor
+public class OperationMetrics {
+
+    private static final String DASHBOARD = "analytics.dashboard";
+    private static final String SECTION = "analytics.section";
+    private static final String PRODUCT_QUERY = "analytics.product";
+    private static final String REVIEW_WRITE = "reviews.write";
+    private static final String PDF_RENDER = "reports.pdf.render";
+    private static final String PDF_SIZE = "reports.pdf.size";
+    private static final String EXPORT_JOB = "reports.export.job";
+    private static final String EXPORT_QUEUE_WAIT = "reports.export.queue.wait";
+
+    private final MeterRegistry registry;
+
+    //================================================================================
+    // Аналитика
+    //================================================================================
+
+    /**
+     * Засекает сборку дашборда целиком для указанного источника данных.
+     */
+    public <T> T dashboard(String source, FilterShape shape, Supplier<T> body) {
+        return time(DASHBOARD, shape.tags().and("source", source), body, null);
+    }
+
+    /**
+     * Засекает один раздел дашборда или сводки товаров и записывает число возвращенных строк.
+     */
+    public <T> T section(String section, String source, FilterShape shape, Supplier<T> query, ToLongFunction<? super T> rows) {
+        return time(SECTION, shape.tags().and("section", section, "source", source), query, rows);
+    }
+
+    /**
+     * Засекает запрос по отдельным товарам (детализация, сравнение) и записывает число возвращенных строк.
+     */
+    public <T> T productQuery(String query, Supplier<T> body, ToLongFunction<? super T> rows) {
+        return time(PRODUCT_QUERY, Tags.of("query", query), body, rows);
+    }
+
+    //================================================================================
+    // Запись отзывов и отчеты
+    //================================================================================
+
+    /**
+     * Засекает операцию записи отзыва (создание, изменение, модерация).
+     */
+    public <T> T reviewWrite(String operation, Supplier<T> write) {
+        return time(REVIEW_WRITE, Tags.of("operation", operation), write, null);
+    }
+
+    /**
+     * Записывает время построения PDF-документа и его размер; {@code bytes < 0} — размер неизвестен.
+     */
+    public void recordPdfRender(String type, long nanos, boolean success, long bytes) {
+        Tags tags = Tags.of("type", type);
+        Timer.builder(PDF_RENDER).tags(tags.and("outcome", outcome(success)))
+                .register(registry).record(nanos, TimeUnit.NANOSECONDS);
+        if (success && bytes >= 0) {
+            DistributionSummary.builder(PDF_SIZE).baseUnit("bytes").tags(tags).register(registry).record(bytes);
+        }
+    }
+
+    /**
+     * Записывает фоновую задачу отчета: ожидание в очереди и время выполнения до итогового статуса.
+     */
+    public void recordExportJob(String type, String priority, String status, long queuedNanos, long runNanos) {
+        Tags tags = Tags.of("type", type, "priority", priority);
+        Timer.builder(EXPORT_QUEUE_WAIT).tags(tags).register(registry).record(queuedNanos, TimeUnit.NANOSECONDS);
+        Timer.builder(EXPORT_JOB).tags(tags.and("status", status)).register(registry).record(runNanos, TimeUnit.NANOSECONDS);
+    }
+
+    //================================================================================
+    // Вспомогательные методы
+    //================================================================================
+
+    private <T> T time(String name, Tags tags, Supplier<T> body, ToLongFunction<? super T> rows) {
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = body.get();
+            success = true;
+            if (rows != null && result != null) {
+                DistributionSummary.builder(name + ".rows").baseUnit("rows").tags(tags).register(registry)
+                        .record(rows.applyAsLong(result));
+            }
+            return result;
+        } finally {
+            Timer.builder(name).tags(tags.and("outcome", outcome(success))).register(registry)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "error";
+    }
+
+    /**
+     * Форма фильтра: корзина длины периода и наличие категории.
+     * Корзины периода: {@code all} (без дат), {@code open} (задана одна граница), {@code 1d}, {@code 7d},
+     * {@code 31d}, {@code 92d}, {@code 366d} (не длиннее указанного) и {@code longer}.
+     */
+    @Value
+    public static class FilterShape {
+
+        private static final long[] RANGE_BUCKETS = {1, 7, 31, 92, 366};
+
+        String range;
+        boolean category;
+
+        /**
+         * Форма фильтра для включительного периода дат.
+         */
+        public static FilterShape of(LocalDate startDate, LocalDate endDate, Long categoryId) {
+            String range;
+            if (startDate == null && endDate == null) {
+                range = "all";
+            } else if (startDate == null || endDate == null) {
+                range = "open";
+            } else {
+                long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+                range = "longer";
+                for (long bucket : RANGE_BUCKETS) {
+                    if (days <= bucket) {
+                        range = bucket + "d";
+                        break;
+                    }
+                }
+            }
+            return new FilterShape(range, categoryId != null);
+        }
+
+        Tags tags() {
+            return Tags.of("range", range, "category", String.valueOf(category));
+        }
+    }
+}
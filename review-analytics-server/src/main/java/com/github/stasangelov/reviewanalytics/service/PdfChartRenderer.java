@@ -0,0 +1,395 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Рисует графики отчетов векторной графикой PDF прямо из данных, без снимков с клиента.
+ * Каждый график вписывается в прямоугольник с левым нижним углом (x, y); подписи осей
+ * и легенда размещаются внутри этого прямоугольника.
+ * Экземпляр привязан к одному потоку вывода страницы и не потокобезопасен.
+ */
+class PdfChartRenderer {
+
+    private static final Color[] PALETTE = {
+            new Color(0x4E79A7), new Color(0xF28E2B), new Color(0x59A14F), new Color(0xE15759),
+            new Color(0x76B7B2), new Color(0xEDC948), new Color(0xB07AA1), new Color(0xFF9DA7),
+            new Color(0x9C755F), new Color(0xBAB0AC)
+    };
+    /** Цвета оценок 1..5 для графика распределения: от красного к зеленому. */
+    private static final Color[] RATING_COLORS = {
+            new Color(0xD7191C), new Color(0xFDAE61), new Color(0xFFDF6B), new Color(0xA6D96A), new Color(0x1A9641)
+    };
+    private static final Color GRID_COLOR = new Color(0xDDDDDD);
+    private static final Color AXIS_COLOR = new Color(0x666666);
+
+    private static final float LABEL_FONT_SIZE = 8;
+    private static final float LEGEND_FONT_SIZE = 9;
+    private static final float Y_AXIS_WIDTH = 30;
+    private static final float X_AXIS_HEIGHT = 20;
+    private static final float LEGEND_ROW_HEIGHT = 14;
+
+    private final PDPageContentStream stream;
+    private final PDType0Font font;
+    private final PdfFontRegistry.PdfFont metrics;
+
+    PdfChartRenderer(PDPageContentStream stream, PDType0Font font, PdfFontRegistry.PdfFont metrics) {
+        this.stream = stream;
+        this.font = font;
+        this.metrics = metrics;
+    }
+
+    //================================================================================
+    // Типы графиков
+    //================================================================================
+
+    /**
+     * Столбчатый график: один столбец на значение.
+     */
+    void drawBarChart(float x, float y, float width, float height,
+                      List<String> labels, List<Double> values, double maxValue) throws IOException {
+        float plotX = x + Y_AXIS_WIDTH;
+        float plotY = y + X_AXIS_HEIGHT;
+        float plotWidth = width - Y_AXIS_WIDTH;
+        float plotHeight = height - X_AXIS_HEIGHT;
+        drawValueAxis(plotX, plotY, plotWidth, plotHeight, maxValue);
+
+        if (labels.isEmpty()) {
+            return;
+        }
+        float slot = plotWidth / labels.size();
+        float barWidth = slot * 0.6f;
+        stream.setNonStrokingColor(PALETTE[0]);
+        for (int i = 0; i < values.size(); i++) {
+            double value = values.get(i) != null ? values.get(i) : 0;
+            float barHeight = (float) (value / maxValue) * plotHeight;
+            stream.addRect(plotX + slot * i + (slot - barWidth) / 2, plotY, barWidth, barHeight);
+        }
+        stream.fill();
+        drawCategoryLabels(plotX, y, slot, labels);
+    }
+
+    /**
+     * Линейный график с маркерами точек.
+     */
+    void drawLineChart(float x, float y, float width, float height,
+                       List<String> labels, List<Double> values, double maxValue) throws IOException {
+        float plotX = x + Y_AXIS_WIDTH;
+        float plotY = y + X_AXIS_HEIGHT;
+        float plotWidth = width - Y_AXIS_WIDTH;
+        float plotHeight = height - X_AXIS_HEIGHT;
+        drawValueAxis(plotX, plotY, plotWidth, plotHeight, maxValue);
+
+        if (labels.isEmpty()) {
+            return;
+        }
+        float slot = plotWidth / labels.size();
+        stream.setStrokingColor(PALETTE[0]);
+        stream.setLineWidth(1.5f);
+        for (int i = 0; i < values.size(); i++) {
+            float pointX = plotX + slot * i + slot / 2;
+            float pointY = plotY + (float) (nullToZero(values.get(i)) / maxValue) * plotHeight;
+            if (i == 0) {
+                stream.moveTo(pointX, pointY);
+            } else {
+                stream.lineTo(pointX, pointY);
+            }
+        }
+        stream.stroke();
+
+        stream.setNonStrokingColor(PALETTE[0]);
+        for (int i = 0; i < values.size(); i++) {
+            float pointX = plotX + slot * i + slot / 2;
+            float pointY = plotY + (float) (nullToZero(values.get(i)) / maxValue) * plotHeight;
+            stream.addRect(pointX - 1.5f, pointY - 1.5f, 3, 3);
+        }
+        stream.fill();
+        drawCategoryLabels(plotX, y, slot, labels);
+    }
+
+    /**
+     * График распределения оценок: для каждой категории столбец из пяти сегментов (оценки 1..5).
+     *
+     * @param counts Количества оценок 1..5 для каждой категории.
+     */
+    void drawRatingDistributionChart(float x, float y, float width, float height,
+                                     List<String> labels, List<long[]> counts) throws IOException {
+        float legendHeight = LEGEND_ROW_HEIGHT + 4;
+        drawLegend(x + Y_AXIS_WIDTH, y, List.of("1", "2", "3", "4", "5"), RATING_COLORS);
+
+        long maxTotal = 0;
+        for (long[] row : counts) {
+            long total = 0;
+            for (long count : row) {
+                total += count;
+            }
+            maxTotal = Math.max(maxTotal, total);
+        }
+        double axisMax = niceMax(maxTotal);
+
+        float plotX = x + Y_AXIS_WIDTH;
+        float plotY = y + legendHeight + X_AXIS_HEIGHT;
+        float plotWidth = width - Y_AXIS_WIDTH;
+        float plotHeight = height - legendHeight - X_AXIS_HEIGHT;
+        drawValueAxis(plotX, plotY, plotWidth, plotHeight, axisMax);
+
+        if (labels.isEmpty()) {
+            return;
+        }
+        float slot = plotWidth / labels.size();
+        float barWidth = slot * 0.6f;
+        for (int rating = 0; rating < RATING_COLORS.length; rating++) {
+            stream.setNonStrokingColor(RATING_COLORS[rating]);
+            boolean hasSegments = false;
+            for (int i = 0; i < counts.size(); i++) {
+                long below = 0;
+                for (int r = 0; r < rating; r++) {
+                    below += counts.get(i)[r];
+                }
+                float segmentY = plotY + (float) (below / axisMax) * plotHeight;
+                float segmentHeight = (float) (counts.get(i)[rating] / axisMax) * plotHeight;
+                if (segmentHeight > 0) {
+                    stream.addRect(plotX + slot * i + (slot - barWidth) / 2, segmentY, barWidth, segmentHeight);
+                    hasSegments = true;
+                }
+            }
+            if (hasSegments) {
+                stream.fill();
+            }
+        }
+        drawCategoryLabels(plotX, y + legendHeight, slot, labels);
+    }
+
+    /**
+     * Лепестковый график: по одной оси на критерий, по одному многоугольнику на ряд.
+     * При одном ряде легенда не выводится.
+     */
+    void drawRadarChart(float x, float y, float width, float height, List<String> axes,
+                        List<String> seriesNames, List<List<Double>> series, double maxValue) throws IOException {
+        // Меньше трех осей не образуют многоугольник — такой профиль нагляднее столбцами
+        if (axes.size() < 3) {
+            drawBarChart(x, y, width, height, axes, series.isEmpty() ? List.of() : series.get(0), maxValue);
+            return;
+        }
+
+        float legendHeight = 0;
+        if (series.size() > 1) {
+            legendHeight = drawLegend(x, y, seriesNames, PALETTE) + 4;
+        }
+
+        float centerX = x + width / 2;
+        float centerY = y + legendHeight + (height - legendHeight) / 2;
+        // Место под подписи осей по краям
+        float radius = Math.min(width / 2 - 60, (height - legendHeight) / 2 - 2 * LABEL_FONT_SIZE);
+        int n = axes.size();
+
+        // Сетка: многоугольники на каждом целом делении и оси
+        stream.setStrokingColor(GRID_COLOR);
+        stream.setLineWidth(0.5f);
+        int rings = (int) Math.round(maxValue);
+        for (int ring = 1; ring <= rings; ring++) {
+            float r = radius * ring / rings;
+            for (int i = 0; i <= n; i++) {
+                float[] point = radarPoint(centerX, centerY, r, i % n, n);
+                if (i == 0) {
+                    stream.moveTo(point[0], point[1]);
+                } else {
+                    stream.lineTo(point[0], point[1]);
+                }
+            }
+            stream.stroke();
+        }
+        for (int i = 0; i < n; i++) {
+            float[] point = radarPoint(centerX, centerY, radius, i, n);
+            stream.moveTo(centerX, centerY);
+            stream.lineTo(point[0], point[1]);
+        }
+        stream.stroke();
+
+        // Подписи осей
+        for (int i = 0; i < n; i++) {
+            float[] point = radarPoint(centerX, centerY, radius + 6, i, n);
+            String label = fitText(axes.get(i), 110, LABEL_FONT_SIZE);
+            float labelWidth = metrics.getStringWidth(label, LABEL_FONT_SIZE);
+            float labelX;
+            if (Math.abs(point[0] - centerX) < 1) {
+                labelX = point[0] - labelWidth / 2;
+            } else if (point[0] < centerX) {
+                labelX = point[0] - labelWidth;
+            } else {
+                labelX = point[0];
+            }
+            float labelY = point[1] < centerY ? point[1] - LABEL_FONT_SIZE : point[1];
+            drawText(label, labelX, labelY, LABEL_FONT_SIZE, Color.BLACK);
+        }
+
+        // Ряды
+        stream.setLineWidth(1.5f);
+        for (int s = 0; s < series.size(); s++) {
+            List<Double> values = series.get(s);
+            stream.setStrokingColor(PALETTE[s % PALETTE.length]);
+            for (int i = 0; i <= n; i++) {
+                double value = nullToZero(values.get(i % n));
+                float[] point = radarPoint(centerX, centerY, (float) (value / maxValue) * radius, i % n, n);
+                if (i == 0) {
+                    stream.moveTo(point[0], point[1]);
+                } else {
+                    stream.lineTo(point[0], point[1]);
+                }
+            }
+            stream.closeAndStroke();
+        }
+        stream.setStrokingColor(Color.BLACK);
+    }
+
+    //================================================================================
+    // Оси, подписи и легенда
+    //================================================================================
+
+    /**
+     * Рисует горизонтальную сетку с подписями значений и оси области построения.
+     */
+    private void drawValueAxis(float plotX, float plotY, float plotWidth, float plotHeight, double maxValue) throws IOException {
+        double step = niceStep(maxValue);
+        stream.setStrokingColor(GRID_COLOR);
+        stream.setLineWidth(0.5f);
+        for (double value = step; value <= maxValue + step / 2; value += step) {
+            float lineY = plotY + (float) (value / maxValue) * plotHeight;
+            stream.moveTo(plotX, lineY);
+            stream.lineTo(plotX + plotWidth, lineY);
+        }
+        stream.stroke();
+
+        for (double value = 0; value <= maxValue + step / 2; value += step) {
+            float lineY = plotY + (float) (value / maxValue) * plotHeight;
+            String label = formatAxisValue(value, step);
+            float labelWidth = metrics.getStringWidth(label, LABEL_FONT_SIZE);
+            drawText(label, plotX - labelWidth - 4, lineY - LABEL_FONT_SIZE / 3, LABEL_FONT_SIZE, AXIS_COLOR);
+        }
+
+        stream.setStrokingColor(AXIS_COLOR);
+        stream.moveTo(plotX, plotY + plotHeight);
+        stream.lineTo(plotX, plotY);
+        stream.lineTo(plotX + plotWidth, plotY);
+        stream.stroke();
+        stream.setStrokingColor(Color.BLACK);
+    }
+
+    /**
+     * Подписывает категории под осью X. Если подписи не помещаются, выводится каждая k-я,
+     * а слишком длинные обрезаются.
+     */
+    private void drawCategoryLabels(float plotX, float y, float slot, List<String> labels) throws IOException {
+        float widest = 0;
+        for (String label : labels) {
+            widest = Math.max(widest, metrics.getStringWidth(label, LABEL_FONT_SIZE));
+        }
+        // Короткие подписи (даты) прореживаем, длинные (названия) обрезаем по ширине столбца
+        int every = 1;
+        float maxLabelWidth = slot - 2;
+        if (widest > maxLabelWidth && widest < 80) {
+            every = (int) Math.ceil((widest + 4) / slot);
+            maxLabelWidth = slot * every - 4;
+        }
+        for (int i = 0; i < labels.size(); i += every) {
+            String label = fitText(labels.get(i), maxLabelWidth, LABEL_FONT_SIZE);
+            float labelWidth = metrics.getStringWidth(label, LABEL_FONT_SIZE);
+            drawText(label, plotX + slot * i + (slot - labelWidth) / 2, y + X_AXIS_HEIGHT - LABEL_FONT_SIZE - 4,
+                    LABEL_FONT_SIZE, Color.BLACK);
+        }
+    }
+
+    /**
+     * Рисует легенду в одну или несколько строк, начиная снизу от (x, y).
+     * Возвращает занятую высоту.
+     */
+    private float drawLegend(float x, float y, List<String> names, Color[] colors) throws IOException {
+        final float maxRowWidth = 495;
+        float itemX = x;
+        float rowY = y;
+        for (int i = 0; i < names.size(); i++) {
+            String name = fitText(names.get(i), 150, LEGEND_FONT_SIZE);
+            float itemWidth = 14 + metrics.getStringWidth(name, LEGEND_FONT_SIZE) + 12;
+            if (itemX > x && itemX + itemWidth > x + maxRowWidth) {
+                itemX = x;
+                rowY += LEGEND_ROW_HEIGHT;
+            }
+            stream.setNonStrokingColor(colors[i % colors.length]);
+            stream.addRect(itemX, rowY + 2, 9, 9);
+            stream.fill();
+            drawText(name, itemX + 14, rowY + 3, LEGEND_FONT_SIZE, Color.BLACK);
+            itemX += itemWidth;
+        }
+        return rowY - y + LEGEND_ROW_HEIGHT;
+    }
+
+    private void drawText(String text, float x, float y, float fontSize, Color color) throws IOException {
+        stream.setNonStrokingColor(color);
+        stream.beginText();
+        stream.setFont(font, fontSize);
+        stream.newLineAtOffset(x, y);
+        stream.showText(text);
+        stream.endText();
+        stream.setNonStrokingColor(Color.BLACK);
+    }
+
+    /**
+     * Обрезает подпись с многоточием, чтобы она поместилась в заданную ширину.
+     */
+    private String fitText(String text, float maxWidth, float fontSize) {
+        if (text == null) {
+            return "";
+        }
+        if (metrics.getStringWidth(text, fontSize) <= maxWidth) {
+            return text;
+        }
+        int end = text.length();
+        while (end > 1 && metrics.getStringWidth(text.substring(0, end) + "…", fontSize) > maxWidth) {
+            end--;
+        }
+        return text.substring(0, end) + "…";
+    }
+
+    private static float[] radarPoint(float centerX, float centerY, float radius, int index, int count) {
+        // Первая ось смотрит вверх, остальные идут по часовой стрелке
+        double angle = Math.PI / 2 - 2 * Math.PI * index / count;
+        return new float[]{centerX + (float) (radius * Math.cos(angle)), centerY + (float) (radius * Math.sin(angle))};
+    }
+
+    /**
+     * Шаг делений оси: 1, 2 или 5, умноженные на степень десяти, примерно пять делений на ось.
+     */
+    private static double niceStep(double maxValue) {
+        if (maxValue <= 0) {
+            return 1;
+        }
+        double rough = maxValue / 5;
+        double magnitude = Math.pow(10, Math.floor(Math.log10(rough)));
+        double residual = rough / magnitude;
+        double nice = residual <= 1 ? 1 : residual <= 2 ? 2 : residual <= 5 ? 5 : 10;
+        return nice * magnitude;
+    }
+
+    /**
+     * Округляет максимум оси вверх до целого числа делений.
+     */
+    static double niceMax(double maxValue) {
+        if (maxValue <= 0) {
+            return 1;
+        }
+        double step = niceStep(maxValue);
+        return Math.ceil(maxValue / step) * step;
+    }
+
+    private static String formatAxisValue(double value, double step) {
+        return step >= 1 ? String.valueOf(Math.round(value)) : String.format("%.1f", value);
+    }
+
+    private static double nullToZero(Double value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Реестр шрифтов для PDF-отчетов. Файлы TTF разбираются один раз при старте приложения,
+ * а разобранные шрифты и таблицы ширин глифов используются всеми документами только на чтение.
+ * В документ шрифт встраивается через {@link PdfFont#embedInto}, без повторного разбора файла.
+ */
+@Component
+public class PdfFontRegistry {
+
+    private static final String FONT_PATH = "fonts/DejaVuSans.ttf";
+    private static final String FONT_BOLD_PATH = "fonts/DejaVuSans-Bold.ttf";
+
+    /**
+     * Сколько различных строк запоминается при измерении ширины текста.
+     */
+    private static final int WIDTH_CACHE_SIZE = 10_000;
+
+    private final PdfFont regular;
+    private final PdfFont bold;
+
+    public PdfFontRegistry() throws IOException {
+        this.regular = new PdfFont(FONT_PATH);
+        this.bold = new PdfFont(FONT_BOLD_PATH);
+    }
+
+    public PdfFont getRegular() {
+        return regular;
+    }
+
+    public PdfFont getBold() {
+        return bold;
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        regular.ttf.close();
+        bold.ttf.close();
+    }
+
+    /**
+     * Разобранный шрифт с предрассчитанной таблицей ширин глифов и кэшем ширин строк.
+     * Потокобезопасен: после конструктора состояние не меняется, кроме кэша ширин.
+     */
+    public static class PdfFont {
+
+        private final TrueTypeFont ttf;
+        private final CmapLookup cmap;
+        /** Ширина каждого глифа в единицах PDF (1/1000 размера шрифта). */
+        private final float[] glyphWidths;
+        private final Cache<String, Float> widthCache = Caffeine.newBuilder()
+                .maximumSize(WIDTH_CACHE_SIZE)
+                .build();
+
+        private PdfFont(String path) throws IOException {
+            try (InputStream fontStream = PdfFontRegistry.class.getClassLoader().getResourceAsStream(path)) {
+                if (fontStream == null) {
+                    throw new IOException("Не удалось найти файлы шрифтов в ресурсах.");
+                }
+                // Файл целиком читается в память, поэтому документы не держат собственных потоков к нему
+                this.ttf = new TTFParser().parse(fontStream);
+            }
+            // Таблицы читаются лениво: загружаем все, что нужно для встраивания, пока шрифт еще не общий
+            ttf.getHeader();
+            ttf.getHorizontalHeader();
+            ttf.getMaximumProfile();
+            ttf.getOS2Windows();
+            ttf.getPostScript();
+            ttf.getNaming();
+            ttf.getIndexToLocation();
+            ttf.getGlyph();
+            this.cmap = ttf.getUnicodeCmapLookup();
+
+            float scale = 1000f / ttf.getUnitsPerEm();
+            this.glyphWidths = new float[ttf.getNumberOfGlyphs()];
+            for (int gid = 0; gid < glyphWidths.length; gid++) {
+                glyphWidths[gid] = ttf.getAdvanceWidth(gid) * scale;
+            }
+        }
+
+        /**
+         * Встраивает шрифт (подмножество используемых глифов) в документ.
+         * Общий разобранный шрифт при этом не копируется и не закрывается вместе с документом.
+         */
+        public PDType0Font embedInto(PDDocument document) throws IOException {
+            return PDType0Font.load(document, ttf, true);
+        }
+
+        /**
+         * Возвращает ширину строки в пунктах для заданного размера шрифта.
+         */
+        public float getStringWidth(String text, float fontSize) {
+            return widthCache.get(text, this::measure) / 1000 * fontSize;
+        }
+
+        private float measure(String text) {
+            float width = 0;
+            for (int i = 0; i < text.length(); ) {
+                int codePoint = text.codePointAt(i);
+                int gid = cmap.getGlyphId(codePoint);
+                // Символ без глифа выводится как .notdef (глиф 0)
+                width += glyphWidths[gid < glyphWidths.length ? gid : 0];
+                i += Character.charCount(codePoint);
+            }
+            return width;
+        }
+    }
+}
@@ -3,48 +3,159 @@ package com.github.stasangelov.reviewanalytics.service;
 import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
 import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.CriteriaProfileDto;
 import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.DashboardDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.RatingDistributionDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.RatingDynamicDto;
 import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewDto;
 import com.github.stasangelov.reviewanalytics.dto.review.ReviewRatingDto;
+import com.github.stasangelov.reviewanalytics.exception.ServiceBusyException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType0Font;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
  * Сервис, отвечающий за генерацию PDF-отчетов.
  * Использует библиотеку Apache PDFBox для создания документов,
- * вставки текста, таблиц и изображений (снимков графиков с клиента).
+ * вставки текста, таблиц и графиков. Графики рисуются векторно по данным отчета
+ * ({@link PdfChartRenderer}); снимки графиков с клиента необязательны и, если переданы,
+ * вставляются как изображения.
+ * <p>
+ * Шрифты разбираются один раз ({@link PdfFontRegistry}), а все, что относится к конкретному
+ * документу, хранится в его {@link RenderContext}, поэтому сервис можно вызывать параллельно.
+ * Сами отчеты строятся в ограниченном пуле потоков по числу ядер: при заполненной очереди
+ * запрос отклоняется с {@link ServiceBusyException}, а не занимает процессор наравне с остальными.
+ * Фоновые задачи {@link ReportExportService} уже выполняются в собственном ограниченном пуле
+ * и строят документы в своем потоке, минуя пул генерации.
  */
+@Slf4j
 @Service
 public class PdfGenerationService {
 
-    private PDType0Font font;
-    private PDType0Font fontBold;
+    // Параметры таблиц
+    private static final float TABLE_ROW_HEIGHT = 20f;
+    private static final float TABLE_CELL_MARGIN = 5f;
+    private static final int TABLE_HEADER_FONT_SIZE = 9;
+    private static final int TABLE_CELL_FONT_SIZE = 10;
+
+    // Параметры векторных графиков
+    private static final double MAX_RATING = 5.0;
+    private static final float CHART_HEIGHT = 320f;
+    private static final float COMPARISON_CHART_HEIGHT = 480f;
+
+    private final PdfFontRegistry fontRegistry;
+
+    /**
+     * Объем оперативной памяти на один документ при потоковой выгрузке;
+     * все, что больше, PDFBox хранит во временном файле.
+     */
+    private final DataSize maxMainMemory;
+
+    private final ThreadPoolExecutor renderPool;
+    private final OperationMetrics operationMetrics;
+
+    /**
+     * @param renderThreads       Число потоков генерации; 0 — по числу доступных ядер.
+     * @param renderQueueCapacity Сколько отчетов может ожидать свободного потока.
+     */
+    public PdfGenerationService(
+            PdfFontRegistry fontRegistry,
+            @Value("${analytics.pdf.max-main-memory:16MB}") DataSize maxMainMemory,
+            @Value("${analytics.pdf.render-threads:0}") int renderThreads,
+            @Value("${analytics.pdf.render-queue-capacity:64}") int renderQueueCapacity,
+            OperationMetrics operationMetrics) {
+        this.fontRegistry = fontRegistry;
+        this.maxMainMemory = maxMainMemory;
+        this.operationMetrics = operationMetrics;
+        int poolSize = renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors();
+        this.renderPool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(renderQueueCapacity), new CustomizableThreadFactory("pdf-render-"));
+        log.info("Генерация PDF: {} потоков, очередь {}", poolSize, renderQueueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderPool.shutdownNow();
+    }
 
     /**
-     * Загружает кастомные шрифты с поддержкой кириллицы из ресурсов.
+     * Строит документ в пуле генерации и возвращает его содержимое.
+     * Вызывающий поток ждет результата, но сам документ не строит.
+     * Время построения (без ожидания свободного потока) и размер документа записываются в метрики.
+     *
+     * @param type Тип отчета для тега {@code type} метрик.
      */
-    private void loadFonts(PDDocument document) throws IOException {
-        try (InputStream fontStream = getClass().getClassLoader().getResourceAsStream("fonts/DejaVuSans.ttf");
-             InputStream fontBoldStream = getClass().getClassLoader().getResourceAsStream("fonts/DejaVuSans-Bold.ttf")) {
-            if (fontStream == null || fontBoldStream == null) {
-                throw new IOException("Не удалось найти файлы шрифтов в ресурсах.");
+    private byte[] render(String type, RenderTask task) throws IOException {
+        Future<byte[]> future;
+        try {
+            future = renderPool.submit(() -> {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                write(type, task, content);
+                return content.toByteArray();
+            });
+        } catch (RejectedExecutionException e) {
+            throw new ServiceBusyException("Слишком много отчетов формируется одновременно. Повторите попытку позже.");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Формирование отчета прервано");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
             }
-            this.font = PDType0Font.load(document, fontStream);
-            this.fontBold = PDType0Font.load(document, fontBoldStream);
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Строит документ в вызывающем потоке и записывает его в {@code output}.
+     * Время построения и размер документа записываются в метрики.
+     */
+    private void write(String type, RenderTask task, OutputStream output) throws IOException {
+        long started = System.nanoTime();
+        boolean success = false;
+        CountingOutputStream counted = new CountingOutputStream(output);
+        try (PDDocument document = new PDDocument()) {
+            task.render(new RenderContext(document, fontRegistry));
+            document.save(counted);
+            success = true;
+        } finally {
+            operationMetrics.recordPdfRender(type, System.nanoTime() - started, success, success ? counted.count : -1);
         }
     }
 
@@ -52,8 +163,23 @@ public class PdfGenerationService {
      * Создает многостраничный PDF-отчет для главной информационной панели.
      */
     public byte[] generateDashboardPdf(DashboardDto data, Map<String, byte[]> chartImages) throws IOException {
-        try (PDDocument document = new PDDocument()) {
-            loadFonts(document);
+        return render("dashboard", dashboardTask(data, chartImages));
+    }
+
+    /**
+     * Записывает PDF-отчет главной информационной панели в {@code output}, строя его в вызывающем потоке.
+     * Для фоновых задач: ожидание пула генерации заняло бы поток задачи, а при заполненной
+     * очереди пула уже принятая задача завершилась бы ошибкой.
+     */
+    void writeDashboardPdf(DashboardDto data, Map<String, byte[]> chartImages, OutputStream output) throws IOException {
+        write("dashboard", dashboardTask(data, chartImages), output);
+    }
+
+    private RenderTask dashboardTask(DashboardDto data, Map<String, byte[]> chartImages) {
+        return context -> {
+            PDDocument document = context.document;
+            PDType0Font font = context.font;
+            PDType0Font fontBold = context.fontBold;
             PDPage page = new PDPage(PDRectangle.A4);
             document.addPage(page);
             PDPageContentStream contentStream = new PDPageContentStream(document, page);
@@ -78,40 +204,84 @@ public class PdfGenerationService {
             yPosition -= 30;
 
             // --- Таблицы Топ/Худших товаров ---
-            yPosition = drawTable(document, contentStream, margin, yPosition, "Топ-5 лучших товаров",
+            yPosition = drawTable(context, contentStream, margin, yPosition, "Топ-5 лучших товаров",
                     List.of("Название товара", "Средний рейтинг"),
                     data.getTopRatedProducts().stream().map(p -> List.of(p.getProductName(), String.format("%.2f", p.getAverageRating()))).collect(Collectors.toList()),
                     new float[]{0.75f, 0.25f});
             yPosition -= 20;
-            yPosition = drawTable(document, contentStream, margin, yPosition, "Топ-5 худших товаров",
+            yPosition = drawTable(context, contentStream, margin, yPosition, "Топ-5 худших товаров",
                     List.of("Название товара", "Средний рейтинг"),
                     data.getWorstRatedProducts().stream().map(p -> List.of(p.getProductName(), String.format("%.2f", p.getAverageRating()))).collect(Collectors.toList()),
                     new float[]{0.75f, 0.25f});
 
-            // --- Вставка изображений графиков ---
+            // --- Графики ---
             contentStream.close(); // Закрываем текущий поток перед добавлением новых страниц/изображений
 
-            // Добавляем каждый график на новой странице для наглядности
-            if (chartImages.get("categoryChart") != null) {
-                addChartToNewPage(document, "Средний рейтинг по категориям/брендам", chartImages.get("categoryChart"));
-            }
-            if (chartImages.get("dynamicsChart") != null) {
-                addChartToNewPage(document, "Динамика среднего рейтинга", chartImages.get("dynamicsChart"));
-            }
-            if (chartImages.get("distributionChart") != null) {
-                addChartToNewPage(document, "Распределение оценок по критериям", chartImages.get("distributionChart"));
+            // Каждый график на новой странице. Снимок с клиента используется, если он передан,
+            // иначе график рисуется векторно по данным дашборда
+            List<String> groupLabels = new ArrayList<>();
+            List<Double> groupValues = new ArrayList<>();
+            if (data.getBrandRatings() != null) {
+                data.getBrandRatings().forEach(b -> {
+                    groupLabels.add(b.getBrandName());
+                    groupValues.add(b.getAverageRating());
+                });
+            } else if (data.getCategoryRatings() != null) {
+                data.getCategoryRatings().forEach(c -> {
+                    groupLabels.add(c.getCategoryName());
+                    groupValues.add(c.getAverageRating());
+                });
             }
+            addChartPage(context, "Средний рейтинг по категориям/брендам", chartImages.get("categoryChart"),
+                    (chart, x, y, w, h) -> chart.drawBarChart(x, y, w, h, groupLabels, groupValues, MAX_RATING));
+
+            List<RatingDynamicDto> dynamics = data.getRatingDynamics() != null ? data.getRatingDynamics() : List.of();
+            DateTimeFormatter dayFormat = DateTimeFormatter.ofPattern("dd.MM.yy");
+            addChartPage(context, "Динамика среднего рейтинга", chartImages.get("dynamicsChart"),
+                    (chart, x, y, w, h) -> chart.drawLineChart(x, y, w, h,
+                            dynamics.stream().map(d -> d.getDate().format(dayFormat)).collect(Collectors.toList()),
+                            dynamics.stream().map(RatingDynamicDto::getAverageRating).collect(Collectors.toList()),
+                            MAX_RATING));
+
+            List<RatingDistributionDto> distribution = data.getRatingDistribution() != null ? data.getRatingDistribution() : List.of();
+            addChartPage(context, "Распределение оценок по критериям", chartImages.get("distributionChart"),
+                    (chart, x, y, w, h) -> chart.drawRatingDistributionChart(x, y, w, h,
+                            distribution.stream().map(RatingDistributionDto::getCriterionName).collect(Collectors.toList()),
+                            distribution.stream().map(d -> new long[]{d.getRating1Count(), d.getRating2Count(),
+                                    d.getRating3Count(), d.getRating4Count(), d.getRating5Count()}).collect(Collectors.toList())));
+        };
+    }
 
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            document.save(byteArrayOutputStream);
-            return byteArrayOutputStream.toByteArray();
+    /**
+     * Добавляет страницу с графиком: вставляет снимок, если он передан клиентом,
+     * иначе рисует график векторно.
+     */
+    private void addChartPage(RenderContext context, String title, byte[] imageBytes, ChartDrawer drawer) throws IOException {
+        if (imageBytes != null) {
+            addChartToNewPage(context, title, imageBytes);
+            return;
+        }
+        PDPage page = new PDPage(PDRectangle.A4);
+        context.document.addPage(page);
+
+        try (PDPageContentStream contentStream = new PDPageContentStream(context.document, page)) {
+            float margin = 50;
+            float yPosition = 750;
+
+            addText(contentStream, context.fontBold, 16, margin, yPosition, title);
+            yPosition -= 30;
+
+            float width = page.getMediaBox().getWidth() - 2 * margin;
+            drawer.draw(new PdfChartRenderer(contentStream, context.font, context.metrics),
+                    margin, yPosition - CHART_HEIGHT, width, CHART_HEIGHT);
         }
     }
 
     /**
      * Создает новую страницу и вставляет на нее заголовок и изображение графика.
      */
-    private void addChartToNewPage(PDDocument document, String title, byte[] imageBytes) throws IOException {
+    private void addChartToNewPage(RenderContext context, String title, byte[] imageBytes) throws IOException {
+        PDDocument document = context.document;
         PDPage page = new PDPage(PDRectangle.A4);
         document.addPage(page);
         PDImageXObject pdImage = PDImageXObject.createFromByteArray(document, imageBytes, "chart");
@@ -120,7 +290,7 @@ public class PdfGenerationService {
             float margin = 50;
             float yPosition = 750;
 
-            addText(contentStream, fontBold, 16, margin, yPosition, title);
+            addText(contentStream, context.fontBold, 16, margin, yPosition, title);
             yPosition -= 30;
 
             // Масштабируем изображение, чтобы оно вписалось в страницу
@@ -148,19 +318,25 @@ public class PdfGenerationService {
      * Рисует таблицу с заголовком, многострочными заголовками колонок и данными.
      * Возвращает Y-координату после отрисовки таблицы.
      */
-    private float drawTable(PDDocument doc, PDPageContentStream stream, float x, float y, String title, List<String> headers, List<List<String>> data, float[] colWidths) throws IOException {
-        final PDPage page = doc.getPage(doc.getNumberOfPages() - 1);
-        float tableTopY = y;
-        final float rowHeight = 20f;
+    private float drawTable(RenderContext context, PDPageContentStream stream, float x, float y, String title, List<String> headers, List<List<String>> data, float[] colWidths) throws IOException {
+        final PDPage page = context.document.getPage(context.document.getNumberOfPages() - 1);
         final float tableWidth = page.getMediaBox().getWidth() - 2 * x;
-        final float cellMargin = 5f;
-        final int headerFontSize = 9;
-        final int cellFontSize = 10;
 
         // Заголовок
-        addText(stream, fontBold, 14, x, tableTopY, title);
-        tableTopY -= 30;
+        addText(stream, context.fontBold, 14, x, y, title);
 
+        float tableTopY = drawTableHeader(context, stream, x, y - 30, tableWidth, headers, colWidths);
+        for (List<String> row : data) {
+            tableTopY = drawTableRow(context, stream, x, tableTopY, tableWidth, row, colWidths);
+        }
+        return tableTopY;
+    }
+
+    /**
+     * Рисует строку заголовков колонок (с переносом и центрированием) и линию под ней.
+     * Возвращает Y-координату, с которой начинаются строки данных.
+     */
+    private float drawTableHeader(RenderContext context, PDPageContentStream stream, float x, float tableTopY, float tableWidth, List<String> headers, float[] colWidths) throws IOException {
         final float headerY = tableTopY - 15;
         float nextX = x;
         float maxHeaderHeight = 0;
@@ -168,10 +344,10 @@ public class PdfGenerationService {
         List<List<String>> wrappedHeaders = new ArrayList<>();
         for (int i = 0; i < headers.size(); i++) {
             float colWidth = tableWidth * colWidths[i];
-            List<String> lines = splitTextIntoLines(headers.get(i), font, headerFontSize, colWidth - 2 * cellMargin);
+            List<String> lines = splitTextIntoLines(headers.get(i), context.metrics, TABLE_HEADER_FONT_SIZE, colWidth - 2 * TABLE_CELL_MARGIN);
             wrappedHeaders.add(lines);
-            if (lines.size() * (headerFontSize + 2f) > maxHeaderHeight) {
-                maxHeaderHeight = lines.size() * (headerFontSize + 2f);
+            if (lines.size() * (TABLE_HEADER_FONT_SIZE + 2f) > maxHeaderHeight) {
+                maxHeaderHeight = lines.size() * (TABLE_HEADER_FONT_SIZE + 2f);
             }
         }
 
@@ -181,57 +357,71 @@ public class PdfGenerationService {
             List<String> lines = wrappedHeaders.get(i);
 
             // Вычисляем начальную Y-позицию, чтобы многострочный текст был отцентрирован по вертикали
-            float vAlignOffset = (maxHeaderHeight - (lines.size() * (headerFontSize + 2f))) / 2;
+            float vAlignOffset = (maxHeaderHeight - (lines.size() * (TABLE_HEADER_FONT_SIZE + 2f))) / 2;
 
-            // Вызываем новый метод для отрисовки с выравниванием
-            drawMultilineText(lines, stream, nextX, colWidth, headerY - vAlignOffset,
-                    headerFontSize + 2f, "center", font); // Используем обычный шрифт
+            drawMultilineText(context, lines, stream, nextX, colWidth, headerY - vAlignOffset,
+                    TABLE_HEADER_FONT_SIZE + 2f, "center");
 
             nextX += colWidth;
         }
 
         tableTopY -= maxHeaderHeight + 10;
 
-
         // Линии
         stream.setLineWidth(0.5f);
         stream.moveTo(x, tableTopY);
         stream.lineTo(x + tableWidth, tableTopY);
         stream.stroke();
-        tableTopY -= 5;
+        return tableTopY - 5;
+    }
 
-        // Данные (также с центрированием для оценок)
-        for (List<String> row : data) {
-            tableTopY -= rowHeight;
-            nextX = x;
-            for (int i = 0; i < row.size(); i++) {
-                float width = tableWidth * colWidths[i];
-                String text = row.get(i);
-
-                // Первую колонку (дату) оставляем слева, остальные центрируем
-                String align = (i > 0) ? "center" : "left";
-                float textWidth = font.getStringWidth(text) / 1000 * cellFontSize;
-                float textX = (align.equals("center")) ? nextX + (width - textWidth) / 2 : nextX + cellMargin;
-
-                addText(stream, font, cellFontSize, textX, tableTopY + (rowHeight / 2) - 5, text);
-                nextX += width;
-            }
-            stream.moveTo(x, tableTopY);
-            stream.lineTo(x + tableWidth, tableTopY);
-            stream.stroke();
+    /**
+     * Рисует одну строку данных таблицы и линию под ней. Возвращает Y-координату нижней границы строки.
+     */
+    private float drawTableRow(RenderContext context, PDPageContentStream stream, float x, float tableTopY, float tableWidth, List<String> row, float[] colWidths) throws IOException {
+        tableTopY -= TABLE_ROW_HEIGHT;
+        float nextX = x;
+        for (int i = 0; i < row.size(); i++) {
+            float width = tableWidth * colWidths[i];
+            String text = fitText(context, row.get(i), width - 2 * TABLE_CELL_MARGIN, TABLE_CELL_FONT_SIZE);
+
+            // Первую колонку (дату) оставляем слева, остальные центрируем
+            String align = (i > 0) ? "center" : "left";
+            float textWidth = context.metrics.getStringWidth(text, TABLE_CELL_FONT_SIZE);
+            float textX = (align.equals("center")) ? nextX + (width - textWidth) / 2 : nextX + TABLE_CELL_MARGIN;
+
+            addText(stream, context.font, TABLE_CELL_FONT_SIZE, textX, tableTopY + (TABLE_ROW_HEIGHT / 2) - 5, text);
+            nextX += width;
         }
+        stream.moveTo(x, tableTopY);
+        stream.lineTo(x + tableWidth, tableTopY);
+        stream.stroke();
         return tableTopY;
     }
 
+    /**
+     * Обрезает текст ячейки с многоточием, если он не помещается в колонку.
+     */
+    private String fitText(RenderContext context, String text, float maxWidth, int fontSize) {
+        if (context.metrics.getStringWidth(text, fontSize) <= maxWidth) {
+            return text;
+        }
+        int end = text.length();
+        while (end > 1 && context.metrics.getStringWidth(text.substring(0, end) + "…", fontSize) > maxWidth) {
+            end--;
+        }
+        return text.substring(0, end) + "…";
+    }
+
     /**
      * Рисует многострочный текст с заданным выравниванием внутри колонки.
      */
-    private void drawMultilineText(List<String> lines, PDPageContentStream stream, float x, float colWidth, float y, float leading, String align, PDType0Font font) throws IOException {
+    private void drawMultilineText(RenderContext context, List<String> lines, PDPageContentStream stream, float x, float colWidth, float y, float leading, String align) throws IOException {
         final int fontSize = 9; // Размер шрифта для заголовков
-        stream.setFont(font, fontSize);
+        stream.setFont(context.font, fontSize);
 
         for (String line : lines) {
-            float textWidth = font.getStringWidth(line) / 1000 * fontSize;
+            float textWidth = context.metrics.getStringWidth(line, fontSize);
             float textX;
 
             if ("center".equals(align)) {
@@ -250,8 +440,9 @@ public class PdfGenerationService {
 
     /**
      * Разбивает длинную строку на несколько строк, чтобы она поместилась в заданную ширину.
+     * Ширина измеряется по общей таблице ширин глифов с кэшем уже измеренных строк.
      */
-    private List<String> splitTextIntoLines(String text, PDType0Font font, int fontSize, float maxWidth) throws IOException {
+    private List<String> splitTextIntoLines(String text, PdfFontRegistry.PdfFont font, int fontSize, float maxWidth) {
         List<String> lines = new ArrayList<>();
         String[] words = text.split(" ");
         if (words.length == 0) {
@@ -260,7 +451,7 @@ public class PdfGenerationService {
 
         StringBuilder line = new StringBuilder(words[0]);
         for (int i = 1; i < words.length; i++) {
-            if (font.getStringWidth(line + " " + words[i]) / 1000 * fontSize > maxWidth) {
+            if (font.getStringWidth(line + " " + words[i], fontSize) > maxWidth) {
                 lines.add(line.toString());
                 line = new StringBuilder(words[i]);
             } else {
@@ -276,12 +467,43 @@ public class PdfGenerationService {
      * Создает многостраничный PDF-отчет для страницы детализации товара.
      */
     public byte[] generateProductDetailsPdf(ProductDetailsDto data, byte[] chartImage) throws IOException {
-        try (PDDocument document = new PDDocument()) {
-            loadFonts(document);
-            PDPage page = new PDPage(PDRectangle.A4);
-            document.addPage(page);
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
+        return render("product-details", context -> {
+            addProductSummaryPage(context, data, chartImage);
+
+            // --- Таблица отзывов на новой странице ---
+            if (data.getReviews() != null && !data.getReviews().isEmpty()) {
+                generateReviewsTablePage(context, data);
+            }
+        });
+    }
+
+    /**
+     * Открывает потоковую запись PDF-отчета по товару для товаров с любым количеством отзывов.
+     * Первая страница (KPI и график) формируется сразу, строки таблицы отзывов добавляются
+     * по одной через {@link ProductDetailsPdfWriter#addReview} и разбиваются на страницы.
+     * Документ держит в памяти не больше {@code analytics.pdf.max-main-memory}, остальное
+     * PDFBox выгружает во временный файл; {@link ProductDetailsPdfWriter#finish()} пишет
+     * готовый документ прямо в {@code output}. Документ строится в вызывающем потоке,
+     * так как строки отзывов поступают из курсора БД этого потока.
+     *
+     * @param summary Данные товара без списка отзывов (используются KPI и профиль критериев).
+     * @param chartImage Снимок графика профиля с клиента или {@code null}, чтобы нарисовать его на сервере.
+     */
+    public ProductDetailsPdfWriter openProductDetailsPdf(ProductDetailsDto summary, byte[] chartImage, OutputStream output) throws IOException {
+        return new ProductDetailsPdfWriter(summary, chartImage, output);
+    }
+
+    /**
+     * Добавляет первую страницу отчета по товару: заголовок, KPI и снимок графика профиля.
+     */
+    private void addProductSummaryPage(RenderContext context, ProductDetailsDto data, byte[] chartImage) throws IOException {
+        PDDocument document = context.document;
+        PDType0Font font = context.font;
+        PDType0Font fontBold = context.fontBold;
+        PDPage page = new PDPage(PDRectangle.A4);
+        document.addPage(page);
 
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
             float yPosition = 750;
             final float margin = 50;
             final float width = page.getMediaBox().getWidth() - 2 * margin;
@@ -310,76 +532,106 @@ public class PdfGenerationService {
             addText(contentStream, fontBold, 14, margin, yPosition, "Профиль сильных/слабых сторон");
             yPosition -= 15;
 
-            PDImageXObject pdImage = PDImageXObject.createFromByteArray(document, chartImage, "pie_chart");
-            float scale = width / pdImage.getWidth();
-            float imgWidth = pdImage.getWidth() * scale * 0.7f; // Уменьшим, чтобы не занимал всю ширину
-            float imgHeight = pdImage.getHeight() * scale * 0.7f;
-            contentStream.drawImage(pdImage, margin, yPosition - imgHeight, imgWidth, imgHeight);
-
-            contentStream.close(); // Завершаем работу с первой страницей
-
-            // --- Таблица отзывов на новой странице ---
-            if (data.getReviews() != null && !data.getReviews().isEmpty()) {
-                generateReviewsTablePage(document, data);
+            if (chartImage != null) {
+                PDImageXObject pdImage = PDImageXObject.createFromByteArray(document, chartImage, "pie_chart");
+                float scale = width / pdImage.getWidth();
+                float imgWidth = pdImage.getWidth() * scale * 0.7f; // Уменьшим, чтобы не занимал всю ширину
+                float imgHeight = pdImage.getHeight() * scale * 0.7f;
+                contentStream.drawImage(pdImage, margin, yPosition - imgHeight, imgWidth, imgHeight);
+            } else {
+                List<CriteriaProfileDto> profile = data.getCriteriaProfile();
+                new PdfChartRenderer(contentStream, font, context.metrics).drawRadarChart(
+                        margin, yPosition - CHART_HEIGHT, width, CHART_HEIGHT,
+                        profile.stream().map(CriteriaProfileDto::getCriterionName).collect(Collectors.toList()),
+                        List.of(data.getProductName()),
+                        List.of(profile.stream().map(CriteriaProfileDto::getAverageRating).collect(Collectors.toList())),
+                        MAX_RATING);
             }
-
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            document.save(byteArrayOutputStream);
-            return byteArrayOutputStream.toByteArray();
         }
     }
 
     /**
      * Создает страницу (альбомной ориентации) с таблицей всех отзывов на товар.
      */
-    private void generateReviewsTablePage(PDDocument document, ProductDetailsDto data) throws IOException {
+    private void generateReviewsTablePage(RenderContext context, ProductDetailsDto data) throws IOException {
         PDPage page = new PDPage(new PDRectangle(PDRectangle.A4.getHeight(), PDRectangle.A4.getWidth()));
-        document.addPage(page);
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+        context.document.addPage(page);
 
-            // Заголовки таблицы
-            List<String> headers = new java.util.ArrayList<>(List.of("Дата", "Рейтинг"));
-            List<String> criteriaNames = data.getCriteriaProfile().stream()
-                    .map(CriteriaProfileDto::getCriterionName)
+        try (PDPageContentStream contentStream = new PDPageContentStream(context.document, page)) {
+            List<String> criteriaNames = getCriteriaNames(data);
+            List<List<String>> tableData = data.getReviews().stream()
+                    .map(review -> toReviewRow(review, criteriaNames))
                     .collect(Collectors.toList());
-            headers.addAll(criteriaNames);
-
-            // Ширина колонок (2 статические + N динамических)
-            // Мы можем дать больше места дате и чуть меньше остальным
-            float[] colWidths = new float[headers.size()];
-            colWidths[0] = 0.15f; // Дата
-            colWidths[1] = 0.1f;  // Рейтинг
-            float remainingWidth = 0.75f / criteriaNames.size();
-            for (int i = 0; i < criteriaNames.size(); i++) {
-                colWidths[i + 2] = remainingWidth;
-            }
 
-            // Данные для таблицы
-            List<List<String>> tableData = data.getReviews().stream().map(review -> {
-                List<String> row = new java.util.ArrayList<>();
-                row.add(review.getDateCreated().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")));
-                row.add(String.format("%.2f", review.getIntegralRating()));
+            drawTable(context, contentStream, 50, 550, "Список отзывов по товару",
+                    getReviewTableHeaders(criteriaNames), tableData, getReviewTableColumnWidths(criteriaNames.size()));
+        }
+    }
 
-                Map<String, Integer> ratingsMap = review.getReviewRatings().stream()
-                        .collect(Collectors.toMap(ReviewRatingDto::getCriterionName, ReviewRatingDto::getRating));
+    private List<String> getCriteriaNames(ProductDetailsDto data) {
+        return data.getCriteriaProfile().stream()
+                .map(CriteriaProfileDto::getCriterionName)
+                .collect(Collectors.toList());
+    }
 
-                for (String criteriaName : criteriaNames) {
-                    row.add(ratingsMap.getOrDefault(criteriaName, 0).toString());
-                }
-                return row;
-            }).collect(Collectors.toList());
+    private List<String> getReviewTableHeaders(List<String> criteriaNames) {
+        List<String> headers = new ArrayList<>(List.of("Дата", "Рейтинг"));
+        headers.addAll(criteriaNames);
+        return headers;
+    }
 
-            drawTable(document, contentStream, 50, 550, "Список отзывов по товару", headers, tableData, colWidths);
+    /**
+     * Ширина колонок таблицы отзывов (2 статические + N динамических):
+     * больше места дате и чуть меньше остальным.
+     */
+    private float[] getReviewTableColumnWidths(int criteriaCount) {
+        float[] colWidths = new float[criteriaCount + 2];
+        colWidths[0] = 0.15f; // Дата
+        colWidths[1] = 0.1f;  // Рейтинг
+        float remainingWidth = 0.75f / criteriaCount;
+        for (int i = 0; i < criteriaCount; i++) {
+            colWidths[i + 2] = remainingWidth;
         }
+        return colWidths;
+    }
+
+    /**
+     * Формирует строку таблицы отзывов: дата, интегральный рейтинг и оценки по критериям.
+     */
+    private List<String> toReviewRow(ReviewDto review, List<String> criteriaNames) {
+        List<String> row = new ArrayList<>();
+        row.add(review.getDateCreated().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")));
+        row.add(review.getIntegralRating() != null ? String.format("%.2f", review.getIntegralRating()) : "-");
+
+        Map<String, Integer> ratingsMap = review.getReviewRatings().stream()
+                .collect(Collectors.toMap(ReviewRatingDto::getCriterionName, ReviewRatingDto::getRating));
+
+        for (String criteriaName : criteriaNames) {
+            row.add(ratingsMap.getOrDefault(criteriaName, 0).toString());
+        }
+        return row;
     }
 
     /**
      * Создает многостраничный PDF-отчет для страницы сравнения товаров.
      */
     public byte[] generateComparisonPdf(List<ComparisonDataDto> data, Map<String, byte[]> images) throws IOException {
-        try (PDDocument document = new PDDocument()) {
-            loadFonts(document);
+        return render("comparison", comparisonTask(data, images));
+    }
+
+    /**
+     * Записывает PDF-отчет сравнения товаров в {@code output}, строя его в вызывающем потоке
+     * (см. {@link #writeDashboardPdf}).
+     */
+    void writeComparisonPdf(List<ComparisonDataDto> data, Map<String, byte[]> images, OutputStream output) throws IOException {
+        write("comparison", comparisonTask(data, images), output);
+    }
+
+    private RenderTask comparisonTask(List<ComparisonDataDto> data, Map<String, byte[]> images) {
+        return context -> {
+            PDDocument document = context.document;
+            PDType0Font font = context.font;
+            PDType0Font fontBold = context.fontBold;
 
             PDPage chartPage = new PDPage(PDRectangle.A4);
             document.addPage(chartPage);
@@ -396,13 +648,28 @@ public class PdfGenerationService {
                 addText(contentStream, fontBold, 14, margin, yPosition, "Визуализация профилей");
                 yPosition -= 15;
 
-                byte[] chartImage = images.get("comparisonChart.png");
-                PDImageXObject pdImage = PDImageXObject.createFromByteArray(document, chartImage, "comparison_chart");
+                // Все критерии, встречающиеся у сравниваемых товаров, в порядке первого появления
+                List<String> criteria = data.stream()
+                        .flatMap(product -> product.getCriteriaProfile().stream())
+                        .map(CriteriaProfileDto::getCriterionName)
+                        .distinct()
+                        .collect(Collectors.toList());
+
                 float pageWidth = chartPage.getMediaBox().getWidth() - 2 * margin;
-                float scale = pageWidth / pdImage.getWidth();
-                float imgWidth = pdImage.getWidth() * scale;
-                float imgHeight = pdImage.getHeight() * scale;
-                contentStream.drawImage(pdImage, margin, yPosition - imgHeight, imgWidth, imgHeight);
+                byte[] chartImage = images.get("comparisonChart.png");
+                if (chartImage != null) {
+                    PDImageXObject pdImage = PDImageXObject.createFromByteArray(document, chartImage, "comparison_chart");
+                    float scale = pageWidth / pdImage.getWidth();
+                    float imgWidth = pdImage.getWidth() * scale;
+                    float imgHeight = pdImage.getHeight() * scale;
+                    contentStream.drawImage(pdImage, margin, yPosition - imgHeight, imgWidth, imgHeight);
+                } else {
+                    new PdfChartRenderer(contentStream, font, context.metrics).drawRadarChart(
+                            margin, yPosition - COMPARISON_CHART_HEIGHT, pageWidth, COMPARISON_CHART_HEIGHT, criteria,
+                            data.stream().map(ComparisonDataDto::getProductName).collect(Collectors.toList()),
+                            data.stream().map(product -> profileValues(product.getCriteriaProfile(), criteria)).collect(Collectors.toList()),
+                            MAX_RATING);
+                }
             }
 
             byte[] tableImage = images.get("comparisonTable.png");
@@ -424,11 +691,224 @@ public class PdfGenerationService {
                     float imgHeight = pdTableImage.getHeight() * scale;
                     contentStream.drawImage(pdTableImage, margin, yPosition - imgHeight, imgWidth, imgHeight);
                 }
+            } else {
+                drawComparisonTable(context, data);
+            }
+        };
+    }
+
+    /**
+     * Рисует таблицу сравнения (товары по строкам, критерии по колонкам) на альбомных страницах,
+     * повторяя строку заголовков на каждой странице.
+     */
+    private void drawComparisonTable(RenderContext context, List<ComparisonDataDto> data) throws IOException {
+        List<String> criteria = data.stream()
+                .flatMap(product -> product.getCriteriaProfile().stream())
+                .map(CriteriaProfileDto::getCriterionName)
+                .distinct()
+                .collect(Collectors.toList());
+        List<String> headers = new ArrayList<>(List.of("Товар"));
+        headers.addAll(criteria);
+        float[] colWidths = new float[criteria.size() + 1];
+        colWidths[0] = 0.3f;
+        for (int i = 0; i < criteria.size(); i++) {
+            colWidths[i + 1] = 0.7f / criteria.size();
+        }
+
+        final float margin = 50;
+        final float bottomY = 40;
+        PDPageContentStream contentStream = null;
+        float tableWidth = 0;
+        float yPosition = 0;
+        try {
+            for (int row = 0; row < data.size(); row++) {
+                if (contentStream == null || yPosition - TABLE_ROW_HEIGHT < bottomY) {
+                    if (contentStream != null) {
+                        contentStream.close();
+                    }
+                    PDPage page = new PDPage(new PDRectangle(PDRectangle.A4.getHeight(), PDRectangle.A4.getWidth()));
+                    context.document.addPage(page);
+                    contentStream = new PDPageContentStream(context.document, page);
+                    tableWidth = page.getMediaBox().getWidth() - 2 * margin;
+                    if (row == 0) {
+                        addText(contentStream, context.fontBold, 14, margin, 550, "Сравнение по критериям");
+                    }
+                    yPosition = drawTableHeader(context, contentStream, margin, 520, tableWidth, headers, colWidths);
+                }
+
+                ComparisonDataDto product = data.get(row);
+                List<String> cells = new ArrayList<>(List.of(product.getProductName()));
+                for (Double value : profileValues(product.getCriteriaProfile(), criteria)) {
+                    cells.add(value != null ? String.format("%.2f", value) : "-");
+                }
+                yPosition = drawTableRow(context, contentStream, margin, yPosition, tableWidth, cells, colWidths);
             }
+        } finally {
+            if (contentStream != null) {
+                contentStream.close();
+            }
+        }
+    }
+
+    /**
+     * Раскладывает профиль товара по заданному списку критериев; отсутствующие оценки — {@code null}.
+     */
+    private List<Double> profileValues(List<CriteriaProfileDto> profile, List<String> criteria) {
+        Map<String, Double> byName = new HashMap<>();
+        profile.forEach(p -> byName.put(p.getCriterionName(), p.getAverageRating()));
+        return criteria.stream().map(byName::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Потоковая запись PDF-отчета по товару. Таблица отзывов разбивается на альбомные страницы;
+     * каждая заполненная страница закрывается и больше не занимает оперативную память.
+     * Экземпляр рассчитан на один документ и не потокобезопасен.
+     */
+    public class ProductDetailsPdfWriter implements Closeable {
+
+        private static final float TABLE_MARGIN = 50;
+        private static final float TABLE_TOP_Y = 550;
+        private static final float TABLE_BOTTOM_Y = 40;
+
+        private final PDDocument document;
+        private final OutputStream output;
+        private final RenderContext context;
+        private final List<String> criteriaNames;
+        private final List<String> headers;
+        private final float[] colWidths;
+
+        private final long startedNanos = System.nanoTime();
+
+        private PDPageContentStream contentStream;
+        private float tableWidth;
+        private float yPosition;
+        private long rowCount;
+        private boolean finished;
+
+        private ProductDetailsPdfWriter(ProductDetailsDto summary, byte[] chartImage, OutputStream output) throws IOException {
+            this.output = output;
+            this.document = new PDDocument(MemoryUsageSetting.setupMixed(maxMainMemory.toBytes()));
+            try {
+                this.context = new RenderContext(document, fontRegistry);
+                addProductSummaryPage(context, summary, chartImage);
+            } catch (IOException | RuntimeException e) {
+                document.close();
+                throw e;
+            }
+            this.criteriaNames = getCriteriaNames(summary);
+            this.headers = getReviewTableHeaders(criteriaNames);
+            this.colWidths = getReviewTableColumnWidths(criteriaNames.size());
+        }
 
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            document.save(byteArrayOutputStream);
-            return byteArrayOutputStream.toByteArray();
+        /**
+         * Добавляет строку отзыва в таблицу, при необходимости начиная новую страницу.
+         */
+        public void addReview(ReviewDto review) throws IOException {
+            if (contentStream == null || yPosition - TABLE_ROW_HEIGHT < TABLE_BOTTOM_Y) {
+                startTablePage();
+            }
+            yPosition = drawTableRow(context, contentStream, TABLE_MARGIN, yPosition, tableWidth, toReviewRow(review, criteriaNames), colWidths);
+            rowCount++;
+        }
+
+        /**
+         * Завершает документ и записывает его в выходной поток.
+         */
+        public void finish() throws IOException {
+            closePage();
+            document.save(output);
+            finished = true;
+        }
+
+        /**
+         * Освобождает документ и записывает время выгрузки в метрики; размер потокового документа
+         * не измеряется, а выгрузка без {@link #finish()} считается неуспешной.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                closePage();
+            } finally {
+                document.close();
+                operationMetrics.recordPdfRender("product-details-stream", System.nanoTime() - startedNanos, finished, -1);
+            }
+        }
+
+        /**
+         * Начинает новую альбомную страницу таблицы. Заголовок таблицы выводится на первой
+         * странице, строка заголовков колонок — на каждой.
+         */
+        private void startTablePage() throws IOException {
+            closePage();
+            PDPage page = new PDPage(new PDRectangle(PDRectangle.A4.getHeight(), PDRectangle.A4.getWidth()));
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+            tableWidth = page.getMediaBox().getWidth() - 2 * TABLE_MARGIN;
+
+            float y = TABLE_TOP_Y;
+            if (rowCount == 0) {
+                addText(contentStream, context.fontBold, 14, TABLE_MARGIN, y, "Список отзывов по товару");
+            }
+            yPosition = drawTableHeader(context, contentStream, TABLE_MARGIN, y - 30, tableWidth, headers, colWidths);
         }
+
+        private void closePage() throws IOException {
+            if (contentStream != null) {
+                contentStream.close();
+                contentStream = null;
+            }
+        }
+    }
+
+    /**
+     * Состояние одного документа: сам документ и встроенные в него шрифты.
+     * Используется только потоком, который строит этот документ.
+     */
+    private static class RenderContext {
+        final PDDocument document;
+        final PDType0Font font;
+        final PDType0Font fontBold;
+        /** Метрики обычного шрифта для измерения ширины текста без обращения к документу. */
+        final PdfFontRegistry.PdfFont metrics;
+
+        RenderContext(PDDocument document, PdfFontRegistry fontRegistry) throws IOException {
+            this.document = document;
+            this.font = fontRegistry.getRegular().embedInto(document);
+            this.fontBold = fontRegistry.getBold().embedInto(document);
+            this.metrics = fontRegistry.getRegular();
+        }
+    }
+
+    /**
+     * Считает байты, записанные в поток: документ пишется прямо в выходной поток, минуя массив.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChartDrawer {
+        void draw(PdfChartRenderer chart, float x, float y, float width, float height) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RenderTask {
+        void render(RenderContext context) throws IOException;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import java.util.Arrays;
+
+/**
+ * Гистограмма рейтингов по шкале 1–5 с шагом 0.1 — объединяемый скетч квантилей.
+ * <p>
+ * Шкала рейтингов ограничена, поэтому вместо t-digest/KLL достаточно фиксированных корзин:
+ * 41 счетчик, слияние — сложение счетчиков, ошибка квантиля интегрального рейтинга не превышает
+ * половины шага (0.05), а для оценок критериев (целые 1–5) квантили точные.
+ * Строки {@code review_rating_histogram} хранят те же корзины по дням и товарам.
+ */
+public final class RatingHistogram {
+
+    public static final int BINS = 41;
+
+    private static final double MIN_RATING = 1.0;
+    private static final double BIN_WIDTH = 0.1;
+
+    private final long[] counts = new long[BINS];
+    private long total;
+
+    /**
+     * Номер корзины для рейтинга; значения вне шкалы прижимаются к краям.
+     * Совпадает с выражением {@code FLOOR((rating - 1) * 10 + 0.5)} в запросах перестройки.
+     */
+    public static int binOf(double rating) {
+        int bin = (int) Math.floor((rating - MIN_RATING) * 10 + 0.5);
+        return Math.max(0, Math.min(BINS - 1, bin));
+    }
+
+    /**
+     * Рейтинг, соответствующий центру корзины.
+     */
+    public static double valueOf(int bin) {
+        return Math.round((MIN_RATING + bin * BIN_WIDTH) * 10) / 10.0;
+    }
+
+    public void add(int bin, long count) {
+        counts[bin] += count;
+        total += count;
+    }
+
+    public RatingHistogram merge(RatingHistogram other) {
+        for (int bin = 0; bin < BINS; bin++) {
+            counts[bin] += other.counts[bin];
+        }
+        total += other.total;
+        return this;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Квантиль по ближайшему рангу: наименьшее значение, не меньше которого {@code q} доля рейтингов.
+     *
+     * @param q Уровень квантиля от 0 до 1.
+     * @return Значение квантиля или {@code null}, если гистограмма пуста.
+     */
+    public Double quantile(double q) {
+        if (total <= 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long cumulative = 0;
+        for (int bin = 0; bin < BINS; bin++) {
+            cumulative += counts[bin];
+            if (cumulative >= rank) {
+                return valueOf(bin);
+            }
+        }
+        return valueOf(BINS - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RatingHistogram" + Arrays.toString(counts);
+    }
+}
@@ -0,0 +1,286 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.review.RatingRecalculationStatusDto;
+import com.github.stasangelov.reviewanalytics.entity.RatingRecalculationJob;
+import com.github.stasangelov.reviewanalytics.exception.OperationConflictException;
+import com.github.stasangelov.reviewanalytics.repository.RatingRecalculationJobRepository;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarReviewStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Фоновый пересчет интегральных рейтингов отзывов.
+ * <p>
+ * Отзывы обрабатываются пачками по диапазонам id параллельно в нескольких рабочих потоках:
+ * строки пачки блокируются, оценки читаются одним запросом, рейтинги считаются по общему кэшу весов
+ * {@link CriterionWeightCache} и записываются пакетным UPDATE в собственной транзакции.
+ * После каждой пачки сохраняется контрольная точка {@link RatingRecalculationJob}, поэтому
+ * задача, прерванная остановкой приложения, продолжается при следующем запуске.
+ * Одновременно выполняется не более одной задачи.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RatingRecalculationService {
+
+    private static final String LOCK_CHUNK_SQL = "SELECT id FROM reviews WHERE id >= ? AND id < ? FOR UPDATE";
+    private static final String SELECT_CHUNK_SQL = "SELECT r.id, rr.criterion_id, rr.rating FROM reviews r " +
+            "LEFT JOIN review_ratings rr ON rr.review_id = r.id " +
+            "WHERE r.id >= ? AND r.id < ?";
+    private static final String MISSING_ONLY_CONDITION = " AND r.integral_rating IS NULL";
+    private static final String UPDATE_RATING_SQL = "UPDATE reviews SET integral_rating = ? WHERE id = ?";
+
+    private final RatingRecalculationJobRepository jobRepository;
+    private final ReviewService reviewService;
+    private final CriterionWeightCache criterionWeightCache;
+    private final ReviewRollupService reviewRollupService;
+    private final AnalyticsResultCache analyticsResultCache;
+    private final ColumnarReviewStore columnarReviewStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${reviews.recalc.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${reviews.recalc.threads:4}")
+    private int threads;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService coordinator =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("rating-recalc-"));
+    private ExecutorService workers;
+
+    @PostConstruct
+    void initWorkers() {
+        workers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("rating-recalc-worker-"));
+    }
+
+    /**
+     * Останавливает потоки. Незавершенная задача остается в статусе RUNNING
+     * и будет продолжена с контрольной точки при следующем запуске.
+     */
+    @PreDestroy
+    void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    //================================================================================
+    // Запуск задач
+    //================================================================================
+
+    /**
+     * После старта приложения в фоне продолжает прерванные задачи и досчитывает
+     * отзывы с незаполненным рейтингом. Старт приложения этого не ждет.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        coordinator.submit(() -> {
+            try {
+                for (RatingRecalculationJob interrupted : jobRepository.findByStatusOrderByIdAsc(RatingRecalculationJob.Status.RUNNING)) {
+                    log.info("Продолжение прерванного пересчета рейтингов #{} с id {}", interrupted.getId(), interrupted.getCompletedUpToId());
+                    execute(interrupted);
+                }
+                Boolean hasMissing = jdbcTemplate.queryForObject(
+                        "SELECT EXISTS(SELECT 1 FROM reviews WHERE integral_rating IS NULL)", Boolean.class);
+                if (Boolean.TRUE.equals(hasMissing)) {
+                    execute(createJob(RatingRecalculationJob.Mode.MISSING));
+                } else {
+                    log.info("Все интегральные рейтинги уже рассчитаны.");
+                }
+            } catch (RuntimeException e) {
+                log.error("Не удалось выполнить пересчет рейтингов при запуске", e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * Запускает пересчет в фоне и сразу возвращает состояние созданной задачи.
+     * @throws OperationConflictException если пересчет уже выполняется.
+     */
+    public RatingRecalculationStatusDto start(RatingRecalculationJob.Mode mode) {
+        if (!running.compareAndSet(false, true)) {
+            throw new OperationConflictException("Пересчет рейтингов уже выполняется");
+        }
+        RatingRecalculationJob job;
+        try {
+            job = createJob(mode);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        coordinator.submit(() -> {
+            try {
+                execute(job);
+            } finally {
+                running.set(false);
+            }
+        });
+        return toDto(job);
+    }
+
+    /**
+     * Возвращает состояние последней задачи пересчета, если она была.
+     */
+    public Optional<RatingRecalculationStatusDto> getLatestStatus() {
+        return jobRepository.findFirstByOrderByIdDesc().map(this::toDto);
+    }
+
+    //================================================================================
+    // Выполнение задачи
+    //================================================================================
+
+    private RatingRecalculationJob createJob(RatingRecalculationJob.Mode mode) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM reviews", Long.class);
+        RatingRecalculationJob job = new RatingRecalculationJob();
+        job.setMode(mode);
+        job.setStatus(RatingRecalculationJob.Status.RUNNING);
+        job.setMaxReviewId(maxId == null ? 0 : maxId);
+        job.setCompletedUpToId(0);
+        job.setStartedAt(LocalDateTime.now());
+        return jobRepository.save(job);
+    }
+
+    /**
+     * Выполняет задачу с ее контрольной точки. Пачки обрабатываются не по порядку,
+     * поэтому контрольная точка сдвигается только до первой незавершенной пачки.
+     */
+    private void execute(RatingRecalculationJob job) {
+        long startedAt = System.currentTimeMillis();
+        log.info("Пересчет рейтингов #{} ({}): отзывы с id {}..{}", job.getId(), job.getMode(),
+                job.getCompletedUpToId(), job.getMaxReviewId());
+
+        // Веса могли измениться в обход приложения — пересчет всегда идет по свежему справочнику
+        criterionWeightCache.invalidate();
+
+        CompletionService<long[]> completion = new ExecutorCompletionService<>(workers);
+        Map<Long, Long> completedChunks = new HashMap<>();
+        long end = job.getMaxReviewId() + 1;
+        long next = job.getCompletedUpToId();
+        long updated = 0;
+        int inFlight = 0;
+
+        try {
+            while (next < end || inFlight > 0) {
+                // Держим ограниченное число пачек в работе, чтобы не заполнять очередь всем диапазоном
+                while (next < end && inFlight < threads * 2) {
+                    long from = next;
+                    long to = Math.min(next + chunkSize, end);
+                    completion.submit(() -> new long[]{from, to, recalculateChunk(from, to, job.getMode())});
+                    next = to;
+                    inFlight++;
+                }
+
+                long[] done = completion.take().get();
+                inFlight--;
+                completedChunks.put(done[0], done[1]);
+                updated += done[2];
+
+                long watermark = job.getCompletedUpToId();
+                while (completedChunks.containsKey(watermark)) {
+                    watermark = completedChunks.remove(watermark);
+                }
+                job.setCompletedUpToId(watermark);
+                job.setProcessedReviews(job.getProcessedReviews() + done[2]);
+                jobRepository.save(job);
+            }
+
+            if (updated > 0) {
+                // Интегральные рейтинги входят в витрину и закэшированные дашборды
+                reviewRollupService.rebuild();
+                analyticsResultCache.invalidateAll();
+                columnarReviewStore.reload();
+            }
+            job.setStatus(RatingRecalculationJob.Status.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            jobRepository.save(job);
+            log.info("Пересчет рейтингов #{} завершен: обновлено {} отзывов за {} мс",
+                    job.getId(), updated, System.currentTimeMillis() - startedAt);
+        } catch (InterruptedException e) {
+            // Остановка приложения: задача остается RUNNING и продолжится с контрольной точки
+            Thread.currentThread().interrupt();
+            log.warn("Пересчет рейтингов #{} прерван на id {}", job.getId(), job.getCompletedUpToId());
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            if (coordinator.isShutdown()) {
+                // Пачка упала из-за прерывания рабочего потока при остановке — это не ошибка задачи
+                log.warn("Пересчет рейтингов #{} прерван на id {}", job.getId(), job.getCompletedUpToId());
+                return;
+            }
+            log.error("Пересчет рейтингов #{} завершился ошибкой", job.getId(), cause);
+            job.setStatus(RatingRecalculationJob.Status.FAILED);
+            job.setFinishedAt(LocalDateTime.now());
+            job.setErrorMessage(String.valueOf(cause.getMessage()));
+            jobRepository.save(job);
+        }
+    }
+
+    /**
+     * Пересчитывает рейтинги отзывов с id из [fromId, toId) в отдельной транзакции.
+     * Возвращает количество обновленных отзывов.
+     * <p>
+     * Строки пачки в {@code reviews} сначала блокируются: редактирование отзыва, уже изменившее
+     * строку, дожидается здесь своего коммита, а начатое позже ждет конца пачки и перезаписывает
+     * рейтинг своим значением. Оценки читаются после блокировки, поэтому снимок транзакции
+     * (в InnoDB он создается первым неблокирующим чтением) уже содержит зафиксированные правки.
+     */
+    private long recalculateChunk(long fromId, long toId, RatingRecalculationJob.Mode mode) {
+        String sql = mode == RatingRecalculationJob.Mode.MISSING ? SELECT_CHUNK_SQL + MISSING_ONLY_CONDITION : SELECT_CHUNK_SQL;
+        Long updated = transactionTemplate.execute(status -> {
+            jdbcTemplate.query(LOCK_CHUNK_SQL, (RowCallbackHandler) rs -> { }, fromId, toId);
+            Map<Long, Map<Long, Integer>> ratingsByReview = new LinkedHashMap<>();
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                Map<Long, Integer> ratings = ratingsByReview.computeIfAbsent(rs.getLong(1), id -> new HashMap<>());
+                long criterionId = rs.getLong(2);
+                // У отзыва без оценок LEFT JOIN вернет одну строку с NULL
+                if (!rs.wasNull()) {
+                    ratings.put(criterionId, rs.getInt(3));
+                }
+            }, fromId, toId);
+            if (ratingsByReview.isEmpty()) {
+                return 0L;
+            }
+
+            List<Object[]> updates = new ArrayList<>(ratingsByReview.size());
+            ratingsByReview.forEach((reviewId, ratings) ->
+                    updates.add(new Object[]{reviewService.calculateIntegralRating(ratings), reviewId}));
+            jdbcTemplate.batchUpdate(UPDATE_RATING_SQL, updates);
+            return (long) updates.size();
+        });
+        return updated == null ? 0 : updated;
+    }
+
+    private RatingRecalculationStatusDto toDto(RatingRecalculationJob job) {
+        RatingRecalculationStatusDto dto = new RatingRecalculationStatusDto();
+        dto.setId(job.getId());
+        dto.setMode(job.getMode().name());
+        dto.setStatus(job.getStatus().name());
+        dto.setMaxReviewId(job.getMaxReviewId());
+        dto.setCompletedUpToId(job.getCompletedUpToId());
+        dto.setProcessedReviews(job.getProcessedReviews());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        dto.setErrorMessage(job.getErrorMessage());
+        return dto;
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.RatingDynamicDto;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Временные корзины графика динамики рейтинга.
+ * <p>
+ * Источники данных дашборда агрегируют рейтинги по дням (или сразу по корзинам), а укрупнение
+ * до недели, месяца или квартала выполняется здесь, поэтому SQL не зависит от функций дат конкретной СУБД.
+ * {@link #complete} дополняет готовый ряд пустыми корзинами и скользящим средним.
+ * Экземпляр не потокобезопасен и рассчитан на один запрос.
+ */
+public final class RatingTimeBuckets {
+
+    /**
+     * Наибольшее количество корзин, до которого ряд дополняется до границ запроса;
+     * для более длинных рядов пропуски заполняются только между первой и последней корзиной с данными.
+     */
+    static final int MAX_FILLED_BUCKETS = 3660;
+
+    private final DynamicsGranularity granularity;
+    /** Ключ — начало корзины, значение — {сумма рейтингов, количество}. */
+    private final TreeMap<LocalDate, double[]> buckets = new TreeMap<>();
+
+    public RatingTimeBuckets(DynamicsGranularity granularity) {
+        this.granularity = granularity;
+    }
+
+    /**
+     * Учитывает сумму и количество рейтингов за день.
+     */
+    public void add(LocalDate day, double ratingSum, long ratingCount) {
+        double[] acc = buckets.computeIfAbsent(granularity.bucketStart(day), k -> new double[2]);
+        acc[0] += ratingSum;
+        acc[1] += ratingCount;
+    }
+
+    /**
+     * Возвращает непустые корзины по возрастанию даты.
+     */
+    public List<RatingDynamicDto> toDynamics() {
+        List<RatingDynamicDto> result = new ArrayList<>(buckets.size());
+        buckets.forEach((date, acc) -> {
+            long count = (long) acc[1];
+            if (count > 0) {
+                result.add(new RatingDynamicDto(date, acc[0] / count, count));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Дополняет ряд непустых корзин пустыми корзинами от начала до конца периода
+     * (если граница не задана — до первой или последней корзины с данными) и считает скользящее среднее,
+     * взвешенное количеством отзывов в корзинах окна.
+     *
+     * @param dynamics            Непустые корзины заданной гранулярности.
+     * @param movingAverageWindow Окно скользящего среднего в корзинах; 0 или 1 — не считается.
+     */
+    public static List<RatingDynamicDto> complete(List<RatingDynamicDto> dynamics, DynamicsGranularity granularity,
+                                                  LocalDate startDate, LocalDate endDate, int movingAverageWindow) {
+        TreeMap<LocalDate, RatingDynamicDto> byDate = new TreeMap<>();
+        for (RatingDynamicDto point : dynamics) {
+            byDate.put(point.getDate(), point);
+        }
+        if (byDate.isEmpty() && (startDate == null || endDate == null)) {
+            return new ArrayList<>();
+        }
+
+        LocalDate first = byDate.isEmpty() ? null : byDate.firstKey();
+        LocalDate last = byDate.isEmpty() ? null : byDate.lastKey();
+        LocalDate from = startDate != null ? granularity.bucketStart(startDate) : first;
+        LocalDate to = endDate != null ? granularity.bucketStart(endDate) : last;
+        if (from.isAfter(to)) {
+            return new ArrayList<>();
+        }
+        if (ChronoUnit.DAYS.between(from, to) / approximateDays(granularity) >= MAX_FILLED_BUCKETS) {
+            if (byDate.isEmpty()) {
+                return new ArrayList<>();
+            }
+            from = first;
+            to = last;
+        }
+
+        List<RatingDynamicDto> result = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = granularity.nextBucketStart(date)) {
+            RatingDynamicDto point = byDate.get(date);
+            if (point == null) {
+                point = new RatingDynamicDto(date, null, 0L);
+            } else if (point.getReviewCount() == null) {
+                point.setReviewCount(0L);
+            }
+            result.add(point);
+        }
+
+        if (movingAverageWindow > 1) {
+            double windowSum = 0;
+            long windowCount = 0;
+            for (int i = 0; i < result.size(); i++) {
+                RatingDynamicDto point = result.get(i);
+                windowSum += sumOf(point);
+                windowCount += point.getReviewCount();
+                if (i >= movingAverageWindow) {
+                    RatingDynamicDto leaving = result.get(i - movingAverageWindow);
+                    windowSum -= sumOf(leaving);
+                    windowCount -= leaving.getReviewCount();
+                }
+                point.setMovingAverage(windowCount > 0 ? windowSum / windowCount : null);
+            }
+        }
+        return result;
+    }
+
+    private static double sumOf(RatingDynamicDto point) {
+        return point.getAverageRating() != null ? point.getAverageRating() * point.getReviewCount() : 0.0;
+    }
+
+    private static long approximateDays(DynamicsGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> 1;
+            case WEEK -> 7;
+            case MONTH -> 28;
+            case QUARTER -> 90;
+        };
+    }
+}
@@ -0,0 +1,356 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.DashboardDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.report.ReportJobDto;
+import com.github.stasangelov.reviewanalytics.exception.OperationConflictException;
+import com.github.stasangelov.reviewanalytics.exception.ResourceNotFoundException;
+import com.github.stasangelov.reviewanalytics.exception.ServiceBusyException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновое формирование PDF-отчетов.
+ * <p>
+ * Запрос на отчет сразу возвращает идентификатор задачи, а сам отчет строится в ограниченном
+ * пуле потоков: задачи ждут в очереди с приоритетами (при равном приоритете — в порядке поступления),
+ * поэтому всплеск выгрузок не занимает потоки веб-сервера, нужные остальному API.
+ * Документ строится в потоке задачи: ожидание общего пула генерации PDF заняло бы поток дважды,
+ * а при заполненной очереди пула уже принятая задача завершилась бы ошибкой.
+ * Готовые файлы хранятся в локальном каталоге и вместе с задачей удаляются по истечении срока хранения.
+ * Состояние задач хранится в памяти: после перезапуска приложения незавершенные задачи и файлы не сохраняются.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportExportService {
+
+    private final AnalyticsService analyticsService;
+    private final AnalyticsResultCache analyticsResultCache;
+    private final PdfGenerationService pdfGenerationService;
+    private final OperationMetrics operationMetrics;
+
+    @Value("${reports.export.threads:2}")
+    private int threads;
+
+    @Value("${reports.export.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${reports.export.dir:${java.io.tmpdir}/review-analytics-reports}")
+    private Path storageDir;
+
+    @Value("${reports.export.ttl:1h}")
+    private Duration ttl;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Свободные места в очереди. Очередь с приоритетами не ограничена сама по себе, поэтому место
+     * занимается атомарно при постановке и освобождается, когда задача начинает выполняться.
+     */
+    private Semaphore queueSlots;
+    private final ScheduledExecutorService cleaner =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("report-cleanup-"));
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(storageDir);
+        // Задачи не переживают перезапуск, поэтому оставшиеся файлы уже никому не принадлежат
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(storageDir, "*.pdf")) {
+            for (Path file : leftovers) {
+                Files.deleteIfExists(file);
+            }
+        }
+        queueSlots = new Semaphore(queueCapacity);
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), new CustomizableThreadFactory("report-export-"));
+        cleaner.scheduleWithFixedDelay(this::removeExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cleaner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    //================================================================================
+    // Постановка задач
+    //================================================================================
+
+    /**
+     * Ставит в очередь отчет по дашборду с указанными фильтрами.
+     */
+    public ReportJobDto submitDashboard(LocalDate startDate, LocalDate endDate, Long categoryId,
+                                        Priority priority, String owner) {
+        return submit(ReportType.DASHBOARD, "dashboard_report.pdf", priority, owner, (job, output) -> {
+            AnalyticsResultCache.FilterKey key = AnalyticsResultCache.FilterKey.of(
+                    AnalyticsResultCache.Kind.DASHBOARD, startDate, endDate, categoryId);
+            DashboardDto dashboard = analyticsResultCache.getOrCompute(key,
+                    () -> analyticsService.getDashboardData(startDate, endDate, categoryId));
+            job.progress = 50;
+            pdfGenerationService.writeDashboardPdf(dashboard, Map.of(), output);
+        });
+    }
+
+    /**
+     * Ставит в очередь отчет по товару. Отзывы читаются курсором и пишутся сразу в файл,
+     * поэтому размер отчета не ограничен памятью.
+     */
+    public ReportJobDto submitProductDetails(Long productId, Priority priority, String owner) {
+        return submit(ReportType.PRODUCT_DETAILS, "product_report_" + productId + ".pdf", priority, owner, (job, output) -> {
+            ProductDetailsDto summary = analyticsService.getProductDetailsSummary(productId);
+            job.progress = 20;
+            long total = summary.getReviewCount() == null ? 1 : Math.max(1, summary.getReviewCount());
+            long[] written = {0};
+            try (PdfGenerationService.ProductDetailsPdfWriter writer =
+                         pdfGenerationService.openProductDetailsPdf(summary, null, output)) {
+                analyticsService.forEachProductReview(productId, review -> {
+                    writer.addReview(review);
+                    // Таблица отзывов — основная работа: ей отводится диапазон 20..90%
+                    job.progress = 20 + (int) (70 * Math.min(1.0, (double) ++written[0] / total));
+                });
+                writer.finish();
+            }
+        });
+    }
+
+    /**
+     * Ставит в очередь отчет сравнения товаров.
+     */
+    public ReportJobDto submitComparison(List<Long> productIds, Priority priority, String owner) {
+        List<Long> ids = List.copyOf(productIds);
+        return submit(ReportType.COMPARISON, "comparison_report.pdf", priority, owner, (job, output) -> {
+            List<ComparisonDataDto> data = analyticsService.getComparisonData(ids);
+            job.progress = 50;
+            pdfGenerationService.writeComparisonPdf(data, Map.of(), output);
+        });
+    }
+
+    private ReportJobDto submit(ReportType type, String fileName, Priority priority, String owner, ReportWriter writer) {
+        if (!queueSlots.tryAcquire()) {
+            throw new ServiceBusyException("Очередь формирования отчетов заполнена. Повторите попытку позже.");
+        }
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), type, fileName, priority, owner,
+                sequence.incrementAndGet(), writer);
+        jobs.put(job.id, job);
+        try {
+            workers.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            queueSlots.release();
+            throw new ServiceBusyException("Формирование отчетов временно недоступно.");
+        }
+        log.debug("Отчет {} ({}, {}) поставлен в очередь", job.id, type, priority);
+        return toDto(job);
+    }
+
+    //================================================================================
+    // Состояние и результаты
+    //================================================================================
+
+    /**
+     * Возвращает состояние задачи. Задачи других пользователей не видны.
+     */
+    public ReportJobDto getJob(String jobId, String owner) {
+        return toDto(findJob(jobId, owner));
+    }
+
+    /**
+     * Возвращает путь к готовому файлу отчета.
+     * @throws OperationConflictException если отчет еще не готов или не был сформирован.
+     */
+    public Path getResultFile(String jobId, String owner) {
+        ReportJob job = findJob(jobId, owner);
+        if (job.status != Status.COMPLETED) {
+            throw new OperationConflictException("Отчет " + jobId + " еще не готов (статус " + job.status + ")");
+        }
+        return job.file;
+    }
+
+    /**
+     * Возвращает имя файла, под которым отчет отдается пользователю.
+     */
+    public String getFileName(String jobId, String owner) {
+        return findJob(jobId, owner).fileName;
+    }
+
+    private ReportJob findJob(String jobId, String owner) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null || !job.owner.equals(owner)) {
+            throw new ResourceNotFoundException("Задача формирования отчета " + jobId + " не найдена");
+        }
+        return job;
+    }
+
+    /**
+     * Удаляет завершенные задачи с истекшим сроком хранения вместе с их файлами.
+     */
+    void removeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        jobs.values().removeIf(job -> {
+            if (job.expiresAt == null || job.expiresAt.isAfter(now)) {
+                return false;
+            }
+            deleteQuietly(job.file);
+            return true;
+        });
+    }
+
+    //================================================================================
+    // Выполнение задачи
+    //================================================================================
+
+    private void execute(ReportJob job) {
+        long startedNanos = System.nanoTime();
+        job.status = Status.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        job.progress = 5;
+        Path partial = storageDir.resolve(job.id + ".pdf.part");
+        Status outcome = Status.FAILED;
+        try {
+            try (OutputStream output = Files.newOutputStream(partial)) {
+                job.writer.write(job, output);
+            }
+            Path file = storageDir.resolve(job.id + ".pdf");
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.file = file;
+            job.sizeBytes = Files.size(file);
+            job.progress = 100;
+            outcome = Status.COMPLETED;
+            log.info("Отчет {} ({}) сформирован за {} мс, {} байт", job.id, job.type,
+                    Duration.between(job.startedAt, LocalDateTime.now()).toMillis(), job.sizeBytes);
+        } catch (Exception e) {
+            log.error("Не удалось сформировать отчет {} ({})", job.id, job.type, e);
+            deleteQuietly(partial);
+            job.errorMessage = String.valueOf(e.getMessage());
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            job.expiresAt = job.finishedAt.plus(ttl);
+            // Итоговый статус публикуется последним: увидевший его поток видит и срок хранения
+            job.status = outcome;
+            operationMetrics.recordExportJob(job.type.name(), job.priority.name(), outcome.name(),
+                    startedNanos - job.createdNanos, System.nanoTime() - startedNanos);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить файл отчета {}", file, e);
+        }
+    }
+
+    private ReportJobDto toDto(ReportJob job) {
+        ReportJobDto dto = new ReportJobDto();
+        dto.setId(job.id);
+        dto.setType(job.type.name());
+        dto.setPriority(job.priority.name());
+        dto.setStatus(job.status.name());
+        dto.setProgress(job.progress);
+        dto.setFileName(job.fileName);
+        dto.setSizeBytes(job.sizeBytes);
+        dto.setCreatedAt(job.createdAt);
+        dto.setStartedAt(job.startedAt);
+        dto.setFinishedAt(job.finishedAt);
+        dto.setExpiresAt(job.expiresAt);
+        dto.setErrorMessage(job.errorMessage);
+        return dto;
+    }
+
+    public enum ReportType {
+        DASHBOARD, PRODUCT_DETAILS, COMPARISON
+    }
+
+    /**
+     * Приоритет задачи в очереди: задачи с более высоким приоритетом начинают выполняться раньше.
+     */
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * Записывает содержимое отчета в файл задачи и по возможности обновляет ее прогресс.
+     */
+    @FunctionalInterface
+    private interface ReportWriter {
+        void write(ReportJob job, OutputStream output) throws IOException;
+    }
+
+    /**
+     * Задача формирования отчета. Поля состояния меняет только поток, выполняющий задачу,
+     * а читают потоки запросов, поэтому они объявлены volatile.
+     */
+    private class ReportJob implements Runnable, Comparable<ReportJob> {
+        final String id;
+        final ReportType type;
+        final String fileName;
+        final Priority priority;
+        final String owner;
+        final long sequence;
+        final ReportWriter writer;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final long createdNanos = System.nanoTime();
+
+        volatile Status status = Status.QUEUED;
+        volatile int progress;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile LocalDateTime expiresAt;
+        volatile Path file;
+        volatile Long sizeBytes;
+        volatile String errorMessage;
+
+        ReportJob(String id, ReportType type, String fileName, Priority priority, String owner,
+                  long sequence, ReportWriter writer) {
+            this.id = id;
+            this.type = type;
+            this.fileName = fileName;
+            this.priority = priority;
+            this.owner = owner;
+            this.sequence = sequence;
+            this.writer = writer;
+        }
+
+        @Override
+        public void run() {
+            queueSlots.release();
+            execute(this);
+        }
+
+        @Override
+        public int compareTo(ReportJob other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
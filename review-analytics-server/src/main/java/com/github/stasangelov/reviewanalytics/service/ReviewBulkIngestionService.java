@@ -0,0 +1,322 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.stasangelov.reviewanalytics.dto.review.BulkIngestResultDto;
+import com.github.stasangelov.reviewanalytics.dto.review.BulkRecordErrorDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewDto;
+import com.github.stasangelov.reviewanalytics.entity.Review;
+import com.github.stasangelov.reviewanalytics.event.ReviewChangedEvent;
+import com.github.stasangelov.reviewanalytics.exception.ResourceNotFoundException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис пакетной загрузки отзывов из внешних выгрузок.
+ * Принимает поток в виде JSON-массива или NDJSON из {@link ReviewDto} и разбирает его по одной записи,
+ * не держа весь документ в памяти. Записи проверяются по кэшам товаров и критериев, интегральный
+ * рейтинг считается в приложении, а отзывы и оценки вставляются JDBC-пакетами — по одной транзакции
+ * на пачку. Ошибочные записи попадают в отчет и не прерывают загрузку.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReviewBulkIngestionService {
+
+    private static final String INSERT_REVIEW_SQL =
+            "INSERT INTO reviews (date_created, integral_rating, status, product_id) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_RATING_SQL =
+            "INSERT INTO review_ratings (review_id, criterion_id, rating) VALUES (?, ?, ?)";
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    private final EntityManager entityManager;
+    private final CriterionWeightCache criterionWeightCache;
+    private final ReviewService reviewService;
+    private final ReviewRollupService reviewRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${reviews.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Загружает отзывы из потока. Пачки, записанные до ошибки в середине потока, остаются в БД.
+     */
+    public BulkIngestResultDto ingest(InputStream input) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        BulkIngestResultDto result = new BulkIngestResultDto();
+        // Кэш товаров на время загрузки: id -> данные товара или null, если товара нет
+        Map<Long, ProductInfo> products = new HashMap<>();
+        Set<Long> missingCriteria = new HashSet<>();
+        List<PendingReview> chunk = new ArrayList<>(chunkSize);
+        long index = 0;
+
+        // Для корневого массива итератор сам переходит к его элементам, поэтому JSON-массив
+        // и последовательность объектов NDJSON разбираются одинаково
+        try (MappingIterator<ReviewDto> records = objectMapper.readerFor(ReviewDto.class).readValues(input)) {
+            while (true) {
+                ReviewDto dto;
+                try {
+                    if (!records.hasNextValue()) {
+                        break;
+                    }
+                    dto = records.nextValue();
+                } catch (DatabindException e) {
+                    // Запись не соответствует формату ReviewDto; итератор пропустит ее остаток
+                    reject(result, index++, "Некорректная запись: " + e.getOriginalMessage());
+                    continue;
+                } catch (StreamReadException e) {
+                    // Синтаксическая ошибка JSON: границу следующей записи определить нельзя
+                    addError(result, index, "Некорректный JSON, загрузка остановлена: " + e.getOriginalMessage());
+                    result.setAborted(true);
+                    break;
+                }
+
+                String error = validate(dto, missingCriteria);
+                if (error != null) {
+                    reject(result, index++, error);
+                    continue;
+                }
+                chunk.add(new PendingReview(index++, dto, reviewService.calculateIntegralRating(dto.getRatings())));
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, products, result);
+                    chunk.clear();
+                }
+            }
+        }
+        writeChunk(chunk, products, result);
+
+        result.setReceived(index);
+        log.info("Пакетная загрузка отзывов: получено {}, записано {}, отклонено {} за {} мс",
+                result.getReceived(), result.getInserted(), result.getFailed(), System.currentTimeMillis() - startedAt);
+        return result;
+    }
+
+    //================================================================================
+    // Проверка записей
+    //================================================================================
+
+    /**
+     * Проверяет запись по аннотациям {@link ReviewDto}, шкале оценок и справочнику критериев.
+     * Возвращает текст ошибки или {@code null}, если запись корректна. Товар проверяется позже,
+     * одним запросом на пачку.
+     */
+    private String validate(ReviewDto dto, Set<Long> missingCriteria) {
+        Set<ConstraintViolation<ReviewDto>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        for (Map.Entry<Long, Integer> entry : dto.getRatings().entrySet()) {
+            Integer rating = entry.getValue();
+            if (rating == null || rating < 1 || rating > 5) {
+                return "Оценка по критерию " + entry.getKey() + " должна быть от 1 до 5";
+            }
+            // Неизвестный критерий перечитывает справочник только при первой встрече в этой загрузке
+            if (missingCriteria.contains(entry.getKey())) {
+                return "Критерий с id " + entry.getKey() + " не найден";
+            }
+            try {
+                criterionWeightCache.get(entry.getKey());
+            } catch (ResourceNotFoundException e) {
+                missingCriteria.add(entry.getKey());
+                return e.getMessage();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Догружает в кэш загрузки товары пачки, которых там еще нет, одним запросом.
+     */
+    private void resolveProducts(List<PendingReview> chunk, Map<Long, ProductInfo> products) {
+        Set<Long> unknownIds = chunk.stream()
+                .map(pending -> pending.dto.getProductId())
+                .filter(id -> !products.containsKey(id))
+                .collect(Collectors.toSet());
+        if (unknownIds.isEmpty()) {
+            return;
+        }
+        entityManager.createQuery(
+                        "SELECT p.id, p.category.id, p.brand FROM Product p WHERE p.id IN :ids", Object[].class)
+                .setParameter("ids", unknownIds)
+                .getResultList()
+                .forEach(row -> products.put((Long) row[0], new ProductInfo((Long) row[1], (String) row[2])));
+        unknownIds.forEach(id -> products.putIfAbsent(id, null));
+    }
+
+    //================================================================================
+    // Запись пачки
+    //================================================================================
+
+    /**
+     * Записывает пачку в отдельной транзакции: отзывы, оценки, вклад в дневную витрину.
+     * При ошибке БД отклоняются только записи этой пачки.
+     */
+    private void writeChunk(List<PendingReview> chunk, Map<Long, ProductInfo> products, BulkIngestResultDto result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        resolveProducts(chunk, products);
+
+        List<PendingReview> valid = new ArrayList<>(chunk.size());
+        for (PendingReview pending : chunk) {
+            if (products.get(pending.dto.getProductId()) == null) {
+                reject(result, pending.index, "Товар с id " + pending.dto.getProductId() + " не найден");
+            } else {
+                valid.add(pending);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                insertBatch(valid);
+
+                List<ReviewRollupService.Contribution> contributions = new ArrayList<>(valid.size());
+                for (PendingReview pending : valid) {
+                    ReviewRollupService.Contribution contribution = toContribution(pending, products);
+                    contributions.add(contribution);
+                    eventPublisher.publishEvent(new ReviewChangedEvent(pending.id, null, contribution));
+                }
+                reviewRollupService.applyAll(contributions);
+            });
+            result.setInserted(result.getInserted() + valid.size());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать пачку из {} отзывов", valid.size(), e);
+            valid.forEach(pending -> reject(result, pending.index, "Ошибка записи пачки: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Вставляет отзывы и их оценки двумя JDBC-пакетами в соединении текущей транзакции.
+     */
+    private void insertBatch(List<PendingReview> reviews) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_REVIEW_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (PendingReview pending : reviews) {
+                    statement.setTimestamp(1, Timestamp.valueOf(pending.dto.getDateCreated()));
+                    statement.setDouble(2, pending.integralRating);
+                    statement.setString(3, pending.status().name());
+                    statement.setLong(4, pending.dto.getProductId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                // Ключи возвращаются в порядке вставки
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (PendingReview pending : reviews) {
+                        if (!keys.next()) {
+                            throw new SQLException("БД вернула меньше ключей, чем было вставлено отзывов");
+                        }
+                        pending.id = keys.getLong(1);
+                    }
+                }
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_RATING_SQL)) {
+                for (PendingReview pending : reviews) {
+                    for (Map.Entry<Long, Integer> entry : pending.dto.getRatings().entrySet()) {
+                        statement.setLong(1, pending.id);
+                        statement.setLong(2, entry.getKey());
+                        statement.setInt(3, entry.getValue());
+                        statement.addBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    private ReviewRollupService.Contribution toContribution(PendingReview pending, Map<Long, ProductInfo> products) {
+        if (pending.status() != Review.ReviewStatus.ACTIVE) {
+            return null;
+        }
+        ProductInfo product = products.get(pending.dto.getProductId());
+        return new ReviewRollupService.Contribution(
+                pending.dto.getDateCreated().toLocalDate(),
+                pending.dto.getProductId(),
+                product.categoryId,
+                product.brand,
+                pending.integralRating,
+                new HashMap<>(pending.dto.getRatings())
+        );
+    }
+
+    //================================================================================
+    // Вспомогательные методы
+    //================================================================================
+
+    private void reject(BulkIngestResultDto result, long index, String message) {
+        result.setFailed(result.getFailed() + 1);
+        addError(result, index, message);
+    }
+
+    private void addError(BulkIngestResultDto result, long index, String message) {
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new BulkRecordErrorDto(index, message));
+        }
+    }
+
+    /**
+     * Запись, прошедшая проверку и ожидающая записи в составе пачки.
+     */
+    private static class PendingReview {
+        final long index;
+        final ReviewDto dto;
+        final double integralRating;
+        long id;
+
+        PendingReview(long index, ReviewDto dto, double integralRating) {
+            this.index = index;
+            this.dto = dto;
+            this.integralRating = integralRating;
+        }
+
+        Review.ReviewStatus status() {
+            // Как и при ручном добавлении, отзыв без статуса считается активным
+            return dto.getStatus() == null ? Review.ReviewStatus.ACTIVE : dto.getStatus();
+        }
+    }
+
+    private static class ProductInfo {
+        final Long categoryId;
+        final String brand;
+
+        ProductInfo(Long categoryId, String brand) {
+            this.categoryId = categoryId;
+            this.brand = brand;
+        }
+    }
+}
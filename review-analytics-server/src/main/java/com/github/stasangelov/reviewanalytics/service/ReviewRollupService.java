@@ -0,0 +1,510 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.*;
+import com.github.stasangelov.reviewanalytics.entity.Product;
+import com.github.stasangelov.reviewanalytics.entity.Review;
+import com.github.stasangelov.reviewanalytics.entity.ReviewDailyRollup;
+import com.github.stasangelov.reviewanalytics.entity.ReviewRating;
+import com.github.stasangelov.reviewanalytics.entity.ReviewRatingHistogram;
+import com.github.stasangelov.reviewanalytics.repository.ReviewDailyRollupRepository;
+import com.github.stasangelov.reviewanalytics.repository.ReviewRatingHistogramRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Сервис дневной витрины отзывов ({@link ReviewDailyRollup}).
+ * Инкрементально поддерживает витрину при записи и модерации отзывов,
+ * умеет перестраивать ее с нуля по исходным таблицам и отвечает на все
+ * запросы дашборда, не обращаясь к таблицам {@code reviews}/{@code review_ratings}.
+ * Вместе с витриной поддерживаются дневные гистограммы рейтингов ({@link ReviewRatingHistogram}),
+ * из которых считаются медиана и перцентили за любой период.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class ReviewRollupService {
+
+    private final ReviewDailyRollupRepository rollupRepository;
+    private final ReviewRatingHistogramRepository histogramRepository;
+    private final OperationMetrics operationMetrics;
+    @PersistenceContext
+    private final EntityManager entityManager;
+
+    //================================================================================
+    // Поддержка витрины
+    //================================================================================
+
+    /**
+     * Снимает "вклад" отзыва в витрину в его текущем состоянии.
+     * Возвращает {@code null}, если отзыв не активен и в витрину не попадает.
+     */
+    public Contribution capture(Review review) {
+        if (review.getStatus() != Review.ReviewStatus.ACTIVE || review.getDateCreated() == null) {
+            return null;
+        }
+        Product product = review.getProduct();
+        Map<Long, Integer> ratings = new HashMap<>();
+        if (review.getReviewRatings() != null) {
+            for (ReviewRating rating : review.getReviewRatings()) {
+                ratings.put(rating.getCriterion().getId(), rating.getRating());
+            }
+        }
+        return new Contribution(
+                review.getDateCreated().toLocalDate(),
+                product.getId(),
+                product.getCategory().getId(),
+                product.getBrand(),
+                review.getIntegralRating(),
+                ratings
+        );
+    }
+
+    /**
+     * Прибавляет ({@code sign = 1}) или вычитает ({@code sign = -1}) вклад отзыва из витрины.
+     */
+    public void apply(Contribution contribution, int sign) {
+        if (contribution == null) {
+            return;
+        }
+
+        Map<RollupKey, ReviewDailyRollup> deltas = new LinkedHashMap<>();
+        Map<HistogramKey, ReviewRatingHistogram> histogramDeltas = new LinkedHashMap<>();
+        collectDeltas(contribution, sign, deltas, histogramDeltas);
+        deltas.values().forEach(rollupRepository::upsert);
+        histogramDeltas.values().forEach(histogramRepository::upsert);
+
+        if (sign < 0) {
+            rollupRepository.deleteEmptyRows(contribution.getDay(), contribution.getProductId());
+            histogramRepository.deleteEmptyRows(contribution.getDay(), contribution.getProductId());
+        }
+    }
+
+    /**
+     * Прибавляет к витрине вклады пачки новых отзывов. Вклады предварительно суммируются
+     * по (день, товар, критерий), поэтому число запросов определяется числом затронутых
+     * строк витрины, а не числом отзывов.
+     */
+    public void applyAll(Collection<Contribution> contributions) {
+        Map<RollupKey, ReviewDailyRollup> deltas = new LinkedHashMap<>();
+        Map<HistogramKey, ReviewRatingHistogram> histogramDeltas = new LinkedHashMap<>();
+        for (Contribution contribution : contributions) {
+            if (contribution != null) {
+                collectDeltas(contribution, 1, deltas, histogramDeltas);
+            }
+        }
+        deltas.values().forEach(rollupRepository::upsert);
+        histogramDeltas.values().forEach(histogramRepository::upsert);
+    }
+
+    private void collectDeltas(Contribution contribution, int sign, Map<RollupKey, ReviewDailyRollup> deltas,
+                               Map<HistogramKey, ReviewRatingHistogram> histogramDeltas) {
+        ReviewDailyRollup reviewLevel = delta(deltas, contribution, ReviewDailyRollup.REVIEW_LEVEL);
+        reviewLevel.setReviewCount(reviewLevel.getReviewCount() + sign);
+        if (contribution.getIntegralRating() != null) {
+            reviewLevel.setRatingCount(reviewLevel.getRatingCount() + sign);
+            reviewLevel.setRatingSum(reviewLevel.getRatingSum() + sign * contribution.getIntegralRating());
+            ReviewRatingHistogram bin = histogramDelta(histogramDeltas, contribution, ReviewDailyRollup.REVIEW_LEVEL,
+                    RatingHistogram.binOf(contribution.getIntegralRating()));
+            bin.setRatingCount(bin.getRatingCount() + sign);
+        }
+
+        for (Map.Entry<Long, Integer> entry : contribution.getRatings().entrySet()) {
+            ReviewDailyRollup criterionLevel = delta(deltas, contribution, entry.getKey());
+            int rating = entry.getValue();
+            criterionLevel.setReviewCount(criterionLevel.getReviewCount() + sign);
+            criterionLevel.setRatingCount(criterionLevel.getRatingCount() + sign);
+            criterionLevel.setRatingSum(criterionLevel.getRatingSum() + sign * rating);
+            switch (rating) {
+                case 1 -> criterionLevel.setRating1Count(criterionLevel.getRating1Count() + sign);
+                case 2 -> criterionLevel.setRating2Count(criterionLevel.getRating2Count() + sign);
+                case 3 -> criterionLevel.setRating3Count(criterionLevel.getRating3Count() + sign);
+                case 4 -> criterionLevel.setRating4Count(criterionLevel.getRating4Count() + sign);
+                case 5 -> criterionLevel.setRating5Count(criterionLevel.getRating5Count() + sign);
+                default -> { /* Оценки вне шкалы 1-5 в гистограмму не попадают */ }
+            }
+            if (rating >= 1 && rating <= 5) {
+                ReviewRatingHistogram bin = histogramDelta(histogramDeltas, contribution, entry.getKey(),
+                        RatingHistogram.binOf(rating));
+                bin.setRatingCount(bin.getRatingCount() + sign);
+            }
+        }
+    }
+
+    /**
+     * Полностью перестраивает витрину по исходным таблицам отзывов.
+     * Возвращает количество созданных строк.
+     */
+    public int rebuild() {
+        // Несохраненные изменения отзывов должны попасть в БД до агрегирующих INSERT ... SELECT
+        entityManager.flush();
+        rollupRepository.deleteAllRows();
+        int rows = rollupRepository.insertReviewLevelRows() + rollupRepository.insertCriterionLevelRows();
+        histogramRepository.deleteAllRows();
+        int histogramRows = histogramRepository.insertReviewLevelRows() + histogramRepository.insertCriterionLevelRows();
+        log.info("Витрина review_daily_rollup перестроена, строк: {}, строк гистограмм: {}", rows, histogramRows);
+        return rows;
+    }
+
+    private ReviewDailyRollup delta(Map<RollupKey, ReviewDailyRollup> deltas, Contribution contribution, Long criterionId) {
+        return deltas.computeIfAbsent(new RollupKey(contribution.getDay(), contribution.getProductId(), criterionId), key -> {
+            ReviewDailyRollup delta = new ReviewDailyRollup();
+            delta.setRollupDate(contribution.getDay());
+            delta.setProductId(contribution.getProductId());
+            delta.setCategoryId(contribution.getCategoryId());
+            delta.setBrand(contribution.getBrand());
+            delta.setCriterionId(criterionId);
+            return delta;
+        });
+    }
+
+    private ReviewRatingHistogram histogramDelta(Map<HistogramKey, ReviewRatingHistogram> deltas, Contribution contribution,
+                                                 Long criterionId, int bin) {
+        return deltas.computeIfAbsent(new HistogramKey(contribution.getDay(), contribution.getProductId(), criterionId, bin), key -> {
+            ReviewRatingHistogram delta = new ReviewRatingHistogram();
+            delta.setRollupDate(contribution.getDay());
+            delta.setProductId(contribution.getProductId());
+            delta.setCategoryId(contribution.getCategoryId());
+            delta.setBrand(contribution.getBrand());
+            delta.setCriterionId(criterionId);
+            delta.setBin(bin);
+            return delta;
+        });
+    }
+
+    //================================================================================
+    // Чтение дашборда из витрины
+    //================================================================================
+
+    /**
+     * Собирает все данные дашборда по витрине. Даты включительные, любой фильтр может быть {@code null}.
+     * Гранулярность динамики выбирается по длительности периода.
+     */
+    @Transactional(readOnly = true)
+    public DashboardDto getDashboardData(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        return getDashboardData(startDate, endDate, categoryId, DynamicsGranularity.forPeriod(startDate, endDate));
+    }
+
+    /**
+     * Собирает все данные дашборда по витрине с заданной гранулярностью динамики.
+     * Динамика содержит только периоды с оценками.
+     */
+    @Transactional(readOnly = true)
+    public DashboardDto getDashboardData(LocalDate startDate, LocalDate endDate, Long categoryId, DynamicsGranularity granularity) {
+        DashboardDto dashboard = new DashboardDto();
+        OperationMetrics.FilterShape shape = OperationMetrics.FilterShape.of(startDate, endDate, categoryId);
+        String source = AnalyticsService.DashboardSource.ROLLUP.getMetricName();
+
+        dashboard.setKpis(operationMetrics.section("kpis", source, shape,
+                () -> calculateKpis(startDate, endDate, categoryId), kpis -> 1));
+        dashboard.setTopRatedProducts(operationMetrics.section("top-rated", source, shape,
+                () -> findTopRatedProducts(5, "DESC", startDate, endDate, categoryId), List::size));
+        dashboard.setWorstRatedProducts(operationMetrics.section("worst-rated", source, shape,
+                () -> findTopRatedProducts(5, "ASC", startDate, endDate, categoryId), List::size));
+
+        if (categoryId != null) {
+            dashboard.setBrandRatings(operationMetrics.section("brand-ratings", source, shape,
+                    () -> calculateBrandRatings(startDate, endDate, categoryId), List::size));
+            dashboard.setCategoryRatings(null);
+        } else {
+            dashboard.setCategoryRatings(operationMetrics.section("category-ratings", source, shape,
+                    () -> calculateCategoryRatings(startDate, endDate), List::size));
+            dashboard.setBrandRatings(null);
+        }
+        dashboard.setRatingDynamics(operationMetrics.section("rating-dynamics", source, shape,
+                () -> calculateRatingDynamics(startDate, endDate, categoryId, granularity), List::size));
+        dashboard.setRatingDistribution(operationMetrics.section("rating-distribution", source, shape,
+                () -> calculateRatingDistribution(startDate, endDate, categoryId), List::size));
+        return dashboard;
+    }
+
+    /**
+     * Возвращает средний интегральный рейтинг по дням (без укрупнения периодов).
+     */
+    @Transactional(readOnly = true)
+    public List<RatingDynamicDto> getDailyRatings(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        List<RatingDynamicDto> result = new ArrayList<>();
+        for (Object[] row : queryDailySums(startDate, endDate, categoryId)) {
+            result.add(new RatingDynamicDto((LocalDate) row[0], ((Number) row[1]).doubleValue() / ((Number) row[2]).longValue()));
+        }
+        return result;
+    }
+
+    private KpiDto calculateKpis(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        StringBuilder jpqlBuilder = new StringBuilder(
+                "SELECT SUM(x.reviewCount), SUM(x.ratingSum), SUM(x.ratingCount) " +
+                        "FROM ReviewDailyRollup x WHERE x.criterionId = :reviewLevel"
+        );
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("reviewLevel", ReviewDailyRollup.REVIEW_LEVEL);
+        addRollupFilters(jpqlBuilder, parameters, startDate, endDate, categoryId);
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpqlBuilder.toString(), Object[].class);
+        parameters.forEach(query::setParameter);
+        Object[] result = query.getSingleResult();
+
+        long ratingCount = result[2] != null ? ((Number) result[2]).longValue() : 0L;
+        KpiDto kpi = new KpiDto();
+        kpi.setTotalReviews(result[0] != null ? ((Number) result[0]).longValue() : 0L);
+        kpi.setAverageIntegralRating(ratingCount > 0 ? ((Number) result[1]).doubleValue() / ratingCount : 0.0);
+        return kpi;
+    }
+
+    private List<TopProductDto> findTopRatedProducts(int limit, String direction, LocalDate startDate, LocalDate endDate, Long categoryId) {
+        StringBuilder jpqlBuilder = new StringBuilder(
+                "SELECT NEW com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.TopProductDto(" +
+                        "p.id, p.name, SUM(x.ratingSum) / SUM(x.ratingCount)) " +
+                        "FROM ReviewDailyRollup x JOIN Product p ON p.id = x.productId " +
+                        "WHERE x.criterionId = :reviewLevel"
+        );
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("reviewLevel", ReviewDailyRollup.REVIEW_LEVEL);
+        addRollupFilters(jpqlBuilder, parameters, startDate, endDate, categoryId);
+
+        jpqlBuilder.append(" GROUP BY p.id, p.name HAVING SUM(x.ratingCount) > 0" +
+                " ORDER BY SUM(x.ratingSum) / SUM(x.ratingCount) ").append(direction);
+
+        TypedQuery<TopProductDto> query = entityManager.createQuery(jpqlBuilder.toString(), TopProductDto.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    private List<CategoryRatingDto> calculateCategoryRatings(LocalDate startDate, LocalDate endDate) {
+        StringBuilder jpqlBuilder = new StringBuilder(
+                "SELECT NEW com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.CategoryRatingDto(" +
+                        "c.name, SUM(x.ratingSum) / SUM(x.ratingCount)) " +
+                        "FROM ReviewDailyRollup x JOIN Category c ON c.id = x.categoryId " +
+                        "WHERE x.criterionId = :reviewLevel"
+        );
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("reviewLevel", ReviewDailyRollup.REVIEW_LEVEL);
+        addRollupFilters(jpqlBuilder, parameters, startDate, endDate, null);
+
+        jpqlBuilder.append(" GROUP BY c.name HAVING SUM(x.ratingCount) > 0" +
+                " ORDER BY SUM(x.ratingSum) / SUM(x.ratingCount) DESC");
+
+        TypedQuery<CategoryRatingDto> query = entityManager.createQuery(jpqlBuilder.toString(), CategoryRatingDto.class);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private List<BrandRatingDto> calculateBrandRatings(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        StringBuilder jpqlBuilder = new StringBuilder(
+                "SELECT NEW com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.BrandRatingDto(" +
+                        "x.brand, SUM(x.ratingSum) / SUM(x.ratingCount)) " +
+                        "FROM ReviewDailyRollup x WHERE x.criterionId = :reviewLevel"
+        );
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("reviewLevel", ReviewDailyRollup.REVIEW_LEVEL);
+        addRollupFilters(jpqlBuilder, parameters, startDate, endDate, categoryId);
+
+        jpqlBuilder.append(" GROUP BY x.brand HAVING SUM(x.ratingCount) > 0" +
+                " ORDER BY SUM(x.ratingSum) / SUM(x.ratingCount) DESC");
+
+        TypedQuery<BrandRatingDto> query = entityManager.createQuery(jpqlBuilder.toString(), BrandRatingDto.class);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    /**
+     * Строит динамику рейтинга по дневным суммам, укрупняя их до заданной гранулярности.
+     */
+    private List<RatingDynamicDto> calculateRatingDynamics(LocalDate startDate, LocalDate endDate, Long categoryId,
+                                                           DynamicsGranularity granularity) {
+        RatingTimeBuckets buckets = new RatingTimeBuckets(granularity);
+        for (Object[] row : queryDailySums(startDate, endDate, categoryId)) {
+            buckets.add((LocalDate) row[0], ((Number) row[1]).doubleValue(), ((Number) row[2]).longValue());
+        }
+        return buckets.toDynamics();
+    }
+
+    private List<RatingDistributionDto> calculateRatingDistribution(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        StringBuilder jpqlBuilder = new StringBuilder(
+                "SELECT c.name, SUM(x.rating1Count), SUM(x.rating2Count), SUM(x.rating3Count), " +
+                        "SUM(x.rating4Count), SUM(x.rating5Count) " +
+                        "FROM ReviewDailyRollup x JOIN Criterion c ON c.id = x.criterionId " +
+                        "WHERE x.criterionId <> :reviewLevel"
+        );
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("reviewLevel", ReviewDailyRollup.REVIEW_LEVEL);
+        addRollupFilters(jpqlBuilder, parameters, startDate, endDate, categoryId);
+
+        jpqlBuilder.append(" GROUP BY c.name ORDER BY c.name");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpqlBuilder.toString(), Object[].class);
+        parameters.forEach(query::setParameter);
+
+        List<RatingDistributionDto> distributionList = new ArrayList<>();
+        for (Object[] row : query.getResultList()) {
+            RatingDistributionDto dto = new RatingDistributionDto((String) row[0]);
+            dto.setRating1Count(((Number) row[1]).longValue());
+            dto.setRating2Count(((Number) row[2]).longValue());
+            dto.setRating3Count(((Number) row[3]).longValue());
+            dto.setRating4Count(((Number) row[4]).longValue());
+            dto.setRating5Count(((Number) row[5]).longValue());
+            distributionList.add(dto);
+        }
+        return distributionList;
+    }
+
+    /**
+     * Возвращает строки {день, сумма рейтингов, количество рейтингов} по возрастанию дня.
+     */
+    private List<Object[]> queryDailySums(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        StringBuilder jpqlBuilder = new StringBuilder(
+                "SELECT x.rollupDate, SUM(x.ratingSum), SUM(x.ratingCount) " +
+                        "FROM ReviewDailyRollup x WHERE x.criterionId = :reviewLevel"
+        );
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("reviewLevel", ReviewDailyRollup.REVIEW_LEVEL);
+        addRollupFilters(jpqlBuilder, parameters, startDate, endDate, categoryId);
+
+        jpqlBuilder.append(" GROUP BY x.rollupDate HAVING SUM(x.ratingCount) > 0 ORDER BY x.rollupDate ASC");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpqlBuilder.toString(), Object[].class);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    //================================================================================
+    // Медиана и перцентили по гистограммам
+    //================================================================================
+
+    /**
+     * Гистограмма интегральных рейтингов за период. Даты включительные, любой фильтр может быть {@code null}.
+     */
+    @Transactional(readOnly = true)
+    public RatingHistogram getRatingHistogram(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        StringBuilder jpqlBuilder = new StringBuilder(
+                "SELECT x.bin, SUM(x.ratingCount) FROM ReviewRatingHistogram x WHERE x.criterionId = :reviewLevel"
+        );
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("reviewLevel", ReviewDailyRollup.REVIEW_LEVEL);
+        addRollupFilters(jpqlBuilder, parameters, startDate, endDate, categoryId);
+        jpqlBuilder.append(" GROUP BY x.bin");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpqlBuilder.toString(), Object[].class);
+        parameters.forEach(query::setParameter);
+        RatingHistogram histogram = new RatingHistogram();
+        for (Object[] row : query.getResultList()) {
+            histogram.add(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        }
+        return histogram;
+    }
+
+    /**
+     * Гистограммы интегральных рейтингов товаров за период; товары без рейтингов в карту не попадают.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, RatingHistogram> getProductRatingHistograms(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        StringBuilder jpqlBuilder = new StringBuilder(
+                "SELECT x.productId, x.bin, SUM(x.ratingCount) FROM ReviewRatingHistogram x WHERE x.criterionId = :reviewLevel"
+        );
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("reviewLevel", ReviewDailyRollup.REVIEW_LEVEL);
+        addRollupFilters(jpqlBuilder, parameters, startDate, endDate, categoryId);
+        jpqlBuilder.append(" GROUP BY x.productId, x.bin");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpqlBuilder.toString(), Object[].class);
+        parameters.forEach(query::setParameter);
+        Map<Long, RatingHistogram> histograms = new HashMap<>();
+        for (Object[] row : query.getResultList()) {
+            histograms.computeIfAbsent((Long) row[0], id -> new RatingHistogram())
+                    .add(((Number) row[1]).intValue(), ((Number) row[2]).longValue());
+        }
+        return histograms;
+    }
+
+    /**
+     * Гистограммы товара за все время: интегрального рейтинга и оценок по каждому критерию.
+     */
+    @Transactional(readOnly = true)
+    public ProductHistograms getProductHistograms(Long productId) {
+        List<Object[]> rows = entityManager.createQuery(
+                        "SELECT x.criterionId, c.name, x.bin, SUM(x.ratingCount) " +
+                                "FROM ReviewRatingHistogram x LEFT JOIN Criterion c ON c.id = x.criterionId " +
+                                "WHERE x.productId = :productId " +
+                                "GROUP BY x.criterionId, c.name, x.bin", Object[].class)
+                .setParameter("productId", productId)
+                .getResultList();
+
+        ProductHistograms histograms = new ProductHistograms(new RatingHistogram(), new HashMap<>());
+        for (Object[] row : rows) {
+            RatingHistogram histogram = ((Long) row[0]) == ReviewDailyRollup.REVIEW_LEVEL
+                    ? histograms.getIntegral()
+                    : histograms.getCriteria().computeIfAbsent((String) row[1], name -> new RatingHistogram());
+            histogram.add(((Number) row[2]).intValue(), ((Number) row[3]).longValue());
+        }
+        return histograms;
+    }
+
+    /**
+     * Вспомогательный метод, который добавляет фильтры по дням и категории к запросу по витрине.
+     */
+    private void addRollupFilters(StringBuilder jpqlBuilder, Map<String, Object> parameters, LocalDate startDate, LocalDate endDate, Long categoryId) {
+        if (startDate != null) {
+            jpqlBuilder.append(" AND x.rollupDate >= :startDate");
+            parameters.put("startDate", startDate);
+        }
+        if (endDate != null) {
+            jpqlBuilder.append(" AND x.rollupDate <= :endDate");
+            parameters.put("endDate", endDate);
+        }
+        if (categoryId != null) {
+            jpqlBuilder.append(" AND x.categoryId = :categoryId");
+            parameters.put("categoryId", categoryId);
+        }
+    }
+
+    /**
+     * Неизменяемый снимок вклада одного активного отзыва в витрину.
+     */
+    @Value
+    public static class Contribution {
+        LocalDate day;
+        Long productId;
+        Long categoryId;
+        String brand;
+        Double integralRating;
+        Map<Long, Integer> ratings;
+    }
+
+    /**
+     * Гистограммы одного товара; критерии ключуются названием, как в профиле товара.
+     */
+    @Value
+    public static class ProductHistograms {
+        RatingHistogram integral;
+        Map<String, RatingHistogram> criteria;
+    }
+
+    /**
+     * Ключ строки витрины.
+     */
+    @Value
+    private static class RollupKey {
+        LocalDate day;
+        Long productId;
+        Long criterionId;
+    }
+
+    /**
+     * Ключ корзины гистограммы.
+     */
+    @Value
+    private static class HistogramKey {
+        LocalDate day;
+        Long productId;
+        Long criterionId;
+        int bin;
+    }
+}
@@ -1,16 +1,26 @@
 package com.github.stasangelov.reviewanalytics.service;
 
 import com.github.stasangelov.reviewanalytics.dto.review.ReviewDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewFilterDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewPageDto;
 import com.github.stasangelov.reviewanalytics.dto.review.ReviewRatingDto;
 import com.github.stasangelov.reviewanalytics.entity.*;
+import com.github.stasangelov.reviewanalytics.event.ReviewChangedEvent;
+import com.github.stasangelov.reviewanalytics.exception.InvalidRequestException;
 import com.github.stasangelov.reviewanalytics.exception.ResourceNotFoundException;
 import com.github.stasangelov.reviewanalytics.repository.*;
 import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -23,17 +33,67 @@ import java.util.stream.Collectors;
 @Transactional
 public class ReviewService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
     private final CriterionRepository criterionRepository;
     private final ReviewMapper reviewMapper;
+    private final CriterionWeightCache criterionWeightCache;
+    private final ReviewRollupService reviewRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OperationMetrics operationMetrics;
 
     /**
      * Возвращает список всех отзывов в системе.
+     * Товар и оценки загружаются вместе с отзывами одним запросом.
      */
     @Transactional(readOnly = true)
     public List<ReviewDto> getAll() {
-        return reviewRepository.findAll().stream().map(reviewMapper::toDto).collect(Collectors.toList());
+        return reviewRepository.findAllWithRatings().stream().map(reviewMapper::toDto).collect(Collectors.toList());
+    }
+
+    /**
+     * Возвращает одну страницу отзывов (от новых к старым), подходящих под фильтры.
+     * Страницы строятся по ключу (dateCreated, id), поэтому стоимость запроса не растет
+     * с номером страницы. Отзывы страницы загружаются вместе с оценками одним запросом.
+     */
+    @Transactional(readOnly = true)
+    public ReviewPageDto getPage(ReviewFilterDto filter) {
+        int size = filter.getSize() == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(filter.getSize(), MAX_PAGE_SIZE));
+
+        LocalDateTime afterDate = null;
+        Long afterId = null;
+        if (filter.getCursor() != null && !filter.getCursor().isBlank()) {
+            String[] position = decodeCursor(filter.getCursor());
+            afterDate = LocalDateTime.parse(position[0]);
+            afterId = Long.parseLong(position[1]);
+        }
+
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        List<Long> ids = reviewRepository.findPageIds(filter, afterDate, afterId, size + 1);
+        boolean hasMore = ids.size() > size;
+        if (hasMore) {
+            ids = ids.subList(0, size);
+        }
+        if (ids.isEmpty()) {
+            return new ReviewPageDto(List.of(), null, false);
+        }
+
+        Map<Long, Review> reviewsById = reviewRepository.findAllWithRatingsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Review::getId, Function.identity()));
+        List<ReviewDto> items = ids.stream()
+                .map(reviewsById::get)
+                .map(reviewMapper::toDto)
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasMore) {
+            ReviewDto last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(last.getDateCreated(), last.getId());
+        }
+        return new ReviewPageDto(items, nextCursor, hasMore);
     }
 
     /**
@@ -41,6 +101,10 @@ public class ReviewService {
      * рассчитывает интегральный рейтинг и сохраняет в БД.
      */
     public ReviewDto create(ReviewDto reviewDto) {
+        return operationMetrics.reviewWrite("create", () -> doCreate(reviewDto));
+    }
+
+    private ReviewDto doCreate(ReviewDto reviewDto) {
         Product product = productRepository.findById(reviewDto.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Товар с id " + reviewDto.getProductId() + " не найден"));
 
@@ -49,20 +113,12 @@ public class ReviewService {
         review.setDateCreated(reviewDto.getDateCreated());
         review.setStatus(Review.ReviewStatus.ACTIVE); // При ручном добавлении сразу делаем активным
 
-        List<ReviewRating> ratings = reviewDto.getRatings().entrySet().stream().map(entry -> {
-            Criterion criterion = criterionRepository.findById(entry.getKey())
-                    .orElseThrow(() -> new ResourceNotFoundException("Критерий с id " + entry.getKey() + " не найден"));
-            ReviewRating rating = new ReviewRating();
-            rating.setReview(review);
-            rating.setCriterion(criterion);
-            rating.setRating(entry.getValue());
-            return rating;
-        }).collect(Collectors.toList());
-
-        review.setReviewRatings(ratings);
-        review.setIntegralRating(calculateIntegralRating(review));
+        review.setReviewRatings(buildRatings(review, reviewDto.getRatings()));
+        review.setIntegralRating(calculateIntegralRating(reviewDto.getRatings()));
 
-        return reviewMapper.toDto(reviewRepository.save(review));
+        Review saved = reviewRepository.save(review);
+        onReviewChanged(saved, null);
+        return reviewMapper.toDto(saved);
     }
 
     /**
@@ -70,57 +126,110 @@ public class ReviewService {
      * Заменяет старые оценки на новые и пересчитывает интегральный рейтинг.
      */
     public ReviewDto update(Long id, ReviewDto reviewDto) {
+        return operationMetrics.reviewWrite("update", () -> doUpdate(id, reviewDto));
+    }
+
+    private ReviewDto doUpdate(Long id, ReviewDto reviewDto) {
         Review review = reviewRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Отзыв с id " + id + " не найден"));
         Product product = productRepository.findById(reviewDto.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Товар с id " + reviewDto.getProductId() + " не найден"));
 
+        // Запоминаем вклад отзыва в витрину до изменения, чтобы затем заменить его новым
+        ReviewRollupService.Contribution previous = reviewRollupService.capture(review);
+
         review.setProduct(product);
         review.setDateCreated(reviewDto.getDateCreated());
 
         // Полностью заменяем старые оценки на новые
         review.getReviewRatings().clear();
-        List<ReviewRating> newRatings = reviewDto.getRatings().entrySet().stream().map(entry -> {
-            Criterion criterion = criterionRepository.findById(entry.getKey())
-                    .orElseThrow(() -> new ResourceNotFoundException("Критерий с id " + entry.getKey() + " не найден"));
-            ReviewRating rating = new ReviewRating();
-            rating.setReview(review);
-            rating.setCriterion(criterion);
-            rating.setRating(entry.getValue());
-            return rating;
-        }).collect(Collectors.toList());
-        review.getReviewRatings().addAll(newRatings);
+        review.getReviewRatings().addAll(buildRatings(review, reviewDto.getRatings()));
+        review.setIntegralRating(calculateIntegralRating(reviewDto.getRatings()));
 
-        review.setIntegralRating(calculateIntegralRating(review));
-
-        return reviewMapper.toDto(reviewRepository.save(review));
+        Review saved = reviewRepository.save(review);
+        onReviewChanged(saved, previous);
+        return reviewMapper.toDto(saved);
     }
 
     /**
      * Изменяет статус отзыва (модерация).
      */
     public ReviewDto changeStatus(Long id, Review.ReviewStatus newStatus) {
+        return operationMetrics.reviewWrite("change-status", () -> doChangeStatus(id, newStatus));
+    }
+
+    private ReviewDto doChangeStatus(Long id, Review.ReviewStatus newStatus) {
         Review review = reviewRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Отзыв с id " + id + " не найден"));
+        ReviewRollupService.Contribution previous = reviewRollupService.capture(review);
         review.setStatus(newStatus);
-        return reviewMapper.toDto(reviewRepository.save(review));
+        Review saved = reviewRepository.save(review);
+        onReviewChanged(saved, previous);
+        return reviewMapper.toDto(saved);
+    }
+
+    /**
+     * Заменяет прежний вклад отзыва в витрину новым и оповещает слушателей об изменении.
+     * Слушатели, зависящие от закоммиченных данных (кэш аналитики), получают событие после коммита.
+     */
+    private void onReviewChanged(Review saved, ReviewRollupService.Contribution previous) {
+        ReviewRollupService.Contribution current = reviewRollupService.capture(saved);
+        reviewRollupService.apply(previous, -1);
+        reviewRollupService.apply(current, 1);
+        eventPublisher.publishEvent(new ReviewChangedEvent(saved.getId(), previous, current));
+    }
+
+    private static String encodeCursor(LocalDateTime dateCreated, Long id) {
+        String position = dateCreated + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает курсор страницы на дату и id последней записи.
+     */
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            LocalDateTime.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException("Некорректный курсор страницы");
+        }
+    }
+
+    /**
+     * Создает оценки отзыва по карте "id критерия → оценка".
+     * Существование критериев проверяется по кэшу, а в сущность подставляется ссылка
+     * на критерий без загрузки его из БД.
+     */
+    private List<ReviewRating> buildRatings(Review review, Map<Long, Integer> ratings) {
+        return ratings.entrySet().stream().map(entry -> {
+            criterionWeightCache.get(entry.getKey());
+            ReviewRating rating = new ReviewRating();
+            rating.setReview(review);
+            rating.setCriterion(criterionRepository.getReferenceById(entry.getKey()));
+            rating.setRating(entry.getValue());
+            return rating;
+        }).collect(Collectors.toList());
     }
 
     /**
      * Рассчитывает взвешенный интегральный рейтинг для одного отзыва.
      * Формула: (Сумма(оценка * вес критерия)) / (Сумма(весов всех критериев)).
+     * Веса критериев берутся из {@link CriterionWeightCache}.
      */
-    private Double calculateIntegralRating(Review review) {
-        if (review.getReviewRatings() == null || review.getReviewRatings().isEmpty()) {
+    public Double calculateIntegralRating(Map<Long, Integer> ratings) {
+        if (ratings == null || ratings.isEmpty()) {
             return 0.0;
         }
 
         double weightedSum = 0.0;
         double totalWeight = 0.0;
 
-        for (ReviewRating rating : review.getReviewRatings()) {
-            double weight = rating.getCriterion().getWeight();
-            weightedSum += rating.getRating() * weight;
+        for (Map.Entry<Long, Integer> entry : ratings.entrySet()) {
+            double weight = criterionWeightCache.getWeight(entry.getKey());
+            weightedSum += entry.getValue() * weight;
             totalWeight += weight;
         }
 
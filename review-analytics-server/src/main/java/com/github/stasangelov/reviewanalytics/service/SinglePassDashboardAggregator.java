@@ -0,0 +1,141 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Агрегатор, который вычисляет все разделы дашборда за один проход по строкам отзывов.
+ * На вход подаются строки вида "отзыв x оценка по критерию", упорядоченные по id отзыва:
+ * показатели уровня отзыва учитываются один раз на отзыв, распределение — по каждой оценке.
+ * Экземпляр не потокобезопасен и рассчитан на один запрос.
+ */
+class SinglePassDashboardAggregator {
+
+    private final RatingTimeBuckets dynamics;
+    private final boolean groupByBrand;
+
+    private long lastReviewId = Long.MIN_VALUE;
+    private long totalReviews;
+    private final RatingAccumulator overall = new RatingAccumulator();
+    private final Map<Long, ProductAccumulator> products = new HashMap<>();
+    private final Map<String, RatingAccumulator> groups = new HashMap<>();
+    private final Map<String, long[]> distribution = new TreeMap<>();
+
+    /**
+     * @param granularity  Гранулярность графика динамики.
+     * @param groupByBrand {@code true} — группировать рейтинги по брендам (выбрана категория),
+     *                     {@code false} — по категориям.
+     */
+    SinglePassDashboardAggregator(DynamicsGranularity granularity, boolean groupByBrand) {
+        this.dynamics = new RatingTimeBuckets(granularity);
+        this.groupByBrand = groupByBrand;
+    }
+
+    /**
+     * Учитывает одну строку выборки. {@code criterionName} и {@code rating} равны {@code null},
+     * если у отзыва нет оценок по критериям.
+     */
+    void accept(long reviewId, LocalDate day, Double integralRating, long productId, String productName,
+                String brand, String categoryName, String criterionName, Integer rating) {
+        if (reviewId != lastReviewId) {
+            lastReviewId = reviewId;
+            totalReviews++;
+            if (integralRating != null) {
+                double value = integralRating;
+                overall.add(value);
+                products.computeIfAbsent(productId, id -> new ProductAccumulator(productName)).add(value);
+                groups.computeIfAbsent(groupByBrand ? brand : categoryName, k -> new RatingAccumulator()).add(value);
+                dynamics.add(day, value, 1);
+            }
+        }
+
+        if (criterionName != null && rating != null) {
+            long[] counts = distribution.computeIfAbsent(criterionName, k -> new long[5]);
+            if (rating >= 1 && rating <= 5) {
+                counts[rating - 1]++;
+            }
+        }
+    }
+
+    /**
+     * Формирует итоговый DTO дашборда из накопленных значений.
+     */
+    DashboardDto toDashboard(int topLimit) {
+        DashboardDto dashboard = new DashboardDto();
+
+        KpiDto kpi = new KpiDto();
+        kpi.setTotalReviews(totalReviews);
+        kpi.setAverageIntegralRating(overall.average());
+        dashboard.setKpis(kpi);
+
+        List<TopProductDto> ranked = products.entrySet().stream()
+                .map(e -> new TopProductDto(e.getKey(), e.getValue().name, e.getValue().average()))
+                .sorted(Comparator.comparingDouble(TopProductDto::getAverageRating))
+                .collect(Collectors.toList());
+        List<TopProductDto> worst = ranked.subList(0, Math.min(topLimit, ranked.size()));
+        List<TopProductDto> best = new ArrayList<>(ranked.subList(Math.max(0, ranked.size() - topLimit), ranked.size()));
+        Collections.reverse(best);
+        dashboard.setTopRatedProducts(best);
+        dashboard.setWorstRatedProducts(new ArrayList<>(worst));
+
+        Comparator<Map.Entry<String, RatingAccumulator>> byAverageDesc =
+                Comparator.comparingDouble((Map.Entry<String, RatingAccumulator> e) -> e.getValue().average()).reversed();
+        if (groupByBrand) {
+            dashboard.setBrandRatings(groups.entrySet().stream()
+                    .sorted(byAverageDesc)
+                    .map(e -> new BrandRatingDto(e.getKey(), e.getValue().average()))
+                    .collect(Collectors.toList()));
+            dashboard.setCategoryRatings(null);
+        } else {
+            dashboard.setCategoryRatings(groups.entrySet().stream()
+                    .sorted(byAverageDesc)
+                    .map(e -> new CategoryRatingDto(e.getKey(), e.getValue().average()))
+                    .collect(Collectors.toList()));
+            dashboard.setBrandRatings(null);
+        }
+
+        dashboard.setRatingDynamics(dynamics.toDynamics());
+
+        List<RatingDistributionDto> ratingDistribution = new ArrayList<>();
+        distribution.forEach((criterionName, counts) -> {
+            RatingDistributionDto dto = new RatingDistributionDto(criterionName);
+            dto.setRating1Count(counts[0]);
+            dto.setRating2Count(counts[1]);
+            dto.setRating3Count(counts[2]);
+            dto.setRating4Count(counts[3]);
+            dto.setRating5Count(counts[4]);
+            ratingDistribution.add(dto);
+        });
+        dashboard.setRatingDistribution(ratingDistribution);
+
+        return dashboard;
+    }
+
+    /**
+     * Накопитель суммы и количества рейтингов на примитивах.
+     */
+    private static class RatingAccumulator {
+        long count;
+        double sum;
+
+        void add(double value) {
+            count++;
+            sum += value;
+        }
+
+        double average() {
+            return count == 0 ? 0.0 : sum / count;
+        }
+    }
+
+    private static class ProductAccumulator extends RatingAccumulator {
+        final String name;
+
+        ProductAccumulator(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarReviewStore;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.*;
+
+/**
+ * Генератор синтетического набора данных для нагрузочных прогонов и бенчмарков.
+ * <p>
+ * Заменяет справочники и отзывы в БД набором заданного объема с неравномерностью, как у реальных данных:
+ * <ul>
+ *     <li>популярность товаров и размеры категорий распределены по закону Ципфа;</li>
+ *     <li>отзывов больше в сезон распродаж (ноябрь–январь) и по выходным, поток растет со временем;</li>
+ *     <li>у каждой категории, кроме общих критериев, есть свои;</li>
+ *     <li>оценки зависят от "качества" товара, негативные отзывы отклоняются модерацией чаще.</li>
+ * </ul>
+ * Все значения выбираются одним генератором случайных чисел с заданным зерном в фиксированном порядке,
+ * поэтому одни и те же настройки дают одинаковые данные и прогоны на разных машинах сравнимы.
+ * Отзывы и оценки пишутся JDBC-пакетами, по одной транзакции на пачку, и не накапливаются в памяти.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyntheticDataGenerator {
+
+    private static final String INSERT_CATEGORY_SQL = "INSERT INTO categories (name) VALUES (?)";
+    private static final String INSERT_CRITERION_SQL = "INSERT INTO criteria (name, weight) VALUES (?, ?)";
+    private static final String INSERT_LINK_SQL = "INSERT INTO category_criteria (category_id, criterion_id) VALUES (?, ?)";
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO products (name, brand, description, category_id) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_REVIEW_SQL =
+            "INSERT INTO reviews (date_created, integral_rating, status, product_id) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_RATING_SQL =
+            "INSERT INTO review_ratings (review_id, criterion_id, rating) VALUES (?, ?, ?)";
+
+    /**
+     * Таблицы с суррогатным id в порядке удаления: сначала зависимые. На больших наборах в них
+     * миллионы строк, поэтому они удаляются диапазонами id, каждый в своей транзакции.
+     */
+    private static final List<String> CHUNKED_TABLES = List.of("review_rating_histogram", "review_daily_rollup",
+            "review_ratings", "reviews", "products");
+    /**
+     * Справочники объемом с каталог, удаляются целиком после таблиц {@link #CHUNKED_TABLES}.
+     */
+    private static final List<String> CATALOG_TABLES = List.of("category_criteria", "categories", "criteria");
+    private static final long DELETE_CHUNK_SIZE = 50_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CriterionWeightCache criterionWeightCache;
+    private final ReviewService reviewService;
+    private final ReviewRollupService reviewRollupService;
+    private final AnalyticsResultCache analyticsResultCache;
+    private final ColumnarReviewStore columnarReviewStore;
+
+    /**
+     * Удаляет существующие справочники и отзывы и заполняет БД набором по заданным настройкам.
+     * Пользователи и роли не затрагиваются.
+     */
+    public Summary generate(Settings settings) {
+        long startedAt = System.currentTimeMillis();
+        SplittableRandom random = new SplittableRandom(settings.getSeed());
+
+        deleteExistingData();
+
+        Catalog catalog = transactionTemplate.execute(status -> createCatalog(settings, random));
+        // Веса только что созданных критериев нужны для расчета интегральных рейтингов
+        criterionWeightCache.invalidate();
+
+        ReviewStream stream = new ReviewStream(settings, catalog, random);
+        List<GeneratedReview> chunk = new ArrayList<>(settings.getBatchSize());
+        long ratings = 0;
+        long rejected = 0;
+        for (long i = 0; i < settings.getReviews(); i++) {
+            GeneratedReview review = stream.next();
+            ratings += review.ratings.size();
+            if (!review.active) {
+                rejected++;
+            }
+            chunk.add(review);
+            if (chunk.size() >= settings.getBatchSize()) {
+                writeChunk(chunk);
+                chunk.clear();
+            }
+            if ((i + 1) % 1_000_000 == 0) {
+                log.info("Синтетические данные: записано {} из {} отзывов", i + 1, settings.getReviews());
+            }
+        }
+        writeChunk(chunk);
+
+        reviewRollupService.rebuild();
+        analyticsResultCache.invalidateAll();
+        columnarReviewStore.reload();
+
+        Summary summary = new Summary(catalog.categoryIds.length, catalog.criteriaCount, catalog.productIds.length,
+                settings.getReviews(), ratings, rejected, System.currentTimeMillis() - startedAt);
+        log.info("Синтетические данные (зерно {}) сгенерированы: {}", settings.getSeed(), summary);
+        return summary;
+    }
+
+    /**
+     * Удаляет справочники и отзывы. Одна транзакция на весь объем держала бы блокировки и журнал отката
+     * на миллионы строк, поэтому большие таблицы чистятся пачками по диапазонам id.
+     */
+    private void deleteExistingData() {
+        for (String table : CHUNKED_TABLES) {
+            Map<String, Object> range = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM " + table);
+            if (range.get("min_id") == null) {
+                continue;
+            }
+            long maxId = ((Number) range.get("max_id")).longValue();
+            for (long from = ((Number) range.get("min_id")).longValue(); from <= maxId; from += DELETE_CHUNK_SIZE) {
+                long to = from + DELETE_CHUNK_SIZE;
+                long chunkFrom = from;
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.update("DELETE FROM " + table + " WHERE id >= ? AND id < ?", chunkFrom, to));
+            }
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                CATALOG_TABLES.forEach(table -> jdbcTemplate.update("DELETE FROM " + table)));
+    }
+
+    //================================================================================
+    // Справочники
+    //================================================================================
+
+    /**
+     * Создает категории с общими и собственными критериями, бренды и товары.
+     */
+    private Catalog createCatalog(Settings settings, SplittableRandom random) {
+        int categories = settings.getCategories();
+        int perCategory = settings.getCriteriaPerCategory();
+        int common = settings.getCommonCriteria();
+
+        // Общие критерии идут первыми, за ними — по perCategory собственных на каждую категорию
+        int criteriaCount = common + categories * perCategory;
+        double[] weights = new double[criteriaCount];
+        for (int c = 0; c < criteriaCount; c++) {
+            weights[c] = 0.05 * (1 + random.nextInt(4));
+        }
+        long[] criterionIds = insertReturningKeys(INSERT_CRITERION_SQL, criteriaCount, (statement, c) -> {
+            statement.setString(1, c < common ? "Общий критерий " + (c + 1)
+                    : "Критерий " + ((c - common) % perCategory + 1) + " категории " + ((c - common) / perCategory + 1));
+            statement.setDouble(2, weights[c]);
+        });
+        long[] categoryIds = insertReturningKeys(INSERT_CATEGORY_SQL, categories,
+                (statement, c) -> statement.setString(1, "Категория " + (c + 1)));
+
+        long[][] categoryCriteria = new long[categories][];
+        for (int c = 0; c < categories; c++) {
+            categoryCriteria[c] = new long[common + perCategory];
+            System.arraycopy(criterionIds, 0, categoryCriteria[c], 0, common);
+            System.arraycopy(criterionIds, common + c * perCategory, categoryCriteria[c], common, perCategory);
+        }
+        jdbcTemplate.batchUpdate(INSERT_LINK_SQL, linkRows(categoryIds, categoryCriteria));
+
+        // Размеры категорий и доли брендов внутри категории неравномерны
+        CumulativeDistribution categorySizes = CumulativeDistribution.zipf(categories, 0.8);
+        CumulativeDistribution brandShares = CumulativeDistribution.zipf(settings.getBrandsPerCategory(), 1.0);
+        int products = settings.getProducts();
+        int[] productCategory = new int[products];
+        String[] productBrand = new String[products];
+        float[] productQuality = new float[products];
+        for (int p = 0; p < products; p++) {
+            productCategory[p] = categorySizes.sample(random);
+            productBrand[p] = "Бренд " + (productCategory[p] + 1) + "-" + (brandShares.sample(random) + 1);
+            productQuality[p] = (float) Math.max(2.0, Math.min(4.8, 3.9 + 0.5 * random.nextGaussian()));
+        }
+        long[] productIds = insertReturningKeys(INSERT_PRODUCT_SQL, products, (statement, p) -> {
+            statement.setString(1, productBrand[p] + " модель " + (p + 1));
+            statement.setString(2, productBrand[p]);
+            statement.setString(3, "Синтетический товар " + (p + 1));
+            statement.setLong(4, categoryIds[productCategory[p]]);
+        });
+
+        // Ранг популярности не совпадает с порядком id, чтобы популярные товары не шли подряд
+        int[] ranks = new int[products];
+        for (int p = 0; p < products; p++) {
+            ranks[p] = p;
+        }
+        for (int p = products - 1; p > 0; p--) {
+            int other = random.nextInt(p + 1);
+            int swap = ranks[p];
+            ranks[p] = ranks[other];
+            ranks[other] = swap;
+        }
+        double[] popularity = new double[products];
+        for (int p = 0; p < products; p++) {
+            popularity[p] = 1.0 / Math.pow(ranks[p] + 1, settings.getPopularitySkew());
+        }
+
+        return new Catalog(categoryIds, criteriaCount, categoryCriteria, productIds, productCategory, productQuality,
+                new CumulativeDistribution(popularity));
+    }
+
+    private static List<Object[]> linkRows(long[] categoryIds, long[][] categoryCriteria) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int c = 0; c < categoryIds.length; c++) {
+            for (long criterionId : categoryCriteria[c]) {
+                rows.add(new Object[]{categoryIds[c], criterionId});
+            }
+        }
+        return rows;
+    }
+
+    //================================================================================
+    // Запись отзывов
+    //================================================================================
+
+    /**
+     * Записывает пачку отзывов и их оценки в отдельной транзакции двумя JDBC-пакетами.
+     */
+    private void writeChunk(List<GeneratedReview> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            long[] reviewIds = insertReturningKeys(INSERT_REVIEW_SQL, chunk.size(), (statement, i) -> {
+                GeneratedReview review = chunk.get(i);
+                statement.setTimestamp(1, Timestamp.valueOf(review.dateCreated));
+                statement.setDouble(2, reviewService.calculateIntegralRating(review.ratings));
+                statement.setString(3, review.active ? "ACTIVE" : "REJECTED");
+                statement.setLong(4, review.productId);
+            });
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(INSERT_RATING_SQL)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        for (Map.Entry<Long, Integer> entry : chunk.get(i).ratings.entrySet()) {
+                            statement.setLong(1, reviewIds[i]);
+                            statement.setLong(2, entry.getKey());
+                            statement.setInt(3, entry.getValue());
+                            statement.addBatch();
+                        }
+                    }
+                    statement.executeBatch();
+                }
+                return null;
+            });
+        });
+    }
+
+    /**
+     * Вставляет {@code rows} строк одним JDBC-пакетом и возвращает сгенерированные id в порядке вставки.
+     */
+    private long[] insertReturningKeys(String sql, int rows, RowBinder binder) {
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            long[] ids = new long[rows];
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int row = 0; row < rows; row++) {
+                    binder.bind(statement, row);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int row = 0; row < rows; row++) {
+                        if (!keys.next()) {
+                            throw new SQLException("БД вернула меньше ключей, чем было вставлено строк");
+                        }
+                        ids[row] = keys.getLong(1);
+                    }
+                }
+            }
+            return ids;
+        });
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind(PreparedStatement statement, int row) throws SQLException;
+    }
+
+    //================================================================================
+    // Модель генерации
+    //================================================================================
+
+    /**
+     * Последовательность отзывов: товар по популярности, дата по сезонному профилю,
+     * оценки по качеству товара и настроению автора.
+     */
+    private static class ReviewStream {
+
+        private final Settings settings;
+        private final Catalog catalog;
+        private final SplittableRandom random;
+        private final LocalDate firstDay;
+        private final CumulativeDistribution days;
+
+        ReviewStream(Settings settings, Catalog catalog, SplittableRandom random) {
+            this.settings = settings;
+            this.catalog = catalog;
+            this.random = random;
+            this.firstDay = settings.getEndDate().minusDays(settings.getDays());
+
+            double[] dayWeights = new double[settings.getDays()];
+            for (int d = 0; d < dayWeights.length; d++) {
+                LocalDate day = firstDay.plusDays(d);
+                double trend = 0.5 + (double) d / dayWeights.length;
+                dayWeights[d] = trend * seasonFactor(day.getMonth()) * weekdayFactor(day.getDayOfWeek());
+            }
+            this.days = new CumulativeDistribution(dayWeights);
+        }
+
+        GeneratedReview next() {
+            int product = catalog.popularity.sample(random);
+            LocalDateTime dateCreated = firstDay.plusDays(days.sample(random)).atStartOfDay()
+                    .plusSeconds(random.nextInt(24 * 60 * 60));
+
+            // Настроение автора сдвигает все его оценки; пропущенные критерии не оцениваются
+            double mood = 0.8 * random.nextGaussian();
+            long[] criteria = catalog.categoryCriteria[catalog.productCategory[product]];
+            Map<Long, Integer> ratings = new LinkedHashMap<>();
+            int sum = 0;
+            for (long criterionId : criteria) {
+                if (!ratings.isEmpty() && random.nextDouble() < settings.getSkipCriterionRate()) {
+                    continue;
+                }
+                int rating = (int) Math.round(catalog.productQuality[product] + mood + 0.5 * random.nextGaussian());
+                rating = Math.max(1, Math.min(5, rating));
+                ratings.put(criterionId, rating);
+                sum += rating;
+            }
+
+            // Негативные отзывы чаще оказываются спамом или нарушают правила площадки
+            double rejectionRate = settings.getRejectionRate() * ((double) sum / ratings.size() <= 2.0 ? 2 : 1);
+            boolean active = random.nextDouble() >= rejectionRate;
+            return new GeneratedReview(catalog.productIds[product], dateCreated, ratings, active);
+        }
+
+        private static double seasonFactor(Month month) {
+            return switch (month) {
+                case NOVEMBER -> 1.5;
+                case DECEMBER -> 1.8;
+                case JANUARY -> 1.2;
+                case JULY, AUGUST -> 0.8;
+                default -> 1.0;
+            };
+        }
+
+        private static double weekdayFactor(DayOfWeek dayOfWeek) {
+            return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY ? 1.3 : 1.0;
+        }
+    }
+
+    /**
+     * Дискретное распределение по индексам 0..n-1 с заданными весами; выборка — двоичным поиском.
+     */
+    private static class CumulativeDistribution {
+
+        private final double[] cumulative;
+
+        CumulativeDistribution(double[] weights) {
+            cumulative = new double[weights.length];
+            double total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                cumulative[i] = total;
+            }
+        }
+
+        static CumulativeDistribution zipf(int size, double skew) {
+            double[] weights = new double[size];
+            for (int i = 0; i < size; i++) {
+                weights[i] = 1.0 / Math.pow(i + 1, skew);
+            }
+            return new CumulativeDistribution(weights);
+        }
+
+        int sample(SplittableRandom random) {
+            double point = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, point);
+            return Math.min(index >= 0 ? index + 1 : -index - 1, cumulative.length - 1);
+        }
+    }
+
+    private static class Catalog {
+        final long[] categoryIds;
+        final int criteriaCount;
+        /** Критерии категории по ее индексу: общие, затем собственные. */
+        final long[][] categoryCriteria;
+        final long[] productIds;
+        final int[] productCategory;
+        /** Средняя оценка, вокруг которой оценивают товар. */
+        final float[] productQuality;
+        final CumulativeDistribution popularity;
+
+        Catalog(long[] categoryIds, int criteriaCount, long[][] categoryCriteria, long[] productIds,
+                int[] productCategory, float[] productQuality, CumulativeDistribution popularity) {
+            this.categoryIds = categoryIds;
+            this.criteriaCount = criteriaCount;
+            this.categoryCriteria = categoryCriteria;
+            this.productIds = productIds;
+            this.productCategory = productCategory;
+            this.productQuality = productQuality;
+            this.popularity = popularity;
+        }
+    }
+
+    private static class GeneratedReview {
+        final long productId;
+        final LocalDateTime dateCreated;
+        final Map<Long, Integer> ratings;
+        final boolean active;
+
+        GeneratedReview(long productId, LocalDateTime dateCreated, Map<Long, Integer> ratings, boolean active) {
+            this.productId = productId;
+            this.dateCreated = dateCreated;
+            this.ratings = ratings;
+            this.active = active;
+        }
+    }
+
+    /**
+     * Настройки генерации. Значения по умолчанию дают набор в 1 млн отзывов.
+     */
+    @Data
+    public static class Settings {
+        /** Зерно генератора случайных чисел: одинаковое зерно дает одинаковые данные. */
+        private long seed = 42;
+        private int categories = 12;
+        /** Критерии, общие для всех категорий (цена/качество, дизайн и т.п.). */
+        private int commonCriteria = 3;
+        /** Собственные критерии каждой категории. */
+        private int criteriaPerCategory = 5;
+        private int brandsPerCategory = 15;
+        private int products = 5_000;
+        private long reviews = 1_000_000;
+        /** Показатель степени закона Ципфа для популярности товаров; 0 — равномерно. */
+        private double popularitySkew = 1.0;
+        /** Доля отклоненных отзывов среди не негативных; для негативных она удваивается. */
+        private double rejectionRate = 0.08;
+        /** Вероятность, что автор не оценил очередной критерий (хотя бы один оценивается всегда). */
+        private double skipCriterionRate = 0.1;
+        /** День, до которого (не включая) создаются отзывы. */
+        private LocalDate endDate = LocalDate.of(2025, 1, 1);
+        /** Длина периода в днях, за который создаются отзывы. */
+        private int days = 730;
+        /** Количество отзывов в одной транзакции и JDBC-пакете. */
+        private int batchSize = 1_000;
+    }
+
+    /**
+     * Итог генерации.
+     */
+    @Value
+    public static class Summary {
+        int categories;
+        int criteria;
+        int products;
+        long reviews;
+        long ratings;
+        long rejected;
+        long elapsedMillis;
+    }
+}
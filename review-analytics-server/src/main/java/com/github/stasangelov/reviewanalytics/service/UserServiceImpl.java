@@ -6,12 +6,14 @@ import com.github.stasangelov.reviewanalytics.dto.auth.RegistrationRequest;
 import com.github.stasangelov.reviewanalytics.dto.user.UserManagementDto;
 import com.github.stasangelov.reviewanalytics.entity.Role;
 import com.github.stasangelov.reviewanalytics.entity.User;
+import com.github.stasangelov.reviewanalytics.event.UserAccessChangedEvent;
 import com.github.stasangelov.reviewanalytics.exception.InvalidCredentialsException;
 import com.github.stasangelov.reviewanalytics.exception.ResourceNotFoundException;
 import com.github.stasangelov.reviewanalytics.repository.RoleRepository;
 import com.github.stasangelov.reviewanalytics.repository.UserRepository;
 import com.github.stasangelov.reviewanalytics.security.JwtTokenProvider;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -41,6 +43,7 @@ public class UserServiceImpl implements UserService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Регистрирует нового пользователя в системе.
@@ -139,6 +142,7 @@ public class UserServiceImpl implements UserService {
 
         userToUpdate.setRoles(new HashSet<>(Set.of(newRole)));
         User updatedUser = userRepository.save(userToUpdate);
+        eventPublisher.publishEvent(new UserAccessChangedEvent(updatedUser.getEmail()));
 
         return new UserManagementDto(updatedUser.getId(), updatedUser.getName(), updatedUser.getEmail(), updatedUser.isActive(), updatedUser.getRoles());
     }
@@ -157,6 +161,7 @@ public class UserServiceImpl implements UserService {
 
         userToUpdate.setActive(newStatus);
         User updatedUser = userRepository.save(userToUpdate);
+        eventPublisher.publishEvent(new UserAccessChangedEvent(updatedUser.getEmail()));
 
         return new UserManagementDto(updatedUser.getId(), updatedUser.getName(), updatedUser.getEmail(), updatedUser.isActive(), updatedUser.getRoles());
     }
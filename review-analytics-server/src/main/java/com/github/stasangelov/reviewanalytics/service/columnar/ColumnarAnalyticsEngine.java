@@ -0,0 +1,649 @@
+package com.github.stasangelov.reviewanalytics.service.columnar;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.CriteriaProfileDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.*;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductSummaryDto;
+import com.github.stasangelov.reviewanalytics.service.DynamicsGranularity;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Аналитика по колоночному хранилищу отзывов ({@link ColumnarReviewStore}) без обращения к БД.
+ * <p>
+ * Фильтры запроса (статус, период, категория, товары) сначала сводятся к битовой карте строк
+ * пересечением индексов {@link ReviewBitmapIndex}. Выбранные строки делятся на участки с равным
+ * числом строк, которые параллельно сворачиваются в частичные агрегаты на примитивных массивах
+ * (индексами служат коды словарей), а затем частичные агрегаты складываются. Результаты совпадают с запросами
+ * {@code AnalyticsService} к БД с точностью до порядка равных значений и погрешности сложения double.
+ */
+@Slf4j
+@Component
+public class ColumnarAnalyticsEngine {
+
+    /** Минимальное число выбранных строк на один параллельный участок: меньшие выборки сворачиваются в вызывающем потоке. */
+    private static final int MIN_SEGMENT_ROWS = 1 << 16;
+    /** Номера строк передаются агрегатам пачками такого размера. */
+    private static final int ROW_BATCH = 1024;
+    private static final int TOP_LIMIT = 5;
+    private static final int MAX_RATING = 5;
+
+    private final ColumnarReviewStore store;
+    private final ExecutorService scanPool;
+    private final int parallelism;
+    private final int minSegmentRows;
+
+    /**
+     * @param parallelism Число потоков сканирования; 0 — по числу доступных ядер.
+     */
+    @Autowired
+    public ColumnarAnalyticsEngine(
+            ColumnarReviewStore store,
+            @Value("${analytics.columnar.parallelism:0}") int parallelism) {
+        this(store, parallelism, MIN_SEGMENT_ROWS);
+    }
+
+    ColumnarAnalyticsEngine(ColumnarReviewStore store, int parallelism, int minSegmentRows) {
+        this.store = store;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.minSegmentRows = minSegmentRows;
+        this.scanPool = Executors.newFixedThreadPool(this.parallelism, new CustomizableThreadFactory("columnar-scan-"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scanPool.shutdownNow();
+    }
+
+    /**
+     * {@code true}, если колоночное хранилище включено и загружено.
+     */
+    public boolean isAvailable() {
+        return store.isEnabled() && store.isLoaded();
+    }
+
+    //================================================================================
+    // Дашборд и сводка по товарам
+    //================================================================================
+
+    /**
+     * Собирает все разделы дашборда за один проход. Даты включительные, любой фильтр может быть {@code null}.
+     * Гранулярность динамики выбирается по длительности периода.
+     */
+    public DashboardDto getDashboardData(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        return getDashboardData(startDate, endDate, categoryId, DynamicsGranularity.forPeriod(startDate, endDate));
+    }
+
+    /**
+     * Собирает все разделы дашборда за один проход с заданной гранулярностью динамики.
+     * Динамика содержит только периоды с оценками.
+     */
+    public DashboardDto getDashboardData(LocalDate startDate, LocalDate endDate, Long categoryId, DynamicsGranularity granularity) {
+        boolean groupByBrand = categoryId != null;
+
+        return store.read(columns -> {
+            RowFilter filter = RowFilter.of(columns, startDate, endDate, categoryId);
+            DayBuckets buckets = DayBuckets.of(granularity, Math.max(filter.fromDay(), columns.minDay),
+                    Math.min(filter.toDay(), columns.maxDay));
+            int groups = groupByBrand ? columns.brands.size() : columns.categories.size();
+            int criteria = columns.criteria.size();
+            int products = columns.products.size();
+
+            DashboardPartial total = scan(filter.select(columns),
+                    () -> new DashboardPartial(products, groups, buckets.count(), criteria),
+                    (partial, rows, count) -> partial.scan(columns, buckets, groupByBrand, rows, count),
+                    DashboardPartial::merge);
+            return total.toDashboard(columns, buckets, groupByBrand);
+        });
+    }
+
+    /**
+     * Сводка по товарам: количество активных отзывов и средний рейтинг, по названию товара.
+     * Без фильтра по датам в сводку входят и товары без отзывов, как в запросе к БД с LEFT JOIN.
+     */
+    public List<ProductSummaryDto> getProductsSummary(LocalDate startDate, LocalDate endDate, Long categoryId) {
+        boolean allProducts = startDate == null && endDate == null;
+        return store.read(columns -> {
+            RowFilter filter = RowFilter.of(columns, startDate, endDate, categoryId);
+            int products = columns.products.size();
+            ProductPartial total = scan(filter.select(columns),
+                    () -> new ProductPartial(products),
+                    (partial, rows, count) -> partial.scan(columns, rows, count),
+                    ProductPartial::merge);
+
+            List<ProductSummaryDto> result = new ArrayList<>();
+            for (int code = 0; code < products; code++) {
+                boolean inCategory = filter.categoryCode() == null
+                        || columns.productCategory[code] == filter.categoryCode();
+                if (!inCategory || (!allProducts && total.reviews[code] == 0)) {
+                    continue;
+                }
+                result.add(new ProductSummaryDto(
+                        columns.products.key(code),
+                        columns.productNames.get(code),
+                        columns.categoryNames.get(columns.productCategory[code]),
+                        columns.brands.key(columns.productBrand[code]),
+                        total.reviews[code],
+                        total.rated[code] == 0 ? null : total.ratingSum[code] / total.rated[code]));
+            }
+            result.sort(Comparator.comparing(ProductSummaryDto::getProductName, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(ProductSummaryDto::getProductId));
+            return result;
+        });
+    }
+
+    //================================================================================
+    // Отдельные товары
+    //================================================================================
+
+    /**
+     * Профиль товара: средняя оценка по каждому критерию среди активных отзывов.
+     * Возвращает {@code null}, если товара нет в хранилище.
+     */
+    public List<CriteriaProfileDto> getCriteriaProfile(Long productId) {
+        List<ComparisonDataDto> data = getComparisonData(List.of(productId));
+        return data == null ? null : data.get(0).getCriteriaProfile();
+    }
+
+    /**
+     * Детализация товара без списка отзывов: количество отзывов (в любом статусе),
+     * средний рейтинг активных отзывов и профиль по критериям.
+     * Возвращает {@code null}, если товара нет в хранилище.
+     */
+    public ProductDetailsDto getProductDetailsSummary(Long productId) {
+        return store.read(columns -> {
+            int code = columns.products.code(productId);
+            if (code < 0) {
+                return null;
+            }
+            int criteria = columns.criteria.size();
+            int[] selected = {code};
+            int[] slotOfProduct = slotsOf(columns, selected);
+            ProfilePartial total = scan(columns.index.selectLive(selected),
+                    () -> new ProfilePartial(1, criteria),
+                    (partial, rows, count) -> partial.scan(columns, slotOfProduct, rows, count),
+                    ProfilePartial::merge);
+
+            ProductDetailsDto details = new ProductDetailsDto();
+            details.setProductId(productId);
+            details.setProductName(columns.productNames.get(code));
+            details.setCategoryName(columns.categoryNames.get(columns.productCategory[code]));
+            details.setBrand(columns.brands.key(columns.productBrand[code]));
+            details.setReviewCount(total.reviews[0]);
+            details.setAverageRating(total.rated[0] == 0 ? 0.0 : total.ratingSum[0] / total.rated[0]);
+            details.setCriteriaProfile(total.profile(columns, 0));
+            details.setReviews(null);
+            return details;
+        });
+    }
+
+    /**
+     * Профили нескольких товаров в порядке запрошенных id.
+     * Возвращает {@code null}, если хотя бы одного товара нет в хранилище.
+     */
+    public List<ComparisonDataDto> getComparisonData(List<Long> productIds) {
+        return store.read(columns -> {
+            List<Long> distinctIds = productIds.stream().distinct().toList();
+            int[] selected = new int[distinctIds.size()];
+            for (int i = 0; i < selected.length; i++) {
+                selected[i] = columns.products.code(distinctIds.get(i));
+                if (selected[i] < 0) {
+                    return null;
+                }
+            }
+            int criteria = columns.criteria.size();
+            int[] slotOfProduct = slotsOf(columns, selected);
+            ProfilePartial total = scan(columns.index.selectLive(selected),
+                    () -> new ProfilePartial(selected.length, criteria),
+                    (partial, rows, count) -> partial.scan(columns, slotOfProduct, rows, count),
+                    ProfilePartial::merge);
+
+            List<ComparisonDataDto> result = new ArrayList<>(productIds.size());
+            for (Long productId : productIds) {
+                int slot = distinctIds.indexOf(productId);
+                ComparisonDataDto dto = new ComparisonDataDto();
+                dto.setProductId(productId);
+                dto.setProductName(columns.productNames.get(selected[slot]));
+                dto.setCriteriaProfile(total.profile(columns, slot));
+                result.add(dto);
+            }
+            return result;
+        });
+    }
+
+    //================================================================================
+    // Параллельный проход
+    //================================================================================
+
+    /**
+     * Делит выбранные строки на участки с равным числом строк, сворачивает их параллельно
+     * и складывает частичные агрегаты.
+     */
+    private <P> P scan(RoaringBitmap selection, Supplier<P> newPartial, SegmentScan<P> segmentScan, BinaryOperator<P> merge) {
+        long selected = selection.getLongCardinality();
+        int segments = (int) Math.max(1, Math.min(parallelism, selected / minSegmentRows));
+        if (segments == 1) {
+            P partial = newPartial.get();
+            scanRows(selection, 0, Integer.MAX_VALUE, partial, segmentScan);
+            return partial;
+        }
+
+        // Границы участков — номера строк, с которых начинается каждая следующая доля выборки
+        int[] bounds = new int[segments + 1];
+        for (int segment = 1; segment < segments; segment++) {
+            bounds[segment] = selection.select((int) (selected * segment / segments));
+        }
+        bounds[segments] = Integer.MAX_VALUE;
+
+        List<Callable<P>> tasks = new ArrayList<>(segments);
+        for (int segment = 0; segment < segments; segment++) {
+            int from = bounds[segment];
+            int to = bounds[segment + 1];
+            tasks.add(() -> {
+                P partial = newPartial.get();
+                scanRows(selection, from, to, partial, segmentScan);
+                return partial;
+            });
+        }
+        try {
+            P total = null;
+            for (Future<P> future : scanPool.invokeAll(tasks)) {
+                P partial = future.get();
+                total = total == null ? partial : merge.apply(total, partial);
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Запрос к колоночному хранилищу прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Передает агрегату выбранные строки из диапазона {@code [fromRow, toRow)} пачками по возрастанию номера.
+     */
+    private static <P> void scanRows(RoaringBitmap selection, int fromRow, int toRow, P partial, SegmentScan<P> segmentScan) {
+        int[] batch = new int[ROW_BATCH];
+        int count = 0;
+        PeekableIntIterator rows = selection.getIntIterator();
+        rows.advanceIfNeeded(fromRow);
+        while (rows.hasNext() && rows.peekNext() < toRow) {
+            batch[count++] = rows.next();
+            if (count == batch.length) {
+                segmentScan.scan(partial, batch, count);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            segmentScan.scan(partial, batch, count);
+        }
+    }
+
+    /**
+     * Номер выбранного товара по коду товара; -1 — товар не выбран.
+     */
+    private static int[] slotsOf(ReviewColumns columns, int[] selected) {
+        int[] slotOfProduct = new int[columns.products.size()];
+        Arrays.fill(slotOfProduct, -1);
+        for (int slot = 0; slot < selected.length; slot++) {
+            slotOfProduct[selected[slot]] = slot;
+        }
+        return slotOfProduct;
+    }
+
+    @FunctionalInterface
+    private interface SegmentScan<P> {
+        /** Сворачивает в агрегат строки {@code rows[0..count)}. */
+        void scan(P partial, int[] rows, int count);
+    }
+
+    /**
+     * Фильтры запроса в кодах хранилища: включительный диапазон дней и код категории.
+     */
+    private record RowFilter(int fromDay, int toDay, Integer categoryCode) {
+
+        /**
+         * @return Фильтр; код категории {@code null} — без фильтра, -1 — категории нет в словаре.
+         */
+        static RowFilter of(ReviewColumns columns, LocalDate startDate, LocalDate endDate, Long categoryId) {
+            return new RowFilter(
+                    startDate != null ? (int) startDate.toEpochDay() : Integer.MIN_VALUE,
+                    endDate != null ? (int) endDate.toEpochDay() : Integer.MAX_VALUE,
+                    categoryId != null ? columns.categories.code(categoryId) : null);
+        }
+
+        /**
+         * Активные строки, подходящие под фильтр, по битовым индексам.
+         */
+        RoaringBitmap select(ReviewColumns columns) {
+            return columns.index.selectActive(fromDay, toDay, categoryCode);
+        }
+    }
+
+    /**
+     * Периоды графика динамики: номер периода для каждого дня диапазона и дата начала периода.
+     */
+    private record DayBuckets(int firstDay, int[] bucketOfDay, LocalDate[] bucketStarts) {
+
+        static DayBuckets of(DynamicsGranularity granularity, int fromDay, int toDay) {
+            if (fromDay > toDay) {
+                return new DayBuckets(0, new int[0], new LocalDate[0]);
+            }
+            int[] bucketOfDay = new int[toDay - fromDay + 1];
+            List<LocalDate> starts = new ArrayList<>();
+            for (int day = fromDay; day <= toDay; day++) {
+                LocalDate start = granularity.bucketStart(LocalDate.ofEpochDay(day));
+                if (starts.isEmpty() || !starts.get(starts.size() - 1).equals(start)) {
+                    starts.add(start);
+                }
+                bucketOfDay[day - fromDay] = starts.size() - 1;
+            }
+            return new DayBuckets(fromDay, bucketOfDay, starts.toArray(new LocalDate[0]));
+        }
+
+        int count() {
+            return bucketStarts.length;
+        }
+
+        int bucket(int day) {
+            return bucketOfDay[day - firstDay];
+        }
+    }
+
+    //================================================================================
+    // Частичные агрегаты
+    //================================================================================
+
+    /**
+     * Частичный агрегат дашборда по участку строк.
+     */
+    private static final class DashboardPartial {
+        long reviews;
+        long rated;
+        double ratingSum;
+        final long[] productRated;
+        final double[] productSum;
+        final long[] groupRated;
+        final double[] groupSum;
+        final long[] bucketRated;
+        final double[] bucketSum;
+        /** Количество оценок: индекс — код критерия * 5 + (оценка - 1). */
+        final long[] distribution;
+
+        DashboardPartial(int products, int groups, int buckets, int criteria) {
+            productRated = new long[products];
+            productSum = new double[products];
+            groupRated = new long[groups];
+            groupSum = new double[groups];
+            bucketRated = new long[buckets];
+            bucketSum = new double[buckets];
+            distribution = new long[criteria * MAX_RATING];
+        }
+
+        void scan(ReviewColumns columns, DayBuckets buckets, boolean groupByBrand, int[] rows, int count) {
+            double[] integralRating = columns.integralRating;
+            int[] product = columns.product;
+            short[] group = groupByBrand ? columns.brand : columns.category;
+            int[] day = columns.day;
+            int[] ratingStart = columns.ratingStart;
+            byte[] ratingLength = columns.ratingLength;
+            short[] ratingCriterion = columns.ratingCriterion;
+            byte[] ratingValue = columns.ratingValue;
+
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                reviews++;
+                double rating = integralRating[row];
+                if (!Double.isNaN(rating)) {
+                    rated++;
+                    ratingSum += rating;
+                    productRated[product[row]]++;
+                    productSum[product[row]] += rating;
+                    groupRated[group[row]]++;
+                    groupSum[group[row]] += rating;
+                    int bucket = buckets.bucket(day[row]);
+                    bucketRated[bucket]++;
+                    bucketSum[bucket] += rating;
+                }
+                for (int k = ratingStart[row], end = k + ratingLength[row]; k < end; k++) {
+                    int value = ratingValue[k];
+                    if (value >= 1 && value <= MAX_RATING) {
+                        distribution[ratingCriterion[k] * MAX_RATING + value - 1]++;
+                    }
+                }
+            }
+        }
+
+        DashboardPartial merge(DashboardPartial other) {
+            reviews += other.reviews;
+            rated += other.rated;
+            ratingSum += other.ratingSum;
+            add(productRated, other.productRated);
+            add(productSum, other.productSum);
+            add(groupRated, other.groupRated);
+            add(groupSum, other.groupSum);
+            add(bucketRated, other.bucketRated);
+            add(bucketSum, other.bucketSum);
+            add(distribution, other.distribution);
+            return this;
+        }
+
+        DashboardDto toDashboard(ReviewColumns columns, DayBuckets buckets, boolean groupByBrand) {
+            DashboardDto dashboard = new DashboardDto();
+
+            KpiDto kpi = new KpiDto();
+            kpi.setTotalReviews(reviews);
+            kpi.setAverageIntegralRating(rated == 0 ? 0.0 : ratingSum / rated);
+            dashboard.setKpis(kpi);
+
+            List<TopProductDto> ranked = new ArrayList<>();
+            for (int code = 0; code < productRated.length; code++) {
+                if (productRated[code] > 0) {
+                    ranked.add(new TopProductDto(columns.products.key(code), columns.productNames.get(code),
+                            productSum[code] / productRated[code]));
+                }
+            }
+            ranked.sort(Comparator.comparingDouble(TopProductDto::getAverageRating).thenComparing(TopProductDto::getProductId));
+            List<TopProductDto> best = new ArrayList<>(ranked.subList(Math.max(0, ranked.size() - TOP_LIMIT), ranked.size()));
+            Collections.reverse(best);
+            dashboard.setTopRatedProducts(best);
+            dashboard.setWorstRatedProducts(new ArrayList<>(ranked.subList(0, Math.min(TOP_LIMIT, ranked.size()))));
+
+            // Рейтинги групп собираются по названию, как GROUP BY по названию категории или бренду
+            Map<String, double[]> groups = new LinkedHashMap<>();
+            for (int code = 0; code < groupRated.length; code++) {
+                if (groupRated[code] > 0) {
+                    String name = groupByBrand ? columns.brands.key(code) : columns.categoryNames.get(code);
+                    double[] acc = groups.computeIfAbsent(name, k -> new double[2]);
+                    acc[0] += groupSum[code];
+                    acc[1] += groupRated[code];
+                }
+            }
+            Comparator<Map.Entry<String, double[]>> byAverageDesc =
+                    Comparator.comparingDouble((Map.Entry<String, double[]> e) -> e.getValue()[0] / e.getValue()[1]).reversed();
+            if (groupByBrand) {
+                dashboard.setBrandRatings(groups.entrySet().stream().sorted(byAverageDesc)
+                        .map(e -> new BrandRatingDto(e.getKey(), e.getValue()[0] / e.getValue()[1]))
+                        .toList());
+                dashboard.setCategoryRatings(null);
+            } else {
+                dashboard.setCategoryRatings(groups.entrySet().stream().sorted(byAverageDesc)
+                        .map(e -> new CategoryRatingDto(e.getKey(), e.getValue()[0] / e.getValue()[1]))
+                        .toList());
+                dashboard.setBrandRatings(null);
+            }
+
+            List<RatingDynamicDto> dynamics = new ArrayList<>();
+            for (int bucket = 0; bucket < bucketRated.length; bucket++) {
+                if (bucketRated[bucket] > 0) {
+                    dynamics.add(new RatingDynamicDto(buckets.bucketStarts()[bucket], bucketSum[bucket] / bucketRated[bucket],
+                            bucketRated[bucket]));
+                }
+            }
+            dashboard.setRatingDynamics(dynamics);
+
+            Map<String, long[]> counts = new TreeMap<>();
+            for (int criterion = 0; criterion < distribution.length / MAX_RATING; criterion++) {
+                long[] target = null;
+                for (int value = 0; value < MAX_RATING; value++) {
+                    long count = distribution[criterion * MAX_RATING + value];
+                    if (count > 0) {
+                        if (target == null) {
+                            target = counts.computeIfAbsent(columns.criterionNames.get(criterion), k -> new long[MAX_RATING]);
+                        }
+                        target[value] += count;
+                    }
+                }
+            }
+            List<RatingDistributionDto> ratingDistribution = new ArrayList<>();
+            counts.forEach((criterionName, values) -> {
+                RatingDistributionDto dto = new RatingDistributionDto(criterionName);
+                dto.setRating1Count(values[0]);
+                dto.setRating2Count(values[1]);
+                dto.setRating3Count(values[2]);
+                dto.setRating4Count(values[3]);
+                dto.setRating5Count(values[4]);
+                ratingDistribution.add(dto);
+            });
+            dashboard.setRatingDistribution(ratingDistribution);
+            return dashboard;
+        }
+    }
+
+    /**
+     * Частичный агрегат сводки по товарам: активные отзывы и рейтинги по коду товара.
+     */
+    private static final class ProductPartial {
+        final long[] reviews;
+        final long[] rated;
+        final double[] ratingSum;
+
+        ProductPartial(int products) {
+            reviews = new long[products];
+            rated = new long[products];
+            ratingSum = new double[products];
+        }
+
+        void scan(ReviewColumns columns, int[] rows, int count) {
+            int[] product = columns.product;
+            double[] integralRating = columns.integralRating;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                reviews[product[row]]++;
+                double rating = integralRating[row];
+                if (!Double.isNaN(rating)) {
+                    rated[product[row]]++;
+                    ratingSum[product[row]] += rating;
+                }
+            }
+        }
+
+        ProductPartial merge(ProductPartial other) {
+            add(reviews, other.reviews);
+            add(rated, other.rated);
+            add(ratingSum, other.ratingSum);
+            return this;
+        }
+    }
+
+    /**
+     * Частичный агрегат по выбранным товарам: отзывы в любом статусе, рейтинги активных отзывов
+     * и суммы оценок по критериям (индекс — номер товара * число критериев + код критерия).
+     */
+    private static final class ProfilePartial {
+        final int criteria;
+        final long[] reviews;
+        final long[] rated;
+        final double[] ratingSum;
+        final long[] criterionCount;
+        final long[] criterionSum;
+
+        ProfilePartial(int products, int criteria) {
+            this.criteria = criteria;
+            reviews = new long[products];
+            rated = new long[products];
+            ratingSum = new double[products];
+            criterionCount = new long[products * criteria];
+            criterionSum = new long[products * criteria];
+        }
+
+        void scan(ReviewColumns columns, int[] slotOfProduct, int[] rows, int count) {
+            int[] product = columns.product;
+            byte[] status = columns.status;
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                int slot = slotOfProduct[product[row]];
+                reviews[slot]++;
+                if (status[row] != ReviewColumns.ACTIVE) {
+                    continue;
+                }
+                double rating = columns.integralRating[row];
+                if (!Double.isNaN(rating)) {
+                    rated[slot]++;
+                    ratingSum[slot] += rating;
+                }
+                int base = slot * criteria;
+                for (int k = columns.ratingStart[row], end = k + columns.ratingLength[row]; k < end; k++) {
+                    criterionCount[base + columns.ratingCriterion[k]]++;
+                    criterionSum[base + columns.ratingCriterion[k]] += columns.ratingValue[k];
+                }
+            }
+        }
+
+        ProfilePartial merge(ProfilePartial other) {
+            add(reviews, other.reviews);
+            add(rated, other.rated);
+            add(ratingSum, other.ratingSum);
+            add(criterionCount, other.criterionCount);
+            add(criterionSum, other.criterionSum);
+            return this;
+        }
+
+        /**
+         * Профиль товара по названиям критериев, как GROUP BY по названию критерия.
+         */
+        List<CriteriaProfileDto> profile(ReviewColumns columns, int slot) {
+            Map<String, long[]> byName = new TreeMap<>();
+            for (int criterion = 0; criterion < criteria; criterion++) {
+                long count = criterionCount[slot * criteria + criterion];
+                if (count > 0) {
+                    long[] acc = byName.computeIfAbsent(columns.criterionNames.get(criterion), k -> new long[2]);
+                    acc[0] += criterionSum[slot * criteria + criterion];
+                    acc[1] += count;
+                }
+            }
+            List<CriteriaProfileDto> profile = new ArrayList<>(byName.size());
+            byName.forEach((name, acc) -> profile.add(new CriteriaProfileDto(name, (double) acc[0] / acc[1])));
+            return profile;
+        }
+    }
+
+    private static void add(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    private static void add(double[] target, double[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+}
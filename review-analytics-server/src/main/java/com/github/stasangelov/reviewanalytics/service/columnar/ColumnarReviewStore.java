@@ -0,0 +1,510 @@
+package com.github.stasangelov.reviewanalytics.service.columnar;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.columnar.ColumnarStoreStatsDto;
+import com.github.stasangelov.reviewanalytics.entity.Review;
+import com.github.stasangelov.reviewanalytics.event.ReviewChangedEvent;
+import com.github.stasangelov.reviewanalytics.service.ReviewRollupService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Хранилище отзывов в колоночном виде ({@link ReviewColumns}) для {@link ColumnarAnalyticsEngine}.
+ * <p>
+ * Включается свойством {@code analytics.columnar.enabled}. После старта приложения все отзывы
+ * загружаются в фоне пачками по диапазонам id; пока загрузка не завершена, аналитика считается
+ * запросами к БД. Дальше хранилище поддерживается событиями {@link ReviewChangedEvent} после
+ * фиксации транзакций: вклад активного отзыва берется из события, а для отзыва, ставшего
+ * неактивным, его состояние дочитывается из БД по id. Массовые изменения (пересчет рейтингов,
+ * генерация данных) перезагружают хранилище целиком через {@link #reload()}.
+ * <p>
+ * Запросы читают колонки под блокировкой чтения, изменения применяются под блокировкой записи.
+ */
+@Slf4j
+@Component
+public class ColumnarReviewStore {
+
+    private static final String SELECT_REVIEWS_SQL = "SELECT id, product_id, date_created, status, integral_rating " +
+            "FROM reviews WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_RATINGS_SQL = "SELECT review_id, criterion_id, rating FROM review_ratings " +
+            "WHERE review_id >= ? AND review_id <= ? ORDER BY review_id";
+    private static final String SELECT_REVIEW_SQL = "SELECT product_id, date_created, status, integral_rating " +
+            "FROM reviews WHERE id = ?";
+    private static final String SELECT_REVIEW_RATINGS_SQL = "SELECT criterion_id, rating FROM review_ratings WHERE review_id = ?";
+    private static final String SELECT_PRODUCT_SQL = "SELECT p.name, p.brand, c.id, c.name " +
+            "FROM products p JOIN categories c ON p.category_id = c.id WHERE p.id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int loadChunkSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object reloadMonitor = new Object();
+    private final ExecutorService loader =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("columnar-load-"));
+
+    /** Загруженные колонки; {@code null}, пока первая загрузка не завершена. Защищены {@link #lock}. */
+    private ReviewColumns columns;
+    /** Изменения, пришедшие во время перезагрузки; применяются к новым колонкам перед подменой. */
+    private List<ReviewRow> changedDuringReload;
+
+    public ColumnarReviewStore(
+            JdbcTemplate jdbcTemplate,
+            @Value("${analytics.columnar.enabled:false}") boolean enabled,
+            @Value("${analytics.columnar.load-chunk-size:50000}") int loadChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.loadChunkSize = loadChunkSize;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * После старта приложения загружает отзывы в фоне. Старт приложения этого не ждет.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        loader.execute(() -> {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                log.error("Не удалось загрузить отзывы в колоночное хранилище; аналитика считается запросами к БД", e);
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * {@code true}, если хранилище включено и загружено, то есть может отвечать на запросы.
+     */
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return columns != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Состояние хранилища и память, занятая колонками и битовыми индексами.
+     */
+    public ColumnarStoreStatsDto getStats() {
+        ColumnarStoreStatsDto stats = new ColumnarStoreStatsDto();
+        stats.setEnabled(enabled);
+        lock.readLock().lock();
+        try {
+            if (columns != null) {
+                stats.setLoaded(true);
+                stats.setReviewCount(columns.reviewCount());
+                stats.setRowCount(columns.rowCount);
+                stats.setColumnBytes(columns.columnBytes());
+                stats.setIndexBytes(columns.index.sizeInBytes());
+                stats.setIndexBitmaps(columns.index.bitmapCount());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    private boolean isTracking() {
+        lock.readLock().lock();
+        try {
+            return columns != null || changedDuringReload != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет чтение колонок под блокировкой чтения.
+     * @throws IllegalStateException если хранилище еще не загружено.
+     */
+    <T> T read(Function<ReviewColumns, T> reader) {
+        lock.readLock().lock();
+        try {
+            if (columns == null) {
+                throw new IllegalStateException("Колоночное хранилище отзывов не загружено");
+            }
+            return reader.apply(columns);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //================================================================================
+    // Загрузка
+    //================================================================================
+
+    /**
+     * Заново загружает все отзывы из БД и подменяет ими текущие колонки. До подмены запросы
+     * читают прежние колонки. Если хранилище выключено, ничего не делает.
+     *
+     * @return Количество загруженных отзывов.
+     */
+    public int reload() {
+        if (!enabled) {
+            return 0;
+        }
+        synchronized (reloadMonitor) {
+            long started = System.currentTimeMillis();
+            lock.writeLock().lock();
+            try {
+                changedDuringReload = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            ReviewColumns loaded;
+            try {
+                loaded = loadColumns();
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    changedDuringReload = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                // Изменения, зафиксированные во время загрузки, могли не попасть в прочитанные пачки
+                for (ReviewRow row : changedDuringReload) {
+                    row.applyTo(loaded);
+                }
+                changedDuringReload = null;
+                loaded.compactIfNeeded();
+                loaded.index.optimize();
+                columns = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Колоночное хранилище загружено: {} отзывов за {} мс, колонки {} КБ, индексы {} КБ",
+                    loaded.reviewCount(), System.currentTimeMillis() - started,
+                    loaded.columnBytes() / 1024, loaded.index.sizeInBytes() / 1024);
+            return loaded.reviewCount();
+        }
+    }
+
+    private ReviewColumns loadColumns() {
+        ReviewColumns loaded = new ReviewColumns();
+        jdbcTemplate.query("SELECT id, name FROM categories",
+                rs -> { loaded.addCategory(rs.getLong(1), rs.getString(2)); });
+        jdbcTemplate.query("SELECT id, name, category_id, brand FROM products",
+                rs -> { loaded.addProduct(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getString(4)); });
+        jdbcTemplate.query("SELECT id, name FROM criteria",
+                rs -> { loaded.addCriterion(rs.getLong(1), rs.getString(2)); });
+
+        ReviewChunk chunk = new ReviewChunk(loadChunkSize);
+        long afterId = 0;
+        while (true) {
+            chunk.clear();
+            jdbcTemplate.query(SELECT_REVIEWS_SQL, rs -> {
+                chunk.addReview(rs.getLong(1), rs.getLong(2), toEpochDay(rs.getObject(3, LocalDateTime.class)),
+                        toStatus(rs.getString(4)), getRating(rs, 5));
+            }, afterId, loadChunkSize);
+            if (chunk.size == 0) {
+                return loaded;
+            }
+            jdbcTemplate.query(SELECT_RATINGS_SQL,
+                    rs -> { chunk.addRating(rs.getLong(1), rs.getLong(2), rs.getInt(3)); },
+                    chunk.ids[0], chunk.ids[chunk.size - 1]);
+            // Товары и критерии, созданные после чтения словарей, дочитываются по одному
+            for (int i = 0; i < chunk.size; i++) {
+                if (loaded.products.code(chunk.productIds[i]) < 0) {
+                    ProductInfo product = readProduct(chunk.productIds[i]);
+                    loaded.addCategory(product.categoryId(), product.categoryName());
+                    loaded.addProduct(chunk.productIds[i], product.name(), product.categoryId(), product.brand());
+                }
+            }
+            for (int i = 0; i < chunk.ratingCount; i++) {
+                if (loaded.criteria.code(chunk.ratingCriterionIds[i]) < 0) {
+                    loaded.addCriterion(chunk.ratingCriterionIds[i], readCriterionName(chunk.ratingCriterionIds[i]));
+                }
+            }
+            chunk.appendTo(loaded);
+            afterId = chunk.ids[chunk.size - 1];
+        }
+    }
+
+    //================================================================================
+    // Изменения отзывов
+    //================================================================================
+
+    /**
+     * Применяет изменение отзыва после фиксации транзакции. Все обращения к БД выполняются
+     * до захвата блокировки записи, чтобы не задерживать запросы аналитики.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        if (!enabled || !isTracking()) {
+            // До первой загрузки изменения не нужны: загрузка прочитает уже зафиксированное состояние
+            return;
+        }
+        ReviewRow row = event.getCurrent() != null
+                ? ReviewRow.of(event.getReviewId(), event.getCurrent())
+                : readReview(event.getReviewId());
+        resolveDictionaries(row);
+
+        lock.writeLock().lock();
+        try {
+            if (changedDuringReload != null) {
+                changedDuringReload.add(row);
+            }
+            if (columns != null) {
+                row.applyTo(columns);
+                columns.compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Читает состояние отзыва из БД; {@code null} в полях товара означает, что отзыва больше нет.
+     */
+    private ReviewRow readReview(long reviewId) {
+        List<ReviewRow> found = jdbcTemplate.query(SELECT_REVIEW_SQL, (rs, rowNum) -> new ReviewRow(reviewId,
+                rs.getLong(1), toEpochDay(rs.getObject(2, LocalDateTime.class)), toStatus(rs.getString(3)), getRating(rs, 4)),
+                reviewId);
+        if (found.isEmpty()) {
+            return new ReviewRow(reviewId, null, 0, ReviewColumns.REMOVED, Double.NaN);
+        }
+        ReviewRow row = found.get(0);
+        jdbcTemplate.query(SELECT_REVIEW_RATINGS_SQL, rs -> { row.addRating(rs.getLong(1), rs.getInt(2)); }, reviewId);
+        return row;
+    }
+
+    /**
+     * Дочитывает из БД товар и критерии отзыва, которых еще нет в словарях текущих колонок.
+     */
+    private void resolveDictionaries(ReviewRow row) {
+        if (row.productId == null) {
+            return;
+        }
+        List<Long> missingCriteria = new ArrayList<>();
+        boolean productMissing;
+        lock.readLock().lock();
+        try {
+            productMissing = columns == null || columns.products.code(row.productId) < 0;
+            for (int i = 0; i < row.ratings; i++) {
+                if (columns == null || columns.criteria.code(row.criterionIds[i]) < 0) {
+                    missingCriteria.add(row.criterionIds[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (productMissing) {
+            row.product = readProduct(row.productId);
+        }
+        for (Long criterionId : missingCriteria) {
+            row.criterionNames.put(criterionId, readCriterionName(criterionId));
+        }
+    }
+
+    private ProductInfo readProduct(long productId) {
+        return jdbcTemplate.queryForObject(SELECT_PRODUCT_SQL,
+                (rs, rowNum) -> new ProductInfo(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getString(4)), productId);
+    }
+
+    private String readCriterionName(long criterionId) {
+        return jdbcTemplate.queryForObject("SELECT name FROM criteria WHERE id = ?", String.class, criterionId);
+    }
+
+    private static long toEpochDay(LocalDateTime dateCreated) {
+        return dateCreated.toLocalDate().toEpochDay();
+    }
+
+    private static byte toStatus(String status) {
+        return Review.ReviewStatus.ACTIVE.name().equals(status) ? ReviewColumns.ACTIVE : ReviewColumns.INACTIVE;
+    }
+
+    private static double getRating(ResultSet rs, int column) throws SQLException {
+        double rating = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : rating;
+    }
+
+    //================================================================================
+    // Вспомогательные классы
+    //================================================================================
+
+    private record ProductInfo(String name, String brand, long categoryId, String categoryName) {
+    }
+
+    /**
+     * Новое состояние одного отзыва вместе со словарными данными, которых может не быть в колонках.
+     */
+    private static final class ReviewRow {
+        final long reviewId;
+        /** {@code null} — отзыв удален. */
+        final Long productId;
+        final long epochDay;
+        final byte status;
+        final double integralRating;
+        long[] criterionIds = new long[8];
+        byte[] values = new byte[8];
+        int ratings;
+        ProductInfo product;
+        final Map<Long, String> criterionNames = new HashMap<>();
+
+        ReviewRow(long reviewId, Long productId, long epochDay, byte status, double integralRating) {
+            this.reviewId = reviewId;
+            this.productId = productId;
+            this.epochDay = epochDay;
+            this.status = status;
+            this.integralRating = integralRating;
+        }
+
+        static ReviewRow of(long reviewId, ReviewRollupService.Contribution contribution) {
+            ReviewRow row = new ReviewRow(reviewId, contribution.getProductId(), contribution.getDay().toEpochDay(),
+                    ReviewColumns.ACTIVE,
+                    contribution.getIntegralRating() != null ? contribution.getIntegralRating() : Double.NaN);
+            contribution.getRatings().forEach(row::addRating);
+            return row;
+        }
+
+        void addRating(long criterionId, int rating) {
+            if (ratings == criterionIds.length) {
+                criterionIds = Arrays.copyOf(criterionIds, ratings * 2);
+                values = Arrays.copyOf(values, ratings * 2);
+            }
+            criterionIds[ratings] = criterionId;
+            values[ratings] = (byte) rating;
+            ratings++;
+        }
+
+        void applyTo(ReviewColumns target) {
+            if (productId == null) {
+                target.remove(reviewId);
+                return;
+            }
+            if (product != null) {
+                target.addCategory(product.categoryId(), product.categoryName());
+                target.addProduct(productId, product.name(), product.categoryId(), product.brand());
+            }
+            criterionNames.forEach(target::addCriterion);
+
+            int productCode = target.products.code(productId);
+            if (productCode < 0) {
+                // Товар был удален из БД до того, как изменение дошло до хранилища
+                target.remove(reviewId);
+                return;
+            }
+            short[] criterionCodes = new short[ratings];
+            for (int i = 0; i < ratings; i++) {
+                criterionCodes[i] = (short) target.criteria.code(criterionIds[i]);
+            }
+            target.append(reviewId, productCode, (int) epochDay, status, integralRating, criterionCodes, values, ratings);
+        }
+    }
+
+    /**
+     * Буфер одной пачки загрузки: отзывы по возрастанию id и их оценки.
+     */
+    private static final class ReviewChunk {
+        final long[] ids;
+        final long[] productIds;
+        final int[] days;
+        final byte[] statuses;
+        final double[] integralRatings;
+        int size;
+
+        long[] ratingReviewIds = new long[1024];
+        long[] ratingCriterionIds = new long[1024];
+        byte[] ratingValues = new byte[1024];
+        int ratingCount;
+
+        ReviewChunk(int capacity) {
+            ids = new long[capacity];
+            productIds = new long[capacity];
+            days = new int[capacity];
+            statuses = new byte[capacity];
+            integralRatings = new double[capacity];
+        }
+
+        void clear() {
+            size = 0;
+            ratingCount = 0;
+        }
+
+        void addReview(long id, long productId, long epochDay, byte status, double integralRating) {
+            ids[size] = id;
+            productIds[size] = productId;
+            days[size] = (int) epochDay;
+            statuses[size] = status;
+            integralRatings[size] = integralRating;
+            size++;
+        }
+
+        void addRating(long reviewId, long criterionId, int rating) {
+            if (ratingCount == ratingReviewIds.length) {
+                ratingReviewIds = Arrays.copyOf(ratingReviewIds, ratingCount * 2);
+                ratingCriterionIds = Arrays.copyOf(ratingCriterionIds, ratingCount * 2);
+                ratingValues = Arrays.copyOf(ratingValues, ratingCount * 2);
+            }
+            ratingReviewIds[ratingCount] = reviewId;
+            ratingCriterionIds[ratingCount] = criterionId;
+            ratingValues[ratingCount] = (byte) rating;
+            ratingCount++;
+        }
+
+        /**
+         * Дописывает отзывы пачки в колонки. Оценки отсортированы по id отзыва,
+         * поэтому оценки каждого отзыва находятся одним проходом вместе с отзывами.
+         */
+        void appendTo(ReviewColumns target) {
+            // На одну ячейку больше допустимого, чтобы лишние оценки отклонил ReviewColumns.append
+            short[] criterionCodes = new short[Byte.MAX_VALUE + 1];
+            byte[] values = new byte[Byte.MAX_VALUE + 1];
+            int rating = 0;
+            for (int i = 0; i < size; i++) {
+                int ratings = 0;
+                while (rating < ratingCount && ratingReviewIds[rating] < ids[i]) {
+                    rating++;
+                }
+                while (rating < ratingCount && ratingReviewIds[rating] == ids[i] && ratings < values.length) {
+                    criterionCodes[ratings] = (short) target.criteria.code(ratingCriterionIds[rating]);
+                    values[ratings] = ratingValues[rating];
+                    ratings++;
+                    rating++;
+                }
+                target.append(ids[i], target.products.code(productIds[i]), days[i], statuses[i], integralRatings[i],
+                        criterionCodes, values, ratings);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.stasangelov.reviewanalytics.service.columnar;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Вторичные индексы колоночного хранилища: сжатые битовые карты (Roaring) номеров строк
+ * {@link ReviewColumns} по статусу, категории, товару, дню и месяцу создания отзыва.
+ * <p>
+ * Фильтры запроса сводятся к пересечению и объединению карт, после чего агрегаты считаются
+ * только по выбранным строкам. Строка, помеченная удаленной, исключается только из карт статуса:
+ * выборки всегда пересекаются с ними, поэтому остальные карты не трогаются до уплотнения,
+ * после которого номера строк меняются и индекс строится заново.
+ * <p>
+ * Возвращаемые карты могут быть внутренними картами индекса и не должны изменяться.
+ */
+final class ReviewBitmapIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final RoaringBitmap active = new RoaringBitmap();
+    private final RoaringBitmap inactive = new RoaringBitmap();
+    private final List<RoaringBitmap> byCategory = new ArrayList<>();
+    private final List<RoaringBitmap> byProduct = new ArrayList<>();
+    private final TreeMap<Integer, RoaringBitmap> byDay = new TreeMap<>();
+    /** Ключ — день начала месяца ({@link LocalDate#toEpochDay()}). */
+    private final TreeMap<Integer, RoaringBitmap> byMonth = new TreeMap<>();
+
+    /**
+     * Строит индекс по всем строкам колонок.
+     */
+    static ReviewBitmapIndex build(ReviewColumns columns) {
+        ReviewBitmapIndex index = new ReviewBitmapIndex();
+        for (int row = 0; row < columns.rowCount; row++) {
+            index.add(row, columns.status[row], columns.product[row], columns.category[row], columns.day[row]);
+        }
+        index.optimize();
+        return index;
+    }
+
+    //================================================================================
+    // Изменение
+    //================================================================================
+
+    void add(int row, byte status, int product, int category, int day) {
+        if (status == ReviewColumns.ACTIVE) {
+            active.add(row);
+        } else if (status == ReviewColumns.INACTIVE) {
+            inactive.add(row);
+        }
+        bitmapAt(byCategory, category).add(row);
+        bitmapAt(byProduct, product).add(row);
+        byDay.computeIfAbsent(day, k -> new RoaringBitmap()).add(row);
+        byMonth.computeIfAbsent(monthStart(day), k -> new RoaringBitmap()).add(row);
+    }
+
+    /**
+     * Исключает строку из выборок: строка заменена новой версией отзыва.
+     */
+    void remove(int row, byte status) {
+        if (status == ReviewColumns.ACTIVE) {
+            active.remove(row);
+        } else if (status == ReviewColumns.INACTIVE) {
+            inactive.remove(row);
+        }
+    }
+
+    /**
+     * Переводит плотные участки карт в сжатие сериями; выполняется после массовой загрузки.
+     */
+    void optimize() {
+        forEachBitmap(RoaringBitmap::runOptimize);
+    }
+
+    //================================================================================
+    // Выборки
+    //================================================================================
+
+    /**
+     * Активные отзывы за включительный диапазон дней и в категории.
+     *
+     * @param categoryCode Код категории; {@code null} — без фильтра, отрицательный код — неизвестная категория.
+     */
+    RoaringBitmap selectActive(int fromDay, int toDay, Integer categoryCode) {
+        List<RoaringBitmap> filters = new ArrayList<>(3);
+        filters.add(active);
+        if (categoryCode != null) {
+            if (categoryCode < 0 || categoryCode >= byCategory.size()) {
+                return EMPTY;
+            }
+            filters.add(byCategory.get(categoryCode));
+        }
+        if (fromDay > Integer.MIN_VALUE || toDay < Integer.MAX_VALUE) {
+            filters.add(days(fromDay, toDay));
+        }
+        if (filters.size() == 1) {
+            return active;
+        }
+        // Пересечение начинается с самой маленькой карты
+        filters.sort((a, b) -> Integer.compare(a.getCardinality(), b.getCardinality()));
+        return FastAggregation.and(filters.iterator());
+    }
+
+    /**
+     * Строки товаров в любом статусе, кроме замененных новыми версиями.
+     */
+    RoaringBitmap selectLive(int[] productCodes) {
+        List<RoaringBitmap> products = new ArrayList<>(productCodes.length);
+        for (int code : productCodes) {
+            if (code < byProduct.size()) {
+                products.add(byProduct.get(code));
+            }
+        }
+        return RoaringBitmap.and(FastAggregation.or(products.iterator()), RoaringBitmap.or(active, inactive));
+    }
+
+    /**
+     * Строки за включительный диапазон дней: целые месяцы берутся картами месяцев, края — картами дней.
+     */
+    private RoaringBitmap days(int fromDay, int toDay) {
+        if (byDay.isEmpty()) {
+            return EMPTY;
+        }
+        int from = Math.max(fromDay, byDay.firstKey());
+        int to = Math.min(toDay, byDay.lastKey());
+        if (from > to) {
+            return EMPTY;
+        }
+        List<RoaringBitmap> parts = new ArrayList<>();
+        for (Map.Entry<Integer, RoaringBitmap> month : byMonth.subMap(monthStart(from), true, to, true).entrySet()) {
+            int monthFirst = month.getKey();
+            int monthLast = (int) LocalDate.ofEpochDay(monthFirst).plusMonths(1).toEpochDay() - 1;
+            if (monthFirst >= from && monthLast <= to) {
+                parts.add(month.getValue());
+            } else {
+                NavigableMap<Integer, RoaringBitmap> edge =
+                        byDay.subMap(Math.max(from, monthFirst), true, Math.min(to, monthLast), true);
+                parts.addAll(edge.values());
+            }
+        }
+        return FastAggregation.or(parts.iterator());
+    }
+
+    //================================================================================
+    // Размер
+    //================================================================================
+
+    /**
+     * Оценка памяти, занятой картами индекса, в байтах.
+     */
+    long sizeInBytes() {
+        long[] bytes = {0};
+        forEachBitmap(bitmap -> bytes[0] += bitmap.getLongSizeInBytes());
+        return bytes[0];
+    }
+
+    int bitmapCount() {
+        return 2 + byCategory.size() + byProduct.size() + byDay.size() + byMonth.size();
+    }
+
+    private void forEachBitmap(Consumer<RoaringBitmap> action) {
+        action.accept(active);
+        action.accept(inactive);
+        byCategory.forEach(action);
+        byProduct.forEach(action);
+        byDay.values().forEach(action);
+        byMonth.values().forEach(action);
+    }
+
+    private static RoaringBitmap bitmapAt(List<RoaringBitmap> bitmaps, int code) {
+        while (bitmaps.size() <= code) {
+            bitmaps.add(new RoaringBitmap());
+        }
+        return bitmaps.get(code);
+    }
+
+    private static int monthStart(int epochDay) {
+        return (int) LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay();
+    }
+}
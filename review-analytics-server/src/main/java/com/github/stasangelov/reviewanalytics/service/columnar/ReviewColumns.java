@@ -0,0 +1,378 @@
+package com.github.stasangelov.reviewanalytics.service.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отзывы в памяти в виде колонок примитивных массивов: строка {@code i} — это значения
+ * {@code i}-х элементов всех колонок. Товары, категории, бренды и критерии закодированы
+ * номерами в словарях, поэтому строка отзыва занимает несколько десятков байт.
+ * <p>
+ * Оценки по критериям хранятся подряд в общих массивах {@link #ratingCriterion}/{@link #ratingValue};
+ * строка ссылается на свой участок через {@link #ratingStart} и {@link #ratingLength}.
+ * Измененный отзыв дописывается новой строкой, а прежняя помечается {@link #REMOVED};
+ * такие строки периодически удаляются уплотнением.
+ * <p>
+ * Номера строк дополнительно проиндексированы битовыми картами {@link #index}: выборки по фильтрам
+ * строятся их пересечением, а колонки читаются только для выбранных строк.
+ * <p>
+ * Экземпляр не потокобезопасен: доступ к нему синхронизирует {@link ColumnarReviewStore}.
+ */
+final class ReviewColumns {
+
+    static final byte ACTIVE = 0;
+    static final byte INACTIVE = 1;
+    /** Строка заменена более новой версией отзыва и будет удалена при уплотнении. */
+    static final byte REMOVED = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Уплотнение запускается, когда удаленных строк больше этого числа и больше четверти всех строк. */
+    private static final int COMPACTION_THRESHOLD = 4096;
+
+    //================================================================================
+    // Словари
+    //================================================================================
+
+    final Dictionary<Long> categories = new Dictionary<>();
+    final List<String> categoryNames = new ArrayList<>();
+    final Dictionary<String> brands = new Dictionary<>();
+    final Dictionary<Long> products = new Dictionary<>();
+    final List<String> productNames = new ArrayList<>();
+    short[] productCategory = new short[INITIAL_CAPACITY];
+    short[] productBrand = new short[INITIAL_CAPACITY];
+    final Dictionary<Long> criteria = new Dictionary<>();
+    final List<String> criterionNames = new ArrayList<>();
+
+    //================================================================================
+    // Колонки строк
+    //================================================================================
+
+    /** Число строк, включая удаленные. */
+    int rowCount;
+    int removedCount;
+    long[] reviewId = new long[INITIAL_CAPACITY];
+    int[] product = new int[INITIAL_CAPACITY];
+    short[] category = new short[INITIAL_CAPACITY];
+    short[] brand = new short[INITIAL_CAPACITY];
+    /** День создания отзыва: {@link java.time.LocalDate#toEpochDay()}. */
+    int[] day = new int[INITIAL_CAPACITY];
+    byte[] status = new byte[INITIAL_CAPACITY];
+    /** Интегральный рейтинг; {@link Double#NaN}, если он еще не рассчитан. */
+    double[] integralRating = new double[INITIAL_CAPACITY];
+    int[] ratingStart = new int[INITIAL_CAPACITY];
+    byte[] ratingLength = new byte[INITIAL_CAPACITY];
+
+    int ratingCount;
+    short[] ratingCriterion = new short[INITIAL_CAPACITY];
+    byte[] ratingValue = new byte[INITIAL_CAPACITY];
+
+    /** Границы дней по всем строкам; пустое хранилище — {@code minDay > maxDay}. */
+    int minDay = Integer.MAX_VALUE;
+    int maxDay = Integer.MIN_VALUE;
+
+    /** Битовые индексы строк; после уплотнения строятся заново. */
+    ReviewBitmapIndex index = new ReviewBitmapIndex();
+
+    private LongIntMap rowByReviewId = new LongIntMap(INITIAL_CAPACITY);
+
+    //================================================================================
+    // Заполнение словарей
+    //================================================================================
+
+    int addCategory(long id, String name) {
+        int code = categories.code(id);
+        if (code < 0) {
+            code = checkShortCode(categories.add(id), "категорий");
+            categoryNames.add(name);
+        } else {
+            categoryNames.set(code, name);
+        }
+        return code;
+    }
+
+    /**
+     * Добавляет товар в словарь или обновляет его атрибуты. Категория уже должна быть в словаре.
+     */
+    int addProduct(long id, String name, long categoryId, String brandName) {
+        int categoryCode = categories.code(categoryId);
+        if (categoryCode < 0) {
+            throw new IllegalStateException("Категория " + categoryId + " товара " + id + " отсутствует в словаре");
+        }
+        int brandCode = brands.code(brandName);
+        if (brandCode < 0) {
+            brandCode = checkShortCode(brands.add(brandName), "брендов");
+        }
+
+        int code = products.code(id);
+        if (code < 0) {
+            code = products.add(id);
+            productNames.add(name);
+            if (code == productCategory.length) {
+                productCategory = Arrays.copyOf(productCategory, code * 2);
+                productBrand = Arrays.copyOf(productBrand, code * 2);
+            }
+        } else {
+            productNames.set(code, name);
+        }
+        productCategory[code] = (short) categoryCode;
+        productBrand[code] = (short) brandCode;
+        return code;
+    }
+
+    int addCriterion(long id, String name) {
+        int code = criteria.code(id);
+        if (code < 0) {
+            code = checkShortCode(criteria.add(id), "критериев");
+            criterionNames.add(name);
+        } else {
+            criterionNames.set(code, name);
+        }
+        return code;
+    }
+
+    //================================================================================
+    // Строки
+    //================================================================================
+
+    /**
+     * Дописывает отзыв новой строкой; прежняя строка того же отзыва помечается удаленной.
+     *
+     * @param criterionCodes Коды критериев оценок, первые {@code ratings} элементов.
+     * @param values         Оценки в том же порядке.
+     */
+    void append(long id, int productCode, int epochDay, byte reviewStatus, double rating,
+                short[] criterionCodes, byte[] values, int ratings) {
+        if (ratings > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Слишком много оценок у отзыва " + id + ": " + ratings);
+        }
+        remove(id);
+        ensureRowCapacity(rowCount + 1);
+        ensureRatingCapacity(ratingCount + ratings);
+
+        int row = rowCount++;
+        reviewId[row] = id;
+        product[row] = productCode;
+        category[row] = productCategory[productCode];
+        brand[row] = productBrand[productCode];
+        day[row] = epochDay;
+        status[row] = reviewStatus;
+        integralRating[row] = rating;
+        ratingStart[row] = ratingCount;
+        ratingLength[row] = (byte) ratings;
+        System.arraycopy(criterionCodes, 0, ratingCriterion, ratingCount, ratings);
+        System.arraycopy(values, 0, ratingValue, ratingCount, ratings);
+        ratingCount += ratings;
+
+        minDay = Math.min(minDay, epochDay);
+        maxDay = Math.max(maxDay, epochDay);
+        rowByReviewId.put(id, row);
+        index.add(row, reviewStatus, productCode, category[row], epochDay);
+    }
+
+    /**
+     * Помечает строку отзыва удаленной, если она есть.
+     */
+    void remove(long id) {
+        int row = rowByReviewId.get(id);
+        if (row >= 0 && status[row] != REMOVED) {
+            index.remove(row, status[row]);
+            status[row] = REMOVED;
+            removedCount++;
+        }
+    }
+
+    /**
+     * Удаляет строки, помеченные удаленными, если их накопилось достаточно много.
+     */
+    void compactIfNeeded() {
+        if (removedCount <= COMPACTION_THRESHOLD || removedCount * 4L <= rowCount) {
+            return;
+        }
+        int liveRows = rowCount - removedCount;
+        ReviewColumns target = new ReviewColumns();
+        target.ensureRowCapacity(liveRows);
+        target.ensureRatingCapacity(ratingCount);
+        target.rowByReviewId = new LongIntMap(liveRows);
+
+        int row = 0;
+        int rating = 0;
+        for (int i = 0; i < rowCount; i++) {
+            if (status[i] == REMOVED) {
+                continue;
+            }
+            target.reviewId[row] = reviewId[i];
+            target.product[row] = product[i];
+            target.category[row] = category[i];
+            target.brand[row] = brand[i];
+            target.day[row] = day[i];
+            target.status[row] = status[i];
+            target.integralRating[row] = integralRating[i];
+            target.ratingStart[row] = rating;
+            target.ratingLength[row] = ratingLength[i];
+            System.arraycopy(ratingCriterion, ratingStart[i], target.ratingCriterion, rating, ratingLength[i]);
+            System.arraycopy(ratingValue, ratingStart[i], target.ratingValue, rating, ratingLength[i]);
+            rating += ratingLength[i];
+            target.rowByReviewId.put(reviewId[i], row);
+            row++;
+        }
+
+        reviewId = target.reviewId;
+        product = target.product;
+        category = target.category;
+        brand = target.brand;
+        day = target.day;
+        status = target.status;
+        integralRating = target.integralRating;
+        ratingStart = target.ratingStart;
+        ratingLength = target.ratingLength;
+        ratingCriterion = target.ratingCriterion;
+        ratingValue = target.ratingValue;
+        rowByReviewId = target.rowByReviewId;
+        rowCount = row;
+        ratingCount = rating;
+        removedCount = 0;
+        index = ReviewBitmapIndex.build(this);
+    }
+
+    /**
+     * Число отзывов (без удаленных строк).
+     */
+    int reviewCount() {
+        return rowCount - removedCount;
+    }
+
+    /**
+     * Память, занятая колонками и словарными массивами товаров, в байтах (по выделенной емкости массивов).
+     */
+    long columnBytes() {
+        long rowBytes = (long) reviewId.length * (Long.BYTES + Integer.BYTES + Short.BYTES * 2 + Integer.BYTES
+                + Byte.BYTES + Double.BYTES + Integer.BYTES + Byte.BYTES);
+        long ratingBytes = (long) ratingCriterion.length * (Short.BYTES + Byte.BYTES);
+        long productBytes = (long) productCategory.length * Short.BYTES * 2;
+        return rowBytes + ratingBytes + productBytes;
+    }
+
+    private void ensureRowCapacity(int capacity) {
+        if (capacity <= reviewId.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, reviewId.length * 2);
+        reviewId = Arrays.copyOf(reviewId, newCapacity);
+        product = Arrays.copyOf(product, newCapacity);
+        category = Arrays.copyOf(category, newCapacity);
+        brand = Arrays.copyOf(brand, newCapacity);
+        day = Arrays.copyOf(day, newCapacity);
+        status = Arrays.copyOf(status, newCapacity);
+        integralRating = Arrays.copyOf(integralRating, newCapacity);
+        ratingStart = Arrays.copyOf(ratingStart, newCapacity);
+        ratingLength = Arrays.copyOf(ratingLength, newCapacity);
+    }
+
+    private void ensureRatingCapacity(int capacity) {
+        if (capacity <= ratingCriterion.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ratingCriterion.length * 2);
+        ratingCriterion = Arrays.copyOf(ratingCriterion, newCapacity);
+        ratingValue = Arrays.copyOf(ratingValue, newCapacity);
+    }
+
+    private static int checkShortCode(int code, String what) {
+        if (code > Short.MAX_VALUE) {
+            throw new IllegalStateException("Слишком много " + what + " для колоночного хранилища: " + code);
+        }
+        return code;
+    }
+
+    /**
+     * Словарь значений: каждому новому значению присваивается следующий номер.
+     */
+    static final class Dictionary<K> {
+        private final Map<K, Integer> codes = new HashMap<>();
+        private final List<K> keys = new ArrayList<>();
+
+        /** Номер значения или -1, если его нет в словаре. */
+        int code(K key) {
+            Integer code = codes.get(key);
+            return code == null ? -1 : code;
+        }
+
+        int add(K key) {
+            int code = keys.size();
+            codes.put(key, code);
+            keys.add(key);
+            return code;
+        }
+
+        K key(int code) {
+            return keys.get(code);
+        }
+
+        int size() {
+            return keys.size();
+        }
+    }
+
+    /**
+     * Отображение id отзыва в номер строки на примитивных массивах (открытая адресация).
+     * Id отзывов положительны, поэтому 0 обозначает пустую ячейку.
+     */
+    private static final class LongIntMap {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
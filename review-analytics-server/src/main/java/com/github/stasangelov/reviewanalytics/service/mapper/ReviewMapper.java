@@ -3,16 +3,23 @@ package com.github.stasangelov.reviewanalytics.service.mapper;
 import com.github.stasangelov.reviewanalytics.dto.review.ReviewDto;
 import com.github.stasangelov.reviewanalytics.dto.review.ReviewRatingDto;
 import com.github.stasangelov.reviewanalytics.entity.Review;
+import com.github.stasangelov.reviewanalytics.service.CriterionWeightCache;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import java.util.stream.Collectors;
 
 /**
  * Маппер для преобразования сущности {@link Review} в ее "безопасное"
  * представление для клиента — {@link ReviewDto}.
+ * Названия критериев берутся из {@link CriterionWeightCache}, поэтому сами критерии
+ * оценок загружать из БД не требуется.
  */
 @Component
+@RequiredArgsConstructor
 public class ReviewMapper {
 
+    private final CriterionWeightCache criterionWeightCache;
+
     public ReviewDto toDto(Review review) {
         ReviewDto dto = new ReviewDto();
         dto.setId(review.getId());
@@ -24,8 +31,9 @@ public class ReviewMapper {
 
         dto.setReviewRatings(review.getReviewRatings().stream().map(rating -> {
             ReviewRatingDto ratingDto = new ReviewRatingDto();
-            ratingDto.setCriterionId(rating.getCriterion().getId());
-            ratingDto.setCriterionName(rating.getCriterion().getName());
+            Long criterionId = rating.getCriterion().getId();
+            ratingDto.setCriterionId(criterionId);
+            ratingDto.setCriterionName(criterionWeightCache.getName(criterionId));
             ratingDto.setRating(rating.getRating());
             return ratingDto;
         }).collect(Collectors.toList()));
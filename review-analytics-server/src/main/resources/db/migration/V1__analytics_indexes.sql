@@ -0,0 +1,19 @@
+-- Индексы под фильтры аналитических запросов.
+-- Вторичные индексы InnoDB содержат первичный ключ, поэтому id в них не перечисляется.
+
+-- Активные отзывы за период (KPI, динамика, топы товаров, распределение оценок).
+-- product_id и integral_rating включены, чтобы агрегаты читались из индекса без обращения к строкам.
+CREATE INDEX idx_reviews_status_date ON reviews (status, date_created, product_id, integral_rating);
+
+-- Отзывы конкретного товара (детализация, сравнение, сводка по товарам с JOIN от товара к отзывам).
+CREATE INDEX idx_reviews_product_status_date ON reviews (product_id, status, date_created, integral_rating);
+
+-- Оценки отзыва: JOIN от отзыва к оценкам; criterion_id и rating покрывают профиль и распределение.
+-- Индекс внешнего ключа по review_id остается (его имя генерирует Hibernate); для запросов он избыточен.
+CREATE INDEX idx_review_ratings_review_criterion ON review_ratings (review_id, criterion_id, rating);
+
+-- Товары категории в порядке названия (фильтр по категории, сводка по товарам).
+CREATE INDEX idx_products_category_name ON products (category_id, name);
+
+-- Строки витрины нужного уровня за период.
+CREATE INDEX idx_review_daily_rollup_criterion_date ON review_daily_rollup (criterion_id, rollup_date, category_id);
@@ -0,0 +1,7 @@
+-- Индексы гистограмм рейтингов (медиана и перцентили).
+
+-- Корзины нужного уровня за период (KPI дашборда, сводка по товарам).
+CREATE INDEX idx_review_rating_histogram_criterion_date ON review_rating_histogram (criterion_id, rollup_date, category_id);
+
+-- Корзины конкретного товара (детализация товара).
+CREATE INDEX idx_review_rating_histogram_product ON review_rating_histogram (product_id, criterion_id);
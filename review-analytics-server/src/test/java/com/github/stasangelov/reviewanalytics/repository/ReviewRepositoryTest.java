@@ -1,13 +1,18 @@
 package com.github.stasangelov.reviewanalytics.repository;
 
+import com.github.stasangelov.reviewanalytics.entity.Criterion;
 import com.github.stasangelov.reviewanalytics.entity.Review;
 import com.github.stasangelov.reviewanalytics.entity.Review.ReviewStatus;
+import com.github.stasangelov.reviewanalytics.entity.ReviewRating;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -18,22 +23,41 @@ class ReviewRepositoryTest {
     @Autowired
     private ReviewRepository reviewRepository;
 
-    @Test
-    @DisplayName("Поиск в БД: Найти отзывы без рейтинга")
-    void findByIntegralRatingIsNull_ShouldReturnReviewsWithoutRating() {
-        // 1. Создаем и сохраняем отзыв без рейтинга (null)
-        Review review = new Review();
-        review.setDateCreated(LocalDateTime.now());
-        review.setStatus(ReviewStatus.ACTIVE);
-        review.setIntegralRating(null); // Явно null
+    @Autowired
+    private TestEntityManager testEntityManager;
 
-        reviewRepository.save(review);
+    @Test
+    @DisplayName("Поиск в БД: Найти отзывы по списку id вместе с оценками")
+    void findAllWithRatingsByIdIn_ShouldReturnRequestedReviewsWithRatings() {
+        // 1. Создаем критерий и три отзыва с оценкой по нему
+        Criterion criterion = new Criterion();
+        criterion.setName("Качество");
+        criterion.setWeight(1.0);
+        testEntityManager.persist(criterion);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Review review = new Review();
+            review.setDateCreated(LocalDateTime.now());
+            review.setStatus(ReviewStatus.ACTIVE);
+            ReviewRating rating = new ReviewRating();
+            rating.setReview(review);
+            rating.setCriterion(criterion);
+            rating.setRating(i);
+            review.setReviewRatings(new ArrayList<>(List.of(rating)));
+            ids.add(testEntityManager.persist(review).getId());
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
 
         // 2. Вызываем тестируемый метод репозитория
-        List<Review> foundReviews = reviewRepository.findByIntegralRatingIsNull();
-
-        // 3. Проверяем результат
-        assertThat(foundReviews).isNotEmpty();
-        assertThat(foundReviews.get(0).getIntegralRating()).isNull();
+        List<Review> foundReviews = reviewRepository.findAllWithRatingsByIdIn(ids.subList(0, 2));
+
+        // 3. Проверяем результат: оценки загружены тем же запросом
+        assertThat(foundReviews).extracting(Review::getId).containsExactlyInAnyOrderElementsOf(ids.subList(0, 2));
+        assertThat(foundReviews).allSatisfy(review -> {
+            assertThat(Hibernate.isInitialized(review.getReviewRatings())).isTrue();
+            assertThat(review.getReviewRatings()).hasSize(1);
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package com.github.stasangelov.reviewanalytics.security;
+
+import com.github.stasangelov.reviewanalytics.entity.Role;
+import com.github.stasangelov.reviewanalytics.entity.User;
+import com.github.stasangelov.reviewanalytics.event.UserAccessChangedEvent;
+import com.github.stasangelov.reviewanalytics.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String EMAIL = "analyst@example.com";
+
+    /**
+     * Количество запросов в каждом прогоне.
+     */
+    private static final int REQUESTS = 5;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private AuthenticatedPrincipalCache principalCache;
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(mock(UserDetailsService.class));
+        ReflectionTestUtils.setField(jwtTokenProvider, "secret", "test-secret-key-with-at-least-256-bits-length");
+        ReflectionTestUtils.setField(jwtTokenProvider, "validityInMilliseconds", 3_600_000L);
+        jwtTokenProvider.init();
+        token = jwtTokenProvider.createToken(EMAIL);
+
+        principalCache = new AuthenticatedPrincipalCache(jwtTokenProvider, userRepository, 1000, Duration.ofMinutes(5));
+        filter = new JwtAuthenticationFilter(principalCache);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user(true)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Без кэша каждый запрос читает пользователя из БД, с заполненным кэшем — ни один.
+     * Накладные расходы фильтра на запрос измеряет бенчмарк {@code JwtFilterBenchmark}.
+     */
+    @Test
+    @DisplayName("Фильтр JWT: повторные запросы не проверяют токен заново и не читают пользователя из БД")
+    void doFilter_ShouldReuseVerifiedPrincipal() throws Exception {
+        for (int i = 0; i < 2 * REQUESTS; i++) {
+            principalCache.invalidateAll();
+            filterRequest(token);
+        }
+
+        principalCache.invalidateAll();
+        MockHttpServletResponse response = null;
+        for (int i = 0; i < REQUESTS; i++) {
+            response = filterRequest(token);
+        }
+
+        // 2 * REQUESTS обращений без кэша и одно — во всем прогоне с кэшем
+        verify(userRepository, times(2 * REQUESTS + 1)).findByEmail(EMAIL);
+        assertThat(response.getStatus()).isEqualTo(200);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getName()).isEqualTo(EMAIL);
+        assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ANALYST");
+    }
+
+    @Test
+    @DisplayName("Фильтр JWT: блокировка пользователя действует сразу после события изменения доступа")
+    void doFilter_AfterAccessChanged_ShouldRejectBlockedUser() throws Exception {
+        assertThat(filterRequest(token).getStatus()).isEqualTo(200);
+
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user(false)));
+        // Без события закэшированный пользователь еще считается активным
+        assertThat(filterRequest(token).getStatus()).isEqualTo(200);
+
+        principalCache.onUserAccessChanged(new UserAccessChangedEvent(EMAIL));
+        assertThat(filterRequest(token).getStatus()).isEqualTo(403);
+    }
+
+    @Test
+    @DisplayName("Фильтр JWT: недействительный токен не аутентифицирует запрос и не кэшируется")
+    void doFilter_InvalidToken_ShouldSkipAuthentication() throws Exception {
+        // Подменяем первый символ подписи: полезная нагрузка прежняя, подпись не сходится
+        int signatureStart = token.lastIndexOf('.') + 1;
+        char replacement = token.charAt(signatureStart) == 'A' ? 'B' : 'A';
+        String forged = token.substring(0, signatureStart) + replacement + token.substring(signatureStart + 1);
+
+        assertThat(filterRequest(forged).getStatus()).isEqualTo(200);
+        assertThat(principalCache.getVerifiedUsername(forged)).isNull();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        verify(userRepository, times(0)).findByEmail(EMAIL);
+    }
+
+    private MockHttpServletResponse filterRequest(String bearerToken) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/analytics/dashboard");
+        request.addHeader("Authorization", "Bearer " + bearerToken);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static User user(boolean active) {
+        Role role = new Role();
+        role.setName(Role.RoleName.ANALYST);
+        User user = new User();
+        user.setEmail(EMAIL);
+        user.setPasswordHash("hash");
+        user.setActive(active);
+        user.setRoles(Set.of(role));
+        return user;
+    }
+}
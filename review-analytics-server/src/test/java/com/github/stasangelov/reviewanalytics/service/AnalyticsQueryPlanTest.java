@@ -0,0 +1,214 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.config.SchemaMigrationRunner;
+import com.github.stasangelov.reviewanalytics.entity.*;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarAnalyticsEngine;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarReviewStore;
+import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Регрессионная проверка планов аналитических запросов.
+ * <p>
+ * Запросы не копируются в тест: сервисы выполняются на заполненной БД с миграциями из
+ * {@code db/migration}, а фактический SQL перехватывается {@link CapturingStatementInspector}.
+ * Для каждого запроса выполняется EXPLAIN, и тест падает, если таблица фактов
+ * (отзывы, оценки, витрина и гистограммы рейтингов) читается полным просмотром, а не по условию индекса.
+ * Справочники (товары, категории, критерии) малы, и их просмотр допускается.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.github.stasangelov.reviewanalytics.service.AnalyticsQueryPlanTest$CapturingStatementInspector"
+})
+@Import({AnalyticsService.class, ReviewRollupService.class, ReviewMapper.class, CriterionWeightCache.class,
+        SchemaMigrationRunner.class, OperationMetrics.class, SimpleMeterRegistry.class,
+        ColumnarReviewStore.class, ColumnarAnalyticsEngine.class})
+class AnalyticsQueryPlanTest {
+
+    /**
+     * Таблицы фактов, которые растут вместе с отзывами и не должны просматриваться целиком.
+     */
+    private static final Set<String> FACT_TABLES = Set.of("REVIEWS", "REVIEW_RATINGS", "REVIEW_DAILY_ROLLUP",
+            "REVIEW_RATING_HISTOGRAM");
+
+    /**
+     * Таблица в плане H2 и следующий за ней комментарий с выбранным индексом и условием доступа.
+     */
+    private static final Pattern PLAN_TABLE = Pattern.compile(
+            "\"PUBLIC\"\\.\"(\\w+)\"(?: \"?\\w+\"?)?\\s*/\\*\\s*(.*?)\\s*\\*/", Pattern.DOTALL);
+
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+    private static final LocalDate END = LocalDate.of(2024, 6, 30);
+
+    @Autowired private TestEntityManager testEntityManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private AnalyticsService analyticsService;
+
+    private Long categoryId;
+    private List<Long> productIds;
+
+    @BeforeEach
+    void setUp() {
+        // Объем ниже порога автоматического ANALYZE в H2, чтобы планы не зависели от порядка тестов
+        Category category = null;
+        for (String name : List.of("Ноутбуки", "Смартфоны")) {
+            category = new Category();
+            category.setName(name);
+            testEntityManager.persist(category);
+        }
+        categoryId = category.getId();
+
+        List<Criterion> criteria = new ArrayList<>();
+        for (String name : List.of("Качество", "Цена", "Дизайн")) {
+            Criterion criterion = new Criterion();
+            criterion.setName(name);
+            criterion.setWeight(1.0);
+            criteria.add(testEntityManager.persist(criterion));
+        }
+
+        productIds = new ArrayList<>();
+        for (int p = 0; p < 10; p++) {
+            Product product = new Product();
+            product.setName("Товар " + p);
+            product.setBrand("Бренд " + (p % 3));
+            product.setCategory(category);
+            testEntityManager.persist(product);
+            productIds.add(product.getId());
+
+            for (int i = 0; i < 30; i++) {
+                Review review = new Review();
+                review.setProduct(product);
+                review.setStatus(i % 10 == 0 ? Review.ReviewStatus.REJECTED : Review.ReviewStatus.ACTIVE);
+                review.setDateCreated(LocalDateTime.of(2024, 1, 1, 12, 0).plusDays(i * 12L + p));
+                review.setIntegralRating(1.0 + (i + p) % 5);
+                List<ReviewRating> ratings = new ArrayList<>();
+                for (Criterion criterion : criteria) {
+                    ReviewRating rating = new ReviewRating();
+                    rating.setReview(review);
+                    rating.setCriterion(criterion);
+                    rating.setRating(1 + (i + criterion.getId().intValue()) % 5);
+                    ratings.add(rating);
+                }
+                review.setReviewRatings(ratings);
+                testEntityManager.persist(review);
+            }
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    @DisplayName("Планы запросов: дашборд по исходным таблицам и по витрине использует индексы")
+    void dashboardQueries_ShouldNotScanFactTables() {
+        // Дашборд без фильтров не проверяется: без условия полный просмотр витрины — верный план
+        ReflectionTestUtils.setField(analyticsService, "dashboardSource", AnalyticsService.DashboardSource.ROLLUP);
+        analyticsService.getDashboardData(START, END, null);
+        analyticsService.getDashboardData(START, END, categoryId);
+
+        ReflectionTestUtils.setField(analyticsService, "dashboardSource", AnalyticsService.DashboardSource.RAW);
+        analyticsService.getDashboardData(START, START.plusDays(10), null);
+        analyticsService.getDashboardData(START, END, categoryId);
+        analyticsService.getDashboardData(START, END, null, new DynamicsOptions(DynamicsGranularity.QUARTER, 2));
+
+        assertPlansUseIndexes();
+    }
+
+    @Test
+    @DisplayName("Планы запросов: сводка, детализация и сравнение товаров используют индексы")
+    void productQueries_ShouldNotScanFactTables() {
+        analyticsService.getProductsSummary(null, null, null);
+        analyticsService.getProductsSummary(START, END, categoryId);
+        analyticsService.getProductDetails(productIds.get(0));
+        analyticsService.getProductDetailsSummary(productIds.get(1));
+        analyticsService.getComparisonData(productIds.subList(0, 3));
+
+        assertPlansUseIndexes();
+    }
+
+    private void assertPlansUseIndexes() {
+        Set<String> statements = new LinkedHashSet<>(CapturingStatementInspector.STATEMENTS);
+        List<String> checked = new ArrayList<>();
+        for (String sql : statements) {
+            if (!sql.trim().toLowerCase(Locale.ROOT).startsWith("select")) {
+                continue;
+            }
+            String plan = explain(sql);
+            Matcher matcher = PLAN_TABLE.matcher(plan);
+            while (matcher.find()) {
+                String table = matcher.group(1);
+                String access = matcher.group(2);
+                if (FACT_TABLES.contains(table)) {
+                    // Условие индекса выводится после двоеточия; без него индекс просматривается целиком
+                    assertThat(access)
+                            .as("План запроса читает %s полным просмотром:%n%s%nSQL: %s", table, plan, sql)
+                            .doesNotContain("tableScan")
+                            .contains(":");
+                    checked.add(table);
+                }
+            }
+        }
+        assertThat(checked).as("Запросы к таблицам фактов не были перехвачены").isNotEmpty();
+    }
+
+    /**
+     * Возвращает план запроса. Значения параметров на выбор индекса в H2 не влияют,
+     * поэтому все параметры передаются как NULL.
+     */
+    private String explain(String sql) {
+        return jdbcTemplate.execute("EXPLAIN " + sql, (PreparedStatementCallback<String>) statement -> {
+            int parameterCount = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameterCount; i++) {
+                statement.setObject(i, null);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                StringBuilder plan = new StringBuilder();
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    /**
+     * Запоминает SQL всех запросов, которые Hibernate отправляет в БД.
+     * Создается Hibernate по имени класса, поэтому хранилище статическое.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
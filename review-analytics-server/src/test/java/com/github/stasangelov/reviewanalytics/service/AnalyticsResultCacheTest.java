@@ -0,0 +1,76 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.event.ReviewChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalyticsResultCacheTest {
+
+    private final AnalyticsResultCache cache = new AnalyticsResultCache(100, Duration.ofMinutes(5));
+
+    @Test
+    @DisplayName("Инвалидация: сбрасываются только записи, фильтры которых покрывают отзыв")
+    void onReviewChanged_ShouldInvalidateOnlyAffectedFilters() {
+        AnalyticsResultCache.FilterKey all = AnalyticsResultCache.FilterKey.of(AnalyticsResultCache.Kind.DASHBOARD, null, null, null);
+        AnalyticsResultCache.FilterKey otherCategory = AnalyticsResultCache.FilterKey.of(AnalyticsResultCache.Kind.DASHBOARD, null, null, 2L);
+        AnalyticsResultCache.FilterKey otherPeriod = AnalyticsResultCache.FilterKey.of(AnalyticsResultCache.Kind.DASHBOARD,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 1L);
+        cache.getOrCompute(all, () -> "all");
+        cache.getOrCompute(otherCategory, () -> "category 2");
+        cache.getOrCompute(otherPeriod, () -> "january");
+
+        ReviewRollupService.Contribution contribution = new ReviewRollupService.Contribution(
+                LocalDate.of(2025, 3, 14), 10L, 1L, "Apple", 4.0, Map.of());
+        cache.onReviewChanged(new ReviewChangedEvent(1L, null, contribution));
+
+        assertThat(cache.getOrCompute(all, () -> "recomputed")).isEqualTo("recomputed");
+        assertThat(cache.getOrCompute(otherCategory, () -> "recomputed")).isEqualTo("category 2");
+        assertThat(cache.getOrCompute(otherPeriod, () -> "recomputed")).isEqualTo("january");
+        assertThat(cache.getStats().getInvalidationCount()).isEqualTo(1);
+        assertThat(cache.getStats().getHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Инвалидация: результат, вычислявшийся во время коммита, не остается в кэше")
+    void onReviewChanged_DuringSlowLoad_ShouldDropStaleResult() throws Exception {
+        AnalyticsResultCache.FilterKey affected = AnalyticsResultCache.FilterKey.of(AnalyticsResultCache.Kind.DASHBOARD, null, null, 1L);
+        AnalyticsResultCache.FilterKey otherCategory = AnalyticsResultCache.FilterKey.of(AnalyticsResultCache.Kind.DASHBOARD, null, null, 2L);
+        CountDownLatch loading = new CountDownLatch(2);
+        CountDownLatch committed = new CountDownLatch(1);
+        CompletableFuture<String> staleLoad = CompletableFuture.supplyAsync(
+                () -> cache.getOrCompute(affected, () -> slowLoad("before commit", loading, committed)));
+        CompletableFuture<String> otherLoad = CompletableFuture.supplyAsync(
+                () -> cache.getOrCompute(otherCategory, () -> slowLoad("category 2", loading, committed)));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Отзыв категории 1 фиксируется, пока оба запроса еще читают данные
+        ReviewRollupService.Contribution contribution = new ReviewRollupService.Contribution(
+                LocalDate.of(2025, 3, 14), 10L, 1L, "Apple", 4.0, Map.of());
+        cache.onReviewChanged(new ReviewChangedEvent(1L, null, contribution));
+        committed.countDown();
+
+        assertThat(staleLoad.get(5, TimeUnit.SECONDS)).isEqualTo("before commit");
+        assertThat(otherLoad.get(5, TimeUnit.SECONDS)).isEqualTo("category 2");
+        assertThat(cache.getOrCompute(affected, () -> "after commit")).isEqualTo("after commit");
+        assertThat(cache.getOrCompute(otherCategory, () -> "recomputed")).isEqualTo("category 2");
+    }
+
+    private static String slowLoad(String value, CountDownLatch loading, CountDownLatch committed) {
+        loading.countDown();
+        try {
+            committed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
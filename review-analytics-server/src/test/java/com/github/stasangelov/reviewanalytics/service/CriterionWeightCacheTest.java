@@ -0,0 +1,79 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.entity.Criterion;
+import com.github.stasangelov.reviewanalytics.exception.ResourceNotFoundException;
+import com.github.stasangelov.reviewanalytics.repository.CriterionRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CriterionWeightCacheTest {
+
+    @Mock private CriterionRepository criterionRepository;
+
+    @InjectMocks
+    private CriterionWeightCache criterionWeightCache;
+
+    @Test
+    @DisplayName("Кэш критериев: справочник читается один раз до инвалидации")
+    void get_ShouldLoadDictionaryOncePerVersion() {
+        when(criterionRepository.findAll()).thenReturn(List.of(criterion(1L, "Цена", 0.5)));
+
+        assertThat(criterionWeightCache.getWeight(1L)).isEqualTo(0.5);
+        assertThat(criterionWeightCache.getName(1L)).isEqualTo("Цена");
+        verify(criterionRepository, times(1)).findAll();
+
+        when(criterionRepository.findAll()).thenReturn(List.of(criterion(1L, "Цена", 0.8)));
+        criterionWeightCache.invalidate();
+
+        assertThat(criterionWeightCache.getWeight(1L)).isEqualTo(0.8);
+        verify(criterionRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Кэш критериев: неизвестный id перечитывает справочник один раз до инвалидации, затем дает 404")
+    void get_UnknownId_ShouldReloadOncePerVersionAndThrow() {
+        when(criterionRepository.findAll()).thenReturn(List.of(criterion(1L, "Цена", 0.5)));
+
+        assertThatThrownBy(() -> criterionWeightCache.get(99L))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verify(criterionRepository, times(2)).findAll();
+
+        // Повторный запрос того же id и запросы известных критериев справочник не перечитывают
+        assertThatThrownBy(() -> criterionWeightCache.get(99L))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(criterionWeightCache.getWeight(1L)).isEqualTo(0.5);
+        verify(criterionRepository, times(2)).findAll();
+
+        // Критерий, добавленный в обход приложения, находится по первому промаху
+        when(criterionRepository.findAll()).thenReturn(List.of(criterion(1L, "Цена", 0.5), criterion(2L, "Качество", 0.3)));
+        assertThat(criterionWeightCache.getName(2L)).isEqualTo("Качество");
+        verify(criterionRepository, times(3)).findAll();
+
+        // Инвалидация сбрасывает запомненные отсутствующие id
+        criterionWeightCache.invalidate();
+        assertThatThrownBy(() -> criterionWeightCache.get(99L))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verify(criterionRepository, times(5)).findAll();
+    }
+
+    private static Criterion criterion(Long id, String name, double weight) {
+        Criterion criterion = new Criterion();
+        criterion.setId(id);
+        criterion.setName(name);
+        criterion.setWeight(weight);
+        return criterion;
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.live.DashboardDeltaDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.live.DistributionDeltaDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.live.DynamicsDeltaDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.live.ProductDeltaDto;
+import com.github.stasangelov.reviewanalytics.event.ReviewChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DashboardLiveUpdateServiceTest {
+
+    private static final AnalyticsResultCache.FilterKey ALL =
+            AnalyticsResultCache.FilterKey.of(AnalyticsResultCache.Kind.DASHBOARD, null, null, null);
+    private static final Function<Long, String> NAMES = id -> "Критерий " + id;
+
+    @Test
+    @DisplayName("Дельта: редактирование вычитает прежний вклад отзыва и прибавляет новый")
+    void buildDelta_ShouldSubtractPreviousAndAddCurrentContribution() {
+        ReviewRollupService.Contribution previous = new ReviewRollupService.Contribution(
+                LocalDate.of(2025, 3, 14), 10L, 1L, "Apple", 3.0, Map.of(1L, 3, 2L, 4));
+        ReviewRollupService.Contribution current = new ReviewRollupService.Contribution(
+                LocalDate.of(2025, 3, 14), 10L, 1L, "Apple", 5.0, Map.of(1L, 5, 2L, 4));
+
+        DashboardDeltaDto delta = DashboardLiveUpdateService.buildDelta(
+                new ReviewChangedEvent(7L, previous, current), ALL, DynamicsGranularity.MONTH, NAMES);
+
+        assertThat(delta.getReviewId()).isEqualTo(7L);
+        assertThat(delta.getReviewCountDelta()).isZero();
+        assertThat(delta.getRatingCountDelta()).isZero();
+        assertThat(delta.getRatingSumDelta()).isEqualTo(2.0);
+        assertThat(delta.getProducts()).containsExactly(new ProductDeltaDto(10L, 0, 0, 2.0));
+        assertThat(delta.getDynamics()).containsExactly(new DynamicsDeltaDto(LocalDate.of(2025, 3, 1), 0, 2.0));
+        assertThat(delta.getDistribution()).containsExactlyInAnyOrder(
+                new DistributionDeltaDto("Критерий 1", 3, -1),
+                new DistributionDeltaDto("Критерий 1", 5, 1));
+    }
+
+    @Test
+    @DisplayName("Дельта: перенос отзыва за пределы фильтров выглядит для подписчика как удаление")
+    void buildDelta_ShouldTreatContributionOutsideFiltersAsRemoval() {
+        AnalyticsResultCache.FilterKey category = AnalyticsResultCache.FilterKey.of(
+                AnalyticsResultCache.Kind.DASHBOARD, null, null, 1L);
+        ReviewRollupService.Contribution previous = new ReviewRollupService.Contribution(
+                LocalDate.of(2025, 3, 14), 10L, 1L, "Apple", 4.0, Map.of(1L, 4));
+        ReviewRollupService.Contribution current = new ReviewRollupService.Contribution(
+                LocalDate.of(2025, 3, 14), 20L, 2L, "Samsung", 4.0, Map.of(1L, 4));
+
+        DashboardDeltaDto delta = DashboardLiveUpdateService.buildDelta(
+                new ReviewChangedEvent(7L, previous, current), category, DynamicsGranularity.DAY, NAMES);
+
+        assertThat(delta.getReviewCountDelta()).isEqualTo(-1);
+        assertThat(delta.getRatingCountDelta()).isEqualTo(-1);
+        assertThat(delta.getProducts()).containsExactly(new ProductDeltaDto(10L, -1, -1, -4.0));
+        assertThat(delta.getDynamics()).containsExactly(new DynamicsDeltaDto(LocalDate.of(2025, 3, 14), -1, -4.0));
+        assertThat(delta.getDistribution()).containsExactly(new DistributionDeltaDto("Критерий 1", 4, -1));
+    }
+
+    @Test
+    @DisplayName("Дельта: изменение, не влияющее на аналитику или вне фильтров, не рассылается")
+    void buildDelta_ShouldReturnNullWhenNothingChanges() {
+        ReviewRollupService.Contribution contribution = new ReviewRollupService.Contribution(
+                LocalDate.of(2025, 3, 14), 10L, 1L, "Apple", 4.0, Map.of(1L, 4));
+        AnalyticsResultCache.FilterKey january = AnalyticsResultCache.FilterKey.of(AnalyticsResultCache.Kind.DASHBOARD,
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), null);
+
+        assertThat(DashboardLiveUpdateService.buildDelta(
+                new ReviewChangedEvent(7L, contribution, contribution), ALL, DynamicsGranularity.DAY, NAMES)).isNull();
+        assertThat(DashboardLiveUpdateService.buildDelta(
+                new ReviewChangedEvent(7L, null, contribution), january, DynamicsGranularity.DAY, NAMES)).isNull();
+    }
+}
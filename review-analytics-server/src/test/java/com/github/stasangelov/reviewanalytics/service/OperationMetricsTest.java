@@ -0,0 +1,60 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OperationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OperationMetrics operationMetrics = new OperationMetrics(registry);
+
+    @Test
+    @DisplayName("Форма фильтра: длина периода попадает в ближайшую корзину не меньше нее")
+    void filterShape_ShouldBucketRangeLength() {
+        LocalDate day = LocalDate.of(2024, 12, 1);
+
+        assertThat(OperationMetrics.FilterShape.of(null, null, null).getRange()).isEqualTo("all");
+        assertThat(OperationMetrics.FilterShape.of(day, null, null).getRange()).isEqualTo("open");
+        assertThat(OperationMetrics.FilterShape.of(day, day, null).getRange()).isEqualTo("1d");
+        assertThat(OperationMetrics.FilterShape.of(day, day.plusDays(6), null).getRange()).isEqualTo("7d");
+        assertThat(OperationMetrics.FilterShape.of(day, day.plusDays(7), null).getRange()).isEqualTo("31d");
+        assertThat(OperationMetrics.FilterShape.of(day, day.plusYears(2), 1L).getRange()).isEqualTo("longer");
+        assertThat(OperationMetrics.FilterShape.of(day, day, 1L).isCategory()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Раздел аналитики записывает время с тегами формы фильтра и число строк")
+    void section_ShouldRecordTimerAndRows() {
+        OperationMetrics.FilterShape shape = OperationMetrics.FilterShape.of(null, null, 3L);
+
+        List<Integer> result = operationMetrics.section("top-rated", "raw", shape, () -> List.of(1, 2, 3), List::size);
+
+        assertThat(result).hasSize(3);
+        Timer timer = registry.get("analytics.section")
+                .tags("section", "top-rated", "source", "raw", "range", "all", "category", "true", "outcome", "success")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+        DistributionSummary rows = registry.get("analytics.section.rows").tags("section", "top-rated").summary();
+        assertThat(rows.totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Исключение в операции записывается с outcome=error и пробрасывается дальше")
+    void reviewWrite_ShouldRecordErrorOutcome() {
+        assertThatThrownBy(() -> operationMetrics.reviewWrite("update", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("reviews.write").tags("operation", "update", "outcome", "error").timer().count())
+                .isEqualTo(1);
+    }
+}
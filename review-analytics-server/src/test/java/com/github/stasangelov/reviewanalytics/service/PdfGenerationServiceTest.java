@@ -0,0 +1,177 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.CriteriaProfileDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.CategoryRatingDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.DashboardDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.KpiDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.RatingDistributionDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.RatingDynamicDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.TopProductDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PdfGenerationServiceTest {
+
+    /**
+     * Количество выгрузок дашборда и число "клиентов", запрашивающих их одновременно.
+     */
+    private static final int EXPORTS = 8;
+    private static final int CLIENTS = 4;
+
+    private PdfFontRegistry fontRegistry;
+    private PdfGenerationService pdfGenerationService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fontRegistry = new PdfFontRegistry();
+        pdfGenerationService = new PdfGenerationService(fontRegistry, DataSize.ofMegabytes(16), 0, EXPORTS,
+                new OperationMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        pdfGenerationService.shutdown();
+        fontRegistry.close();
+    }
+
+    @Test
+    @DisplayName("Ширина текста по общей таблице глифов совпадает с расчетом PDFBox")
+    void getStringWidth_ShouldMatchPdfBox() throws IOException {
+        String text = "Средний рейтинг по категориям/брендам";
+        try (PDDocument document = new PDDocument();
+             InputStream fontStream = getClass().getClassLoader().getResourceAsStream("fonts/DejaVuSans.ttf")) {
+            PDType0Font font = PDType0Font.load(document, fontStream);
+            float expected = font.getStringWidth(text) / 1000 * 12;
+
+            assertThat(fontRegistry.getRegular().getStringWidth(text, 12)).isCloseTo(expected, within(0.5f));
+            // Повторное измерение берется из кэша и дает тот же результат
+            assertThat(fontRegistry.getRegular().getStringWidth(text, 12)).isCloseTo(expected, within(0.5f));
+        }
+    }
+
+    /**
+     * Одни и те же отчеты строятся {@value #CLIENTS} потоками одновременно: параллельные выгрузки
+     * не должны мешать друг другу (шрифты общие). Пропускная способность измеряется
+     * в {@code PdfExportThroughputBenchmark} модуля review-analytics-benchmarks.
+     */
+    @Test
+    @DisplayName("Параллельная выгрузка дашборда: все документы корректны")
+    void generateDashboardPdf_ShouldProduceValidDocumentsInParallel() throws Exception {
+        DashboardDto dashboard = createDashboard();
+        Map<String, byte[]> charts = Map.of(
+                "categoryChart", createChartImage(),
+                "dynamicsChart", createChartImage(),
+                "distributionChart", createChartImage());
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<byte[]> documents = new ArrayList<>();
+        try {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < EXPORTS; i++) {
+                futures.add(clients.submit(() -> pdfGenerationService.generateDashboardPdf(dashboard, charts)));
+            }
+            for (Future<byte[]> future : futures) {
+                documents.add(future.get());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        assertThat(documents).hasSize(EXPORTS);
+        for (byte[] pdf : documents) {
+            try (PDDocument document = PDDocument.load(pdf)) {
+                assertThat(document.getNumberOfPages()).isEqualTo(4);
+                String text = new PDFTextStripper().getText(document);
+                assertThat(text).contains("Отчет: Информационная панель", "Смартфон Альфа", "Динамика среднего рейтинга");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Отчеты без снимков с клиента: графики и таблица сравнения рисуются на сервере")
+    void generatePdf_WithoutChartImages_ShouldDrawChartsFromData() throws IOException {
+        byte[] dashboardPdf = pdfGenerationService.generateDashboardPdf(createDashboard(), Map.of());
+        try (PDDocument document = PDDocument.load(dashboardPdf)) {
+            assertThat(document.getNumberOfPages()).isEqualTo(4);
+            assertThat(new PDFTextStripper().getText(document)).contains("Электроника", "Цена", "01.03.25");
+        }
+
+        ComparisonDataDto first = new ComparisonDataDto();
+        first.setProductId(1L);
+        first.setProductName("Смартфон Альфа");
+        first.setCriteriaProfile(List.of(new CriteriaProfileDto("Цена", 4.5), new CriteriaProfileDto("Качество", 4.0),
+                new CriteriaProfileDto("Дизайн", 3.5)));
+        ComparisonDataDto second = new ComparisonDataDto();
+        second.setProductId(2L);
+        second.setProductName("Смартфон Бета");
+        second.setCriteriaProfile(List.of(new CriteriaProfileDto("Цена", 3.0), new CriteriaProfileDto("Автономность", 4.8)));
+
+        byte[] comparisonPdf = pdfGenerationService.generateComparisonPdf(List.of(first, second), Map.of());
+        try (PDDocument document = PDDocument.load(comparisonPdf)) {
+            assertThat(document.getNumberOfPages()).isEqualTo(2);
+            String text = new PDFTextStripper().getText(document);
+            assertThat(text).contains("Смартфон Бета", "Автономность", String.format("%.2f", 4.5));
+        }
+    }
+
+    private DashboardDto createDashboard() {
+        DashboardDto dashboard = new DashboardDto();
+        KpiDto kpi = new KpiDto();
+        kpi.setTotalReviews(12345);
+        kpi.setAverageIntegralRating(4.21);
+        dashboard.setKpis(kpi);
+        dashboard.setTopRatedProducts(List.of(
+                new TopProductDto(1L, "Смартфон Альфа", 4.9),
+                new TopProductDto(2L, "Ноутбук Бета с очень длинным названием модели", 4.7)));
+        dashboard.setWorstRatedProducts(List.of(
+                new TopProductDto(3L, "Наушники Гамма", 2.1)));
+        dashboard.setCategoryRatings(List.of(
+                new CategoryRatingDto("Электроника", 4.4), new CategoryRatingDto("Бытовая техника", 3.9)));
+        dashboard.setRatingDynamics(List.of(
+                new RatingDynamicDto(LocalDate.of(2025, 3, 1), 4.1), new RatingDynamicDto(LocalDate.of(2025, 3, 2), 4.3)));
+        RatingDistributionDto distribution = new RatingDistributionDto("Цена");
+        distribution.setRating4Count(10);
+        distribution.setRating5Count(25);
+        dashboard.setRatingDistribution(List.of(distribution));
+        return dashboard;
+    }
+
+    private byte[] createChartImage() throws IOException {
+        BufferedImage image = new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 600, 400);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(50, 100, 80, 250);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
+import com.github.stasangelov.reviewanalytics.entity.*;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarAnalyticsEngine;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarReviewStore;
+import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Потоковая выгрузка отчета по товару на встроенной БД: отзывы читаются курсором порциями
+ * {@code analytics.streaming.fetch-size} и раскладываются по страницам таблицы.
+ */
+@DataJpaTest(properties = {"spring.sql.init.mode=never", "analytics.streaming.fetch-size=7"})
+@Import({AnalyticsService.class, ReviewRollupService.class, ReviewMapper.class, CriterionWeightCache.class,
+        OperationMetrics.class, SimpleMeterRegistry.class, ColumnarReviewStore.class, ColumnarAnalyticsEngine.class,
+        PdfGenerationService.class, PdfFontRegistry.class})
+class ProductReportStreamingTest {
+
+    /**
+     * Отзывов больше, чем помещается на одну страницу таблицы, и больше размера порции курсора.
+     */
+    private static final int REVIEWS = 70;
+    private static final Pattern ROW_DATE = Pattern.compile("\\d{2}\\.\\d{2}\\.\\d{4}");
+
+    @Autowired private TestEntityManager testEntityManager;
+    @Autowired private AnalyticsService analyticsService;
+    @Autowired private PdfGenerationService pdfGenerationService;
+
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Ноутбуки");
+        testEntityManager.persist(category);
+
+        List<Criterion> criteria = new ArrayList<>();
+        for (String name : List.of("Качество", "Цена")) {
+            Criterion criterion = new Criterion();
+            criterion.setName(name);
+            criterion.setWeight(1.0);
+            criteria.add(testEntityManager.persist(criterion));
+        }
+
+        Product product = new Product();
+        product.setName("Товар");
+        product.setBrand("Бренд");
+        product.setCategory(category);
+        productId = testEntityManager.persist(product).getId();
+
+        for (int i = 0; i < REVIEWS; i++) {
+            Review review = new Review();
+            review.setProduct(product);
+            review.setStatus(Review.ReviewStatus.ACTIVE);
+            review.setDateCreated(LocalDateTime.of(2024, 1, 1, 12, 0).plusDays(i));
+            review.setIntegralRating(1.0 + i % 5);
+            List<ReviewRating> ratings = new ArrayList<>();
+            for (Criterion criterion : criteria) {
+                ReviewRating rating = new ReviewRating();
+                rating.setReview(review);
+                rating.setCriterion(criterion);
+                rating.setRating(1 + i % 5);
+                ratings.add(rating);
+            }
+            review.setReviewRatings(ratings);
+            testEntityManager.persist(review);
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Отчет по товару: отзывы читаются курсором и разбиваются на страницы с заголовками таблицы")
+    void forEachProductReview_ShouldStreamAllReviewsAcrossTablePages() throws IOException {
+        ProductDetailsDto summary = analyticsService.getProductDetailsSummary(productId);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        List<Long> streamedIds = new ArrayList<>();
+        try (PdfGenerationService.ProductDetailsPdfWriter writer =
+                     pdfGenerationService.openProductDetailsPdf(summary, null, output)) {
+            analyticsService.forEachProductReview(productId, review -> {
+                streamedIds.add(review.getId());
+                assertThat(review.getReviewRatings()).hasSize(2);
+                writer.addReview(review);
+            });
+            writer.finish();
+        }
+
+        assertThat(streamedIds).hasSize(REVIEWS).doesNotHaveDuplicates();
+        try (PDDocument document = PDDocument.load(output.toByteArray())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            List<Integer> rowsPerPage = new ArrayList<>();
+            // Первая страница — сводка по товару, дальше — таблица отзывов
+            for (int page = 2; page <= document.getNumberOfPages(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                String text = stripper.getText(document);
+                assertThat(text).as("Заголовки таблицы на странице %d", page)
+                        .contains("Дата", "Рейтинг", "Качество", "Цена");
+                rowsPerPage.add(countRows(text));
+            }
+
+            assertThat(rowsPerPage).as("Отзывы должны занять несколько страниц таблицы").hasSizeGreaterThan(1);
+            int fullPage = rowsPerPage.get(0);
+            assertThat(document.getNumberOfPages()).isEqualTo(1 + (REVIEWS + fullPage - 1) / fullPage);
+            assertThat(rowsPerPage.subList(0, rowsPerPage.size() - 1)).containsOnly(fullPage);
+            assertThat(rowsPerPage.stream().mapToInt(Integer::intValue).sum()).isEqualTo(REVIEWS);
+        }
+    }
+
+    private static int countRows(String pageText) {
+        Matcher matcher = ROW_DATE.matcher(pageText);
+        int rows = 0;
+        while (matcher.find()) {
+            rows++;
+        }
+        return rows;
+    }
+}
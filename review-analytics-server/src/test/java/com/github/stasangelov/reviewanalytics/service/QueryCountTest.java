@@ -0,0 +1,148 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewFilterDto;
+import com.github.stasangelov.reviewanalytics.dto.review.ReviewPageDto;
+import com.github.stasangelov.reviewanalytics.entity.*;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarAnalyticsEngine;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarReviewStore;
+import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет количество SQL-запросов, которые выполняют сервисы при загрузке списков отзывов.
+ * Число запросов не должно зависеть от количества отзывов (защита от проблемы N+1).
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Import({ReviewService.class, AnalyticsService.class, ReviewRollupService.class, ReviewMapper.class,
+        CriterionWeightCache.class, OperationMetrics.class, SimpleMeterRegistry.class,
+        ColumnarReviewStore.class, ColumnarAnalyticsEngine.class})
+class QueryCountTest {
+
+    private static final int REVIEW_COUNT = 20;
+
+    @Autowired private TestEntityManager testEntityManager;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private ReviewService reviewService;
+    @Autowired private AnalyticsService analyticsService;
+    @Autowired private CriterionWeightCache criterionWeightCache;
+
+    private Statistics statistics;
+    private Long productId;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Ноутбуки");
+        testEntityManager.persist(category);
+
+        List<Criterion> criteria = new ArrayList<>();
+        for (String name : List.of("Качество", "Цена", "Дизайн")) {
+            Criterion criterion = new Criterion();
+            criterion.setName(name);
+            criterion.setWeight(1.0);
+            criteria.add(testEntityManager.persist(criterion));
+        }
+
+        for (int p = 0; p < 2; p++) {
+            Product product = new Product();
+            product.setName("Товар " + p);
+            product.setBrand("Бренд " + p);
+            product.setCategory(category);
+            testEntityManager.persist(product);
+            productId = product.getId();
+            productIds.add(productId);
+
+            for (int i = 0; i < REVIEW_COUNT / 2; i++) {
+                Review review = new Review();
+                review.setProduct(product);
+                review.setStatus(Review.ReviewStatus.ACTIVE);
+                review.setDateCreated(LocalDateTime.of(2024, 1, 1, 12, 0).plusDays(i));
+                review.setIntegralRating(4.0);
+                List<ReviewRating> ratings = new ArrayList<>();
+                for (Criterion criterion : criteria) {
+                    ReviewRating rating = new ReviewRating();
+                    rating.setReview(review);
+                    rating.setCriterion(criterion);
+                    rating.setRating(4);
+                    ratings.add(rating);
+                }
+                review.setReviewRatings(ratings);
+                testEntityManager.persist(review);
+            }
+        }
+
+        // Сбрасываем контекст, чтобы сервисы читали данные из БД, а не из кэша первого уровня
+        testEntityManager.flush();
+        testEntityManager.clear();
+        // Справочник критериев читается из кэша и в подсчет запросов к отзывам не входит
+        criterionWeightCache.get(criteria.get(0).getId());
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Список отзывов: один запрос независимо от числа отзывов")
+    void getAll_ShouldLoadReviewsWithSingleStatement() {
+        List<ReviewDto> reviews = reviewService.getAll();
+
+        assertThat(reviews).hasSize(REVIEW_COUNT);
+        assertThat(reviews).allSatisfy(dto -> assertThat(dto.getReviewRatings()).hasSize(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Страница отзывов: запрос id страницы и один запрос с оценками")
+    void getPage_ShouldLoadPageWithTwoStatements() {
+        ReviewFilterDto filter = new ReviewFilterDto();
+        filter.setSize(5);
+
+        ReviewPageDto page = reviewService.getPage(filter);
+
+        assertThat(page.getItems()).hasSize(5);
+        assertThat(page.getItems()).allSatisfy(dto -> assertThat(dto.getReviewRatings()).hasSize(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Детализация товара: профиль, товар, отзывы и гистограммы рейтингов — четыре запроса")
+    void getProductDetails_ShouldUseBoundedNumberOfStatements() {
+        ProductDetailsDto details = analyticsService.getProductDetails(productId);
+
+        assertThat(details.getReviews()).hasSize(REVIEW_COUNT / 2);
+        assertThat(details.getCategoryName()).isEqualTo("Ноутбуки");
+        assertThat(details.getReviews()).allSatisfy(dto -> assertThat(dto.getReviewRatings()).hasSize(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Сравнение товаров: названия и профили всех товаров — два запроса")
+    void getComparisonData_ShouldUseTwoStatementsForAllProducts() {
+        List<ComparisonDataDto> comparison = analyticsService.getComparisonData(productIds);
+
+        assertThat(comparison).extracting(ComparisonDataDto::getProductId).containsExactlyElementsOf(productIds);
+        assertThat(comparison).allSatisfy(dto -> assertThat(dto.getCriteriaProfile()).hasSize(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RatingHistogramTest {
+
+    @Test
+    @DisplayName("Квантили: ближайший ранг по центрам корзин, пустая гистограмма — null")
+    void quantile_ShouldUseNearestRank() {
+        RatingHistogram histogram = new RatingHistogram();
+        assertThat(histogram.quantile(0.5)).isNull();
+
+        for (double rating : new double[]{1.0, 2.0, 3.0, 3.04, 4.26, 4.5, 4.5, 4.8, 5.0, 5.0}) {
+            histogram.add(RatingHistogram.binOf(rating), 1);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(10);
+        assertThat(histogram.quantile(0.1)).isEqualTo(1.0);
+        assertThat(histogram.quantile(0.5)).isEqualTo(4.3);
+        assertThat(histogram.quantile(0.9)).isEqualTo(5.0);
+    }
+
+    @Test
+    @DisplayName("Слияние: гистограмма частей совпадает с гистограммой целого")
+    void merge_ShouldMatchHistogramOfUnion() {
+        RatingHistogram whole = new RatingHistogram();
+        RatingHistogram left = new RatingHistogram();
+        RatingHistogram right = new RatingHistogram();
+        for (int i = 0; i < 200; i++) {
+            int bin = RatingHistogram.binOf(1.0 + (i * 37 % 401) / 100.0);
+            whole.add(bin, 1);
+            (i % 3 == 0 ? left : right).add(bin, 1);
+        }
+
+        RatingHistogram merged = left.merge(right);
+
+        assertThat(merged.getCount()).isEqualTo(whole.getCount());
+        for (double q : new double[]{0.1, 0.25, 0.5, 0.75, 0.9}) {
+            assertThat(merged.quantile(q)).isEqualTo(whole.quantile(q));
+        }
+    }
+
+    @Test
+    @DisplayName("Корзины: рейтинги вне шкалы прижимаются к краям")
+    void binOf_ShouldClampToScale() {
+        assertThat(RatingHistogram.binOf(0.2)).isZero();
+        assertThat(RatingHistogram.binOf(1.04)).isZero();
+        assertThat(RatingHistogram.binOf(1.05)).isEqualTo(1);
+        assertThat(RatingHistogram.binOf(5.0)).isEqualTo(RatingHistogram.BINS - 1);
+        assertThat(RatingHistogram.binOf(7.3)).isEqualTo(RatingHistogram.BINS - 1);
+        assertThat(RatingHistogram.valueOf(RatingHistogram.binOf(3.7))).isEqualTo(3.7);
+    }
+}
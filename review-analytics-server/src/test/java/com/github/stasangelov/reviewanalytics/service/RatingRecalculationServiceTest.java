@@ -0,0 +1,148 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.review.RatingRecalculationStatusDto;
+import com.github.stasangelov.reviewanalytics.entity.RatingRecalculationJob;
+import com.github.stasangelov.reviewanalytics.exception.OperationConflictException;
+import com.github.stasangelov.reviewanalytics.repository.RatingRecalculationJobRepository;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarReviewStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Возобновление пересчета рейтингов после остановки приложения. Пачки фиксируются в собственных
+ * транзакциях, поэтому тест выполняется без общей транзакции. Расчет рейтинга подменен:
+ * каждый экземпляр сервиса записывает свое значение, и по нему видно, какой запуск обработал отзыв.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RatingRecalculationServiceTest {
+
+    private static final int REVIEWS = 10;
+    private static final int CHUNK_SIZE = 5;
+    private static final double FIRST_RUN_RATING = 1.0;
+    private static final double RESUMED_RUN_RATING = 5.0;
+
+    @Autowired private RatingRecalculationJobRepository jobRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private final ReviewRollupService reviewRollupService = mock(ReviewRollupService.class);
+
+    @BeforeEach
+    void setUp() {
+        // Явные id 1..10 задают границы пачек: [0, 5) = {1..4}, [5, 10) = {5..9}, [10, 11) = {10}
+        for (long id = 1; id <= REVIEWS; id++) {
+            jdbcTemplate.update("INSERT INTO reviews (id, date_created, integral_rating, status) VALUES (?, ?, ?, ?)",
+                    id, Timestamp.valueOf(LocalDateTime.of(2024, 3, 1, 12, 0)), 3.0, "ACTIVE");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM reviews");
+        jobRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Пересчет рейтингов: прерванная задача продолжается с контрольной точки без повторного расчета готовых пачек")
+    void onApplicationReady_ShouldResumeInterruptedJobFromWatermark() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ReviewService firstRunRatings = mock(ReviewService.class);
+        when(firstRunRatings.calculateIntegralRating(anyMap())).thenAnswer(invocation -> {
+            // Первая пачка рассчитывается, на второй приложение "останавливается"
+            if (calls.incrementAndGet() > CHUNK_SIZE - 1) {
+                blocked.countDown();
+                new CountDownLatch(1).await();
+            }
+            return FIRST_RUN_RATING;
+        });
+        RatingRecalculationService firstRun = createService(firstRunRatings);
+
+        RatingRecalculationStatusDto started = firstRun.start(RatingRecalculationJob.Mode.ALL);
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        RatingRecalculationJob interrupted = awaitJob(started.getId(), job -> job.getCompletedUpToId() == CHUNK_SIZE);
+        assertThatThrownBy(() -> firstRun.start(RatingRecalculationJob.Mode.ALL))
+                .isInstanceOf(OperationConflictException.class);
+        firstRun.shutdown();
+
+        assertThat(interrupted.getStatus()).isEqualTo(RatingRecalculationJob.Status.RUNNING);
+        assertThat(interrupted.getMaxReviewId()).isEqualTo(REVIEWS);
+        assertThat(interrupted.getProcessedReviews()).isEqualTo(CHUNK_SIZE - 1);
+
+        ReviewService resumedRunRatings = mock(ReviewService.class);
+        when(resumedRunRatings.calculateIntegralRating(anyMap())).thenReturn(RESUMED_RUN_RATING);
+        RatingRecalculationService resumedRun = createService(resumedRunRatings);
+        try {
+            resumedRun.onApplicationReady();
+            RatingRecalculationJob completed = awaitJob(started.getId(),
+                    job -> job.getStatus() != RatingRecalculationJob.Status.RUNNING);
+
+            assertThat(completed.getStatus()).isEqualTo(RatingRecalculationJob.Status.COMPLETED);
+            assertThat(completed.getCompletedUpToId()).isEqualTo(REVIEWS + 1);
+            assertThat(completed.getProcessedReviews()).isEqualTo(REVIEWS);
+        } finally {
+            resumedRun.shutdown();
+        }
+
+        // Готовая пачка сохранила рейтинги первого запуска, остальные отзывы пересчитаны один раз
+        verify(resumedRunRatings, times(REVIEWS - CHUNK_SIZE + 1)).calculateIntegralRating(anyMap());
+        assertThat(jdbcTemplate.queryForList("SELECT integral_rating FROM reviews ORDER BY id", Double.class))
+                .containsExactly(FIRST_RUN_RATING, FIRST_RUN_RATING, FIRST_RUN_RATING, FIRST_RUN_RATING,
+                        RESUMED_RUN_RATING, RESUMED_RUN_RATING, RESUMED_RUN_RATING, RESUMED_RUN_RATING,
+                        RESUMED_RUN_RATING, RESUMED_RUN_RATING);
+        // Новая задача не создается: незаполненных рейтингов не осталось
+        assertThat(jobRepository.findAll()).hasSize(1);
+        verify(reviewRollupService, times(1)).rebuild();
+    }
+
+    /**
+     * Создает экземпляр сервиса, как при очередном запуске приложения: один рабочий поток,
+     * поэтому пачки выполняются по порядку.
+     */
+    private RatingRecalculationService createService(ReviewService reviewService) {
+        RatingRecalculationService service = new RatingRecalculationService(jobRepository, reviewService,
+                mock(CriterionWeightCache.class), reviewRollupService, mock(AnalyticsResultCache.class),
+                mock(ColumnarReviewStore.class), jdbcTemplate, transactionTemplate);
+        ReflectionTestUtils.setField(service, "chunkSize", CHUNK_SIZE);
+        ReflectionTestUtils.setField(service, "threads", 1);
+        service.initWorkers();
+        return service;
+    }
+
+    private RatingRecalculationJob awaitJob(Long jobId, Predicate<RatingRecalculationJob> condition)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        RatingRecalculationJob job = jobRepository.findById(jobId).orElseThrow();
+        while (!condition.test(job) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            job = jobRepository.findById(jobId).orElseThrow();
+        }
+        assertThat(condition).as("Состояние задачи не достигнуто: %s", job).accepts(job);
+        return job;
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.RatingDynamicDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RatingTimeBucketsTest {
+
+    @Test
+    @DisplayName("Укрупнение: дни сворачиваются в кварталы с суммарным количеством отзывов")
+    void toDynamics_ShouldRollDaysUpToQuarters() {
+        RatingTimeBuckets buckets = new RatingTimeBuckets(DynamicsGranularity.QUARTER);
+        buckets.add(LocalDate.of(2025, 1, 15), 8.0, 2);
+        buckets.add(LocalDate.of(2025, 3, 31), 2.0, 1);
+        buckets.add(LocalDate.of(2025, 4, 1), 5.0, 1);
+
+        List<RatingDynamicDto> dynamics = buckets.toDynamics();
+
+        assertThat(dynamics).extracting(RatingDynamicDto::getDate)
+                .containsExactly(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 4, 1));
+        assertThat(dynamics).extracting(RatingDynamicDto::getReviewCount).containsExactly(3L, 1L);
+        assertThat(dynamics.get(0).getAverageRating()).isCloseTo(10.0 / 3, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("Пропуски: пустые недели до границ периода и скользящее среднее по количеству отзывов")
+    void complete_ShouldFillGapsAndComputeMovingAverage() {
+        RatingTimeBuckets buckets = new RatingTimeBuckets(DynamicsGranularity.WEEK);
+        buckets.add(LocalDate.of(2025, 3, 4), 12.0, 3);
+        buckets.add(LocalDate.of(2025, 3, 19), 2.0, 1);
+
+        List<RatingDynamicDto> dynamics = RatingTimeBuckets.complete(buckets.toDynamics(), DynamicsGranularity.WEEK,
+                LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 23), 2);
+
+        assertThat(dynamics).extracting(RatingDynamicDto::getDate).containsExactly(
+                LocalDate.of(2025, 2, 24), LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 17));
+        assertThat(dynamics).extracting(RatingDynamicDto::getReviewCount).containsExactly(0L, 3L, 0L, 1L);
+        assertThat(dynamics).extracting(RatingDynamicDto::getAverageRating).containsExactly(null, 4.0, null, 2.0);
+        assertThat(dynamics).extracting(RatingDynamicDto::getMovingAverage).containsExactly(null, 4.0, 4.0, 2.0);
+    }
+
+    @Test
+    @DisplayName("Пропуски: без границ периода ряд ограничен корзинами с данными")
+    void complete_WithoutDates_ShouldSpanDataOnly() {
+        List<RatingDynamicDto> dynamics = RatingTimeBuckets.complete(List.of(
+                        new RatingDynamicDto(LocalDate.of(2025, 1, 1), 4.0, 2L),
+                        new RatingDynamicDto(LocalDate.of(2025, 3, 1), 3.0, 1L)),
+                DynamicsGranularity.MONTH, null, null, 0);
+
+        assertThat(dynamics).extracting(RatingDynamicDto::getDate).containsExactly(
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 1), LocalDate.of(2025, 3, 1));
+        assertThat(dynamics).allSatisfy(point -> assertThat(point.getMovingAverage()).isNull());
+    }
+}
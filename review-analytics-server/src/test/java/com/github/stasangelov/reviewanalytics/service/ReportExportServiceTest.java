@@ -0,0 +1,227 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.CriteriaProfileDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.report.ReportJobDto;
+import com.github.stasangelov.reviewanalytics.exception.OperationConflictException;
+import com.github.stasangelov.reviewanalytics.exception.ResourceNotFoundException;
+import com.github.stasangelov.reviewanalytics.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportExportServiceTest {
+
+    private static final String OWNER = "analyst@example.com";
+    private static final byte[] PDF = "%PDF-1.4 test".getBytes();
+
+    @TempDir
+    private Path storageDir;
+
+    private final AnalyticsService analyticsService = mock(AnalyticsService.class);
+    private final PdfGenerationService pdfGenerationService = mock(PdfGenerationService.class);
+    private ReportExportService reportExportService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reportExportService = new ReportExportService(analyticsService, mock(AnalyticsResultCache.class), pdfGenerationService,
+                new OperationMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(reportExportService, "threads", 1);
+        ReflectionTestUtils.setField(reportExportService, "queueCapacity", 10);
+        ReflectionTestUtils.setField(reportExportService, "storageDir", storageDir);
+        ReflectionTestUtils.setField(reportExportService, "ttl", Duration.ofHours(1));
+        reportExportService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reportExportService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Очередь отчетов: задачи с высоким приоритетом выполняются раньше, результат доступен только владельцу")
+    void submit_ShouldRunByPriorityAndStoreResult() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> executionOrder = new CopyOnWriteArrayList<>();
+        when(analyticsService.getComparisonData(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            executionOrder.add(ids.get(0));
+            if (ids.get(0) == 1L) {
+                // Первая задача занимает единственный поток, пока остальные не встанут в очередь
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return List.of();
+        });
+        stubComparisonPdf();
+
+        ReportJobDto blocking = reportExportService.submitComparison(List.of(1L), ReportExportService.Priority.NORMAL, OWNER);
+        ReportJobDto low = reportExportService.submitComparison(List.of(2L), ReportExportService.Priority.LOW, OWNER);
+        ReportJobDto high = reportExportService.submitComparison(List.of(3L), ReportExportService.Priority.HIGH, OWNER);
+        assertThat(reportExportService.getJob(low.getId(), OWNER).getStatus()).isEqualTo("QUEUED");
+        assertThatThrownBy(() -> reportExportService.getResultFile(low.getId(), OWNER))
+                .isInstanceOf(OperationConflictException.class);
+
+        release.countDown();
+        awaitCompletion(blocking.getId());
+        awaitCompletion(high.getId());
+        ReportJobDto done = awaitCompletion(low.getId());
+
+        assertThat(executionOrder).containsExactly(1L, 3L, 2L);
+        assertThat(done.getProgress()).isEqualTo(100);
+        assertThat(done.getSizeBytes()).isEqualTo((long) PDF.length);
+        assertThat(Files.readAllBytes(reportExportService.getResultFile(low.getId(), OWNER))).isEqualTo(PDF);
+        assertThatThrownBy(() -> reportExportService.getJob(low.getId(), "other@example.com"))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Очередь отчетов: по истечении срока хранения задача и ее файл удаляются")
+    void removeExpired_ShouldDeleteJobAndFile() throws Exception {
+        ReflectionTestUtils.setField(reportExportService, "ttl", Duration.ZERO);
+        when(analyticsService.getComparisonData(anyList())).thenReturn(List.of());
+        stubComparisonPdf();
+
+        ReportJobDto job = reportExportService.submitComparison(List.of(1L), ReportExportService.Priority.NORMAL, OWNER);
+        awaitCompletion(job.getId());
+        Path file = reportExportService.getResultFile(job.getId(), OWNER);
+        assertThat(file).exists();
+
+        reportExportService.removeExpired();
+
+        assertThat(file).doesNotExist();
+        assertThatThrownBy(() -> reportExportService.getJob(job.getId(), OWNER))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Очередь отчетов: одновременные запросы не превышают емкость очереди")
+    void submit_Concurrent_ShouldNotOvershootQueueCapacity() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(analyticsService.getComparisonData(anyList())).thenAnswer(invocation -> {
+            running.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        stubComparisonPdf();
+        reportExportService.submitComparison(List.of(1L), ReportExportService.Priority.NORMAL, OWNER);
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Единственный поток занят, и все запросы разом претендуют на 10 мест в очереди
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> submits = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                submits.add(clients.submit(() -> {
+                    start.await();
+                    try {
+                        reportExportService.submitComparison(List.of(2L), ReportExportService.Priority.NORMAL, OWNER);
+                        return true;
+                    } catch (ServiceBusyException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            long accepted = 0;
+            for (Future<Boolean> submit : submits) {
+                accepted += submit.get(5, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertThat(accepted).isEqualTo(10);
+        } finally {
+            clients.shutdownNow();
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Очередь отчетов: задача строит документ в своем потоке и не зависит от пула генерации PDF")
+    void submit_ShouldRenderOnWorkerThreadWhenRenderPoolIsUnavailable() throws Exception {
+        PdfFontRegistry fontRegistry = new PdfFontRegistry();
+        PdfGenerationService realPdfService = new PdfGenerationService(fontRegistry, DataSize.ofMegabytes(16), 1, 1,
+                new OperationMetrics(new SimpleMeterRegistry()));
+        // Остановленный пул отклоняет любые задачи, как пул с заполненной очередью
+        realPdfService.shutdown();
+        ReportExportService service = new ReportExportService(analyticsService, mock(AnalyticsResultCache.class),
+                realPdfService, new OperationMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "threads", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        ReflectionTestUtils.setField(service, "storageDir", storageDir);
+        ReflectionTestUtils.setField(service, "ttl", Duration.ofHours(1));
+        service.init();
+
+        ComparisonDataDto product = new ComparisonDataDto();
+        product.setProductId(1L);
+        product.setProductName("Товар 1");
+        CriteriaProfileDto profile = new CriteriaProfileDto();
+        profile.setCriterionName("Качество");
+        profile.setAverageRating(4.5);
+        product.setCriteriaProfile(List.of(profile));
+        when(analyticsService.getComparisonData(anyList())).thenReturn(List.of(product));
+
+        try {
+            String jobId = service.submitComparison(List.of(1L), ReportExportService.Priority.NORMAL, OWNER).getId();
+            long deadline = System.currentTimeMillis() + 5000;
+            ReportJobDto job = service.getJob(jobId, OWNER);
+            while (!List.of("COMPLETED", "FAILED").contains(job.getStatus()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                job = service.getJob(jobId, OWNER);
+            }
+
+            assertThat(job.getStatus()).as(job.getErrorMessage()).isEqualTo("COMPLETED");
+            try (PDDocument document = PDDocument.load(service.getResultFile(jobId, OWNER).toFile())) {
+                assertThat(document.getNumberOfPages()).isEqualTo(2);
+            }
+        } finally {
+            service.shutdown();
+            fontRegistry.close();
+        }
+    }
+
+    private void stubComparisonPdf() throws IOException {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(2).write(PDF);
+            return null;
+        }).when(pdfGenerationService).writeComparisonPdf(anyList(), any(), any());
+    }
+
+    private ReportJobDto awaitCompletion(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        ReportJobDto job = reportExportService.getJob(jobId, OWNER);
+        while (!"COMPLETED".equals(job.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            job = reportExportService.getJob(jobId, OWNER);
+        }
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        return job;
+    }
+}
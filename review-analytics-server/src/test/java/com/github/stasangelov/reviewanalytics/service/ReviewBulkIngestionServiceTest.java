@@ -0,0 +1,237 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.review.BulkIngestResultDto;
+import com.github.stasangelov.reviewanalytics.dto.review.BulkRecordErrorDto;
+import com.github.stasangelov.reviewanalytics.entity.Category;
+import com.github.stasangelov.reviewanalytics.entity.Criterion;
+import com.github.stasangelov.reviewanalytics.entity.Product;
+import com.github.stasangelov.reviewanalytics.event.ReviewChangedEvent;
+import com.github.stasangelov.reviewanalytics.repository.CategoryRepository;
+import com.github.stasangelov.reviewanalytics.repository.CriterionRepository;
+import com.github.stasangelov.reviewanalytics.repository.ProductRepository;
+import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Пакетная загрузка отзывов на встроенной БД. Тест выполняется без общей транзакции,
+ * чтобы каждая пачка фиксировалась или откатывалась сама, как при загрузке через API.
+ * Витрина обновляется запросом {@code INSERT ... ON DUPLICATE KEY UPDATE}, поэтому H2 работает в режиме MySQL.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.datasource.url=jdbc:h2:mem:bulk-ingestion;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "reviews.bulk.chunk-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@Import({ReviewBulkIngestionService.class, ReviewService.class, ReviewRollupService.class, ReviewMapper.class,
+        CriterionWeightCache.class, OperationMetrics.class, SimpleMeterRegistry.class})
+@RecordApplicationEvents
+class ReviewBulkIngestionServiceTest {
+
+    @Autowired private ReviewBulkIngestionService ingestionService;
+    @Autowired private CriterionWeightCache criterionWeightCache;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private CriterionRepository criterionRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private ApplicationEvents events;
+
+    private Long productId;
+    private Long quality;
+    private Long price;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Ноутбуки");
+        categoryRepository.save(category);
+
+        Product product = new Product();
+        product.setName("Товар");
+        product.setBrand("Бренд");
+        product.setCategory(category);
+        productId = productRepository.save(product).getId();
+
+        quality = saveCriterion("Качество");
+        price = saveCriterion("Цена");
+        criterionWeightCache.invalidate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("review_rating_histogram", "review_daily_rollup", "review_ratings", "reviews",
+                "products", "criteria", "categories")) {
+            jdbcTemplate.execute("DELETE FROM " + table);
+        }
+        criterionWeightCache.invalidate();
+    }
+
+    @Test
+    @DisplayName("Загрузка NDJSON: корректные записи сохраняются, ошибочные попадают в отчет с номером записи")
+    void ingest_Ndjson_ShouldInsertValidAndReportInvalidRecords() throws IOException {
+        String input = String.join("\n",
+                record(productId, "ACTIVE", quality, 5, price, 3),
+                "{\"dateCreated\":\"2024-03-01T10:00:00\",\"ratings\":{\"" + quality + "\":4}}",
+                record(productId, "ACTIVE", quality, 7, price, 3),
+                record(999L, "ACTIVE", quality, 4, price, 4),
+                record(productId, "ACTIVE", 999L, 4, price, 4),
+                "{\"productId\":\"abc\",\"dateCreated\":\"2024-03-01T10:00:00\",\"ratings\":{\"" + quality + "\":4}}",
+                record(productId, "REJECTED", quality, 2, price, 2),
+                record(productId, null, quality, 4, price, 4));
+
+        BulkIngestResultDto result = ingest(input);
+
+        assertThat(result.getReceived()).isEqualTo(8);
+        assertThat(result.getInserted()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(5);
+        assertThat(result.isAborted()).isFalse();
+        assertThat(result.getErrors()).extracting(BulkRecordErrorDto::getIndex).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+        assertThat(result.getErrors()).extracting(BulkRecordErrorDto::getMessage).contains(
+                "Товар должен быть указан",
+                "Оценка по критерию " + quality + " должна быть от 1 до 5",
+                "Товар с id 999 не найден",
+                "Критерий с id 999 не найден");
+
+        assertThat(count("SELECT COUNT(*) FROM reviews")).isEqualTo(3);
+        assertThat(count("SELECT COUNT(*) FROM review_ratings")).isEqualTo(6);
+        assertThat(count("SELECT COUNT(*) FROM reviews WHERE status = 'REJECTED'")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT integral_rating FROM reviews WHERE status = 'ACTIVE' "
+                + "ORDER BY id FETCH FIRST 1 ROWS ONLY", Double.class)).isEqualTo(4.0);
+        // В витрину и в события попадают только активные отзывы
+        assertThat(count("SELECT SUM(review_count) FROM review_daily_rollup WHERE criterion_id = 0")).isEqualTo(2);
+        assertThat(events.stream(ReviewChangedEvent.class)).hasSize(3)
+                .filteredOn(event -> event.getCurrent() != null).hasSize(2)
+                .allSatisfy(event -> assertThat(event.getPrevious()).isNull());
+    }
+
+    @Test
+    @DisplayName("Загрузка JSON-массива: записи разбираются по одной так же, как NDJSON")
+    void ingest_JsonArray_ShouldInsertValidAndReportInvalidRecords() throws IOException {
+        String input = "[" + String.join(",",
+                record(productId, "ACTIVE", quality, 5, price, 5),
+                "{\"productId\":" + productId + ",\"dateCreated\":\"2024-03-01T10:00:00\",\"ratings\":{}}",
+                record(productId, "ACTIVE", quality, 1, price, 1)) + "]";
+
+        BulkIngestResultDto result = ingest(input);
+
+        assertThat(result.getReceived()).isEqualTo(3);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(BulkRecordErrorDto::getIndex).containsExactly(1L);
+        assertThat(result.getErrors().get(0).getMessage()).isEqualTo("Должна быть хотя бы одна оценка");
+        assertThat(count("SELECT COUNT(*) FROM reviews")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Загрузка: синтаксическая ошибка JSON останавливает разбор, прочитанные записи сохраняются")
+    void ingest_SyntaxError_ShouldAbortAndKeepParsedRecords() throws IOException {
+        String input = String.join("\n",
+                record(productId, "ACTIVE", quality, 5, price, 5),
+                record(productId, "ACTIVE", quality, 4, price, 4),
+                record(productId, "ACTIVE", quality, 3, price, 3),
+                "{\"productId\":" + productId + ",,\"dateCreated\":\"2024-03-01T10:00:00\"}",
+                record(productId, "ACTIVE", quality, 2, price, 2));
+
+        BulkIngestResultDto result = ingest(input);
+
+        assertThat(result.isAborted()).isTrue();
+        assertThat(result.getReceived()).isEqualTo(3);
+        assertThat(result.getInserted()).isEqualTo(3);
+        assertThat(result.getFailed()).isZero();
+        assertThat(result.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getIndex()).isEqualTo(3);
+            assertThat(error.getMessage()).startsWith("Некорректный JSON, загрузка остановлена");
+        });
+        assertThat(count("SELECT COUNT(*) FROM reviews")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Загрузка: ошибка БД откатывает только свою пачку, остальные пачки сохраняются")
+    void ingest_DatabaseError_ShouldRollBackOnlyFailedChunk() throws IOException {
+        Long removed = saveCriterion("Дизайн");
+        // Критерий остается в кэше, поэтому запись проходит проверку, но вставка оценки нарушит внешний ключ
+        criterionWeightCache.get(removed);
+        jdbcTemplate.update("DELETE FROM criteria WHERE id = ?", removed);
+
+        String input = String.join("\n",
+                record(productId, "ACTIVE", quality, 5, price, 5),
+                record(productId, "ACTIVE", quality, 4, price, 4),
+                record(productId, "ACTIVE", quality, 3, removed, 3),
+                record(productId, "ACTIVE", quality, 2, price, 2));
+
+        BulkIngestResultDto result = ingest(input);
+
+        assertThat(result.getReceived()).isEqualTo(4);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(BulkRecordErrorDto::getIndex).containsExactly(2L, 3L);
+        assertThat(result.getErrors()).allSatisfy(error -> assertThat(error.getMessage()).startsWith("Ошибка записи пачки"));
+        assertThat(count("SELECT COUNT(*) FROM reviews")).isEqualTo(2);
+        assertThat(count("SELECT COUNT(*) FROM review_ratings")).isEqualTo(4);
+        assertThat(count("SELECT SUM(review_count) FROM review_daily_rollup WHERE criterion_id = 0")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Загрузка: список ошибок ограничен, а счетчик отклоненных записей учитывает все")
+    void ingest_ManyInvalidRecords_ShouldCapReportedErrors() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 1005; i++) {
+            input.append("{}\n");
+        }
+
+        BulkIngestResultDto result = ingest(input.toString());
+
+        assertThat(result.getReceived()).isEqualTo(1005);
+        assertThat(result.getFailed()).isEqualTo(1005);
+        assertThat(result.getErrors()).hasSize(1000);
+        assertThat(count("SELECT COUNT(*) FROM reviews")).isZero();
+    }
+
+    private BulkIngestResultDto ingest(String input) throws IOException {
+        return ingestionService.ingest(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private long count(String sql) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class);
+        return value == null ? 0 : value;
+    }
+
+    private Long saveCriterion(String name) {
+        Criterion criterion = new Criterion();
+        criterion.setName(name);
+        criterion.setWeight(1.0);
+        return criterionRepository.save(criterion).getId();
+    }
+
+    private static String record(Long productId, String status, Long firstCriterion, int firstRating,
+                                 Long secondCriterion, int secondRating) {
+        return "{\"productId\":" + productId
+                + (status == null ? "" : ",\"status\":\"" + status + "\"")
+                + ",\"dateCreated\":\"2024-03-01T10:00:00\""
+                + ",\"ratings\":{\"" + firstCriterion + "\":" + firstRating + ",\"" + secondCriterion + "\":" + secondRating + "}}";
+    }
+}
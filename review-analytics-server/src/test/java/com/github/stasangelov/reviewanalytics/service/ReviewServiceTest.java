@@ -1,19 +1,22 @@
 package com.github.stasangelov.reviewanalytics.service;
 
 import com.github.stasangelov.reviewanalytics.dto.review.ReviewDto;
-import com.github.stasangelov.reviewanalytics.entity.Criterion;
 import com.github.stasangelov.reviewanalytics.entity.Product;
 import com.github.stasangelov.reviewanalytics.entity.Review;
 import com.github.stasangelov.reviewanalytics.repository.CriterionRepository;
 import com.github.stasangelov.reviewanalytics.repository.ProductRepository;
 import com.github.stasangelov.reviewanalytics.repository.ReviewRepository;
 import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -21,6 +24,7 @@ import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,6 +35,10 @@ class ReviewServiceTest {
     @Mock private ProductRepository productRepository;
     @Mock private CriterionRepository criterionRepository;
     @Mock private ReviewMapper reviewMapper;
+    @Mock private CriterionWeightCache criterionWeightCache;
+    @Mock private ReviewRollupService reviewRollupService;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Spy private OperationMetrics operationMetrics = new OperationMetrics(new SimpleMeterRegistry());
 
     @InjectMocks
     private ReviewService reviewService;
@@ -51,10 +59,8 @@ class ReviewServiceTest {
         // 2. Моки
         when(productRepository.findById(prodId)).thenReturn(Optional.of(new Product()));
 
-        Criterion c1 = new Criterion(); c1.setWeight(0.5);
-        Criterion c2 = new Criterion(); c2.setWeight(0.5);
-        when(criterionRepository.findById(10L)).thenReturn(Optional.of(c1));
-        when(criterionRepository.findById(20L)).thenReturn(Optional.of(c2));
+        when(criterionWeightCache.getWeight(10L)).thenReturn(0.5);
+        when(criterionWeightCache.getWeight(20L)).thenReturn(0.5);
 
         when(reviewRepository.save(any(Review.class))).thenAnswer(i -> i.getArguments()[0]);
 
@@ -66,4 +72,23 @@ class ReviewServiceTest {
                 r.getIntegralRating() == 4.0
         ));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Модерация: вклад отзыва в витрину снимается до смены статуса и добавляется после")
+    void changeStatus_ShouldReplaceRollupContribution() {
+        Review review = new Review();
+        review.setStatus(Review.ReviewStatus.ACTIVE);
+        ReviewRollupService.Contribution previous = new ReviewRollupService.Contribution(
+                LocalDateTime.now().toLocalDate(), 1L, 1L, "Brand", 4.0, Map.of(10L, 4));
+
+        when(reviewRepository.findById(1L)).thenReturn(Optional.of(review));
+        when(reviewRepository.save(any(Review.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(reviewRollupService.capture(review)).thenReturn(previous, (ReviewRollupService.Contribution) null);
+
+        reviewService.changeStatus(1L, Review.ReviewStatus.REJECTED);
+
+        InOrder order = inOrder(reviewRollupService);
+        order.verify(reviewRollupService).apply(previous, -1);
+        order.verify(reviewRollupService).apply(null, 1);
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.DashboardDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SinglePassDashboardAggregatorTest {
+
+    @Test
+    @DisplayName("Один проход: отзыв учитывается один раз, оценки - каждая")
+    void toDashboard_ShouldCountReviewOncePerRatingRows() {
+        SinglePassDashboardAggregator aggregator = new SinglePassDashboardAggregator(DynamicsGranularity.MONTH, false);
+        LocalDate day = LocalDate.of(2025, 3, 14);
+
+        // Отзыв 1 (рейтинг 4.0) с двумя оценками, отзыв 2 (рейтинг 2.0) с одной оценкой
+        aggregator.accept(1L, day, 4.0, 10L, "A", "Apple", "Ноутбуки", "Цена", 5);
+        aggregator.accept(1L, day, 4.0, 10L, "A", "Apple", "Ноутбуки", "Дизайн", 3);
+        aggregator.accept(2L, day.plusDays(1), 2.0, 20L, "B", "Dell", "Ноутбуки", "Цена", 2);
+
+        DashboardDto dashboard = aggregator.toDashboard(5);
+
+        assertThat(dashboard.getKpis().getTotalReviews()).isEqualTo(2);
+        assertThat(dashboard.getKpis().getAverageIntegralRating()).isEqualTo(3.0);
+        assertThat(dashboard.getTopRatedProducts()).extracting("productId").containsExactly(10L, 20L);
+        assertThat(dashboard.getWorstRatedProducts()).extracting("productId").containsExactly(20L, 10L);
+        assertThat(dashboard.getCategoryRatings()).singleElement()
+                .satisfies(c -> assertThat(c.getAverageRating()).isEqualTo(3.0));
+        assertThat(dashboard.getRatingDynamics()).singleElement()
+                .satisfies(d -> assertThat(d.getDate()).isEqualTo(LocalDate.of(2025, 3, 1)));
+        assertThat(dashboard.getRatingDistribution()).extracting("criterionName").containsExactly("Дизайн", "Цена");
+        assertThat(dashboard.getRatingDistribution().get(1).getRating5Count()).isEqualTo(1);
+        assertThat(dashboard.getRatingDistribution().get(1).getRating2Count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.stasangelov.reviewanalytics.service;
+
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarAnalyticsEngine;
+import com.github.stasangelov.reviewanalytics.service.columnar.ColumnarReviewStore;
+import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Import({SyntheticDataGenerator.class, ReviewService.class, ReviewMapper.class, CriterionWeightCache.class,
+        ReviewRollupService.class, AnalyticsResultCache.class, OperationMetrics.class, SimpleMeterRegistry.class,
+        ColumnarReviewStore.class, ColumnarAnalyticsEngine.class})
+class SyntheticDataGeneratorTest {
+
+    private static final int PRODUCTS = 200;
+    private static final int REVIEWS = 5_000;
+
+    @Autowired private SyntheticDataGenerator syntheticDataGenerator;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Генератор данных: одно и то же зерно дает тот же набор, другое зерно — другой")
+    void generate_SameSeed_ShouldProduceSameDataset() {
+        syntheticDataGenerator.generate(settings(7));
+        List<String> first = snapshot();
+        syntheticDataGenerator.generate(settings(7));
+        List<String> repeated = snapshot();
+        syntheticDataGenerator.generate(settings(8));
+        List<String> otherSeed = snapshot();
+
+        assertThat(first).hasSizeGreaterThan(REVIEWS);
+        assertThat(repeated).isEqualTo(first);
+        assertThat(otherSeed).isNotEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("Генератор данных: популярные товары, сезонность, доля отклоненных и критерии своей категории")
+    void generate_ShouldProduceSkewedDataset() {
+        SyntheticDataGenerator.Summary summary = syntheticDataGenerator.generate(settings(42));
+
+        assertThat(count("SELECT COUNT(*) FROM reviews")).isEqualTo(REVIEWS);
+        assertThat(summary.getRejected()).isBetween(REVIEWS / 20L, REVIEWS / 5L);
+        assertThat(count("SELECT COUNT(*) FROM reviews WHERE status = 'REJECTED'")).isEqualTo(summary.getRejected());
+
+        // Самый популярный товар собирает во много раз больше отзывов, чем в среднем
+        long top = count("SELECT MAX(cnt) FROM (SELECT COUNT(*) cnt FROM reviews GROUP BY product_id) t");
+        assertThat(top).isGreaterThan(10L * REVIEWS / PRODUCTS);
+
+        // Декабрь (сезон распродаж) заметно активнее июля того же года
+        long december = count("SELECT COUNT(*) FROM reviews WHERE date_created >= DATE '2024-12-01' AND date_created < DATE '2025-01-01'");
+        long july = count("SELECT COUNT(*) FROM reviews WHERE date_created >= DATE '2024-07-01' AND date_created < DATE '2024-08-01'");
+        assertThat(december).isGreaterThan(july * 3 / 2);
+
+        // Отзыв оценивает только критерии категории своего товара
+        assertThat(count("SELECT COUNT(*) FROM review_ratings rr JOIN reviews r ON r.id = rr.review_id " +
+                "JOIN products p ON p.id = r.product_id WHERE NOT EXISTS (SELECT 1 FROM category_criteria cc " +
+                "WHERE cc.category_id = p.category_id AND cc.criterion_id = rr.criterion_id)")).isZero();
+        assertThat(count("SELECT COUNT(*) FROM reviews WHERE integral_rating IS NULL")).isZero();
+        assertThat(count("SELECT COUNT(*) FROM review_daily_rollup")).isPositive();
+    }
+
+    private static SyntheticDataGenerator.Settings settings(long seed) {
+        SyntheticDataGenerator.Settings settings = new SyntheticDataGenerator.Settings();
+        settings.setSeed(seed);
+        settings.setCategories(4);
+        settings.setProducts(PRODUCTS);
+        settings.setReviews(REVIEWS);
+        settings.setBatchSize(500);
+        return settings;
+    }
+
+    /**
+     * Содержимое набора без суррогатных id, которые у повторной генерации другие.
+     */
+    private List<String> snapshot() {
+        List<String> rows = new ArrayList<>(jdbcTemplate.queryForList(
+                "SELECT p.name || '|' || r.date_created || '|' || r.status || '|' || r.integral_rating " +
+                        "FROM reviews r JOIN products p ON p.id = r.product_id ORDER BY r.id", String.class));
+        rows.addAll(jdbcTemplate.queryForList(
+                "SELECT c.name || '|' || rr.rating FROM review_ratings rr JOIN criteria c ON c.id = rr.criterion_id " +
+                        "ORDER BY rr.review_id, c.name", String.class));
+        return rows;
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
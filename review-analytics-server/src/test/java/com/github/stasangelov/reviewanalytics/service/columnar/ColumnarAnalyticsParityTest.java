@@ -0,0 +1,246 @@
+package com.github.stasangelov.reviewanalytics.service.columnar;
+
+import com.github.stasangelov.reviewanalytics.dto.analytics.columnar.ColumnarStoreStatsDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.ComparisonDataDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.comparison.CriteriaProfileDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.dashboard.*;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductDetailsDto;
+import com.github.stasangelov.reviewanalytics.dto.analytics.product.ProductSummaryDto;
+import com.github.stasangelov.reviewanalytics.event.ReviewChangedEvent;
+import com.github.stasangelov.reviewanalytics.service.*;
+import com.github.stasangelov.reviewanalytics.service.mapper.ReviewMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Сверяет ответы колоночного хранилища с запросами {@link AnalyticsService} к БД на синтетическом наборе.
+ * В контексте хранилище выключено, поэтому сервис отвечает запросами к БД; колоночное хранилище
+ * и движок создаются в тесте над той же БД. Дашборд сверяется с вариантом RAW за окна не длиннее
+ * 15 дней: группировка динамики по неделям и месяцам использует функции MySQL, которых нет в H2.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Import({AnalyticsService.class, SyntheticDataGenerator.class, ReviewService.class, ReviewMapper.class,
+        CriterionWeightCache.class, ReviewRollupService.class, AnalyticsResultCache.class, OperationMetrics.class,
+        SimpleMeterRegistry.class, ColumnarReviewStore.class, ColumnarAnalyticsEngine.class})
+class ColumnarAnalyticsParityTest {
+
+    private static final double EPSILON = 1e-6;
+    private static final LocalDate WINDOW_START = LocalDate.of(2024, 12, 1);
+    private static final LocalDate WINDOW_END = LocalDate.of(2024, 12, 14);
+
+    @Autowired private AnalyticsService analyticsService;
+    @Autowired private SyntheticDataGenerator syntheticDataGenerator;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private ColumnarReviewStore store;
+    private ColumnarAnalyticsEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        SyntheticDataGenerator.Settings settings = new SyntheticDataGenerator.Settings();
+        settings.setSeed(11);
+        settings.setCategories(3);
+        settings.setProducts(60);
+        settings.setReviews(3_000);
+        settings.setBatchSize(500);
+        syntheticDataGenerator.generate(settings);
+        ReflectionTestUtils.setField(analyticsService, "dashboardSource", AnalyticsService.DashboardSource.RAW);
+
+        // Маленькие порции загрузки и участки сканирования, чтобы проверить склейку порций и частичных агрегатов
+        store = new ColumnarReviewStore(jdbcTemplate, true, 700);
+        engine = new ColumnarAnalyticsEngine(store, 3, 500);
+        assertThat(store.reload()).isEqualTo(3_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+        store.shutdown();
+    }
+
+    @Test
+    @DisplayName("Колоночное хранилище: дашборд за окно совпадает с запросами к БД по всем категориям и по одной")
+    void dashboard_ShouldMatchSql() {
+        Long categoryId = firstCategoryId();
+
+        assertDashboard(engine.getDashboardData(WINDOW_START, WINDOW_END, null),
+                analyticsService.getDashboardData(WINDOW_START, WINDOW_END, null));
+        assertDashboard(engine.getDashboardData(WINDOW_START, WINDOW_END, categoryId),
+                analyticsService.getDashboardData(WINDOW_START, WINDOW_END, categoryId));
+        assertDashboard(engine.getDashboardData(WINDOW_START, WINDOW_START, categoryId),
+                analyticsService.getDashboardData(WINDOW_START, WINDOW_START, categoryId));
+    }
+
+    @Test
+    @DisplayName("Колоночное хранилище: сводка, детализация и сравнение товаров совпадают с запросами к БД")
+    void productQueries_ShouldMatchSql() {
+        Long categoryId = firstCategoryId();
+        assertProductsSummary(engine.getProductsSummary(null, null, null), analyticsService.getProductsSummary(null, null, null));
+        assertProductsSummary(engine.getProductsSummary(null, null, categoryId), analyticsService.getProductsSummary(null, null, categoryId));
+        assertProductsSummary(engine.getProductsSummary(WINDOW_START, WINDOW_END, categoryId),
+                analyticsService.getProductsSummary(WINDOW_START, WINDOW_END, categoryId));
+
+        List<Long> productIds = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id LIMIT 5", Long.class);
+        for (Long productId : productIds) {
+            assertDetails(engine.getProductDetailsSummary(productId), analyticsService.getProductDetailsSummary(productId));
+        }
+
+        List<Long> compared = List.of(productIds.get(2), productIds.get(0), productIds.get(2));
+        List<ComparisonDataDto> actual = engine.getComparisonData(compared);
+        List<ComparisonDataDto> expected = analyticsService.getComparisonData(compared);
+        assertThat(actual).extracting(ComparisonDataDto::getProductId).isEqualTo(compared);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getProductName()).isEqualTo(expected.get(i).getProductName());
+            assertProfile(actual.get(i).getCriteriaProfile(), expected.get(i).getCriteriaProfile());
+        }
+
+        assertThat(engine.getProductDetailsSummary(-1L)).isNull();
+        assertThat(engine.getComparisonData(List.of(productIds.get(0), -1L))).isNull();
+    }
+
+    @Test
+    @DisplayName("Колоночное хранилище: изменения отзывов применяются так же, как полная перезагрузка")
+    void onReviewChanged_ShouldMatchReload() {
+        Long productId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products", Long.class);
+        Map<String, Object> product = jdbcTemplate.queryForMap(
+                "SELECT category_id, brand FROM products WHERE id = ?", productId);
+        Long criterionId = jdbcTemplate.queryForObject(
+                "SELECT MIN(criterion_id) FROM category_criteria WHERE category_id = ?", Long.class, product.get("category_id"));
+
+        // Новый активный отзыв: вклад передается в событии
+        LocalDateTime created = WINDOW_START.plusDays(3).atTime(10, 0);
+        jdbcTemplate.update("INSERT INTO reviews (date_created, integral_rating, status, product_id) VALUES (?, 4.0, 'ACTIVE', ?)",
+                created, productId);
+        Long newReviewId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM reviews", Long.class);
+        jdbcTemplate.update("INSERT INTO review_ratings (review_id, criterion_id, rating) VALUES (?, ?, 4)", newReviewId, criterionId);
+        store.onReviewChanged(new ReviewChangedEvent(newReviewId, null, new ReviewRollupService.Contribution(
+                created.toLocalDate(), productId, ((Number) product.get("category_id")).longValue(),
+                (String) product.get("brand"), 4.0, Map.of(criterionId, 4))));
+
+        // Отклоненный отзыв: состояние перечитывается из БД
+        Long rejectedId = jdbcTemplate.queryForObject(
+                "SELECT MIN(id) FROM reviews WHERE status = 'ACTIVE' AND date_created >= ?", Long.class, WINDOW_START.atStartOfDay());
+        jdbcTemplate.update("UPDATE reviews SET status = 'REJECTED' WHERE id = ?", rejectedId);
+        store.onReviewChanged(new ReviewChangedEvent(rejectedId, null, null));
+
+        DashboardDto incremental = engine.getDashboardData(WINDOW_START, WINDOW_END, null);
+        List<ProductSummaryDto> incrementalSummary = engine.getProductsSummary(null, null, null);
+        ProductDetailsDto incrementalDetails = engine.getProductDetailsSummary(productId);
+
+        assertDashboard(incremental, analyticsService.getDashboardData(WINDOW_START, WINDOW_END, null));
+        store.reload();
+        assertDashboard(incremental, engine.getDashboardData(WINDOW_START, WINDOW_END, null));
+        assertProductsSummary(incrementalSummary, engine.getProductsSummary(null, null, null));
+        assertDetails(incrementalDetails, engine.getProductDetailsSummary(productId));
+    }
+
+    @Test
+    @DisplayName("Колоночное хранилище: отчет о числе отзывов и памяти колонок и битовых индексов")
+    void getStats_ShouldReportMemory() {
+        ColumnarStoreStatsDto stats = store.getStats();
+
+        assertThat(stats.isLoaded()).isTrue();
+        assertThat(stats.getReviewCount()).isEqualTo(3_000);
+        assertThat(stats.getColumnBytes()).isPositive();
+        assertThat(stats.getIndexBytes()).isPositive();
+        // Статусы, категории, товары, дни и месяцы
+        assertThat(stats.getIndexBitmaps()).isGreaterThan(2 + 3 + 60);
+    }
+
+    //================================================================================
+    // Сравнение результатов
+    //================================================================================
+
+    private Long firstCategoryId() {
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM categories", Long.class);
+    }
+
+    private static void assertDashboard(DashboardDto actual, DashboardDto expected) {
+        assertThat(actual.getKpis().getTotalReviews()).isEqualTo(expected.getKpis().getTotalReviews());
+        assertThat(actual.getKpis().getAverageIntegralRating()).isCloseTo(expected.getKpis().getAverageIntegralRating(), within(EPSILON));
+        // Порядок товаров с равным рейтингом не определен, поэтому сравниваются сами рейтинги
+        assertRatings(actual.getTopRatedProducts(), expected.getTopRatedProducts());
+        assertRatings(actual.getWorstRatedProducts(), expected.getWorstRatedProducts());
+        assertGroups(actual.getCategoryRatings(), expected.getCategoryRatings(),
+                CategoryRatingDto::getCategoryName, CategoryRatingDto::getAverageRating);
+        assertGroups(actual.getBrandRatings(), expected.getBrandRatings(),
+                BrandRatingDto::getBrandName, BrandRatingDto::getAverageRating);
+        // Сервис дополняет динамику пустыми периодами, движок возвращает только периоды с оценками
+        assertGroups(rated(actual.getRatingDynamics()), rated(expected.getRatingDynamics()),
+                RatingDynamicDto::getDate, RatingDynamicDto::getAverageRating);
+        assertThat(actual.getRatingDistribution()).containsExactlyInAnyOrderElementsOf(expected.getRatingDistribution());
+    }
+
+    private static List<RatingDynamicDto> rated(List<RatingDynamicDto> dynamics) {
+        return dynamics.stream().filter(point -> point.getAverageRating() != null).toList();
+    }
+
+    private static void assertRatings(List<TopProductDto> actual, List<TopProductDto> expected) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getAverageRating()).isCloseTo(expected.get(i).getAverageRating(), within(EPSILON));
+        }
+    }
+
+    private static <T, K> void assertGroups(List<T> actual, List<T> expected, Function<T, K> key, Function<T, Double> value) {
+        if (expected == null) {
+            assertThat(actual).isNull();
+            return;
+        }
+        Map<K, Double> actualByKey = actual.stream().collect(Collectors.toMap(key, value));
+        assertThat(actualByKey.keySet()).isEqualTo(expected.stream().map(key).collect(Collectors.toSet()));
+        for (T item : expected) {
+            assertThat(actualByKey.get(key.apply(item))).isCloseTo(value.apply(item), within(EPSILON));
+        }
+    }
+
+    private static void assertProductsSummary(List<ProductSummaryDto> actual, List<ProductSummaryDto> expected) {
+        assertThat(actual).extracting(ProductSummaryDto::getProductId)
+                .containsExactlyInAnyOrderElementsOf(expected.stream().map(ProductSummaryDto::getProductId).toList());
+        Map<Long, ProductSummaryDto> actualById = actual.stream()
+                .collect(Collectors.toMap(ProductSummaryDto::getProductId, Function.identity()));
+        for (ProductSummaryDto item : expected) {
+            ProductSummaryDto other = actualById.get(item.getProductId());
+            assertThat(other.getProductName()).isEqualTo(item.getProductName());
+            assertThat(other.getCategoryName()).isEqualTo(item.getCategoryName());
+            assertThat(other.getBrand()).isEqualTo(item.getBrand());
+            assertThat(other.getReviewCount()).isEqualTo(item.getReviewCount());
+            if (item.getAverageRating() == null) {
+                assertThat(other.getAverageRating()).isNull();
+            } else {
+                assertThat(other.getAverageRating()).isCloseTo(item.getAverageRating(), within(EPSILON));
+            }
+        }
+    }
+
+    private static void assertDetails(ProductDetailsDto actual, ProductDetailsDto expected) {
+        assertThat(actual.getProductId()).isEqualTo(expected.getProductId());
+        assertThat(actual.getProductName()).isEqualTo(expected.getProductName());
+        assertThat(actual.getCategoryName()).isEqualTo(expected.getCategoryName());
+        assertThat(actual.getBrand()).isEqualTo(expected.getBrand());
+        assertThat(actual.getReviewCount()).isEqualTo(expected.getReviewCount());
+        assertThat(actual.getAverageRating()).isCloseTo(expected.getAverageRating(), within(EPSILON));
+        assertProfile(actual.getCriteriaProfile(), expected.getCriteriaProfile());
+    }
+
+    private static void assertProfile(List<CriteriaProfileDto> actual, List<CriteriaProfileDto> expected) {
+        assertGroups(actual, expected, CriteriaProfileDto::getCriterionName, CriteriaProfileDto::getAverageRating);
+    }
+}